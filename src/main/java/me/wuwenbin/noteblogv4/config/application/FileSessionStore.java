@@ -0,0 +1,246 @@
+package me.wuwenbin.noteblogv4.config.application;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存存储 + 追加写的日志文件，重启后重放日志恢复 session
+ * 每条记录以一个字节的类型开头：S 保存（完整的 session）、T 访问时间、R 移除、U 移除某个用户的全部 session；
+ * 访问时间最多每 touch-interval 毫秒写一次，所以重启之后 session 可能提前这么久过期；
+ * 记录数超过 compact-threshold 并且超过在线 session 数的两倍时，把在线的 session 写成新文件替换原来的日志，
+ * 文件末尾不完整的记录（写到一半时进程退出）在重放时忽略
+ * created by Wuwenbin on 2019/3/11 at 13:10
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+public class FileSessionStore extends MemorySessionStore {
+
+    private static final byte SAVE = 'S';
+    private static final byte TOUCH = 'T';
+    private static final byte REMOVE = 'R';
+    private static final byte REMOVE_USER = 'U';
+
+    private final Path file;
+    private final long touchInterval;
+    private final int compactThreshold;
+    private volatile DataOutputStream out;
+    private volatile int records;
+    private volatile long lastCompact;
+
+    public FileSessionStore(Environment env) {
+        super(env);
+        String defaultPath = System.getProperty("user.home") + "/.noteblogv4/session/sessions.log";
+        this.file = Paths.get(env.getProperty("noteblog.session.file-path", defaultPath).replace("file:", ""));
+        this.touchInterval = env.getProperty("noteblog.session.touch-interval", Long.class, 60000L);
+        this.compactThreshold = Math.max(100, env.getProperty("noteblog.session.compact-threshold", Integer.class, 10000));
+        replay();
+        compact();
+    }
+
+    @Override
+    public synchronized void save(NBSession session) {
+        super.save(session);
+        append(data -> {
+            data.writeByte(SAVE);
+            writeSession(data, session);
+        });
+    }
+
+    @Override
+    public void touch(NBSession session) {
+        long accessTime = session.getLastAccessTime();
+        if (accessTime - session.savedAccessTime < touchInterval) {
+            return;
+        }
+        synchronized (this) {
+            session.savedAccessTime = accessTime;
+            append(data -> {
+                data.writeByte(TOUCH);
+                data.writeUTF(session.getId());
+                data.writeLong(accessTime);
+            });
+        }
+    }
+
+    @Override
+    public synchronized void remove(NBSession session) {
+        super.remove(session);
+        append(data -> {
+            data.writeByte(REMOVE);
+            data.writeUTF(session.getId());
+        });
+    }
+
+    @Override
+    public synchronized int removeByUser(long userId) {
+        int count = super.removeByUser(userId);
+        if (count > 0) {
+            append(data -> {
+                data.writeByte(REMOVE_USER);
+                data.writeLong(userId);
+            });
+        }
+        return count;
+    }
+
+    @Override
+    public int expire(long now) {
+        int expired = super.expire(now);
+        boolean broken = out == null && now - lastCompact >= TimeUnit.MINUTES.toMillis(1);
+        if (broken || records > compactThreshold && records > size() * 2) {
+            compact();
+        }
+        return expired;
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        compact();
+    }
+
+    @Override
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    /**
+     * 把在线的 session 写进临时文件，改名替换原来的日志，然后继续追加；写日志出错之后也靠这里重新打开文件
+     */
+    synchronized void compact() {
+        long now = System.currentTimeMillis();
+        lastCompact = now;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            int count = 0;
+            try (DataOutputStream snapshot = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                for (NBSession session : sessions()) {
+                    if (!session.isExpired(now, getTimeout())) {
+                        snapshot.writeByte(SAVE);
+                        writeSession(snapshot, session);
+                        count++;
+                    }
+                }
+            }
+            closeQuietly();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+            log.info("session 日志 [{}] 压缩完毕，原记录数：[{}]，在线 session 数：[{}]", file.toAbsolutePath(), records, count);
+            records = count;
+        } catch (IOException e) {
+            log.error("压缩 session 日志 [{}] 出错", file.toAbsolutePath(), e);
+        }
+    }
+
+    private void replay() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int type;
+            while ((type = in.read()) >= 0) {
+                NBSession session;
+                switch (type) {
+                    case SAVE:
+                        super.save(readSession(in));
+                        break;
+                    case TOUCH:
+                        session = super.get(in.readUTF());
+                        long accessTime = in.readLong();
+                        if (session != null) {
+                            session.restoreAccessTime(accessTime);
+                        }
+                        break;
+                    case REMOVE:
+                        session = super.get(in.readUTF());
+                        if (session != null) {
+                            super.remove(session);
+                        }
+                        break;
+                    case REMOVE_USER:
+                        super.removeByUser(in.readLong());
+                        break;
+                    default:
+                        throw new IOException("未知的记录类型：" + type);
+                }
+                count++;
+            }
+        } catch (EOFException e) {
+            log.warn("session 日志 [{}] 末尾的记录不完整，已忽略", file.toAbsolutePath());
+        } catch (IOException e) {
+            log.error("读取 session 日志 [{}] 出错，只恢复了前 [{}] 条记录", file.toAbsolutePath(), count, e);
+        }
+        records = count;
+        log.info("从 session 日志恢复完毕，记录数：[{}]，session 数：[{}]", count, size());
+    }
+
+    private void append(Record record) {
+        if (out == null) {
+            return;
+        }
+        try {
+            record.write(out);
+            out.flush();
+            records++;
+        } catch (IOException e) {
+            log.error("写 session 日志 [{}] 出错，一分钟后重新生成", file.toAbsolutePath(), e);
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignore) {
+            }
+            out = null;
+        }
+    }
+
+    private static void writeSession(DataOutputStream out, NBSession session) throws IOException {
+        out.writeUTF(session.getId());
+        writeString(out, session.getHost());
+        out.writeLong(session.getUserId());
+        out.writeLong(session.getRoleId());
+        writeString(out, session.getUsername());
+        writeString(out, session.getNickname());
+        writeString(out, session.getAvatar());
+        out.writeLong(session.getStartTime());
+        out.writeLong(session.getLastAccessTime());
+        session.savedAccessTime = Math.max(session.savedAccessTime, session.getLastAccessTime());
+    }
+
+    private static NBSession readSession(DataInputStream in) throws IOException {
+        return new NBSession(in.readUTF(), readString(in), in.readLong(), in.readLong(),
+                readString(in), readString(in), readString(in), in.readLong(), in.readLong());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @FunctionalInterface
+    private interface Record {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,186 @@
+package me.wuwenbin.noteblogv4.config.application;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * session 保存在数据库表 nb_session 里，多个实例共享，重启或者滚动发布都不会丢失登录状态
+ * 每个实例在本地缓存查询结果 cache-millis 毫秒（包括查不到的结果），所以在其他实例上注销、强制下线最多延迟这么久生效；
+ * 访问时间最多每 touch-interval 毫秒写一次数据库，过期的 session 每 purge-interval 毫秒统一删除一次，
+ * session 数超过上限时删除最久没有访问的
+ * created by Wuwenbin on 2019/3/11 at 14:10
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+public class JdbcSessionStore implements SessionStore {
+
+    private static final String COLUMNS = "id, host, user_id, role_id, username, nickname, avatar, start_time, last_access";
+    private static final String SELECT_SQL = "SELECT " + COLUMNS + " FROM nb_session WHERE id = ?";
+    private static final String SAVE_SQL = "INSERT INTO nb_session (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE host = VALUES(host), user_id = VALUES(user_id), role_id = VALUES(role_id), " +
+            "username = VALUES(username), nickname = VALUES(nickname), avatar = VALUES(avatar), " +
+            "start_time = VALUES(start_time), last_access = VALUES(last_access)";
+    private static final String TOUCH_SQL = "UPDATE nb_session SET last_access = ? WHERE id = ? AND last_access < ?";
+    private static final String DELETE_SQL = "DELETE FROM nb_session WHERE id = ?";
+    private static final String DELETE_USER_SQL = "DELETE FROM nb_session WHERE user_id = ?";
+    private static final String PURGE_SQL = "DELETE FROM nb_session WHERE last_access < ?";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM nb_session";
+    private static final String TRIM_SQL = "DELETE FROM nb_session ORDER BY last_access LIMIT ?";
+    private static final RowMapper<NBSession> ROW_MAPPER = (rs, i) -> new NBSession(rs.getString(1), rs.getString(2),
+            rs.getLong(3), rs.getLong(4), rs.getString(5), rs.getString(6), rs.getString(7), rs.getLong(8), rs.getLong(9));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentHashMap<String, Cached> cache = new ConcurrentHashMap<>(256);
+    private final long timeout;
+    private final int maxSessions;
+    private final long touchInterval;
+    private final long cacheMillis;
+    private final int cacheSize;
+    private final long purgeInterval;
+    private volatile long lastPurge;
+
+    public JdbcSessionStore(JdbcTemplate jdbcTemplate, Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeout = Math.max(1000, env.getProperty("noteblog.session.timeout", Long.class, NBSession.DEFAULT_TIMEOUT_MILLS));
+        this.maxSessions = Math.max(1, env.getProperty("noteblog.session.max-sessions", Integer.class, 100000));
+        this.touchInterval = env.getProperty("noteblog.session.touch-interval", Long.class, 60000L);
+        this.cacheMillis = env.getProperty("noteblog.session.cache-millis", Long.class, 5000L);
+        this.cacheSize = Math.max(16, env.getProperty("noteblog.session.cache-size", Integer.class, 10000));
+        this.purgeInterval = env.getProperty("noteblog.session.purge-interval", Long.class, 60000L);
+    }
+
+    @Override
+    public long getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public NBSession get(String id) {
+        if (id == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(id);
+        if (cached != null && now - cached.loadedAt < cacheMillis) {
+            return cached.session;
+        }
+        List<NBSession> rows = jdbcTemplate.query(SELECT_SQL, ROW_MAPPER, id);
+        NBSession session = rows.isEmpty() ? null : rows.get(0);
+        if (session != null && cached != null && sameLogin(cached.session, session)) {
+            cached.session.restoreAccessTime(session.getLastAccessTime());
+            session = cached.session;
+        }
+        cache(id, session, now);
+        return session;
+    }
+
+    @Override
+    public void save(NBSession session) {
+        jdbcTemplate.update(SAVE_SQL, session.getId(), session.getHost(), session.getUserId(), session.getRoleId(),
+                session.getUsername(), session.getNickname(), session.getAvatar(), session.getStartTime(),
+                session.getLastAccessTime());
+        cache(session.getId(), session, System.currentTimeMillis());
+    }
+
+    @Override
+    public void touch(NBSession session) {
+        long accessTime = session.getLastAccessTime();
+        if (accessTime - session.savedAccessTime < touchInterval) {
+            return;
+        }
+        session.savedAccessTime = accessTime;
+        jdbcTemplate.update(TOUCH_SQL, accessTime, session.getId(), accessTime);
+    }
+
+    @Override
+    public void remove(NBSession session) {
+        session.destroy();
+        jdbcTemplate.update(DELETE_SQL, session.getId());
+        cache(session.getId(), null, System.currentTimeMillis());
+    }
+
+    @Override
+    public int removeByUser(long userId) {
+        int count = jdbcTemplate.update(DELETE_USER_SQL, userId);
+        cache.values().removeIf(cached -> {
+            if (cached.session != null && cached.session.getUserId() == userId) {
+                cached.session.destroy();
+                return true;
+            }
+            return false;
+        });
+        return count;
+    }
+
+    @Override
+    public int expire(long now) {
+        cache.values().removeIf(cached -> now - cached.loadedAt >= cacheMillis);
+        if (now - lastPurge < purgeInterval) {
+            return 0;
+        }
+        lastPurge = now;
+        try {
+            int purged = jdbcTemplate.update(PURGE_SQL, now - timeout);
+            Integer total = jdbcTemplate.queryForObject(COUNT_SQL, Integer.class);
+            if (total != null && total > maxSessions) {
+                int trimmed = jdbcTemplate.update(TRIM_SQL, total - maxSessions);
+                log.info("session 数量超过上限 [{}]，删除最久没有访问的 session 个数：[{}]", maxSessions, trimmed);
+            }
+            return purged;
+        } catch (DataAccessException e) {
+            log.error("清理过期 session 出错", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public int size() {
+        Integer total = jdbcTemplate.queryForObject(COUNT_SQL, Integer.class);
+        return total == null ? 0 : total;
+    }
+
+    @Override
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM nb_session");
+        cache.clear();
+    }
+
+    private void cache(String id, NBSession session, long now) {
+        if (cache.size() >= cacheSize) {
+            cache.values().removeIf(cached -> now - cached.loadedAt >= cacheMillis);
+            if (cache.size() >= cacheSize) {
+                cache.clear();
+            }
+        }
+        cache.put(id, new Cached(session, now));
+    }
+
+    /**
+     * 数据库里的记录和本地缓存的是否是同一次登录，是的话继续使用本地对象，保留本地还没写入数据库的访问时间
+     *
+     * @param local
+     * @param stored
+     * @return
+     */
+    private static boolean sameLogin(NBSession local, NBSession stored) {
+        return local != null && !local.isExpired() && local.getUserId() == stored.getUserId()
+                && local.getStartTime() == stored.getStartTime();
+    }
+
+    private static final class Cached {
+        private final NBSession session;
+        private final long loadedAt;
+
+        private Cached(NBSession session, long loadedAt) {
+            this.session = session;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package me.wuwenbin.noteblogv4.config.application;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存中的 session 存储
+ * session 按 id 保存在 map 里，另外按用户 id 建立索引用于强制下线，过期由 {@link SessionWheel} 处理；
+ * session 数量超过上限时移除最早过期的 session
+ * created by Wuwenbin on 2019/3/11 at 11:30
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+public class MemorySessionStore implements SessionStore {
+
+    private final ConcurrentHashMap<String, NBSession> sessions = new ConcurrentHashMap<>(256);
+    private final ConcurrentHashMap<Long, Set<String>> userSessions = new ConcurrentHashMap<>(256);
+    private final SessionWheel wheel;
+    private final long timeout;
+    private final int maxSessions;
+
+    public MemorySessionStore(Environment env) {
+        this.timeout = Math.max(1000, env.getProperty("noteblog.session.timeout", Long.class, NBSession.DEFAULT_TIMEOUT_MILLS));
+        this.maxSessions = Math.max(1, env.getProperty("noteblog.session.max-sessions", Integer.class, 100000));
+        long tickMillis = Math.max(100, env.getProperty("noteblog.session.tick-millis", Long.class, 1000L));
+        this.wheel = new SessionWheel(tickMillis, timeout, System.currentTimeMillis());
+    }
+
+    @Override
+    public long getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public NBSession get(String id) {
+        return id != null ? sessions.get(id) : null;
+    }
+
+    @Override
+    public void save(NBSession session) {
+        NBSession old = sessions.put(session.getId(), session);
+        if (old != null && old != session) {
+            unindex(old);
+            wheel.cancel(old);
+        }
+        userSessions.compute(session.getUserId(), (userId, ids) -> {
+            Set<String> set = ids != null ? ids : ConcurrentHashMap.newKeySet(4);
+            set.add(session.getId());
+            return set;
+        });
+        wheel.schedule(session);
+        while (sessions.size() > maxSessions) {
+            NBSession eldest = wheel.evict();
+            if (eldest == null) {
+                break;
+            }
+            log.info("session 数量超过上限 [{}]，移除 session：[{}]", maxSessions, eldest.getId());
+            eldest.destroy();
+            discard(eldest);
+        }
+    }
+
+    @Override
+    public void touch(NBSession session) {
+    }
+
+    @Override
+    public void remove(NBSession session) {
+        session.destroy();
+        wheel.cancel(session);
+        discard(session);
+    }
+
+    @Override
+    public int removeByUser(long userId) {
+        Set<String> ids = userSessions.remove(userId);
+        if (ids == null) {
+            return 0;
+        }
+        int count = 0;
+        for (String id : ids) {
+            NBSession session = sessions.get(id);
+            if (session != null && session.getUserId() == userId && sessions.remove(id, session)) {
+                session.destroy();
+                wheel.cancel(session);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int expire(long now) {
+        return wheel.advance(now, this::discard);
+    }
+
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+
+    @Override
+    public void clear() {
+        sessions.clear();
+        userSessions.clear();
+        wheel.clear();
+    }
+
+    Collection<NBSession> sessions() {
+        return sessions.values();
+    }
+
+    /**
+     * 从 map 和用户索引中移除，调用之前 session 已经不在时间轮中
+     *
+     * @param session
+     */
+    private void discard(NBSession session) {
+        if (sessions.remove(session.getId(), session)) {
+            unindex(session);
+        }
+    }
+
+    private void unindex(NBSession session) {
+        userSessions.computeIfPresent(session.getUserId(), (userId, ids) -> {
+            ids.remove(session.getId());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
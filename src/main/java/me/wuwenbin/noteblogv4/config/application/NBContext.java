@@ -1,54 +1,124 @@
 package me.wuwenbin.noteblogv4.config.application;
 
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
 import me.wuwenbin.noteblogv4.util.CookieUtils;
 import me.wuwenbin.noteblogv4.util.NBUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 全局的上下文对象
- * 用于操作session和cookie
+ * 用于操作session和cookie，session 保存在 {@link SessionStore} 中
  * created by Wuwenbin on 2018/7/16 at 12:25
  *
  * @author wuwenbin
  */
+@Slf4j
 @Component
-public class NBContext extends ConcurrentHashMap<String, NBSession> {
+public class NBContext {
 
     private static ConcurrentHashMap<String, Object> applicationContext = new ConcurrentHashMap<>(100);
 
+    private final SessionStore store;
+
+    @Autowired
+    public NBContext(SessionStore store) {
+        this.store = store;
+    }
+
     public void setSessionUser(HttpServletRequest request, HttpServletResponse response, NBSysUser sessionUser) {
-        NBSession session = NBSession.builder()
-                .sessionUser(sessionUser)
-                .expired(false)
-                .host(NBUtils.getRemoteAddress(request))
-                .build();
         Cookie cookie = CookieUtils.getCookie(request, NoteBlogV4.Session.SESSION_ID_COOKIE);
-        if (cookie != null) {
-            session.setId(cookie.getValue());
-        }
-        CookieUtils.setCookie(response, NoteBlogV4.Session.SESSION_ID_COOKIE, session.getId(), -1);
-        put(session.getId(), session);
+        String id = cookie != null ? cookie.getValue() : IdUtil.randomUUID();
+        put(new NBSession(id, NBUtils.getRemoteAddress(request), sessionUser, System.currentTimeMillis()));
+        CookieUtils.setCookie(response, NoteBlogV4.Session.SESSION_ID_COOKIE, id, -1);
     }
 
     public NBSysUser getSessionUser(String uuid) {
-        Optional<NBSession> user = Optional.ofNullable(get(uuid));
-        return user.map(NBSession::getSessionUser).orElse(null);
+        NBSession session = getSession(uuid);
+        return session != null ? session.toUser() : null;
+    }
+
+    /**
+     * 获取未过期的 session，已过期的顺便移除
+     *
+     * @param uuid
+     * @return
+     */
+    public NBSession getSession(String uuid) {
+        NBSession session = uuid != null ? store.get(uuid) : null;
+        if (session != null && session.isExpired(System.currentTimeMillis(), store.getTimeout())) {
+            store.remove(session);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * 更新 session 的最后访问时间，ip 变动或者已过期时移除并返回 null
+     *
+     * @param uuid
+     * @param remoteAddress
+     * @return
+     */
+    public NBSession touch(String uuid, String remoteAddress) {
+        NBSession session = getSession(uuid);
+        if (session == null) {
+            return null;
+        }
+        if (!session.update(remoteAddress, System.currentTimeMillis())) {
+            store.remove(session);
+            return null;
+        }
+        store.touch(session);
+        return session;
     }
 
     public void removeSessionUser(String uuid) {
-        super.remove(uuid);
+        NBSession session = uuid != null ? store.get(uuid) : null;
+        if (session != null) {
+            store.remove(session);
+        }
+    }
+
+    /**
+     * 强制某个用户的所有 session 下线
+     *
+     * @param userId
+     * @return 下线的 session 个数
+     */
+    public int removeSessionsOfUser(long userId) {
+        int count = store.removeByUser(userId);
+        log.info("用户 [{}] 被强制下线，移除 session 个数：[{}]", userId, count);
+        return count;
     }
 
     public void clearAll() {
-        super.clear();
+        store.clear();
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * 清理过期的 session
+     *
+     * @return 过期的个数
+     */
+    public int expire() {
+        return store.expire(System.currentTimeMillis());
+    }
+
+    void put(NBSession session) {
+        store.save(session);
     }
 
     public void setApplicationObj(String key, Object value) {
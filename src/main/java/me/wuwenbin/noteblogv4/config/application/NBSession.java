@@ -1,69 +1,98 @@
 package me.wuwenbin.noteblogv4.config.application;
 
-import cn.hutool.core.util.IdUtil;
-import cn.hutool.core.util.StrUtil;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
-import me.wuwenbin.noteblogv4.util.NBUtils;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
-import javax.servlet.http.HttpServletRequest;
 import java.io.Serializable;
-import java.time.LocalDateTime;
-
-import static java.lang.Boolean.FALSE;
-import static java.time.LocalDateTime.now;
 
 /**
+ * 登录会话，只保存页面和权限判断需要的用户信息（不含密码），时间都用毫秒数表示；
+ * prev/next/slot 是 {@link SessionWheel} 的链表指针，只在持有时间轮的锁时访问
  * created by Wuwenbin on 2018/2/7 at 20:56
+ *
  * @author wuwenbin
  */
 @Slf4j
-@Data
-@Builder
-@AllArgsConstructor
-@NoArgsConstructor
+@Getter
 public class NBSession implements Serializable {
 
-    @Builder.Default
-    private String id = IdUtil.randomUUID();
-    private String host;
-    @Builder.Default
-    private LocalDateTime startTimestamp = now();
-    @Builder.Default
-    private LocalDateTime lastAccessTime = now();
-    @Builder.Default
-    private long timeout = DEFAULT_TIMEOUT_MILLS;
-    @Builder.Default
-    private LocalDateTime expireTimestamp = now().plusSeconds(DEFAULT_TIMEOUT_MILLS / 1000);
-    @Builder.Default
-    private boolean expired = FALSE;
-    private NBSysUser sessionUser;
-
     public static final long DEFAULT_TIMEOUT_MILLS = 30 * 60 * 1000;
 
-    private static HttpServletRequest getRequest() {
-        ServletRequestAttributes ra = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-        assert ra != null;
-        return ra.getRequest();
+    private final String id;
+    private final String host;
+    private final long userId;
+    private final long roleId;
+    private final String username;
+    private final String nickname;
+    private final String avatar;
+    private final long startTime;
+    private volatile long lastAccessTime;
+    private volatile boolean expired;
+
+    @Getter(AccessLevel.NONE)
+    transient NBSession prev;
+    @Getter(AccessLevel.NONE)
+    transient NBSession next;
+    @Getter(AccessLevel.NONE)
+    transient int slot = -1;
+    /**
+     * 最后一次写到 {@link SessionStore} 持久化存储里的访问时间
+     */
+    @Getter(AccessLevel.NONE)
+    transient volatile long savedAccessTime;
+
+    public NBSession(String id, String host, NBSysUser user, long now) {
+        this(id, host, user.getId(), user.getDefaultRoleId() == null ? 0 : user.getDefaultRoleId(),
+                user.getUsername(), user.getNickname(), user.getAvatar(), now, now);
+    }
+
+    NBSession(String id, String host, long userId, long roleId, String username, String nickname, String avatar,
+              long startTime, long lastAccessTime) {
+        this.id = id;
+        this.host = host;
+        this.userId = userId;
+        this.roleId = roleId;
+        this.username = username;
+        this.nickname = nickname;
+        this.avatar = avatar;
+        this.startTime = startTime;
+        this.lastAccessTime = lastAccessTime;
+        this.savedAccessTime = lastAccessTime;
     }
 
     /**
-     * 更新session
+     * 更新最后访问时间，ip 变动时把 session 变为过期状态
+     *
+     * @param remoteAddress
+     * @param now
+     * @return session 是否仍然有效
      */
-    public void update() {
-        String info = "update session for id:[{}], at [{}] by url:[{}] with ip:[{}]";
-        log.info(StrUtil.format(info, this.getId(), LocalDateTime.now(), getRequest().getRequestURL()), NBUtils.getRemoteAddress(getRequest()));
-        this.lastAccessTime = now();
-        this.expireTimestamp = lastAccessTime.plusSeconds(getTimeout() / 1000);
-        if (!host.equals(NBUtils.getRemoteAddress(getRequest()))) {
-            log.info("ip变动，存在非法访问情况");
+    public boolean update(String remoteAddress, long now) {
+        if (host != null && !host.equals(remoteAddress)) {
+            log.info("session [{}] 的ip由 [{}] 变为 [{}]，存在非法访问情况", id, host, remoteAddress);
             this.expired = true;
+            return false;
+        }
+        if (now > lastAccessTime) {
+            this.lastAccessTime = now;
+        }
+        log.debug("update session for id:[{}] with ip:[{}]", id, remoteAddress);
+        return !expired;
+    }
+
+    /**
+     * 从持久化存储恢复或者合并其他节点的访问时间，只会变大
+     *
+     * @param accessTime
+     */
+    void restoreAccessTime(long accessTime) {
+        if (accessTime > lastAccessTime) {
+            this.lastAccessTime = accessTime;
+        }
+        if (accessTime > savedAccessTime) {
+            this.savedAccessTime = accessTime;
         }
     }
 
@@ -71,32 +100,26 @@ public class NBSession implements Serializable {
      * 注销session，即把session变为过期状态
      */
     public void destroy() {
-        String info = "destroy session for id:[{}], at [{}]";
-        log.info(StrUtil.format(info, this.getId(), LocalDateTime.now()));
+        log.debug("destroy session for id:[{}]", id);
         this.expired = true;
     }
 
+    public boolean isExpired(long now, long timeout) {
+        return expired || now - lastAccessTime >= timeout;
+    }
 
-    public boolean isExpired() {
-        if (this.expired) {
-            return true;
-        }
-
-        long timeout = getTimeout();
-        if (timeout >= 0) {
-            LocalDateTime lastAccessTime = getLastAccessTime();
-            if (lastAccessTime == null) {
-                throw new IllegalStateException("最后访问时间为空");
-            }
-            LocalDateTime expire = getExpireTimestamp();
-            boolean isExpire = LocalDateTime.now().isAfter(lastAccessTime.plusSeconds(timeout / 1000));
-            log.info("当前时间：{}，最后访问时间：{}，过期时间：{}，session 是否过期：{}", LocalDateTime.now(), lastAccessTime, expire, isExpire);
-            if (isExpire) {
-                this.expired = true;
-            }
-            return isExpire;
-        }
-        this.expired = true;
-        return true;
+    /**
+     * 生成只包含 id、用户名、昵称、头像和默认角色的用户对象，需要其他字段时请从数据库查询
+     *
+     * @return
+     */
+    public NBSysUser toUser() {
+        NBSysUser user = new NBSysUser();
+        user.setId(userId);
+        user.setUsername(username);
+        user.setNickname(nickname);
+        user.setAvatar(avatar);
+        user.setDefaultRoleId(roleId);
+        return user;
     }
 }
@@ -0,0 +1,69 @@
+package me.wuwenbin.noteblogv4.config.application;
+
+import java.io.Closeable;
+
+/**
+ * session 的存储方式，通过 noteblog.session.store 选择：
+ * memory（默认，只在内存中）、file（追加写日志文件，重启后恢复）、jdbc（数据库，多个实例共享）
+ * 是否过期、ip 是否变动由 {@link NBContext} 判断，存储只负责保存和按超时时间清理
+ * created by Wuwenbin on 2019/3/11 at 11:20
+ *
+ * @author wuwenbin
+ */
+public interface SessionStore extends Closeable {
+
+    /**
+     * session 超时时间（毫秒）
+     *
+     * @return
+     */
+    long getTimeout();
+
+    /**
+     * 按 id 查找，可能返回已经过期但还没清理的 session
+     *
+     * @param id
+     * @return
+     */
+    NBSession get(String id);
+
+    /**
+     * 保存新登录的 session，id 相同的会被替换
+     *
+     * @param session
+     */
+    void save(NBSession session);
+
+    /**
+     * session 的最后访问时间更新了，持久化的存储可以按间隔写入
+     *
+     * @param session
+     */
+    void touch(NBSession session);
+
+    void remove(NBSession session);
+
+    /**
+     * 移除某个用户的所有 session
+     *
+     * @param userId
+     * @return 移除的个数
+     */
+    int removeByUser(long userId);
+
+    /**
+     * 清理过期的 session，由定时任务每个刻度调用一次
+     *
+     * @param now
+     * @return 清理的个数
+     */
+    int expire(long now);
+
+    int size();
+
+    void clear();
+
+    @Override
+    default void close() {
+    }
+}
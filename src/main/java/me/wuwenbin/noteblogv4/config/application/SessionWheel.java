@@ -0,0 +1,168 @@
+package me.wuwenbin.noteblogv4.config.application;
+
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮，每个格子是一个 session 双向链表，session 按 (最后访问时间 + 超时时间) / 刻度 放进对应的格子；
+ * 访问 session 时只更新最后访问时间，不移动链表，时间轮走到这个格子时再检查：
+ * 已过期的移除，没过期的按新的过期时间挂到后面的格子里，所以每个 session 在一个超时周期内最多被移动一次；
+ * 加入、移除都是 O(1)，每次推进只处理到期的格子，不再扫描全部 session
+ * created by Wuwenbin on 2019/3/11 at 09:40
+ *
+ * @author wuwenbin
+ */
+final class SessionWheel {
+
+    private final NBSession[] heads;
+    private final long tickMillis;
+    private final long timeout;
+    private long lastTick;
+    private int size;
+
+    /**
+     * 格子数取 超时时间 / 刻度 + 2，保证一圈覆盖整个超时时间，没被访问过的 session 只会被处理一次
+     *
+     * @param tickMillis
+     * @param timeout
+     * @param now
+     */
+    SessionWheel(long tickMillis, long timeout, long now) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.heads = new NBSession[(int) Math.max(16, Math.min(1 << 20, timeout / this.tickMillis + 2))];
+        this.timeout = timeout;
+        this.lastTick = now / this.tickMillis;
+    }
+
+    synchronized void schedule(NBSession session) {
+        if (session.slot >= 0) {
+            unlink(session);
+        } else {
+            size++;
+        }
+        link(session, tickOf(session));
+    }
+
+    synchronized void cancel(NBSession session) {
+        if (session.slot >= 0) {
+            unlink(session);
+            size--;
+        }
+    }
+
+    /**
+     * 推进到当前时间，过期的 session 从时间轮中移除后交给 expired 处理
+     *
+     * @param now
+     * @param expired
+     * @return 过期的个数
+     */
+    synchronized int advance(long now, Consumer<NBSession> expired) {
+        long target = now / tickMillis;
+        int count = 0;
+        for (long t = Math.max(lastTick + 1, target - heads.length + 1); t <= target; t++) {
+            int slot = (int) (t % heads.length);
+            NBSession s = heads[slot];
+            heads[slot] = null;
+            lastTick = t;
+            while (s != null) {
+                NBSession next = s.next;
+                s.prev = s.next = null;
+                s.slot = -1;
+                if (s.isExpired(now, timeout)) {
+                    size--;
+                    count++;
+                    expired.accept(s);
+                } else {
+                    //过期时间就在当前刻度内的放到下一个格子，放回刚取出的格子要再等一整圈
+                    link(s, Math.max(tickOf(s), t + 1));
+                }
+                s = next;
+            }
+        }
+        lastTick = Math.max(lastTick, target);
+        return count;
+    }
+
+    /**
+     * 超出数量限制时，移除（近似）最早过期的一个 session
+     * 从下一个刻度开始找，格子里的 session 如果已经被访问过、实际过期时间更晚，就顺便挪到正确的格子
+     *
+     * @return 时间轮为空时返回 null
+     */
+    synchronized NBSession evict() {
+        for (int i = 1; i <= heads.length; i++) {
+            long t = lastTick + i;
+            int slot = (int) (t % heads.length);
+            NBSession s = heads[slot];
+            while (s != null) {
+                NBSession next = s.next;
+                long tick = tickOf(s);
+                if (tick <= t) {
+                    unlink(s);
+                    size--;
+                    return s;
+                }
+                if ((int) (tick % heads.length) != slot) {
+                    unlink(s);
+                    link(s, tick);
+                }
+                s = next;
+            }
+        }
+        for (NBSession head : heads) {
+            if (head != null) {
+                unlink(head);
+                size--;
+                return head;
+            }
+        }
+        return null;
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < heads.length; i++) {
+            NBSession s = heads[i];
+            while (s != null) {
+                NBSession next = s.next;
+                s.prev = s.next = null;
+                s.slot = -1;
+                s = next;
+            }
+            heads[i] = null;
+        }
+        size = 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private long tickOf(NBSession session) {
+        return Math.max((session.getLastAccessTime() + timeout) / tickMillis, lastTick + 1);
+    }
+
+    private void link(NBSession session, long tick) {
+        int slot = (int) (tick % heads.length);
+        NBSession head = heads[slot];
+        session.prev = null;
+        session.next = head;
+        session.slot = slot;
+        if (head != null) {
+            head.prev = session;
+        }
+        heads[slot] = session;
+    }
+
+    private void unlink(NBSession session) {
+        if (session.prev != null) {
+            session.prev.next = session.next;
+        } else {
+            heads[session.slot] = session.next;
+        }
+        if (session.next != null) {
+            session.next.prev = session.prev;
+        }
+        session.prev = session.next = null;
+        session.slot = -1;
+    }
+}
@@ -0,0 +1,35 @@
+package me.wuwenbin.noteblogv4.config.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.service.mail.LocalMailTransport;
+import me.wuwenbin.noteblogv4.service.mail.MailTransport;
+import me.wuwenbin.noteblogv4.service.mail.SmtpMailTransport;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * 根据 noteblog.mail.transport 选择邮件的发送方式：smtp（默认）、local
+ * created by Wuwenbin on 2019/3/11 at 17:55
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Configuration
+public class MailTransportConfig {
+
+    @Bean
+    public MailTransport mailTransport(Environment env, ParamStore paramStore) {
+        String type = env.getProperty("noteblog.mail.transport", "smtp");
+        log.info("邮件发送方式：[{}]", type);
+        switch (type) {
+            case "smtp":
+                return new SmtpMailTransport(paramStore);
+            case "local":
+                return new LocalMailTransport(env);
+            default:
+                throw new IllegalArgumentException("不支持的邮件发送方式：" + type + "，可选 smtp、local");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package me.wuwenbin.noteblogv4.config.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * 定时任务使用线程池执行，默认的单线程调度器上一个耗时的任务（访问日志归档、历史数据汇总）
+ * 会让 session 过期检查、计数写回、邮件发送等其他任务一起等待
+ * created by Wuwenbin on 2019/3/11 at 18:20
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private final Environment env;
+
+    @Autowired
+    public SchedulingConfig(Environment env) {
+        this.env = env;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        int poolSize = Math.max(1, env.getProperty("noteblog.scheduler.pool-size", Integer.class, 4));
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("noteblog-scheduler-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        scheduler.setErrorHandler(e -> log.error("定时任务执行出错", e));
+        log.info("定时任务线程数：[{}]", poolSize);
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setTaskScheduler(taskScheduler());
+    }
+}
@@ -0,0 +1,38 @@
+package me.wuwenbin.noteblogv4.config.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.config.application.FileSessionStore;
+import me.wuwenbin.noteblogv4.config.application.JdbcSessionStore;
+import me.wuwenbin.noteblogv4.config.application.MemorySessionStore;
+import me.wuwenbin.noteblogv4.config.application.SessionStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 根据 noteblog.session.store 选择 session 的存储方式：memory（默认）、file、jdbc
+ * created by Wuwenbin on 2019/3/11 at 14:40
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Configuration
+public class SessionStoreConfig {
+
+    @Bean
+    public SessionStore sessionStore(Environment env, JdbcTemplate jdbcTemplate) {
+        String type = env.getProperty("noteblog.session.store", "memory");
+        log.info("session 存储方式：[{}]", type);
+        switch (type) {
+            case "file":
+                return new FileSessionStore(env);
+            case "jdbc":
+                return new JdbcSessionStore(jdbcTemplate, env);
+            case "memory":
+                return new MemorySessionStore(env);
+            default:
+                throw new IllegalArgumentException("不支持的 session 存储方式：" + type + "，可选 memory、file、jdbc");
+        }
+    }
+}
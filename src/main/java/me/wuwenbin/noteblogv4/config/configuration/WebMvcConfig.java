@@ -1,16 +1,19 @@
 package me.wuwenbin.noteblogv4.config.configuration;
 
 import me.wuwenbin.noteblogv4.config.application.NBContext;
+import me.wuwenbin.noteblogv4.config.filter.ArticlePageCaptureFilter;
 import me.wuwenbin.noteblogv4.config.interceptor.AdminInterceptor;
 import me.wuwenbin.noteblogv4.config.interceptor.ApplicationInterceptor;
 import me.wuwenbin.noteblogv4.config.interceptor.SessionInterceptor;
 import me.wuwenbin.noteblogv4.config.interceptor.ThemeHandlerInterceptor;
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
 import me.wuwenbin.noteblogv4.model.constant.Upload;
+import me.wuwenbin.noteblogv4.service.content.ArticlePageCacheService;
 import me.wuwenbin.noteblogv4.service.param.ParamService;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.server.ErrorPage;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -31,14 +34,14 @@ public class WebMvcConfig implements WebMvcConfigurer {
     private final NBContext blogContext;
     private final Environment env;
     private final ParamService paramService;
-    private final ParamRepository paramRepository;
+    private final ParamStore paramStore;
 
     @Autowired
-    public WebMvcConfig(NBContext blogContext, Environment env, ParamService paramService, ParamRepository paramRepository) {
+    public WebMvcConfig(NBContext blogContext, Environment env, ParamService paramService, ParamStore paramStore) {
         this.blogContext = blogContext;
         this.env = env;
         this.paramService = paramService;
-        this.paramRepository = paramRepository;
+        this.paramStore = paramStore;
     }
 
     /**
@@ -52,7 +55,11 @@ public class WebMvcConfig implements WebMvcConfigurer {
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/static/**").addResourceLocations("classpath:/static/");
         String uploadPath = env.getProperty("noteblog.upload.path");
-        registry.addResourceHandler(Upload.FileType.VISIT_PATH + "/**").addResourceLocations(uploadPath);
+        //只映射图片和文件两个目录，上传时用的临时目录不对外访问
+        for (String type : new String[]{Upload.FileType.IMAGE, Upload.FileType.FILE}) {
+            registry.addResourceHandler(Upload.FileType.VISIT_PATH + type + "/**")
+                    .addResourceLocations(uploadPath + type.substring(1) + "/");
+        }
     }
 
     /**
@@ -66,11 +73,24 @@ public class WebMvcConfig implements WebMvcConfigurer {
         registry.addInterceptor(new ApplicationInterceptor(blogContext, paramService)).addPathPatterns("/**").excludePathPatterns("/static/**");
         registry.addInterceptor(new SessionInterceptor(blogContext)).addPathPatterns("/management/**", "/token/**");
         registry.addInterceptor(new AdminInterceptor(blogContext)).addPathPatterns("/management/**");
-        registry.addInterceptor(new ThemeHandlerInterceptor(paramRepository))
+        registry.addInterceptor(new ThemeHandlerInterceptor(paramStore))
                 .addPathPatterns("/article/**", "/a/**").excludePathPatterns("/article/comments","/article/approve","/a/comments","/a/approve");
 
     }
 
+    /**
+     * 文章页面渲染结果的缓存
+     *
+     * @param articlePageCacheService
+     * @return
+     */
+    @Bean
+    public FilterRegistrationBean<ArticlePageCaptureFilter> articlePageCaptureFilter(ArticlePageCacheService articlePageCacheService) {
+        FilterRegistrationBean<ArticlePageCaptureFilter> registration = new FilterRegistrationBean<>(new ArticlePageCaptureFilter(articlePageCacheService));
+        registration.addUrlPatterns("/article/*", "/a/*");
+        return registration;
+    }
+
     /**
      * 添加全局拦截的error移除处理类
      *
@@ -0,0 +1,47 @@
+package me.wuwenbin.noteblogv4.config.filter;
+
+import me.wuwenbin.noteblogv4.service.content.ArticlePageCacheService;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 文章页面的渲染结果先写入内存，渲染完成之后如果 controller 标记了可以缓存，就保存到 ArticlePageCacheService 中
+ * created by Wuwenbin on 2019/3/8 at 11:12
+ *
+ * @author wuwenbin
+ */
+public class ArticlePageCaptureFilter extends OncePerRequestFilter {
+
+    private final ArticlePageCacheService articlePageCacheService;
+
+    public ArticlePageCaptureFilter(ArticlePageCacheService articlePageCacheService) {
+        this.articlePageCacheService = articlePageCacheService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (!"GET".equals(request.getMethod())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, responseWrapper);
+            if (responseWrapper.getStatus() == HttpServletResponse.SC_OK && request.getAttribute(ArticlePageCacheService.CAPTURE_ATTRIBUTE) != null) {
+                String etag = articlePageCacheService.store(request, responseWrapper.getContentAsByteArray(), responseWrapper.getContentType());
+                if (etag != null) {
+                    responseWrapper.setHeader("ETag", etag);
+                    responseWrapper.setHeader("Vary", "Accept-Encoding");
+                }
+            }
+        } finally {
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+}
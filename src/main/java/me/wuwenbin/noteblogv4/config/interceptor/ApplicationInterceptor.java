@@ -1,15 +1,12 @@
 package me.wuwenbin.noteblogv4.config.interceptor;
 
-import cn.hutool.cache.CacheUtil;
-import cn.hutool.cache.impl.WeakCache;
-import cn.hutool.core.date.DateUnit;
 import me.wuwenbin.noteblogv4.config.application.NBContext;
 import me.wuwenbin.noteblogv4.config.application.NBSession;
-import me.wuwenbin.noteblogv4.dao.repository.LoggerRepository;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
 import me.wuwenbin.noteblogv4.model.entity.NBLogger;
-import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
-import me.wuwenbin.noteblogv4.model.pojo.business.IpInfo;
+import me.wuwenbin.noteblogv4.service.dashboard.HeavyHitterService;
+import me.wuwenbin.noteblogv4.service.dashboard.VisitorSketchService;
+import me.wuwenbin.noteblogv4.service.logger.AccessLogService;
 import me.wuwenbin.noteblogv4.service.param.ParamService;
 import me.wuwenbin.noteblogv4.util.CookieUtils;
 import me.wuwenbin.noteblogv4.util.NBUtils;
@@ -72,43 +69,30 @@ public class ApplicationInterceptor extends HandlerInterceptorAdapter {
 
     @Override
     public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
-        WeakCache<String, IpInfo> ipInfoCache = blogContext.getApplicationObj("ipCacheBean");
-        if (ipInfoCache == null) {
-            ipInfoCache = CacheUtil.newWeakCache(DateUnit.MINUTE.getMillis() * 10);
-            blogContext.setApplicationObj("ipCacheBean", ipInfoCache);
-        }
         String sessionId = "", username = "";
         Cookie cookie = CookieUtils.getCookie(request, NoteBlogV4.Session.SESSION_ID_COOKIE);
         if (cookie != null) {
             sessionId = cookie.getValue();
-            NBSession blogSession = blogContext.get(sessionId);
+            NBSession blogSession = blogContext.touch(sessionId, NBUtils.getRemoteAddress(request));
             if (blogSession != null) {
-                blogSession.update();
+                username = blogSession.getUsername();
                 if (modelAndView != null) {
-                    NBSysUser user = blogSession.getSessionUser();
-                    username = user.getUsername();
-                    modelAndView.getModelMap().addAttribute("su", NBUtils.user2Map(user));
+                    modelAndView.getModelMap().addAttribute("su", NBUtils.user2Map(blogSession.toUser()));
                 }
             }
         }
 
-        final String key = "noteblog.develop";
-        boolean develop = NBUtils.getBean(Environment.class).getProperty(key, Boolean.class, true);
-
-        String ipAddr = NBUtils.getRemoteAddress(request);
-        IpInfo cacheInfo;
-        if (!develop) {
-            cacheInfo = ipInfoCache.get(ipAddr + "ipCache");
-            if (cacheInfo == null) {
-                ipInfoCache.put(ipAddr + "ipCache", NBUtils.getIpInfo(ipAddr));
-            }
-        }
         boolean openAnalysis = paramService.isOpenStatisticAnalysis();
         if (openAnalysis) {
-            cacheInfo = ipInfoCache.get(ipAddr + "ipCache");
+            final String key = "noteblog.develop";
+            boolean develop = NBUtils.getBean(Environment.class).getProperty(key, Boolean.class, true);
+            String ipAddr = NBUtils.getRemoteAddress(request);
+            NBUtils.getBean(VisitorSketchService.class).offer(ipAddr);
+            NBUtils.getBean(HeavyHitterService.class).record(request.getServerName(), request.getRequestURI(),
+                    request.getHeader("Referer"), request.getHeader("User-Agent"));
             NBLogger logger = NBLogger.builder()
                     .ipAddr(ipAddr)
-                    .ipInfo(develop ? "开发中内网地址" : NBUtils.getIpCnInfo(cacheInfo))
+                    .ipInfo(develop ? "开发中内网地址" : NBUtils.getIpCnInfo(NBUtils.getIpInfo(ipAddr)))
                     .sessionId(sessionId)
                     .time(LocalDateTime.now())
                     .url(request.getRequestURL().toString())
@@ -117,7 +101,7 @@ public class ApplicationInterceptor extends HandlerInterceptorAdapter {
                     .requestMethod(request.getMethod())
                     .contentType(request.getContentType())
                     .build();
-            NBUtils.getBean(LoggerRepository.class).saveAndFlush(logger);
+            NBUtils.getBean(AccessLogService.class).record(logger);
         }
     }
 }
@@ -1,6 +1,6 @@
 package me.wuwenbin.noteblogv4.config.interceptor;
 
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
@@ -16,18 +16,22 @@ import javax.servlet.http.HttpServletResponse;
  */
 public class ThemeHandlerInterceptor extends BaseController implements HandlerInterceptor {
 
-    private ParamRepository paramRepository;
+    private ParamStore paramStore;
 
-    public ThemeHandlerInterceptor(ParamRepository paramRepository) {
-        this.paramRepository = paramRepository;
+    public ThemeHandlerInterceptor(ParamStore paramStore) {
+        this.paramStore = paramStore;
     }
 
     @Override
     public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        //页面直接从缓存输出时没有视图
+        if (modelAndView == null) {
+            return;
+        }
         String view = modelAndView.getViewName();
         String simpleView = view + "_simple";
         String normalView = view + "_normal";
-        modelAndView.setViewName(handleStyle(simpleView, normalView, this.paramRepository));
+        modelAndView.setViewName(handleStyle(simpleView, normalView, this.paramStore));
     }
 
 }
@@ -12,6 +12,8 @@ import me.wuwenbin.noteblogv4.model.entity.permission.NBSysResource;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysRole;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysRoleResource;
 import me.wuwenbin.noteblogv4.model.entity.permission.pk.RoleResourceKey;
+import me.wuwenbin.noteblogv4.service.authority.PermissionService;
+import me.wuwenbin.noteblogv4.service.param.ParamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationListener;
@@ -24,6 +26,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.Init.INIT_STATUS;
 import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.Init.*;
@@ -48,6 +51,8 @@ public class InitListener implements ApplicationListener<ApplicationReadyEvent>
     private final RoleResourceRepository roleResourceRepository;
     private final ResourceRepository resourceRepository;
     private final MenuRepository menuRepository;
+    private final PermissionService permissionService;
+    private final ParamService paramService;
 
     @Autowired
     public InitListener(ParamRepository paramRepository,
@@ -55,7 +60,8 @@ public class InitListener implements ApplicationListener<ApplicationReadyEvent>
                         PanelRepository panelRepository,
                         NBContext context,
                         RoleResourceRepository roleResourceRepository,
-                        ResourceRepository resourceRepository, MenuRepository menuRepository) {
+                        ResourceRepository resourceRepository, MenuRepository menuRepository,
+                        PermissionService permissionService, ParamService paramService) {
         this.paramRepository = paramRepository;
         this.roleRepository = roleRepository;
         this.panelRepository = panelRepository;
@@ -63,6 +69,8 @@ public class InitListener implements ApplicationListener<ApplicationReadyEvent>
         this.roleResourceRepository = roleResourceRepository;
         this.resourceRepository = resourceRepository;
         this.menuRepository = menuRepository;
+        this.permissionService = permissionService;
+        this.paramService = paramService;
     }
 
     @Override
@@ -81,6 +89,8 @@ public class InitListener implements ApplicationListener<ApplicationReadyEvent>
                     role.orElseThrow(() -> new RuntimeException("未找到角色「ROLE_MASTER」")).getId());
             setUpAuthority(true);
         }
+        //资源扫描入库之后重新给权限标识编号
+        permissionService.reload();
 
         setUpRootMenu();
 
@@ -258,18 +268,15 @@ public class InitListener implements ApplicationListener<ApplicationReadyEvent>
      * @param params
      */
     private void saveParam(String[][] params) {
-        Arrays.stream(params).forEach(
-                hpw -> {
-                    NBParam item = NBParam.builder()
-                            .name(hpw[0])
-                            .value(hpw[1])
-                            .remark(hpw[2])
-                            .level(Integer.valueOf(hpw[3]))
-                            .build();
-                    //保存每个设置的初始值
-                    paramRepository.saveAndFlush(item);
-                }
-        );
+        //保存每个设置的初始值，同时放入参数快照
+        paramService.saveParams(Arrays.stream(params)
+                .map(hpw -> NBParam.builder()
+                        .name(hpw[0])
+                        .value(hpw[1])
+                        .remark(hpw[2])
+                        .level(Integer.valueOf(hpw[3]))
+                        .build())
+                .collect(Collectors.toList()));
     }
 
 }
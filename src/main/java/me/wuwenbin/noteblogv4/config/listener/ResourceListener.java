@@ -8,6 +8,7 @@ import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
 import me.wuwenbin.noteblogv4.model.entity.NBParam;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysResource;
+import me.wuwenbin.noteblogv4.service.param.ParamService;
 import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
@@ -22,6 +23,7 @@ import org.springframework.web.bind.annotation.RestController;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -41,12 +43,14 @@ public class ResourceListener implements ApplicationListener<ContextRefreshedEve
 
     private final NBContext context;
     private final ParamRepository paramRepository;
+    private final ParamService paramService;
 
     @Autowired
     public ResourceListener(NBContext context,
-                            ParamRepository paramRepository) {
+                            ParamRepository paramRepository, ParamService paramService) {
         this.context = context;
         this.paramRepository = paramRepository;
+        this.paramService = paramService;
     }
 
 
@@ -124,7 +128,7 @@ public class ResourceListener implements ApplicationListener<ContextRefreshedEve
                 .remark("标记用户是否在「笔记博客」App 的初始化设置页面设置过")
                 .level(0)
                 .build();
-        paramRepository.save(initStatus);
+        paramService.saveParams(Collections.singletonList(initStatus));
     }
 
     private static boolean isNotEmpty(Object str) {
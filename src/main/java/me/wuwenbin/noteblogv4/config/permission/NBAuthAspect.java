@@ -2,22 +2,21 @@ package me.wuwenbin.noteblogv4.config.permission;
 
 import cn.hutool.core.util.ArrayUtil;
 import lombok.extern.slf4j.Slf4j;
-import me.wuwenbin.noteblogv4.dao.repository.ResourceRepository;
 import me.wuwenbin.noteblogv4.exception.UnauthorizedRoleException;
 import me.wuwenbin.noteblogv4.exception.UserNotLoginException;
-import me.wuwenbin.noteblogv4.model.entity.permission.NBSysResource;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
+import me.wuwenbin.noteblogv4.service.authority.PermissionService;
 import me.wuwenbin.noteblogv4.util.NBUtils;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.aspectj.lang.ProceedingJoinPoint;
-import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -25,8 +24,8 @@ import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
 import java.time.LocalDateTime;
 import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 通过{@code @NBAuth}注解来验证权限
@@ -39,11 +38,12 @@ import java.util.stream.Collectors;
 @Component
 public class NBAuthAspect extends BaseController {
 
-    private final ResourceRepository resourceRepository;
+    private final PermissionService permissionService;
+    private final Map<Method, AuthMeta> metas = new ConcurrentHashMap<>(256);
 
     @Autowired
-    public NBAuthAspect(ResourceRepository resourceRepository) {
-        this.resourceRepository = resourceRepository;
+    public NBAuthAspect(PermissionService permissionService) {
+        this.permissionService = permissionService;
     }
 
     /**
@@ -69,30 +69,19 @@ public class NBAuthAspect extends BaseController {
      */
     @Around("authority()")
     public Object authPermission(ProceedingJoinPoint pjp) {
-        Signature signature = pjp.getSignature();
-        MethodSignature methodSignature = (MethodSignature) signature;
-        Method targetMethod = methodSignature.getMethod();
-        NBAuth nbAuth = targetMethod.getAnnotation(NBAuth.class);
-        boolean restController = signature.getDeclaringType().isAnnotationPresent(RestController.class);
-        boolean responseBody = targetMethod.isAnnotationPresent(ResponseBody.class);
-        String requestUrl = NBUtils.getCurrentRequest().getRequestURL().toString();
-        log.info("请求资源：[{}]，验证权限中，需要权限：[{}]...", requestUrl, nbAuth.value());
+        AuthMeta meta = meta(pjp);
         try {
             NBSysUser user = NBUtils.getSessionUser();
             if (user != null) {
-                //TODO:权限后续记得加上缓存
-                List<NBSysResource> resources = resourceRepository.findResourcesByRoleId(user.getDefaultRoleId());
-                List<String> permissions = resources.stream().map(NBSysResource::getPermission).collect(Collectors.toList());
-                if (permissions.contains(nbAuth.value())) {
-                    log.info("验证权限通过，放行...");
+                if (permissionService.hasPermission(user.getDefaultRoleId(), meta.permission)) {
                     return pjp.proceed();
                 } else {
-                    log.info("验证权限失败，跳转提示...");
-                    return handleAuthNotPass(restController, responseBody);
+                    log.debug("验证权限失败，需要权限：[{}]，跳转提示...", meta.permission);
+                    return handleAuthNotPass(meta.ajax);
                 }
             } else {
-                log.info("验证权限失败，用户未登录或者登录过期，跳转提示...");
-                return handleUserNotLogin(restController, responseBody);
+                log.debug("验证权限失败，用户未登录或者登录过期，需要权限：[{}]，跳转提示...", meta.permission);
+                return handleUserNotLogin(meta.ajax);
             }
         } catch (Throwable throwable) {
             log.error("验权过程中出现异常，异常信息：{}", throwable.getMessage());
@@ -108,27 +97,20 @@ public class NBAuthAspect extends BaseController {
      */
     @Around("authorityRole()")
     public Object authRole(ProceedingJoinPoint pjp) {
-        Signature signature = pjp.getSignature();
-        MethodSignature methodSignature = (MethodSignature) signature;
-        Method targetMethod = methodSignature.getMethod();
-        boolean restController = signature.getDeclaringType().isAnnotationPresent(RestController.class);
-        boolean responseBody = targetMethod.isAnnotationPresent(ResponseBody.class);
-        NBAuthRole nbAuthRole = targetMethod.getAnnotation(NBAuthRole.class);
-        log.info("请求资源：[{}]，验证用户角色中，需要角色：[{}]...", Arrays.toString(nbAuthRole.value()));
+        AuthMeta meta = meta(pjp);
         try {
             NBSysUser user = NBUtils.getSessionUser();
             if (user != null) {
                 //判断用户当前角色（默认角色）是否符合该要求
-                if (ArrayUtil.contains(nbAuthRole.value(), user.getDefaultRoleId())) {
-                    log.info("验证角色通过，放行...");
+                if (ArrayUtil.contains(meta.roles, user.getDefaultRoleId())) {
                     return pjp.proceed();
                 } else {
-                    log.info("验证角色失败，跳转提示...");
-                    return handleAuthNotPass(restController, responseBody);
+                    log.debug("验证角色失败，需要角色：[{}]，跳转提示...", Arrays.toString(meta.roles));
+                    return handleAuthNotPass(meta.ajax);
                 }
             } else {
-                log.info("验证角色失败，用户未登录或者登录过期，跳转提示...");
-                return handleUserNotLogin(restController, responseBody);
+                log.debug("验证角色失败，用户未登录或者登录过期，跳转提示...");
+                return handleUserNotLogin(meta.ajax);
             }
         } catch (Throwable throwable) {
             log.error("验权过程中出现异常，异常信息：{}", throwable.getMessage());
@@ -136,6 +118,17 @@ public class NBAuthAspect extends BaseController {
         }
     }
 
+    /**
+     * 每个方法的注解信息只反射一次
+     *
+     * @param pjp
+     * @return
+     */
+    private AuthMeta meta(ProceedingJoinPoint pjp) {
+        MethodSignature signature = (MethodSignature) pjp.getSignature();
+        return metas.computeIfAbsent(signature.getMethod(), method -> new AuthMeta(method, signature.getDeclaringType()));
+    }
+
     /**
      * 设置出错属性
      *
@@ -155,13 +148,11 @@ public class NBAuthAspect extends BaseController {
     /**
      * 处理用户未登录或超时的验权未通过的情况
      *
-     * @param restController
-     * @param responseBody
+     * @param ajax
      * @return
      */
-    private Object handleUserNotLogin(boolean restController, boolean responseBody) {
-        //粗糙的判断为ajax请求
-        if (restController || responseBody) {
+    private Object handleUserNotLogin(boolean ajax) {
+        if (ajax) {
             return NBR.error("未登录或登录过期，请求失败！");
         } else if (isRouter(NBUtils.getCurrentRequest())) {
             Exception e = new UserNotLoginException("未登录或登录过期，无法访问！");
@@ -177,13 +168,11 @@ public class NBAuthAspect extends BaseController {
     /**
      * 处理用户不包含该权限的情况，未通过验证
      *
-     * @param restController
-     * @param responseBody
+     * @param ajax
      * @return
      */
-    private Object handleAuthNotPass(boolean restController, boolean responseBody) {
-        //粗糙的判断为ajax请求
-        if (restController || responseBody) {
+    private Object handleAuthNotPass(boolean ajax) {
+        if (ajax) {
             return NBR.error("您所在的用户组没有权限！");
         } else if (isRouter(NBUtils.getCurrentRequest())) {
             Exception e = new UnauthorizedRoleException("该资源未授权给当前用户的角色，无法访问！");
@@ -195,4 +184,24 @@ public class NBAuthAspect extends BaseController {
             return "error/page";
         }
     }
+
+    /**
+     * 方法上的权限注解信息
+     */
+    private static final class AuthMeta {
+        private final String permission;
+        private final String[] roles;
+        /**
+         * 粗糙的判断为ajax请求
+         */
+        private final boolean ajax;
+
+        private AuthMeta(Method method, Class<?> declaringType) {
+            NBAuth nbAuth = method.getAnnotation(NBAuth.class);
+            NBAuthRole nbAuthRole = method.getAnnotation(NBAuthRole.class);
+            this.permission = nbAuth == null ? null : StringUtils.isEmpty(nbAuth.permission()) ? nbAuth.value() : nbAuth.permission();
+            this.roles = nbAuthRole == null ? new String[0] : nbAuthRole.value();
+            this.ajax = declaringType.isAnnotationPresent(RestController.class) || method.isAnnotationPresent(ResponseBody.class);
+        }
+    }
 }
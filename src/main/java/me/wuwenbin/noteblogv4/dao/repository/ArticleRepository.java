@@ -1,12 +1,18 @@
 package me.wuwenbin.noteblogv4.dao.repository;
 
 import me.wuwenbin.noteblogv4.model.entity.NBArticle;
+import me.wuwenbin.noteblogv4.model.pojo.vo.ArticleCard;
+import me.wuwenbin.noteblogv4.model.pojo.vo.ArticleLink;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +23,13 @@ import java.util.Optional;
  */
 public interface ArticleRepository extends JpaRepository<NBArticle, Long>, JpaSpecificationExecutor<NBArticle> {
 
+    /**
+     * 文章卡片的查询字段，配合 from NBArticle a left join a.cate c 使用
+     */
+    String CARD_FIELDS = "new me.wuwenbin.noteblogv4.model.pojo.vo.ArticleCard(a.id, a.title, a.cateId, c.cnName, a.cover, " +
+            "a.summary, a.authorId, a.post, a.view, a.approveCnt, a.commentCnt, a.enableCommentCnt, a.commented, a.appreciable, " +
+            "a.draft, a.top, a.urlSequence)";
+
     /**
      * 查询是否已存在自定义的url文章
      *
@@ -105,14 +118,71 @@ public interface ArticleRepository extends JpaRepository<NBArticle, Long>, JpaSp
     Optional<NBArticle> findNBArticleByUrlSequence(String urlSeq);
 
     /**
-     * 查找相似的文章
+     * 评论增删、启用/隐藏之后调整文章的评论计数
      *
-     * @param cateId
-     * @param limit
+     * @param articleId
+     * @param delta       评论总数的增量
+     * @param enableDelta 已启用评论数的增量
+     * @return
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query("update NBArticle a set a.commentCnt = a.commentCnt + ?2, a.enableCommentCnt = a.enableCommentCnt + ?3 where a.id = ?1")
+    int updateCommentCnt(long articleId, int delta, int enableDelta);
+
+    /**
+     * 按 nb_comment 重新计算所有文章的评论计数
+     *
+     * @return
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query(nativeQuery = true, value = "UPDATE nb_article a SET " +
+            "a.comment_cnt = (SELECT COUNT(*) FROM nb_comment c WHERE c.article_id = a.id), " +
+            "a.enable_comment_cnt = (SELECT COUNT(*) FROM nb_comment c WHERE c.article_id = a.id AND c.enable = 1)")
+    int repairCommentCnt();
+
+    /**
+     * 所有文章的评论总数
+     *
+     * @return
+     */
+    @Query("select coalesce(sum(a.commentCnt), 0) from NBArticle a")
+    long sumCommentCnt();
+
+    /**
+     * 根据文章自定义链接只查询文章id
+     *
+     * @param urlSeq
+     * @return
+     */
+    @Query("select a.id from NBArticle a where a.urlSequence = ?1")
+    Long findIdByUrlSequence(String urlSeq);
+
+    /**
+     * 查找所有已发布文章的 id 和分类 id，用于构建随机/相似文章的抽样池
+     *
+     * @return [id, cateId]
+     */
+    @Query("select a.id, a.cateId from NBArticle a where a.draft = false")
+    List<Object[]> findPublishedIdAndCateIds();
+
+    /**
+     * 查找所有已发布文章的排序字段，用于构建标签索引中每个标签下的文章顺序
+     *
+     * @return [id, top, post]
+     */
+    @Query("select a.id, a.top, a.post from NBArticle a where a.draft = false")
+    List<Object[]> findPublishedSortKeys();
+
+    /**
+     * 只查询文章的 id 和标题
+     *
+     * @param articleIds
      * @return
      */
-    @Query(nativeQuery = true, value = "SELECT * FROM nb_article WHERE cate_id = ?1 ORDER BY rand() LIMIT ?2")
-    List<NBArticle> findSimilarArticles(long cateId, int limit);
+    @Query("select new me.wuwenbin.noteblogv4.model.pojo.vo.ArticleLink(a.id, a.title) from NBArticle a where a.id in ?1")
+    List<ArticleLink> findArticleLinksByIdIn(Collection<Long> articleIds);
 
     /**
      * 更新文章点赞数
@@ -152,22 +222,58 @@ public interface ArticleRepository extends JpaRepository<NBArticle, Long>, JpaSp
     void updateViewsBySeq(String urlSeq);
 
     /**
-     * 随机n篇文章
+     * 前台文章流的游标分页，按 top desc, post desc, id desc 排序，从游标位置之后开始查询，不做 count
+     *
+     * @param cateId   分类id，为空则不限分类
+     * @param top      游标位置的 top
+     * @param post     游标位置的发布时间
+     * @param id       游标位置的文章id
+     * @param pageable 只用来限制条数
+     * @return
+     */
+    @Query("select " + CARD_FIELDS + " from NBArticle a left join a.cate c where a.draft = false and (?1 is null or a.cateId = ?1) " +
+            "and (a.top < ?2 or (a.top = ?2 and (a.post < ?3 or (a.post = ?3 and a.id < ?4)))) " +
+            "order by a.top desc, a.post desc, a.id desc")
+    List<ArticleCard> findFeedAfter(Long cateId, int top, LocalDateTime post, long id, Pageable pageable);
+
+    /**
+     * 前台文章流的卡片分页
      *
-     * @param limit
+     * @param cateId   分类id，为空则不限分类
+     * @param pageable
      * @return
      */
-    @Query(nativeQuery = true, value = "select * from nb_article WHERE draft != 1 ORDER BY rand() LIMIT ?1 ")
-    List<NBArticle> findRandomArticles(int limit);
+    @Query(value = "select " + CARD_FIELDS + " from NBArticle a left join a.cate c where a.draft = false and (?1 is null or a.cateId = ?1)",
+            countQuery = "select count(a) from NBArticle a where a.draft = false and (?1 is null or a.cateId = ?1)")
+    Page<ArticleCard> findCards(Long cateId, Pageable pageable);
 
     /**
-     * 查找在此id集合中的文章集合对象
+     * 按 id 查询文章卡片，不保证顺序
      *
      * @param articleIds
-     * @param start
-     * @param pageSize
      * @return
      */
-    @Query(nativeQuery = true, value = "select * from nb_article where id in (?1) limit ?2,?3")
-    List<NBArticle> findByIdIn(List<Long> articleIds, int start, int pageSize);
+    @Query("select " + CARD_FIELDS + " from NBArticle a left join a.cate c where a.id in ?1")
+    List<ArticleCard> findCardsByIdIn(Collection<Long> articleIds);
+
+    /**
+     * 后台博文列表的卡片分页
+     *
+     * @param title    标题模糊匹配（已带 %），为空则不限
+     * @param authorId 作者id，为空则不限
+     * @param pageable
+     * @return
+     */
+    @Query(value = "select " + CARD_FIELDS + " from NBArticle a left join a.cate c where (?1 is null or a.title like ?1) and (?2 is null or a.authorId = ?2)",
+            countQuery = "select count(a) from NBArticle a where (?1 is null or a.title like ?1) and (?2 is null or a.authorId = ?2)")
+    Page<ArticleCard> findManageCards(String title, Long authorId, Pageable pageable);
+
+    /**
+     * 某个分类下已发布的文章数
+     *
+     * @param cateId
+     * @param draft
+     * @return
+     */
+    long countByCateIdAndDraft(long cateId, boolean draft);
 }
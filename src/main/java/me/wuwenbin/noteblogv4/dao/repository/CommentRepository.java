@@ -1,12 +1,15 @@
 package me.wuwenbin.noteblogv4.dao.repository;
 
 import me.wuwenbin.noteblogv4.model.entity.NBComment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * created by Wuwenbin on 2018/9/6 at 15:54
@@ -16,7 +19,7 @@ import javax.transaction.Transactional;
 public interface CommentRepository extends JpaRepository<NBComment, Long>, JpaSpecificationExecutor<NBComment> {
 
     /**
-     * 更新评论状态
+     * 更新评论状态，只有状态确实改变时才更新，返回 0 表示评论不存在或者已经是这个状态
      *
      * @param id
      * @param enable
@@ -24,17 +27,28 @@ public interface CommentRepository extends JpaRepository<NBComment, Long>, JpaSp
      */
     @Modifying
     @Transactional(rollbackOn = Exception.class)
-    @Query("update NBComment c set c.enable = ?2 where c.id = ?1")
+    @Query("update NBComment c set c.enable = ?2 where c.id = ?1 and c.enable <> ?2")
     int updateCommentStatus(Long id, boolean enable);
 
     /**
-     * 查询今日的评论数量
+     * 查询某个时间之后的评论数量
      *
-     * @param postDate
+     * @param from
      * @return
      */
-    @Query(nativeQuery = true, value = "select count(*) from nb_comment where post like ?1")
-    int countByPostLike(String postDate);
+    @Query("select count(c) from NBComment c where c.post >= ?1")
+    long countByPostFrom(LocalDateTime from);
+
+    /**
+     * 按小时统计 [from, to) 之间的评论数量
+     *
+     * @param from
+     * @param to
+     * @return [yyyy-MM-dd HH, cnt]
+     */
+    @Query(nativeQuery = true, value = "select DATE_FORMAT(post, '%Y-%m-%d %H'), count(*) from nb_comment " +
+            "where post >= ?1 and post < ?2 group by DATE_FORMAT(post, '%Y-%m-%d %H')")
+    List<Object[]> countHourly(LocalDateTime from, LocalDateTime to);
 
     /**
      * 查询最新的一条评论
@@ -43,4 +57,17 @@ public interface CommentRepository extends JpaRepository<NBComment, Long>, JpaSp
      */
     @Query(nativeQuery = true, value = "select * from nb_comment order by post desc limit 1")
     NBComment findLastestComment();
+
+    /**
+     * 文章评论的游标分页，按 post desc, id desc 排序，不做 count
+     *
+     * @param articleId
+     * @param post      游标位置的评论时间
+     * @param id        游标位置的评论id
+     * @param pageable  只用来限制条数
+     * @return
+     */
+    @Query("select c from NBComment c where c.articleId = ?1 and (c.post < ?2 or (c.post = ?2 and c.id < ?3)) " +
+            "order by c.post desc, c.id desc")
+    List<NBComment> findArticleCommentsAfter(long articleId, LocalDateTime post, long id, Pageable pageable);
 }
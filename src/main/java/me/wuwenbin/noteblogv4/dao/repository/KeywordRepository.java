@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.transaction.Transactional;
+import java.util.List;
 
 /**
  * created by Wuwenbin on 2018/8/17 at 11:48
@@ -37,4 +38,12 @@ public interface KeywordRepository extends JpaRepository<NBKeyword, Long> {
     @Transactional(rollbackOn = Exception.class)
     @Query("UPDATE NBKeyword k SET k.words = ?1 WHERE k.id = ?2")
     int updateTextById(String words, long id);
+
+    /**
+     * 所有启用的关键字文本
+     *
+     * @return
+     */
+    @Query("SELECT k.words FROM NBKeyword k WHERE k.enable = true")
+    List<String> findEnabledWords();
 }
@@ -4,6 +4,7 @@ import me.wuwenbin.noteblogv4.model.entity.NBLogger;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -14,31 +15,60 @@ import java.util.List;
 public interface LoggerRepository extends JpaRepository<NBLogger, Long> {
 
     /**
-     * 统计ip数量
+     * 最早的一条访问日志的时间
      *
      * @return
      */
-    @Query(nativeQuery = true, value = "select count(distinct ip_addr) from sys_logger")
-    int countByIpAddr();
+    @Query("select min(l.time) from NBLogger l")
+    LocalDateTime findMinTime();
 
     /**
-     * 统计某天的ip数量
+     * 某个时间之后最早的一条访问日志的时间
      *
-     * @param time
+     * @param from
      * @return
      */
-    @Query(nativeQuery = true, value = "select count(distinct ip_addr) from sys_logger where time like ?1")
-    int countByIpAddrAndTimeLike(String time);
+    @Query("select min(l.time) from NBLogger l where l.time >= ?1")
+    LocalDateTime findMinTimeFrom(LocalDateTime from);
 
     /**
-     * 找出有记录的最近的5天
+     * 某个时间之后的访问次数
      *
-     * @param dayDuring
+     * @param from
      * @return
      */
-    @Query(nativeQuery = true,
-            value = "select DATE_FORMAT(time, '%Y-%m-%d') ,count(*) as  cnt from sys_logger group by DATE_FORMAT(time, '%Y-%m-%d') order by time desc limit ?1")
-    List<Object[]> findTableData(int dayDuring);
+    @Query("select count(l) from NBLogger l where l.time >= ?1")
+    long countFrom(LocalDateTime from);
 
+    /**
+     * [from, to) 之间的不同ip数量
+     *
+     * @param from
+     * @param to
+     * @return
+     */
+    @Query("select count(distinct l.ipAddr) from NBLogger l where l.time >= ?1 and l.time < ?2")
+    long countIpBetween(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * 某个时间之后出现的、还没有记录在 nb_traffic_ip 中的ip数量
+     *
+     * @param from
+     * @return
+     */
+    @Query(nativeQuery = true, value = "select count(distinct l.ip_addr) from sys_logger l where l.time >= ?1 " +
+            "and l.ip_addr is not null and not exists (select 1 from nb_traffic_ip t where t.ip_addr = left(l.ip_addr, 100))")
+    long countNewIpFrom(LocalDateTime from);
+
+    /**
+     * 按小时统计 [from, to) 之间的访问次数和不同ip数量
+     *
+     * @param from
+     * @param to
+     * @return [yyyy-MM-dd HH, pv, uv]
+     */
+    @Query(nativeQuery = true, value = "select DATE_FORMAT(time, '%Y-%m-%d %H'), count(*), count(distinct ip_addr) from sys_logger " +
+            "where time >= ?1 and time < ?2 group by DATE_FORMAT(time, '%Y-%m-%d %H')")
+    List<Object[]> countHourly(LocalDateTime from, LocalDateTime to);
 
 }
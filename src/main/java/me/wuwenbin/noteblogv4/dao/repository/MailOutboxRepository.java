@@ -0,0 +1,83 @@
+package me.wuwenbin.noteblogv4.dao.repository;
+
+import me.wuwenbin.noteblogv4.model.entity.NBMailOutbox;
+import me.wuwenbin.noteblogv4.model.entity.NBMailOutbox.Status;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * created by Wuwenbin on 2019/3/11 at 17:45
+ *
+ * @author wuwenbin
+ */
+public interface MailOutboxRepository extends JpaRepository<NBMailOutbox, Long> {
+
+    /**
+     * 查询到了发送时间的邮件，先到期的在前
+     *
+     * @param status
+     * @param time
+     * @param pageable
+     * @return
+     */
+    List<NBMailOutbox> findByStatusAndNextAttemptLessThanEqualOrderByNextAttempt(Status status, LocalDateTime time, Pageable pageable);
+
+    /**
+     * 某个收件人还在等待中的汇总邮件的发送时间，没有则返回 null
+     *
+     * @param recipient
+     * @param status
+     * @return
+     */
+    @Query("SELECT MAX(m.nextAttempt) FROM NBMailOutbox m WHERE m.recipient = ?1 AND m.digest = true AND m.status = ?2")
+    LocalDateTime findDigestWindow(String recipient, Status status);
+
+    /**
+     * 领取一封处于 from 状态的邮件，改成 to 状态并记下领取的实例和时间，返回 0 表示已经被别的线程或实例领走
+     *
+     * @param id
+     * @param from
+     * @param to
+     * @param node
+     * @param time
+     * @return
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query("UPDATE NBMailOutbox m SET m.status = ?3, m.claimedBy = ?4, m.claimedAt = ?5 WHERE m.id = ?1 AND m.status = ?2")
+    int claim(long id, Status from, Status to, String node, LocalDateTime time);
+
+    /**
+     * 把处于 from 状态、由 node 领取或者领取时间早于 before 的邮件改回 to 状态
+     *
+     * @param from
+     * @param to
+     * @param node   为 null 时只放回超时的
+     * @param before
+     * @return
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query("UPDATE NBMailOutbox m SET m.status = ?2, m.claimedBy = NULL, m.claimedAt = NULL " +
+            "WHERE m.status = ?1 AND (m.claimedBy = ?3 OR m.claimedAt IS NULL OR m.claimedAt < ?4)")
+    int releaseClaims(Status from, Status to, String node, LocalDateTime before);
+
+    /**
+     * 删除某个时间之前创建的、已经结束（发送成功或者放弃）的邮件
+     *
+     * @param statuses
+     * @param before
+     * @return
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query("DELETE FROM NBMailOutbox m WHERE m.status IN ?1 AND m.created < ?2")
+    int deleteFinished(Collection<Status> statuses, LocalDateTime before);
+}
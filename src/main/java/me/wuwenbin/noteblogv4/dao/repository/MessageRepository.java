@@ -1,12 +1,15 @@
 package me.wuwenbin.noteblogv4.dao.repository;
 
 import me.wuwenbin.noteblogv4.model.entity.NBMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * created by Wuwenbin on 2018/12/25 at 17:12
@@ -26,4 +29,15 @@ public interface MessageRepository extends JpaRepository<NBMessage, Long>, JpaSp
     @Transactional(rollbackOn = Exception.class)
     @Query("update NBMessage m set m.enable = ?2 where m.id = ?1")
     int updateMessageStatus(Long id, boolean enable);
+
+    /**
+     * 留言板的游标分页，按 post desc, id desc 排序，不做 count
+     *
+     * @param post     游标位置的留言时间
+     * @param id       游标位置的留言id
+     * @param pageable 只用来限制条数
+     * @return
+     */
+    @Query("select m from NBMessage m where m.post < ?1 or (m.post = ?1 and m.id < ?2) order by m.post desc, m.id desc")
+    List<NBMessage> findFeedAfter(LocalDateTime post, long id, Pageable pageable);
 }
@@ -1,11 +1,14 @@
 package me.wuwenbin.noteblogv4.dao.repository;
 
 import me.wuwenbin.noteblogv4.model.entity.NBNote;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * created by Wuwenbin on 2018/8/18 at 11:10
@@ -37,4 +40,18 @@ public interface NoteRepository extends JpaRepository<NBNote, Long> {
     @Transactional(rollbackOn = Exception.class)
     @Query("update NBNote n set n.top = ?2 where n.id = ?1")
     int updateNoteTopStatus(Long id, Boolean top);
+
+    /**
+     * 前台笔记流的游标分页，按 top desc, post desc, id desc 排序，不做 count
+     *
+     * @param top      游标位置是否置顶
+     * @param post     游标位置的发布时间
+     * @param id       游标位置的笔记id
+     * @param pageable 只用来限制条数
+     * @return
+     */
+    @Query("select n from NBNote n where n.show = true " +
+            "and ((?1 = true and n.top = false) or (n.top = ?1 and (n.post < ?2 or (n.post = ?2 and n.id < ?3)))) " +
+            "order by n.top desc, n.post desc, n.id desc")
+    List<NBNote> findFeedAfter(boolean top, LocalDateTime post, long id, Pageable pageable);
 }
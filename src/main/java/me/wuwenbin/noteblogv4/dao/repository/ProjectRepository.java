@@ -1,12 +1,15 @@
 package me.wuwenbin.noteblogv4.dao.repository;
 
 import me.wuwenbin.noteblogv4.model.entity.NBProject;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * created by Wuwenbin on 2018/12/22 at 19:12
@@ -35,4 +38,17 @@ public interface ProjectRepository extends JpaRepository<NBProject, Long> {
             "where id=#{#project.id}")
     @Transactional(rollbackOn = Exception.class)
     int updateProjectById(@Param("project") NBProject project);
+
+    /**
+     * 前台项目列表的游标分页，按 post desc, id desc 排序，不做 count
+     *
+     * @param cateId   分类id，为空则不限分类
+     * @param post     游标位置的发布时间
+     * @param id       游标位置的项目id
+     * @param pageable 只用来限制条数
+     * @return
+     */
+    @Query("select p from NBProject p where (?1 is null or p.cateId = ?1) and (p.post < ?2 or (p.post = ?2 and p.id < ?3)) " +
+            "order by p.post desc, p.id desc")
+    List<NBProject> findFeedAfter(Long cateId, LocalDateTime post, long id, Pageable pageable);
 }
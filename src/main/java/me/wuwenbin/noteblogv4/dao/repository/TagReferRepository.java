@@ -13,13 +13,6 @@ import java.util.List;
  */
 public interface TagReferRepository extends JpaRepository<NBTagRefer, Long> {
 
-    /**
-     * 根据 refer_id 删除相关的记录
-     *
-     * @param referId
-     */
-    void deleteByReferId(Long referId);
-
     /**
      * 查找是否有内容使用此标签，返回使用次数
      *
@@ -30,14 +23,20 @@ public interface TagReferRepository extends JpaRepository<NBTagRefer, Long> {
     long countByTagId(Long tagId);
 
     /**
-     * 查询tags标签面板中的数据并且统计每个标签的使用次数
+     * 删除某篇文章/笔记的标签关联
      *
-     * @return
+     * @param referId
+     * @param type
+     */
+    void deleteByReferIdAndType(Long referId, String type);
+
+    /**
+     * 查询所有的标签关联，用于构建内存中的标签索引
+     *
+     * @return [referId, tagId, type]
      */
-    @Query(nativeQuery = true, value = "SELECT tt.id, tt.`name`, count(ttr.tag_id) AS cnt " +
-            "FROM nb_tag_refer ttr LEFT JOIN nb_tag tt ON tt.id = ttr.tag_id " +
-            "GROUP BY ttr.tag_id ORDER BY cnt DESC LIMIT 30")
-    List<Object[]> findTagsTab();
+    @Query("select r.referId, r.tagId, r.type from NBTagRefer r")
+    List<Object[]> findAllRefers();
 
     /**
      * 根据tag参考类型和tagId查找对应的tag参照对象集合
@@ -4,6 +4,7 @@ import me.wuwenbin.noteblogv4.model.entity.NBTag;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -50,5 +51,15 @@ public interface TagRepository extends JpaRepository<NBTag, Long> {
                     " (SELECT tag_id FROM nb_tag_refer WHERE refer_id =?1 AND `show`= ?2 AND type = 'article')")
     List<NBTag> findArticleTags(long referId, boolean show);
 
+    /**
+     * 批量查询多篇文章的标签
+     *
+     * @param referIds
+     * @param show
+     * @return [referId, tag]
+     */
+    @Query("select r.referId, t from NBTagRefer r, NBTag t where t.id = r.tagId and r.referId in ?1 and r.show = ?2 and r.type = 'article'")
+    List<Object[]> findArticleTagsByReferIdIn(Collection<Long> referIds, boolean show);
+
 
 }
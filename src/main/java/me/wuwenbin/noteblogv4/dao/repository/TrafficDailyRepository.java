@@ -0,0 +1,23 @@
+package me.wuwenbin.noteblogv4.dao.repository;
+
+import me.wuwenbin.noteblogv4.model.entity.NBTrafficDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * created by Wuwenbin on 2019/3/10 at 11:20
+ *
+ * @author wuwenbin
+ */
+public interface TrafficDailyRepository extends JpaRepository<NBTrafficDaily, LocalDate> {
+
+    /**
+     * 某天之后（含）有访问的每日汇总，按日期倒序
+     *
+     * @param day
+     * @return
+     */
+    List<NBTrafficDaily> findByDayGreaterThanEqualAndPvGreaterThanOrderByDayDesc(LocalDate day, long pv);
+}
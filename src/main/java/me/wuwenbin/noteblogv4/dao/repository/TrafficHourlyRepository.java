@@ -0,0 +1,35 @@
+package me.wuwenbin.noteblogv4.dao.repository;
+
+import me.wuwenbin.noteblogv4.model.entity.NBTrafficHourly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * created by Wuwenbin on 2019/3/10 at 11:20
+ *
+ * @author wuwenbin
+ */
+public interface TrafficHourlyRepository extends JpaRepository<NBTrafficHourly, LocalDateTime> {
+
+    /**
+     * 最后一个已汇总的小时
+     *
+     * @return
+     */
+    @Query("select max(h.hour) from NBTrafficHourly h")
+    LocalDateTime findMaxHour();
+
+    /**
+     * [from, to) 之间各小时汇总的合计
+     *
+     * @param from
+     * @param to
+     * @return [pv, comments, users]
+     */
+    @Query("select coalesce(sum(h.pv), 0), coalesce(sum(h.comments), 0), coalesce(sum(h.users), 0) " +
+            "from NBTrafficHourly h where h.hour >= ?1 and h.hour < ?2")
+    List<Object[]> sumBetween(LocalDateTime from, LocalDateTime to);
+}
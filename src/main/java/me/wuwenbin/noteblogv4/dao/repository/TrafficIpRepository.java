@@ -0,0 +1,31 @@
+package me.wuwenbin.noteblogv4.dao.repository;
+
+import me.wuwenbin.noteblogv4.model.entity.NBTrafficIp;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+
+/**
+ * created by Wuwenbin on 2019/3/10 at 11:20
+ *
+ * @author wuwenbin
+ */
+public interface TrafficIpRepository extends JpaRepository<NBTrafficIp, String> {
+
+    /**
+     * 把 [from, to) 之间新出现的ip记录下来，已存在的忽略
+     *
+     * @param from
+     * @param to
+     * @return
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query(nativeQuery = true, value = "insert ignore into nb_traffic_ip (ip_addr, first_seen) " +
+            "select left(ip_addr, 100), min(time) from sys_logger where time >= ?1 and time < ?2 and ip_addr is not null " +
+            "group by left(ip_addr, 100)")
+    int insertNewIps(LocalDateTime from, LocalDateTime to);
+}
@@ -3,9 +3,19 @@ package me.wuwenbin.noteblogv4.dao.repository;
 import me.wuwenbin.noteblogv4.model.entity.NBUpload;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Optional;
+
 /**
  * created by Wuwenbin on 2018/8/4 at 0:03
  * @author wuwenbin
  */
 public interface UploadRepository extends JpaRepository<NBUpload, Long> {
+
+    /**
+     * 根据文件内容的 SHA-256 查找已经上传过的文件
+     *
+     * @param hash
+     * @return
+     */
+    Optional<NBUpload> findFirstByHashOrderById(String hash);
 }
@@ -6,6 +6,9 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * created by Wuwenbin on 2018/7/18 at 17:34
@@ -102,11 +105,44 @@ public interface UserRepository extends JpaRepository<NBSysUser, Long> {
     void updateUserEmail(long userId, String email);
 
     /**
-     * 根据创建日期查询用户数量
-     * @param post
+     * 更新用户评论通知邮件的汇总间隔
+     *
+     * @param userId
+     * @param mailDigestMinutes
+     * @return
+     */
+    @Modifying
+    @Transactional(rollbackOn = Exception.class)
+    @Query("update NBSysUser u set u.mailDigestMinutes = ?2 where u.id = ?1")
+    void updateUserMailDigest(long userId, Integer mailDigestMinutes);
+
+    /**
+     * 查询某个时间之后新增的用户数量
+     *
+     * @param from
      * @return
      */
-    @Query(nativeQuery = true,value = "select count(*) from sys_user where `create`like ?1")
-    int countByCreateLike(String post);
+    @Query("select count(u) from NBSysUser u where u.create >= ?1")
+    long countByCreateFrom(LocalDateTime from);
+
+    /**
+     * 按小时统计 [from, to) 之间新增的用户数量
+     *
+     * @param from
+     * @param to
+     * @return [yyyy-MM-dd HH, cnt]
+     */
+    @Query(nativeQuery = true, value = "select DATE_FORMAT(`create`, '%Y-%m-%d %H'), count(*) from sys_user " +
+            "where `create` >= ?1 and `create` < ?2 group by DATE_FORMAT(`create`, '%Y-%m-%d %H')")
+    List<Object[]> countHourly(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * 批量查询用户昵称
+     *
+     * @param ids
+     * @return [id, nickname]
+     */
+    @Query("select u.id, u.nickname from NBSysUser u where u.id in ?1")
+    List<Object[]> findNicknamesByIdIn(Collection<Long> ids);
 }
 
@@ -0,0 +1,12 @@
+package me.wuwenbin.noteblogv4.dao.repository;
+
+import me.wuwenbin.noteblogv4.model.entity.NBVisitorSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * created by Wuwenbin on 2019/3/10 at 13:45
+ *
+ * @author wuwenbin
+ */
+public interface VisitorSketchRepository extends JpaRepository<NBVisitorSketch, String> {
+}
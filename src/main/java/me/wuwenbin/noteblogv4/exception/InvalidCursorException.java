@@ -0,0 +1,12 @@
+package me.wuwenbin.noteblogv4.exception;
+
+/**
+ * created by Wuwenbin on 2019/3/11 at 20:10
+ *
+ * @author wuwenbin
+ */
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException() {
+        super("分页游标不合法！");
+    }
+}
@@ -0,0 +1,30 @@
+package me.wuwenbin.noteblogv4.model.constant;
+
+/**
+ * 全文检索的内容类型，每种类型一个独立的索引
+ * created by Wuwenbin on 2019/3/5 at 9:12
+ *
+ * @author wuwenbin
+ */
+public enum SearchType {
+
+    /**
+     * 文章
+     */
+    article,
+
+    /**
+     * 笔记
+     */
+    note,
+
+    /**
+     * 项目
+     */
+    project,
+
+    /**
+     * 云文件
+     */
+    cloudFile
+}
@@ -92,6 +92,20 @@ public class NBArticle implements Serializable {
     @Builder.Default
     private Integer approveCnt = randomInt(6, 169);
 
+    /**
+     * 评论总数，只由评论的增删改通过 update 语句维护，保存文章时不会覆盖
+     */
+    @Column(length = 11, nullable = false, updatable = false, columnDefinition = "int(11) default 0")
+    @Builder.Default
+    private Integer commentCnt = 0;
+
+    /**
+     * 已启用（前台可见）的评论数，维护方式同 commentCnt
+     */
+    @Column(length = 11, nullable = false, updatable = false, columnDefinition = "int(11) default 0")
+    @Builder.Default
+    private Integer enableCommentCnt = 0;
+
     @Column(nullable = false, length = 1, columnDefinition = "tinyint(1) default 0")
     @Builder.Default
     private Boolean commented = FALSE;
@@ -9,6 +9,7 @@ import org.hibernate.annotations.GenericGenerator;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import java.io.Serializable;
 import java.time.LocalDateTime;
@@ -21,7 +22,7 @@ import java.time.LocalDateTime;
 @Entity
 @Data
 @Builder
-@Table(name = "sys_logger")
+@Table(name = "sys_logger", indexes = @Index(name = "idx_sys_logger_time", columnList = "time"))
 @AllArgsConstructor
 @NoArgsConstructor
 public class NBLogger implements Serializable {
@@ -0,0 +1,103 @@
+package me.wuwenbin.noteblogv4.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import static java.lang.Boolean.FALSE;
+import static java.time.LocalDateTime.now;
+
+/**
+ * 待发送的邮件，由后台线程发送，失败按指数退避重试
+ * digest 为 true 的邮件到了 nextAttempt 之后和同一收件人的其他 digest 邮件合并成一封发送
+ * created by Wuwenbin on 2019/3/11 at 17:40
+ *
+ * @author wuwenbin
+ */
+@Data
+@Entity
+@Table(name = "nb_mail_outbox", indexes = {
+        @Index(name = "idx_nb_mail_outbox_due", columnList = "status,next_attempt"),
+        @Index(name = "idx_nb_mail_outbox_recipient", columnList = "recipient")
+})
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NBMailOutbox implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(updatable = false, nullable = false)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "text")
+    private String content;
+
+    @Column(nullable = false, length = 1, columnDefinition = "tinyint(1)")
+    @Builder.Default
+    private Boolean digest = FALSE;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt", nullable = false)
+    private LocalDateTime nextAttempt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    /**
+     * 领取该邮件的实例（noteblog.mail.node-id）
+     */
+    @Column(name = "claimed_by", length = 64)
+    private String claimedBy;
+
+    /**
+     * 领取时间，超过 claim-timeout 仍是 SENDING 时视为领取的实例已经宕掉
+     */
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Column(nullable = false, updatable = false)
+    @Builder.Default
+    private LocalDateTime created = now();
+
+    private LocalDateTime sent;
+
+    public enum Status {
+        /**
+         * 等待发送（包括等待重试）
+         */
+        PENDING,
+        /**
+         * 已被某个实例的发送线程领取
+         */
+        SENDING,
+        /**
+         * 发送成功
+         */
+        SENT,
+        /**
+         * 重试次数用完，不再发送
+         */
+        FAILED
+    }
+}
@@ -54,7 +54,10 @@ public class NBMessage implements Serializable {
     @Builder.Default
     private Boolean enable = TRUE;
 
-    @ManyToOne
+    /**
+     * 延迟加载，列表页由 ContentBatchLoader 一次性预加载一页的用户
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_refer_id")
     private NBSysUser user;
 }
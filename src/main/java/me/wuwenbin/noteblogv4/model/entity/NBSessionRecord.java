@@ -0,0 +1,56 @@
+package me.wuwenbin.noteblogv4.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * 使用 jdbc 方式保存 session 时的表结构，只用于建表，读写都在 JdbcSessionStore 里直接用 sql 完成
+ * 时间都是毫秒数
+ * created by Wuwenbin on 2019/3/11 at 14:00
+ *
+ * @author wuwenbin
+ */
+@Data
+@Entity
+@Table(name = "nb_session", indexes = {
+        @Index(name = "idx_nb_session_user", columnList = "user_id"),
+        @Index(name = "idx_nb_session_access", columnList = "last_access")
+})
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NBSessionRecord implements Serializable {
+
+    @Id
+    @Column(nullable = false, updatable = false, length = 64)
+    private String id;
+
+    @Column(length = 64)
+    private String host;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long roleId;
+
+    @Column(length = 20)
+    private String username;
+
+    @Column(length = 50)
+    private String nickname;
+
+    @Column(length = 100)
+    private String avatar;
+
+    @Column(nullable = false)
+    private Long startTime;
+
+    @Column(name = "last_access", nullable = false)
+    private Long lastAccess;
+}
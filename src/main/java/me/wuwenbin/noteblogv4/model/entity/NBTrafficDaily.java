@@ -0,0 +1,51 @@
+package me.wuwenbin.noteblogv4.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * 每天的访问汇总，一天的24个小时都汇总完之后生成
+ * created by Wuwenbin on 2019/3/10 at 11:10
+ *
+ * @author wuwenbin
+ */
+@Data
+@Entity
+@Table(name = "nb_traffic_daily")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NBTrafficDaily implements Serializable {
+
+    @Id
+    @Column(nullable = false, updatable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long pv = 0L;
+
+    /**
+     * 当天不同的ip数（不是每小时 uv 的和）
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Long uv = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long comments = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long users = 0L;
+}
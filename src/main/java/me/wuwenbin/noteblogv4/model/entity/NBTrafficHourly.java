@@ -0,0 +1,54 @@
+package me.wuwenbin.noteblogv4.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 每小时的访问汇总，由定时任务根据 sys_logger、nb_comment、sys_user 增量生成
+ * created by Wuwenbin on 2019/3/10 at 11:10
+ *
+ * @author wuwenbin
+ */
+@Data
+@Entity
+@Table(name = "nb_traffic_hourly")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NBTrafficHourly implements Serializable {
+
+    /**
+     * 整点时间
+     */
+    @Id
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime hour;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long pv = 0L;
+
+    /**
+     * 此小时内不同的ip数
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Long uv = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long comments = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long users = 0L;
+}
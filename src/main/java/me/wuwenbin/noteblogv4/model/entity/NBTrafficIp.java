@@ -0,0 +1,34 @@
+package me.wuwenbin.noteblogv4.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 出现过的所有访问ip，用于统计总访问ip数，不必再对整个 sys_logger 做 count(distinct)
+ * created by Wuwenbin on 2019/3/10 at 11:10
+ *
+ * @author wuwenbin
+ */
+@Data
+@Entity
+@Table(name = "nb_traffic_ip")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NBTrafficIp implements Serializable {
+
+    @Id
+    @Column(nullable = false, updatable = false, length = 100)
+    private String ipAddr;
+
+    private LocalDateTime firstSeen;
+}
@@ -15,7 +15,7 @@ import java.time.LocalDateTime;
  */
 @Data
 @Entity
-@Table(name = "nb_upload")
+@Table(name = "nb_upload", indexes = @Index(name = "idx_nb_upload_hash", columnList = "hash"))
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -36,4 +36,10 @@ public class NBUpload implements Serializable {
 
     @Column(nullable = false, length = 50)
     private String type;
+
+    /**
+     * 本地上传文件内容的 SHA-256（十六进制），相同内容的文件只保存一份
+     */
+    @Column(length = 64)
+    private String hash;
 }
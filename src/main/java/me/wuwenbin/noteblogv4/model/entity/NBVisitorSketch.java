@@ -0,0 +1,39 @@
+package me.wuwenbin.noteblogv4.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 独立访客的 HyperLogLog 寄存器，定时从内存写回
+ * id 为 day:yyyy-MM-dd（全站每天）或 article:文章id（每篇文章）
+ * created by Wuwenbin on 2019/3/10 at 13:40
+ *
+ * @author wuwenbin
+ */
+@Data
+@Entity
+@Table(name = "nb_visitor_sketch")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NBVisitorSketch implements Serializable {
+
+    @Id
+    @Column(nullable = false, updatable = false, length = 50)
+    private String id;
+
+    /**
+     * 第一个字节是精度 p，之后是 2^p 个寄存器
+     */
+    @Lob
+    @Column(nullable = false, columnDefinition = "blob")
+    private byte[] registers;
+
+    private LocalDateTime updated;
+}
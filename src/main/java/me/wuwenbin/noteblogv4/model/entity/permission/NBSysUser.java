@@ -70,5 +70,10 @@ public class NBSysUser implements Serializable {
 
     private String wechatOpenId;
 
+    /**
+     * 评论通知邮件的汇总间隔（分钟），为空或者 0 表示每条评论立即发送
+     */
+    private Integer mailDigestMinutes;
+
 
 }
@@ -4,8 +4,7 @@ import lombok.Data;
 import org.springframework.util.StringUtils;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * layuiXtree树对象
@@ -57,46 +56,40 @@ public class LayuiXTree implements Serializable {
         }
     }
 
-    private static LayuiXTree findChildren(LayuiXTree treeNode, List<LayuiXTree> treeNodes) {
-        for (LayuiXTree it : treeNodes) {
-            if (treeNode.getId().equals(it.getParentId())) {
-                if (treeNode.getData() == null) {
-                    treeNode.setData(new ArrayList<>());
-                }
-                treeNode.getData().add(findChildren(it, treeNodes));
-            }
-        }
-        return treeNode;
-    }
-
     /**
-     * 使用递归方法建树
+     * 按权限标识建立索引，一次遍历把每个节点挂到父节点下，缺少的上级分组（如 permission:role）按需补上，
+     * 不再限制层数；标识重复的节点，子节点只挂在第一个上，建好后各层集合不可修改
      *
      * @param treeNodes
      * @return
      */
-    public static List<LayuiXTree> buildByRecursive(List<LayuiXTree> treeNodes) {
-        List<LayuiXTree> trees = new ArrayList<>(treeNodes);
-        //权限标识是三级的，故此循环两次即可，此处后续可改为动态循环次数
-        List<LayuiXTree> newTrees = iteratorIt(iteratorIt(trees));
+    public static List<LayuiXTree> build(List<LayuiXTree> treeNodes) {
+        Map<String, LayuiXTree> index = new HashMap<>(treeNodes.size() * 2);
+        treeNodes.forEach(treeNode -> index.putIfAbsent(treeNode.getId(), treeNode));
         List<LayuiXTree> data = new ArrayList<>(20);
-        for (LayuiXTree treeNode : newTrees) {
-            if ("root".equals(treeNode.getParentId())) {
-                data.add(findChildren(treeNode, newTrees));
+        List<LayuiXTree> groups = new ArrayList<>();
+        for (LayuiXTree treeNode : treeNodes) {
+            LayuiXTree child = treeNode;
+            while (child != null) {
+                String parentId = child.getParentId();
+                LayuiXTree parent = index.get(parentId);
+                if ("root".equals(parentId)) {
+                    data.add(child);
+                    child = null;
+                } else if (parent != null) {
+                    parent.getData().add(child);
+                    child = null;
+                } else {
+                    parent = new LayuiXTree(parentId, getPid(parentId));
+                    index.put(parentId, parent);
+                    groups.add(parent);
+                    parent.getData().add(child);
+                    child = parent;
+                }
             }
         }
-        return data;
-    }
-
-    private static List<LayuiXTree> iteratorIt(List<LayuiXTree> data) {
-        List<LayuiXTree> trees = new ArrayList<>(data);
-        data.forEach(d -> {
-            LayuiXTree xTree = new LayuiXTree(d.getParentId(), getPid(d.getParentId()));
-            long cnt1 = trees.stream().filter(tree -> tree.getId().equalsIgnoreCase(d.getParentId())).count();
-            if (cnt1 == 0) {
-                trees.add(xTree);
-            }
-        });
-        return trees;
+        treeNodes.forEach(treeNode -> treeNode.setData(Collections.unmodifiableList(treeNode.getData())));
+        groups.forEach(group -> group.setData(Collections.unmodifiableList(group.getData())));
+        return Collections.unmodifiableList(data);
     }
 }
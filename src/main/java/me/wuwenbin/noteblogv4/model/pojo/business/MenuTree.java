@@ -4,8 +4,7 @@ import lombok.Data;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysMenu;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * created by Wuwenbin on 2018/7/31 at 15:05
@@ -29,39 +28,43 @@ public class MenuTree implements Serializable {
         this.icon = icon;
     }
 
-    private static MenuTree findChildren(MenuTree dataNode, List<MenuTree> dataNodes) {
-        for (MenuTree it : dataNodes) {
-            if (dataNode.getId().equals(it.getParentId())) {
-                if (dataNode.getData() == null) {
-                    dataNode.setData(new ArrayList<>());
-                }
-                dataNode.getData().add(findChildren(it, dataNodes));
-            }
-        }
-        return dataNode;
-    }
-
     /**
-     * 使用递归方法建树
+     * 按 id 建立索引，一次遍历把每个节点挂到父节点下，子节点顺序与传入顺序一致；
+     * 挂不到根节点（parentId 为 0）下的节点丢弃，建好后各层集合不可修改
      *
      * @param dataNodes
      * @return
      */
-    public static List<MenuTree> buildByRecursive(List<NBSysMenu> dataNodes) {
+    public static List<MenuTree> build(List<NBSysMenu> dataNodes) {
+        Map<Long, MenuTree> index = new HashMap<>(dataNodes.size() * 2);
         List<MenuTree> trees = new ArrayList<>(dataNodes.size());
         dataNodes.forEach(dataNode -> {
             MenuTree menuTree = new MenuTree(dataNode.getId(),
                     dataNode.getParentId(),
                     dataNode.getResource() != null ? dataNode.getResource().getUrl() : null,
                     dataNode.getName(), dataNode.getIcon());
+            index.putIfAbsent(menuTree.getId(), menuTree);
             trees.add(menuTree);
         });
         List<MenuTree> data = new ArrayList<>(20);
         for (MenuTree dataNode : trees) {
-            if (0 == dataNode.getParentId()) {
-                data.add(findChildren(dataNode, trees));
+            if (Objects.equals(0L, dataNode.getParentId())) {
+                data.add(dataNode);
+            } else {
+                MenuTree parent = index.get(dataNode.getParentId());
+                if (parent != null && parent != dataNode) {
+                    if (parent.getData() == null) {
+                        parent.setData(new ArrayList<>());
+                    }
+                    parent.getData().add(dataNode);
+                }
+            }
+        }
+        for (MenuTree dataNode : trees) {
+            if (dataNode.getData() != null) {
+                dataNode.setData(Collections.unmodifiableList(dataNode.getData()));
             }
         }
-        return data;
+        return Collections.unmodifiableList(data);
     }
 }
@@ -0,0 +1,57 @@
+package me.wuwenbin.noteblogv4.model.pojo.framework;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页的结果，字段名与 jpa 的 Page 保持一致（content、last），前台模板可以通用
+ * created by Wuwenbin on 2019/3/6 at 10:40
+ *
+ * @author wuwenbin
+ */
+@Getter
+public class CursorPage<T> implements Serializable {
+
+    private final List<T> content;
+    private final boolean last;
+
+    /**
+     * 下一页的游标，最后一页为 null
+     */
+    private final String nextCursor;
+
+    /**
+     * 总数只在第一页按需查询，其余页为 null
+     */
+    private final Long totalElements;
+
+    private CursorPage(List<T> content, boolean last, String nextCursor, Long totalElements) {
+        this.content = content;
+        this.last = last;
+        this.nextCursor = nextCursor;
+        this.totalElements = totalElements;
+    }
+
+    /**
+     * 查询时多取一条（limit + 1）用来判断是否还有下一页
+     *
+     * @param rows     按 limit + 1 查出的记录
+     * @param limit    每页条数
+     * @param cursorOf 由记录生成游标
+     * @param <T>
+     * @return
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, FeedCursor> cursorOf) {
+        return of(rows, limit, cursorOf, null);
+    }
+
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, FeedCursor> cursorOf, Long totalElements) {
+        boolean last = rows.size() <= limit;
+        List<T> content = last ? rows : rows.subList(0, limit);
+        String nextCursor = last ? null : cursorOf.apply(content.get(content.size() - 1)).encode();
+        return new CursorPage<>(content, last, nextCursor, totalElements);
+    }
+}
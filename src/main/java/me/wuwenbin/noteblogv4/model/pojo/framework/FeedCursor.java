@@ -0,0 +1,78 @@
+package me.wuwenbin.noteblogv4.model.pojo.framework;
+
+import lombok.Getter;
+import me.wuwenbin.noteblogv4.exception.InvalidCursorException;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * 游标分页（keyset）的位置，对应 (top desc, post desc, id desc) 排序中上一页最后一条记录
+ * 对前台是不透明的字符串，只负责原样传回
+ * created by Wuwenbin on 2019/3/6 at 10:12
+ *
+ * @author wuwenbin
+ */
+@Getter
+public class FeedCursor {
+
+    /**
+     * 第一页的位置，排在所有记录之前
+     */
+    private static final FeedCursor FIRST = new FeedCursor(Integer.MAX_VALUE, LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    private final int top;
+    private final LocalDateTime post;
+    private final long id;
+
+    public FeedCursor(int top, LocalDateTime post, long id) {
+        this.top = top;
+        this.post = post;
+        this.id = id;
+    }
+
+    public FeedCursor(LocalDateTime post, long id) {
+        this(0, post, id);
+    }
+
+    /**
+     * 解析前台传回的游标，为空时从第一页开始
+     *
+     * @param cursor
+     * @return
+     * @throws InvalidCursorException 游标不是 encode 生成的
+     */
+    public static FeedCursor decode(String cursor) {
+        if (StringUtils.isEmpty(cursor)) {
+            return FIRST;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\.");
+            LocalDateTime post = LocalDateTime.ofEpochSecond(Long.parseLong(parts[1]), Integer.parseInt(parts[2]), ZoneOffset.UTC);
+            return new FeedCursor(Integer.parseInt(parts[0]), post, Long.parseLong(parts[3]));
+        } catch (Exception e) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    public String encode() {
+        String raw = top + "." + post.toEpochSecond(ZoneOffset.UTC) + "." + post.getNano() + "." + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isFirst() {
+        return this == FIRST;
+    }
+
+    /**
+     * 布尔型的置顶字段（笔记）
+     *
+     * @return
+     */
+    public boolean isTopFlag() {
+        return top > 0;
+    }
+}
@@ -0,0 +1,50 @@
+package me.wuwenbin.noteblogv4.model.pojo.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 文章列表（首页文章流、标签检索、后台博文列表）只需要的字段
+ * 不包含 content、mdContent、textContent 三个大字段，分类只带中文名
+ * created by Wuwenbin on 2019/3/7 at 15:20
+ *
+ * @author wuwenbin
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArticleCard implements Serializable {
+
+    private Long id;
+    private String title;
+    private Long cateId;
+    private String cateName;
+    private String cover;
+    private String summary;
+    private Long authorId;
+    private LocalDateTime post;
+    private Integer view;
+    private Integer approveCnt;
+    private Integer commentCnt;
+    private Integer enableCommentCnt;
+    private Boolean commented;
+    private Boolean appreciable;
+    private Boolean draft;
+    private Integer top;
+    private String urlSequence;
+    /**
+     * 独立读者数（估算），只在后台博文列表中填充
+     */
+    private Long visitors;
+
+    public ArticleCard(Long id, String title, Long cateId, String cateName, String cover, String summary, Long authorId,
+                       LocalDateTime post, Integer view, Integer approveCnt, Integer commentCnt, Integer enableCommentCnt,
+                       Boolean commented, Boolean appreciable, Boolean draft, Integer top, String urlSequence) {
+        this(id, title, cateId, cateName, cover, summary, authorId, post, view, approveCnt, commentCnt, enableCommentCnt,
+                commented, appreciable, draft, top, urlSequence, null);
+    }
+}
@@ -0,0 +1,22 @@
+package me.wuwenbin.noteblogv4.model.pojo.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 侧边栏（随机文章、相似文章）只需要文章的 id 和标题
+ * created by Wuwenbin on 2019/3/4 at 9:40
+ *
+ * @author wuwenbin
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArticleLink implements Serializable {
+
+    private Long id;
+    private String title;
+}
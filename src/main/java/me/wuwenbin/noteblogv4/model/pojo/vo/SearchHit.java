@@ -0,0 +1,20 @@
+package me.wuwenbin.noteblogv4.model.pojo.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 一条检索结果：文档id 和 BM25 得分
+ * created by Wuwenbin on 2019/3/5 at 9:20
+ *
+ * @author wuwenbin
+ */
+@Data
+@AllArgsConstructor
+public class SearchHit implements Serializable {
+
+    private long id;
+    private double score;
+}
@@ -1,9 +1,5 @@
 package me.wuwenbin.noteblogv4.service.authority;
 
-import me.wuwenbin.noteblogv4.model.pojo.business.LayuiXTree;
-
-import java.util.List;
-
 /**
  * created by Wuwenbin on 2018/7/20 at 14:48
  *
@@ -11,15 +7,6 @@ import java.util.List;
  */
 public interface AuthorityService {
 
-
-    /**
-     * 根据roleId查找资源树集合
-     *
-     * @param roleId
-     * @return
-     */
-    List<LayuiXTree> findResourceTreeByRoleId(long roleId);
-
     /**
      * 初始化管理员账号
      *
@@ -7,14 +7,12 @@ import me.wuwenbin.noteblogv4.exception.InitException;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
 import me.wuwenbin.noteblogv4.model.entity.permission.*;
 import me.wuwenbin.noteblogv4.model.entity.permission.pk.UserRoleKey;
-import me.wuwenbin.noteblogv4.model.pojo.business.LayuiXTree;
+import me.wuwenbin.noteblogv4.service.param.ParamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Function;
 
 /**
  * created by Wuwenbin on 2018/7/20 at 14:49
@@ -25,9 +23,8 @@ import java.util.function.Function;
 @Transactional(rollbackOn = Exception.class)
 public class AuthorityServiceImpl implements AuthorityService {
 
-    private final ResourceRepository resourceRepository;
     private final UserRepository userRepository;
-    private final ParamRepository paramRepository;
+    private final ParamService paramService;
     private final UserRoleRepository userRoleRepository;
     private final MenuRepository menuRepository;
     private final NBContext blogContext;
@@ -35,29 +32,18 @@ public class AuthorityServiceImpl implements AuthorityService {
 
 
     @Autowired
-    public AuthorityServiceImpl(ResourceRepository resourceRepository,
-                                NBContext blogContext, UserRepository userRepository,
-                                ParamRepository paramRepository, UserRoleRepository userRoleRepository,
+    public AuthorityServiceImpl(NBContext blogContext, UserRepository userRepository,
+                                ParamService paramService, UserRoleRepository userRoleRepository,
                                 MenuRepository menuRepository, RoleRepository roleRepository) {
-        this.resourceRepository = resourceRepository;
         this.blogContext = blogContext;
         this.userRepository = userRepository;
-        this.paramRepository = paramRepository;
+        this.paramService = paramService;
         this.userRoleRepository = userRoleRepository;
         this.menuRepository = menuRepository;
         this.roleRepository = roleRepository;
     }
 
 
-    @Override
-    public List<LayuiXTree> findResourceTreeByRoleId(long roleId) {
-        List<NBSysResource> all = resourceRepository.findAll();
-        List<NBSysResource> hasResources = resourceRepository.findResourcesByRoleId(roleId);
-        List<LayuiXTree> treeList = new ArrayList<>(all.size());
-        treeList.addAll(transTo(all, NBSysResource::getName, NBSysResource::getId, NBSysResource::getPermission, hasResources::contains, res -> false));
-        return LayuiXTree.buildByRecursive(treeList);
-    }
-
     @Override
     public void initMasterAccount(String username, String password, String email) {
         Long masterRoleId = blogContext.getApplicationObj(NoteBlogV4.Session.WEBMASTER_ROLE_ID);
@@ -75,8 +61,8 @@ public class AuthorityServiceImpl implements AuthorityService {
                 .build();
         NBSysUser u = userRepository.saveAndFlush(user);
         if (u != null) {
-            paramRepository.updateInitParam("1", "is_set_master");
-            paramRepository.updateValueByName(NoteBlogV4.Param.MAIL_SENDER_NAME, u.getNickname());
+            paramService.updateValueByName("is_set_master", "1");
+            paramService.updateValueByName(NoteBlogV4.Param.MAIL_SENDER_NAME, u.getNickname());
             UserRoleKey urk = new UserRoleKey();
             urk.setRoleId(masterRoleId);
             urk.setUserId(u.getId());
@@ -109,34 +95,4 @@ public class AuthorityServiceImpl implements AuthorityService {
         urk.setUserId(saveUser.getId());
         userRoleRepository.saveAndFlush(NBSysUserRole.builder().pk(urk).enable(true).build());
     }
-
-    /**
-     * 数据库模型转LayuiXTree
-     *
-     * @param data
-     * @param title
-     * @param value
-     * @param checked
-     * @param disabled
-     * @return
-     */
-    private List<LayuiXTree> transTo(List<NBSysResource> data,
-                                     Function<NBSysResource, String> title,
-                                     Function<NBSysResource, Long> value,
-                                     Function<NBSysResource, String> group,
-                                     Function<NBSysResource, Boolean> checked,
-                                     Function<NBSysResource, Boolean> disabled) {
-
-        List<LayuiXTree> treeList = new ArrayList<>();
-        data.forEach(res -> {
-            LayuiXTree tree = new LayuiXTree(
-                    title.apply(res),
-                    value.apply(res).toString(),
-                    group.apply(res),
-                    checked.apply(res),
-                    disabled.apply(res));
-            treeList.add(tree);
-        });
-        return treeList;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package me.wuwenbin.noteblogv4.service.authority;
+
+import me.wuwenbin.noteblogv4.model.pojo.business.LayuiXTree;
+import me.wuwenbin.noteblogv4.model.pojo.business.MenuTree;
+
+import java.util.List;
+
+/**
+ * 后台菜单树和角色资源树
+ * 按角色缓存建好的树，返回的集合不可修改；菜单、角色或者资源变动之后需要调用对应的 evict 方法
+ * created by Wuwenbin on 2019/3/11 at 16:00
+ *
+ * @author wuwenbin
+ */
+public interface AuthorityTreeService {
+
+    /**
+     * 角色的后台菜单树
+     *
+     * @param roleId
+     * @return
+     */
+    List<MenuTree> findMenuTreeByRoleId(long roleId);
+
+    /**
+     * 全部资源组成的树，角色拥有的资源为选中状态
+     *
+     * @param roleId
+     * @return
+     */
+    List<LayuiXTree> findResourceTreeByRoleId(long roleId);
+
+    /**
+     * 角色的资源分配变化或者角色被删除之后，清除该角色的缓存
+     *
+     * @param roleId
+     */
+    void evictRole(long roleId);
+
+    /**
+     * 菜单或者资源变化之后清除所有角色的缓存，公共的根菜单不属于某一个角色，所以菜单变动一律全部清除
+     */
+    void evictAll();
+}
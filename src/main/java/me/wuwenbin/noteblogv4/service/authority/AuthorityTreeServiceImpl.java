@@ -0,0 +1,106 @@
+package me.wuwenbin.noteblogv4.service.authority;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.MenuRepository;
+import me.wuwenbin.noteblogv4.dao.repository.ResourceRepository;
+import me.wuwenbin.noteblogv4.dao.repository.RoleResourceRepository;
+import me.wuwenbin.noteblogv4.model.entity.permission.NBSysResource;
+import me.wuwenbin.noteblogv4.model.pojo.business.LayuiXTree;
+import me.wuwenbin.noteblogv4.model.pojo.business.MenuTree;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 树在缓存未命中时才查库构建，构建期间如果发生了清除，结果只返回给本次调用、不放进缓存，
+ * 避免把清除之前查到的旧数据缓存下来
+ * created by Wuwenbin on 2019/3/11 at 16:00
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class AuthorityTreeServiceImpl implements AuthorityTreeService {
+
+    private final MenuRepository menuRepository;
+    private final ResourceRepository resourceRepository;
+    private final RoleResourceRepository roleResourceRepository;
+
+    private final Map<Long, List<MenuTree>> menuTrees = new ConcurrentHashMap<>(8);
+    private final Map<Long, List<LayuiXTree>> resourceTrees = new ConcurrentHashMap<>(8);
+    private long version;
+
+    @Autowired
+    public AuthorityTreeServiceImpl(MenuRepository menuRepository, ResourceRepository resourceRepository,
+                                    RoleResourceRepository roleResourceRepository) {
+        this.menuRepository = menuRepository;
+        this.resourceRepository = resourceRepository;
+        this.roleResourceRepository = roleResourceRepository;
+    }
+
+    @Override
+    public List<MenuTree> findMenuTreeByRoleId(long roleId) {
+        List<MenuTree> tree = menuTrees.get(roleId);
+        if (tree != null) {
+            return tree;
+        }
+        long v = version();
+        tree = MenuTree.build(menuRepository.findAllByRoleIdOrderBy(roleId, true));
+        cache(menuTrees, roleId, tree, v);
+        log.debug("构建角色 [{}] 的菜单树完毕", roleId);
+        return tree;
+    }
+
+    @Override
+    public List<LayuiXTree> findResourceTreeByRoleId(long roleId) {
+        List<LayuiXTree> tree = resourceTrees.get(roleId);
+        if (tree != null) {
+            return tree;
+        }
+        long v = version();
+        List<NBSysResource> all = resourceRepository.findAll();
+        //原生查询里的 CAST 结果可能是 BigInteger，按 Number 取值
+        List<? extends Number> resourceIds = roleResourceRepository.findResourceIdByRoleId(roleId);
+        Set<Long> hasResources = new HashSet<>(resourceIds.size() * 2);
+        resourceIds.forEach(id -> hasResources.add(id.longValue()));
+        List<LayuiXTree> treeList = new ArrayList<>(all.size());
+        for (NBSysResource res : all) {
+            treeList.add(new LayuiXTree(res.getName(), res.getId().toString(), res.getPermission(),
+                    hasResources.contains(res.getId()), false));
+        }
+        tree = LayuiXTree.build(treeList);
+        cache(resourceTrees, roleId, tree, v);
+        log.debug("构建角色 [{}] 的资源树完毕，共计资源数：[{}]", roleId, all.size());
+        return tree;
+    }
+
+    @Override
+    public synchronized void evictRole(long roleId) {
+        version++;
+        menuTrees.remove(roleId);
+        resourceTrees.remove(roleId);
+    }
+
+    @Override
+    public synchronized void evictAll() {
+        version++;
+        menuTrees.clear();
+        resourceTrees.clear();
+    }
+
+    private synchronized long version() {
+        return version;
+    }
+
+    private synchronized <T> void cache(Map<Long, T> trees, long roleId, T tree, long v) {
+        if (v == version) {
+            trees.put(roleId, tree);
+        }
+    }
+}
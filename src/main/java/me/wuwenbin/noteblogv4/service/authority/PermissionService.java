@@ -0,0 +1,32 @@
+package me.wuwenbin.noteblogv4.service.authority;
+
+/**
+ * 权限判断
+ * 所有权限标识编号为连续的整数，每个角色拥有的权限编译成一个 BitSet 放进 authCache，判断权限只需要测试一个位
+ * created by Wuwenbin on 2019/3/11 at 15:20
+ *
+ * @author wuwenbin
+ */
+public interface PermissionService {
+
+    /**
+     * 角色是否拥有该权限
+     *
+     * @param roleId
+     * @param permission
+     * @return
+     */
+    boolean hasPermission(long roleId, String permission);
+
+    /**
+     * 资源表变化之后（启动时扫描完资源）重新给权限标识编号，并清空所有角色的缓存
+     */
+    void reload();
+
+    /**
+     * 角色的资源分配变化或者角色被删除之后，清除该角色的缓存，下次判断时重新编译
+     *
+     * @param roleId
+     */
+    void evictRole(long roleId);
+}
@@ -0,0 +1,148 @@
+package me.wuwenbin.noteblogv4.service.authority;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.ResourceRepository;
+import me.wuwenbin.noteblogv4.dao.repository.RoleResourceRepository;
+import me.wuwenbin.noteblogv4.model.entity.permission.NBSysResource;
+import me.wuwenbin.noteblogv4.util.CacheUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 权限标识按出现的顺序编号，多个资源（不同 url）可以共用一个权限标识，共用一个编号；
+ * 编号表整体不可变，volatile 发布，重新编号时整体替换；
+ * 缓存里的 BitSet 记录了它是按哪一份编号表编译的，编号表换了之后旧的 BitSet 不再使用，
+ * 这样即使 reload 和编译同时进行，也不会用旧编号去测新编号的位；
+ * 和 AuthorityTreeServiceImpl 一样，编译期间如果发生了清除，结果只用于本次判断、不放进缓存，避免把清除之前查到的旧权限缓存下来
+ * created by Wuwenbin on 2019/3/11 at 15:30
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class PermissionServiceImpl implements PermissionService {
+
+    private static final String ROLE_KEY_PREFIX = "role:";
+
+    private final ResourceRepository resourceRepository;
+    private final RoleResourceRepository roleResourceRepository;
+
+    private volatile Dictionary dictionary;
+    private long version;
+
+    @Autowired
+    public PermissionServiceImpl(ResourceRepository resourceRepository, RoleResourceRepository roleResourceRepository) {
+        this.resourceRepository = resourceRepository;
+        this.roleResourceRepository = roleResourceRepository;
+    }
+
+    @Override
+    public boolean hasPermission(long roleId, String permission) {
+        Dictionary dict = dictionary();
+        Integer bit = dict.permissions.get(permission);
+        return bit != null && roleBits(roleId, dict).get(bit);
+    }
+
+    @Override
+    public synchronized void reload() {
+        List<NBSysResource> resources = resourceRepository.findAll();
+        Map<String, Integer> permissions = new HashMap<>(resources.size() * 2);
+        Map<Long, Integer> resourceBits = new HashMap<>(resources.size() * 2);
+        for (NBSysResource resource : resources) {
+            if (resource.getPermission() == null) {
+                continue;
+            }
+            Integer bit = permissions.get(resource.getPermission());
+            if (bit == null) {
+                bit = permissions.size();
+                permissions.put(resource.getPermission(), bit);
+            }
+            resourceBits.put(resource.getId(), bit);
+        }
+        dictionary = new Dictionary(permissions, resourceBits);
+        version++;
+        CacheUtils.clearAllAuthCache();
+        log.info("权限标识编号完毕，共计资源数：[{}]，权限标识数：[{}]", resources.size(), permissions.size());
+    }
+
+    @Override
+    public synchronized void evictRole(long roleId) {
+        version++;
+        CacheUtils.removeAuthCache(ROLE_KEY_PREFIX + roleId);
+    }
+
+    private Dictionary dictionary() {
+        Dictionary dict = dictionary;
+        if (dict == null) {
+            synchronized (this) {
+                if (dictionary == null) {
+                    reload();
+                }
+                dict = dictionary;
+            }
+        }
+        return dict;
+    }
+
+    private BitSet roleBits(long roleId, Dictionary dict) {
+        String key = ROLE_KEY_PREFIX + roleId;
+        RoleBits cached = CacheUtils.fetchFromAuthCache(key, RoleBits.class);
+        if (cached != null && cached.dictionary == dict) {
+            return cached.bits;
+        }
+        long v = version();
+        BitSet bits = new BitSet(dict.permissions.size());
+        //原生查询里的 CAST 结果可能是 BigInteger，按 Number 取值
+        List<? extends Number> resourceIds = roleResourceRepository.findResourceIdByRoleId(roleId);
+        for (Number resourceId : resourceIds) {
+            Integer bit = dict.resourceBits.get(resourceId.longValue());
+            if (bit != null) {
+                bits.set(bit);
+            }
+        }
+        cache(key, new RoleBits(dict, bits), v);
+        log.debug("编译角色 [{}] 的权限完毕，共计权限数：[{}]", roleId, bits.cardinality());
+        return bits;
+    }
+
+    private synchronized long version() {
+        return version;
+    }
+
+    private synchronized void cache(String key, RoleBits roleBits, long v) {
+        if (v == version) {
+            CacheUtils.putIntoAuthCache(key, roleBits);
+        }
+    }
+
+    /**
+     * 权限标识 -> 编号，资源 id -> 编号
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> permissions;
+        private final Map<Long, Integer> resourceBits;
+
+        private Dictionary(Map<String, Integer> permissions, Map<Long, Integer> resourceBits) {
+            this.permissions = permissions;
+            this.resourceBits = resourceBits;
+        }
+    }
+
+    /**
+     * 编译好的角色权限，创建后不再修改
+     */
+    private static final class RoleBits {
+        private final Dictionary dictionary;
+        private final BitSet bits;
+
+        private RoleBits(Dictionary dictionary, BitSet bits) {
+            this.dictionary = dictionary;
+            this.bits = bits;
+        }
+    }
+}
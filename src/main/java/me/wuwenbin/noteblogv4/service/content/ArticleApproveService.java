@@ -0,0 +1,33 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+/**
+ * 文章点赞计数
+ * 点赞先累加在内存中，由定时任务批量写回数据库
+ * created by Wuwenbin on 2019/3/3 at 14:20
+ *
+ * @author wuwenbin
+ */
+public interface ArticleApproveService {
+
+    /**
+     * 点赞，同一访客在有效期内对同一篇文章只能点赞一次
+     *
+     * @param articleId
+     * @param visitor   访客标识（sessionId 或 ip）
+     * @return 是否点赞成功
+     */
+    boolean approve(long articleId, String visitor);
+
+    /**
+     * 查询某篇文章尚未写回数据库的点赞数
+     *
+     * @param articleId
+     * @return
+     */
+    long pendingApproves(long articleId);
+
+    /**
+     * 把内存中累积的点赞数批量写回数据库
+     */
+    void flush();
+}
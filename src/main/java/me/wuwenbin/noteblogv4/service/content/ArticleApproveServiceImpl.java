@@ -0,0 +1,124 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 点赞请求只写内存，不再每次点击都去 update nb_article 行
+ * 已点赞的（文章，访客）记录在一个有容量上限、会过期的 LRU 缓存中，用来拒绝重复点赞；
+ * 累加和写回时取走增量都是对 map 中同一项的原子操作，取走之后的点赞进入新的一项，不会丢失
+ * 缓存的文章页面里带着渲染时的点赞数，写回之后移除这些文章的页面，页面上的点赞数最多滞后一个写回间隔
+ * created by Wuwenbin on 2019/3/3 at 14:26
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class ArticleApproveServiceImpl implements ArticleApproveService {
+
+    private static final String FLUSH_SQL = "UPDATE nb_article SET approve_cnt = approve_cnt + ? WHERE id = ?";
+    private static final String EXISTS_SQL = "SELECT COUNT(*) FROM nb_article WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ArticlePageCacheService articlePageCacheService;
+    private final int pendingCapacity;
+
+    /**
+     * 文章id -> 尚未写回的点赞数
+     */
+    private final Map<Long, Long> pendingApproves = new ConcurrentHashMap<>(64);
+
+    /**
+     * 文章id + 访客，过期之后可以再次点赞
+     */
+    private final LRUCache<String, Boolean> approvedVisitors;
+
+    @Autowired
+    public ArticleApproveServiceImpl(JdbcTemplate jdbcTemplate, ArticlePageCacheService articlePageCacheService, Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.articlePageCacheService = articlePageCacheService;
+        int seenCapacity = env.getProperty("noteblog.article.approve.seen-capacity", Integer.class, 100000);
+        long dedupeWindow = env.getProperty("noteblog.article.approve.dedupe-window", Long.class, 86400L);
+        this.approvedVisitors = CacheUtil.newLRUCache(seenCapacity, dedupeWindow * 1000);
+        this.pendingCapacity = env.getProperty("noteblog.article.approve.pending-capacity", Integer.class, 10000);
+    }
+
+    @Override
+    public boolean approve(long articleId, String visitor) {
+        if (StringUtils.isEmpty(visitor)) {
+            return false;
+        }
+        if (pendingApproves.size() >= pendingCapacity && !pendingApproves.containsKey(articleId)) {
+            log.warn("待写回的点赞文章数已达上限：[{}]，拒绝文章 [{}] 的点赞", pendingCapacity, articleId);
+            return false;
+        }
+        //已经有待写回点赞的文章必然存在，只有第一次点赞时按主键查一次
+        if (!pendingApproves.containsKey(articleId) && !exists(articleId)) {
+            return false;
+        }
+        String key = articleId + "@" + visitor;
+        synchronized (approvedVisitors) {
+            if (approvedVisitors.containsKey(key)) {
+                return false;
+            }
+            approvedVisitors.put(key, Boolean.TRUE);
+        }
+        pendingApproves.merge(articleId, 1L, Long::sum);
+        return true;
+    }
+
+    private boolean exists(long articleId) {
+        Integer count = jdbcTemplate.queryForObject(EXISTS_SQL, Integer.class, articleId);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public long pendingApproves(long articleId) {
+        return pendingApproves.getOrDefault(articleId, 0L);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${noteblog.article.approve.flush-interval:10000}")
+    public void flush() {
+        List<Object[]> batchArgs = new ArrayList<>(pendingApproves.size());
+        for (Long articleId : pendingApproves.keySet()) {
+            Long delta = pendingApproves.remove(articleId);
+            if (delta != null && delta > 0) {
+                batchArgs.add(new Object[]{delta, articleId});
+            }
+        }
+        if (!batchArgs.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batchArgs);
+                log.info("写回文章点赞数完毕，共计文章数：[{}]", batchArgs.size());
+                batchArgs.forEach(arg -> articlePageCacheService.evict((Long) arg[1]));
+            } catch (Exception e) {
+                log.error("写回文章点赞数出错，增量留待下次写回，错误信息：{}", e.getMessage());
+                batchArgs.forEach(arg -> pendingApproves.merge((Long) arg[1], (Long) arg[0], Long::sum));
+            }
+        }
+        approvedVisitors.prune();
+    }
+
+    /**
+     * 应用关闭前写回剩余的点赞数
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("「笔记博客」App 关闭中，写回内存中的文章点赞数...");
+        flush();
+    }
+}
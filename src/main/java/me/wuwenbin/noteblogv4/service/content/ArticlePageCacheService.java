@@ -0,0 +1,74 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 文章页面（/article/{aId}、/a/u/{urlSeq}）渲染结果的缓存
+ * 按文章id、主题样式和登录状态区分，只缓存游客看到的页面，登录用户的页面带有个人信息，每次都重新渲染
+ * 页面以 gzip 压缩后的字节保存，总大小有上限，超出后淘汰最久未访问的页面
+ * 缓存和移除都只在本实例内，多实例部署时其他实例上的旧页面要等 ttl 过期才会更新
+ * evict、evictCate、clear 在事务中调用时等事务提交之后才移除，回滚时不移除
+ * created by Wuwenbin on 2019/3/8 at 10:05
+ *
+ * @author wuwenbin
+ */
+public interface ArticlePageCacheService {
+
+    /**
+     * 请求属性，标记本次渲染的页面可以放入缓存
+     */
+    String CAPTURE_ATTRIBUTE = "articlePageCapture";
+
+    /**
+     * 命中缓存时直接输出页面（或者 304），没命中返回 false，交给正常的渲染流程
+     *
+     * @param articleId
+     * @param style     当前的主题样式
+     * @param request
+     * @param response
+     * @return 是否已经输出
+     * @throws IOException
+     */
+    boolean serve(long articleId, String style, HttpServletRequest request, HttpServletResponse response) throws IOException;
+
+    /**
+     * 标记本次请求渲染出来的页面可以缓存，由 ArticlePageCaptureFilter 在渲染完成之后调用 store 保存
+     *
+     * @param articleId
+     * @param cateId
+     * @param style
+     * @param request
+     */
+    void markCacheable(long articleId, long cateId, String style, HttpServletRequest request);
+
+    /**
+     * 保存渲染好的页面
+     *
+     * @param request
+     * @param html
+     * @param contentType
+     * @return 页面的 ETag，没有保存时返回 null
+     */
+    String store(HttpServletRequest request, byte[] html, String contentType);
+
+    /**
+     * 文章修改、删除、有新评论或者点赞数写回之后移除该文章的页面
+     *
+     * @param articleId
+     */
+    void evict(long articleId);
+
+    /**
+     * 同一分类下文章的增删会影响相似文章，移除该分类下所有文章的页面
+     *
+     * @param cateId
+     */
+    void evictCate(long cateId);
+
+    /**
+     * 网站设置修改之后清空所有页面
+     */
+    void clear();
+}
@@ -0,0 +1,213 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import cn.hutool.core.util.ZipUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.util.NBUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 缓存放在一个按访问顺序排列的 LinkedHashMap 中，所有操作都在 this 上同步
+ * 开始渲染时记下当前的版本号，任何一次移除都会让版本号加一，
+ * 渲染期间发生过移除的页面不再保存，避免把修改之前的旧页面放回缓存
+ * 移除在事务提交之后才执行，提交之前开始的渲染可能读到旧数据，提交时版本号加一，这些页面同样不会保存
+ * created by Wuwenbin on 2019/3/8 at 10:30
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class ArticlePageCacheServiceImpl implements ArticlePageCacheService {
+
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, PageEntry> pages = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+    private volatile long version = 0;
+
+    @Autowired
+    public ArticlePageCacheServiceImpl(Environment env) {
+        this.maxBytes = env.getProperty("noteblog.article.page-cache.max-bytes", Long.class, 32L * 1024 * 1024);
+        this.ttlMillis = env.getProperty("noteblog.article.page-cache.ttl", Long.class, 300L) * 1000;
+    }
+
+    @Override
+    public boolean serve(long articleId, String style, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!cacheable(request)) {
+            return false;
+        }
+        PageEntry page;
+        synchronized (this) {
+            String key = key(articleId, style);
+            page = pages.get(key);
+            if (page != null && System.currentTimeMillis() - page.created > ttlMillis) {
+                remove(key);
+                page = null;
+            }
+        }
+        if (page == null) {
+            return false;
+        }
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        response.setHeader("Vary", "Accept-Encoding");
+        if (new ServletWebRequest(request, response).checkNotModified(etag(page.hash, gzip))) {
+            return true;
+        }
+        response.setContentType(page.contentType);
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.getOutputStream().write(page.gzip);
+        } else {
+            response.getOutputStream().write(ZipUtil.unGzip(page.gzip));
+        }
+        return true;
+    }
+
+    @Override
+    public void markCacheable(long articleId, long cateId, String style, HttpServletRequest request) {
+        if (cacheable(request)) {
+            request.setAttribute(CAPTURE_ATTRIBUTE, new Capture(key(articleId, style), articleId, cateId, version));
+        }
+    }
+
+    @Override
+    public String store(HttpServletRequest request, byte[] html, String contentType) {
+        Object attribute = request.getAttribute(CAPTURE_ATTRIBUTE);
+        if (!(attribute instanceof Capture) || html.length == 0) {
+            return null;
+        }
+        Capture capture = (Capture) attribute;
+        String hash = DigestUtil.md5Hex(html);
+        String etag = etag(hash, false);
+        byte[] gzip = ZipUtil.gzip(html);
+        if (gzip.length > maxBytes) {
+            return etag;
+        }
+        synchronized (this) {
+            if (capture.version != version) {
+                return etag;
+            }
+            remove(capture.key);
+            pages.put(capture.key, new PageEntry(capture.articleId, capture.cateId, gzip, hash, contentType, System.currentTimeMillis()));
+            totalBytes += gzip.length;
+            Iterator<Map.Entry<String, PageEntry>> eldest = pages.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().gzip.length;
+                eldest.remove();
+            }
+        }
+        return etag;
+    }
+
+    @Override
+    public void evict(long articleId) {
+        NBUtils.afterCommit(() -> removeIf(page -> page.articleId == articleId));
+    }
+
+    @Override
+    public void evictCate(long cateId) {
+        NBUtils.afterCommit(() -> removeIf(page -> page.cateId == cateId));
+    }
+
+    @Override
+    public void clear() {
+        NBUtils.afterCommit(this::clearNow);
+    }
+
+    private synchronized void clearNow() {
+        version++;
+        pages.clear();
+        totalBytes = 0;
+        log.info("清空文章页面缓存");
+    }
+
+    private synchronized void removeIf(Predicate<PageEntry> predicate) {
+        version++;
+        Iterator<PageEntry> it = pages.values().iterator();
+        while (it.hasNext()) {
+            PageEntry page = it.next();
+            if (predicate.test(page)) {
+                totalBytes -= page.gzip.length;
+                it.remove();
+            }
+        }
+    }
+
+    private void remove(String key) {
+        PageEntry old = pages.remove(key);
+        if (old != null) {
+            totalBytes -= old.gzip.length;
+        }
+    }
+
+    /**
+     * 只缓存游客访问的、不带查询参数的页面
+     *
+     * @param request
+     * @return
+     */
+    private boolean cacheable(HttpServletRequest request) {
+        return maxBytes > 0 && "GET".equals(request.getMethod())
+                && request.getQueryString() == null && NBUtils.getSessionUser() == null;
+    }
+
+    private static String key(long articleId, String style) {
+        return articleId + ":" + style + ":guest";
+    }
+
+    /**
+     * gzip 和未压缩的输出内容不同，ETag 也要不同，否则持有一种编码的客户端或代理会拿到另一种编码的 304
+     *
+     * @param hash
+     * @param gzip
+     * @return
+     */
+    private static String etag(String hash, boolean gzip) {
+        return "\"" + hash + (gzip ? "-gz" : "") + "\"";
+    }
+
+    private static final class Capture {
+        private final String key;
+        private final long articleId;
+        private final long cateId;
+        private final long version;
+
+        private Capture(String key, long articleId, long cateId, long version) {
+            this.key = key;
+            this.articleId = articleId;
+            this.cateId = cateId;
+            this.version = version;
+        }
+    }
+
+    private static final class PageEntry {
+        private final long articleId;
+        private final long cateId;
+        private final byte[] gzip;
+        private final String hash;
+        private final String contentType;
+        private final long created;
+
+        private PageEntry(long articleId, long cateId, byte[] gzip, String hash, String contentType, long created) {
+            this.articleId = articleId;
+            this.cateId = cateId;
+            this.gzip = gzip;
+            this.hash = hash;
+            this.contentType = contentType;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import me.wuwenbin.noteblogv4.model.entity.NBArticle;
+import me.wuwenbin.noteblogv4.model.pojo.vo.ArticleLink;
+
+import java.util.List;
+
+/**
+ * 随机文章、相似文章的抽样池
+ * 内存中按分类保存已发布文章的 id，抽样之后只按 id 查询标题，不再使用 ORDER BY rand()
+ * created by Wuwenbin on 2019/3/4 at 9:52
+ *
+ * @author wuwenbin
+ */
+public interface ArticlePoolService {
+
+    /**
+     * 从所有已发布的文章中随机抽取若干篇
+     *
+     * @param size
+     * @return
+     */
+    List<ArticleLink> findRandomArticles(int size);
+
+    /**
+     * 从同一分类已发布的文章中随机抽取若干篇，不包含当前文章
+     *
+     * @param cateId
+     * @param excludeId 当前文章id
+     * @param size
+     * @return
+     */
+    List<ArticleLink> findSimilarArticles(long cateId, long excludeId, int size);
+
+    /**
+     * 文章新增或修改之后刷新其在抽样池中的位置（草稿会被移出），在事务中调用时等事务提交之后生效
+     *
+     * @param article
+     */
+    void refresh(NBArticle article);
+
+    /**
+     * 文章删除之后将其移出抽样池，在事务中调用时等事务提交之后生效
+     *
+     * @param articleId
+     */
+    void remove(long articleId);
+
+    /**
+     * 从数据库重新加载整个抽样池
+     */
+    void reload();
+}
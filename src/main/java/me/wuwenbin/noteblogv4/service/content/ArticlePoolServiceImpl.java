@@ -0,0 +1,189 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.ArticleRepository;
+import me.wuwenbin.noteblogv4.model.entity.NBArticle;
+import me.wuwenbin.noteblogv4.model.pojo.vo.ArticleLink;
+import me.wuwenbin.noteblogv4.util.NBUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.Collections.emptyList;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * 抽样池在第一次使用时从数据库加载，之后由文章的新增、修改、删除操作维护
+ * 读取的是不可变的快照（volatile 发布），写操作串行并在完成后整体替换快照，文章写入很少，代价可以忽略；
+ * 在事务中修改时等事务提交之后再修改抽样池，回滚的文章不会留在池里
+ * 抽样使用 Floyd 算法，只与抽取的个数有关，与文章总数无关
+ * created by Wuwenbin on 2019/3/4 at 10:05
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class ArticlePoolServiceImpl implements ArticlePoolService {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final ArticleRepository articleRepository;
+
+    /**
+     * 已发布文章id -> 分类id，只在持有 this 锁时修改
+     */
+    private final Map<Long, Long> publishedCates = new HashMap<>(256);
+
+    private volatile Pool pool;
+
+    @Autowired
+    public ArticlePoolServiceImpl(ArticleRepository articleRepository) {
+        this.articleRepository = articleRepository;
+    }
+
+    @Override
+    public List<ArticleLink> findRandomArticles(int size) {
+        return fetch(sample(pool().all, size, -1));
+    }
+
+    @Override
+    public List<ArticleLink> findSimilarArticles(long cateId, long excludeId, int size) {
+        return fetch(sample(pool().byCate.getOrDefault(cateId, EMPTY), size, excludeId));
+    }
+
+    @Override
+    public void refresh(NBArticle article) {
+        if (article == null || article.getId() == null) {
+            return;
+        }
+        long id = article.getId();
+        Long cateId = Boolean.FALSE.equals(article.getDraft()) ? article.getCateId() : null;
+        NBUtils.afterCommit(() -> apply(id, cateId));
+    }
+
+    @Override
+    public void remove(long articleId) {
+        NBUtils.afterCommit(() -> apply(articleId, null));
+    }
+
+    @Override
+    public synchronized void reload() {
+        publishedCates.clear();
+        for (Object[] row : articleRepository.findPublishedIdAndCateIds()) {
+            publishedCates.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        publish();
+        log.info("加载文章抽样池完毕，共计已发布文章数：[{}]", publishedCates.size());
+    }
+
+    /**
+     * 修改文章在抽样池中的分类
+     *
+     * @param articleId
+     * @param cateId    为 null 时移出抽样池
+     */
+    private synchronized void apply(long articleId, Long cateId) {
+        if (pool == null) {
+            return;
+        }
+        Long old = cateId == null ? publishedCates.remove(articleId) : publishedCates.put(articleId, cateId);
+        if (!Objects.equals(old, cateId)) {
+            publish();
+        }
+    }
+
+    private Pool pool() {
+        Pool p = pool;
+        if (p == null) {
+            synchronized (this) {
+                if (pool == null) {
+                    reload();
+                }
+                p = pool;
+            }
+        }
+        return p;
+    }
+
+    /**
+     * 根据 publishedCates 生成新的快照并替换旧快照
+     */
+    private void publish() {
+        long[] all = new long[publishedCates.size()];
+        Map<Long, Integer> cateSizes = new HashMap<>(16);
+        publishedCates.values().forEach(cateId -> cateSizes.merge(cateId, 1, Integer::sum));
+        Map<Long, long[]> byCate = new HashMap<>(cateSizes.size() * 2);
+        cateSizes.forEach((cateId, cnt) -> byCate.put(cateId, new long[cnt]));
+        Map<Long, Integer> cursors = new HashMap<>(cateSizes.size() * 2);
+        int i = 0;
+        for (Map.Entry<Long, Long> e : publishedCates.entrySet()) {
+            all[i++] = e.getKey();
+            int c = cursors.merge(e.getValue(), 1, Integer::sum) - 1;
+            byCate.get(e.getValue())[c] = e.getKey();
+        }
+        pool = new Pool(all, byCate);
+    }
+
+    /**
+     * Floyd 算法从 ids 中等概率地抽取 size 个不同的 id（跳过 excludeId），结果顺序随机
+     *
+     * @param ids
+     * @param size
+     * @param excludeId
+     * @return
+     */
+    private static List<Long> sample(long[] ids, int size, long excludeId) {
+        int n = ids.length;
+        if (n == 0 || size <= 0) {
+            return emptyList();
+        }
+        //多抽一个，排除掉当前文章之后仍然够数
+        int k = Math.min(n, size + 1);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Integer> picked = new HashSet<>(k * 2);
+        for (int j = n - k; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            picked.add(picked.contains(t) ? j : t);
+        }
+        List<Long> result = new ArrayList<>(k);
+        for (int index : picked) {
+            if (ids[index] != excludeId) {
+                result.add(ids[index]);
+            }
+        }
+        Collections.shuffle(result, random);
+        return result.size() > size ? result.subList(0, size) : result;
+    }
+
+    private List<ArticleLink> fetch(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return emptyList();
+        }
+        Map<Long, ArticleLink> links = articleRepository.findArticleLinksByIdIn(ids).stream()
+                .collect(toMap(ArticleLink::getId, identity()));
+        List<ArticleLink> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ArticleLink link = links.get(id);
+            if (link != null) {
+                result.add(link);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 抽样池快照，创建后不再修改
+     */
+    private static final class Pool {
+        private final long[] all;
+        private final Map<Long, long[]> byCate;
+
+        private Pool(long[] all, Map<Long, long[]> byCate) {
+            this.all = all;
+            this.byCate = byCate;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package me.wuwenbin.noteblogv4.service.content;
 
 import me.wuwenbin.noteblogv4.model.entity.NBArticle;
 import me.wuwenbin.noteblogv4.model.pojo.bo.ArticleQueryBO;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
+import me.wuwenbin.noteblogv4.model.pojo.vo.ArticleCard;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -37,7 +39,7 @@ public interface ArticleService {
      * @param authorId
      * @return
      */
-    Page<NBArticle> findPageInfo(Pageable pageable, String title, Long authorId);
+    Page<ArticleCard> findPageInfo(Pageable pageable, String title, Long authorId);
 
     /**
      * 前端博客页面的文章分页信息
@@ -46,7 +48,7 @@ public interface ArticleService {
      * @param articleQueryBO
      * @return
      */
-    Page<NBArticle> findBlogArticles(Pageable pageable, ArticleQueryBO articleQueryBO);
+    Page<ArticleCard> findBlogArticles(Pageable pageable, ArticleQueryBO articleQueryBO);
 
     /**
      * 修改文章的 top 值
@@ -57,4 +59,21 @@ public interface ArticleService {
      * @throws Exception
      */
     boolean updateTopById(long articleId, boolean top);
+
+    /**
+     * 删除文章
+     *
+     * @param articleId
+     */
+    void deleteArticle(long articleId);
+
+    /**
+     * 前台文章流的游标分页，第一页额外返回总数
+     *
+     * @param cursor 上一页返回的 nextCursor，第一页为空
+     * @param limit
+     * @param cateId 分类id，为空则不限分类
+     * @return
+     */
+    CursorPage<ArticleCard> findBlogArticleFeed(String cursor, int limit, Long cateId);
 }
@@ -9,31 +9,30 @@ import me.wuwenbin.noteblogv4.dao.repository.ArticleRepository;
 import me.wuwenbin.noteblogv4.dao.repository.TagReferRepository;
 import me.wuwenbin.noteblogv4.dao.repository.TagRepository;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
+import me.wuwenbin.noteblogv4.model.constant.SearchType;
 import me.wuwenbin.noteblogv4.model.constant.TagType;
 import me.wuwenbin.noteblogv4.model.entity.NBArticle;
-import me.wuwenbin.noteblogv4.model.entity.NBCate;
 import me.wuwenbin.noteblogv4.model.entity.NBTag;
 import me.wuwenbin.noteblogv4.model.entity.NBTagRefer;
 import me.wuwenbin.noteblogv4.model.pojo.bo.ArticleQueryBO;
-import me.wuwenbin.noteblogv4.service.param.ParamService;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
+import me.wuwenbin.noteblogv4.model.pojo.framework.FeedCursor;
+import me.wuwenbin.noteblogv4.model.pojo.vo.ArticleCard;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
+import me.wuwenbin.noteblogv4.service.search.SearchService;
+import me.wuwenbin.noteblogv4.util.HtmlSanitizer;
 import me.wuwenbin.noteblogv4.util.NBUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
-import javax.persistence.criteria.Join;
-import javax.persistence.criteria.JoinType;
-import javax.persistence.criteria.Predicate;
 import javax.transaction.Transactional;
 import java.util.ArrayList;
 import java.util.List;
 
 import static cn.hutool.core.util.RandomUtil.randomInt;
 import static java.time.LocalDateTime.now;
-import static java.util.stream.Collectors.toList;
 
 /**
  * created by Wuwenbin on 2018/8/5 at 20:09
@@ -47,12 +46,22 @@ public class ArticleServiceImpl implements ArticleService {
     private final ArticleRepository articleRepository;
     private final TagReferRepository tagReferRepository;
     private final TagRepository tagRepository;
+    private final ArticlePoolService articlePoolService;
+    private final SearchService searchService;
+    private final ArticlePageCacheService articlePageCacheService;
+    private final TagIndexService tagIndexService;
 
     @Autowired
-    public ArticleServiceImpl(ArticleRepository articleRepository, TagReferRepository tagReferRepository, TagRepository tagRepository) {
+    public ArticleServiceImpl(ArticleRepository articleRepository, TagReferRepository tagReferRepository, TagRepository tagRepository,
+                              ArticlePoolService articlePoolService, SearchService searchService,
+                              ArticlePageCacheService articlePageCacheService, TagIndexService tagIndexService) {
         this.articleRepository = articleRepository;
         this.tagReferRepository = tagReferRepository;
         this.tagRepository = tagRepository;
+        this.articlePoolService = articlePoolService;
+        this.searchService = searchService;
+        this.articlePageCacheService = articlePageCacheService;
+        this.tagIndexService = tagIndexService;
     }
 
     @Override
@@ -71,7 +80,12 @@ public class ArticleServiceImpl implements ArticleService {
         decorateArticle(article);
         NBArticle newArticle = articleRepository.save(article);
         String[] tagNameArray = tagNames.split(",");
-        saveTags(newArticle, tagNameArray, tagRepository, tagReferRepository);
+        List<NBTag> tags = saveTags(newArticle, tagNameArray, tagRepository, tagReferRepository);
+        tagIndexService.saveRefers(newArticle.getId(), TagType.article, tags);
+        tagIndexService.refreshArticle(newArticle);
+        articlePoolService.refresh(newArticle);
+        searchService.index(newArticle);
+        articlePageCacheService.evictCate(newArticle.getCateId());
     }
 
     @Override
@@ -91,81 +105,88 @@ public class ArticleServiceImpl implements ArticleService {
         }
         setArticleSummaryAndTxt(article);
         decorateArticle(article);
+        Long oldCateId = articleRepository.findById(article.getId()).map(NBArticle::getCateId).orElse(null);
         NBArticle updateArticle = articleRepository.save(article);
         if (updateArticle != null) {
-            tagReferRepository.deleteByReferId(updateArticle.getId());
+            tagReferRepository.deleteByReferIdAndType(updateArticle.getId(), TagType.article.name());
             String[] tagNameArray = tagNames.split(",");
-            saveTags(updateArticle, tagNameArray, tagRepository, tagReferRepository);
+            List<NBTag> tags = saveTags(updateArticle, tagNameArray, tagRepository, tagReferRepository);
+            tagIndexService.saveRefers(updateArticle.getId(), TagType.article, tags);
+            tagIndexService.refreshArticle(updateArticle);
+            articlePoolService.refresh(updateArticle);
+            searchService.index(updateArticle);
+            articlePageCacheService.evict(updateArticle.getId());
+            articlePageCacheService.evictCate(updateArticle.getCateId());
+            if (oldCateId != null && !oldCateId.equals(updateArticle.getCateId())) {
+                articlePageCacheService.evictCate(oldCateId);
+            }
         }
     }
 
     @Override
-    public Page<NBArticle> findPageInfo(Pageable pageable, String title, Long authorId) {
-        return articleRepository.findAll((Specification<NBArticle>) (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
-            if (title != null && StrUtil.isNotEmpty(title)) {
-                predicates.add(criteriaBuilder.like(root.get("title"), "%" + title + "%"));
-            }
-            if (authorId != null) {
-                predicates.add(criteriaBuilder.equal(root.get("authorId"), authorId));
-            }
-            Join<NBArticle, NBCate> cateCnNameJoin = root.join(root.getModel().getSingularAttribute("cate", NBCate.class), JoinType.LEFT);
-            predicates.add(criteriaBuilder.equal(cateCnNameJoin.get("id").as(Long.class), root.get("cateId")));
-            Predicate[] pres = new Predicate[predicates.size()];
-            return query.where(predicates.toArray(pres)).getRestriction();
-        }, pageable);
+    public Page<ArticleCard> findPageInfo(Pageable pageable, String title, Long authorId) {
+        String titleLike = StrUtil.isNotEmpty(title) ? "%" + title + "%" : null;
+        return articleRepository.findManageCards(titleLike, authorId, pageable);
     }
 
 
     @Override
-    public Page<NBArticle> findBlogArticles(Pageable pageable, ArticleQueryBO articleQueryBO) {
+    public Page<ArticleCard> findBlogArticles(Pageable pageable, ArticleQueryBO articleQueryBO) {
         if (StringUtil.isEmpty(articleQueryBO.getTagSearch())) {
-            String searchStr = articleQueryBO.getSearchStr() == null ? "" : articleQueryBO.getSearchStr();
-            NBArticle prob = NBArticle.builder().textContent(searchStr)
-                    .title(searchStr).build();
-            if (articleQueryBO.getCateId() != null) {
-                prob.setCateId(articleQueryBO.getCateId());
+            String searchStr = articleQueryBO.getSearchStr();
+            if (StringUtils.hasText(searchStr)) {
+                return searchService.search(SearchType.article, searchStr, articleQueryBO.getCateId(), true,
+                        pageable, articleRepository::findCardsByIdIn, ArticleCard::getId);
             }
-            prob.setDraft(false);
-            ExampleMatcher matcher = ExampleMatcher.matchingAny()
-                    .withMatcher("title", ExampleMatcher.GenericPropertyMatcher::contains)
-                    .withMatcher("textContent", ExampleMatcher.GenericPropertyMatcher::contains)
-                    .withIgnorePaths("post", "modify", "view", "approveCnt", "commented", "mdContent", "appreciable", "top", "draft")
-                    .withIgnoreNullValues();
-            Example<NBArticle> articleExample = Example.of(prob, matcher);
-            Page<NBArticle> page = articleRepository.findAll(articleExample, pageable);
-            List<NBArticle> result = page.getContent().stream().filter(article -> !article.getDraft()).collect(toList());
-            return new PageImpl<>(result, pageable, result.size());
+            return articleRepository.findCards(articleQueryBO.getCateId(), pageable);
         } else {
-            String tag = NBUtils.stripXSS(URLUtil.decode(articleQueryBO.getTagSearch(), "UTF-8"));
-            NBTag t = tagRepository.findByName(tag);
-            if (t == null) {
-                return Page.empty(pageable);
-            } else {
-                long tagId = t.getId();
-                List<NBTagRefer> tagRefers = tagReferRepository.findByTagIdAndType(tagId, "article");
-                List<Long> articleIds = tagRefers.stream().map(NBTagRefer::getReferId).distinct().collect(toList());
-                if (CollectionUtils.isEmpty(articleIds)) {
-                    return Page.empty(pageable);
-                } else {
-                    List<NBArticle> articles = articleRepository.findByIdIn(articleIds, pageable.getPageNumber(), pageable.getPageSize());
-                    return new PageImpl<>(articles, pageable, articles.size());
-                }
-            }
+            String tag = HtmlSanitizer.text(URLUtil.decode(articleQueryBO.getTagSearch(), "UTF-8"));
+            return tagIndexService.findArticles(tag, pageable, articleRepository::findCardsByIdIn, ArticleCard::getId);
         }
     }
 
     @Override
     @Transactional(rollbackOn = Exception.class)
     public boolean updateTopById(long articleId, boolean top) {
+        boolean updated;
         if (top) {
             int maxTop = articleRepository.findMaxTop();
-            return articleRepository.updateTopById(maxTop + 1, articleId) == 1;
+            updated = articleRepository.updateTopById(maxTop + 1, articleId) == 1;
+            if (updated) {
+                tagIndexService.topArticle(articleId, maxTop + 1);
+            }
         } else {
             int currentTop = articleRepository.getOne(articleId).getTop();
             articleRepository.updateTopsByTop(currentTop);
-            return articleRepository.updateTopById(0, articleId) == 1;
+            updated = articleRepository.updateTopById(0, articleId) == 1;
+            if (updated) {
+                tagIndexService.untopArticle(articleId, currentTop);
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    @Transactional(rollbackOn = Exception.class)
+    public void deleteArticle(long articleId) {
+        articleRepository.findById(articleId).ifPresent(article -> articlePageCacheService.evictCate(article.getCateId()));
+        articleRepository.deleteById(articleId);
+        tagReferRepository.deleteByReferIdAndType(articleId, TagType.article.name());
+        tagIndexService.removeArticle(articleId);
+        articlePageCacheService.evict(articleId);
+        articlePoolService.remove(articleId);
+        searchService.remove(SearchType.article, articleId);
+    }
+
+    @Override
+    public CursorPage<ArticleCard> findBlogArticleFeed(String cursor, int limit, Long cateId) {
+        FeedCursor c = FeedCursor.decode(cursor);
+        List<ArticleCard> rows = articleRepository.findFeedAfter(cateId, c.getTop(), c.getPost(), c.getId(), PageRequest.of(0, limit + 1));
+        Long total = null;
+        if (c.isFirst()) {
+            total = cateId == null ? articleRepository.countByDraft(false) : articleRepository.countByCateIdAndDraft(cateId, false);
         }
+        return CursorPage.of(rows, limit, a -> new FeedCursor(a.getTop() == null ? 0 : a.getTop(), a.getPost(), a.getId()), total);
     }
 
     /**
@@ -174,8 +195,8 @@ public class ArticleServiceImpl implements ArticleService {
      * @param article
      */
     private static void setArticleSummaryAndTxt(NBArticle article) {
-        ParamService paramService = NBUtils.getBean(ParamService.class);
-        int summaryLength = Integer.valueOf(paramService.getValueByName(NoteBlogV4.Param.ARTICLE_SUMMARY_WORDS_LENGTH));
+        ParamStore paramStore = NBUtils.getBean(ParamStore.class);
+        int summaryLength = paramStore.getInt(NoteBlogV4.Param.ARTICLE_SUMMARY_WORDS_LENGTH, 243);
         String clearContent = HtmlUtil.cleanHtmlTag(StrUtil.trim(article.getContent()));
         clearContent = StringUtils.trimAllWhitespace(clearContent);
         clearContent = clearContent.substring(0, clearContent.length() < summaryLength ? clearContent.length() : summaryLength);
@@ -197,6 +218,8 @@ public class ArticleServiceImpl implements ArticleService {
         article.setPost(now());
         article.setView(randomInt(666, 1609));
         article.setApproveCnt(randomInt(6, 169));
+        article.setCommentCnt(0);
+        article.setEnableCommentCnt(0);
         if (StringUtils.isEmpty(article.getAppreciable())) {
             article.setAppreciable(false);
         }
@@ -215,24 +238,28 @@ public class ArticleServiceImpl implements ArticleService {
      * @param tagNameArray
      * @param tagRepository
      * @param tagReferRepository
+     * @return 文章的标签
      */
-    private static void saveTags(NBArticle updateArticle, String[] tagNameArray, TagRepository tagRepository, TagReferRepository tagReferRepository) {
+    private static List<NBTag> saveTags(NBArticle updateArticle, String[] tagNameArray, TagRepository tagRepository, TagReferRepository tagReferRepository) {
         int cnt = 0;
+        List<NBTag> tags = new ArrayList<>(tagNameArray.length);
         for (String name : tagNameArray) {
             Example<NBTag> condition = Example.of(NBTag.builder().name(name).build());
             boolean isExist = tagRepository.count(condition) > 0;
-            long tagId = isExist ?
-                    tagRepository.findByName(name).getId() :
-                    tagRepository.save(NBTag.builder().name(name).build()).getId();
+            NBTag tag = isExist ?
+                    tagRepository.findByName(name) :
+                    tagRepository.save(NBTag.builder().name(name).build());
+            tags.add(tag);
 
             tagReferRepository.save(
                     NBTagRefer.builder()
                             .referId(updateArticle.getId())
-                            .tagId(tagId)
+                            .tagId(tag.getId())
                             .show(cnt <= 4)
                             .type(TagType.article.name()).build()
             );
             cnt++;
         }
+        return tags;
     }
 }
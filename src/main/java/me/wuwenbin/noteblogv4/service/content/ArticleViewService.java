@@ -0,0 +1,33 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+/**
+ * 文章浏览量计数
+ * 浏览量先累加在内存中，由定时任务批量写回数据库
+ * created by Wuwenbin on 2019/3/2 at 10:12
+ *
+ * @author wuwenbin
+ */
+public interface ArticleViewService {
+
+    /**
+     * 记录一次文章浏览，同一访客在去重时间窗口内的重复浏览不计数
+     *
+     * @param articleId
+     * @param visitor   访客标识（登录用户的id 或 ip）
+     * @return 是否计数
+     */
+    boolean increaseView(long articleId, String visitor);
+
+    /**
+     * 查询某篇文章尚未写回数据库的浏览量
+     *
+     * @param articleId
+     * @return
+     */
+    long pendingViews(long articleId);
+
+    /**
+     * 把内存中累积的浏览量批量写回数据库
+     */
+    void flush();
+}
@@ -0,0 +1,102 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 浏览量累加在内存中，不再每次访问都去 update nb_article 行
+ * 定时任务每隔 noteblog.article.view.flush-interval 毫秒把增量通过一次 jdbc batch 写回；
+ * 累加和写回时取走增量都是对 map 中同一项的原子操作（只锁该文章所在的桶），取走之后写入的浏览会进入新的一项，不会丢失
+ * created by Wuwenbin on 2019/3/2 at 10:15
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class ArticleViewServiceImpl implements ArticleViewService {
+
+    private static final String FLUSH_SQL = "UPDATE nb_article SET view = view + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long dedupeWindowMills;
+
+    /**
+     * 文章id -> 尚未写回的浏览量
+     */
+    private final Map<Long, Long> pendingViews = new ConcurrentHashMap<>(64);
+
+    /**
+     * 文章id + 访客 -> 最近一次计数的时间
+     */
+    private final Map<String, Long> recentVisitors = new ConcurrentHashMap<>(256);
+
+    @Autowired
+    public ArticleViewServiceImpl(JdbcTemplate jdbcTemplate, Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dedupeWindowMills = env.getProperty("noteblog.article.view.dedupe-window", Long.class, 1800L) * 1000;
+    }
+
+    @Override
+    public boolean increaseView(long articleId, String visitor) {
+        if (dedupeWindowMills > 0 && !StringUtils.isEmpty(visitor)) {
+            long now = System.currentTimeMillis();
+            String key = articleId + "@" + visitor;
+            Long last = recentVisitors.putIfAbsent(key, now);
+            if (last != null) {
+                if (now - last < dedupeWindowMills || !recentVisitors.replace(key, last, now)) {
+                    return false;
+                }
+            }
+        }
+        pendingViews.merge(articleId, 1L, Long::sum);
+        return true;
+    }
+
+    @Override
+    public long pendingViews(long articleId) {
+        return pendingViews.getOrDefault(articleId, 0L);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${noteblog.article.view.flush-interval:10000}")
+    public void flush() {
+        List<Object[]> batchArgs = new ArrayList<>(pendingViews.size());
+        for (Long articleId : pendingViews.keySet()) {
+            Long delta = pendingViews.remove(articleId);
+            if (delta != null && delta > 0) {
+                batchArgs.add(new Object[]{delta, articleId});
+            }
+        }
+        if (!batchArgs.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batchArgs);
+                log.info("写回文章浏览量完毕，共计文章数：[{}]", batchArgs.size());
+            } catch (Exception e) {
+                log.error("写回文章浏览量出错，增量留待下次写回，错误信息：{}", e.getMessage());
+                batchArgs.forEach(arg -> pendingViews.merge((Long) arg[1], (Long) arg[0], Long::sum));
+            }
+        }
+        long now = System.currentTimeMillis();
+        recentVisitors.entrySet().removeIf(e -> now - e.getValue() >= dedupeWindowMills);
+    }
+
+    /**
+     * 应用关闭前写回剩余的浏览量
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("「笔记博客」App 关闭中，写回内存中的文章浏览量...");
+        flush();
+    }
+}
@@ -2,6 +2,7 @@ package me.wuwenbin.noteblogv4.service.content;
 
 import me.wuwenbin.noteblogv4.model.entity.NBComment;
 import me.wuwenbin.noteblogv4.model.pojo.bo.CommentQueryBO;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -20,4 +21,44 @@ public interface CommentService {
      * @return
      */
     Page<NBComment> findPageInfo(Pageable pageable, CommentQueryBO commentQueryBO);
+
+    /**
+     * 文章评论的游标分页
+     *
+     * @param articleId
+     * @param cursor    上一页返回的 nextCursor，第一页为空
+     * @param limit
+     * @return
+     */
+    CursorPage<NBComment> findArticleComments(long articleId, String cursor, int limit);
+
+    /**
+     * 发表评论，同时增加文章的评论计数
+     *
+     * @param comment
+     * @return
+     */
+    NBComment postComment(NBComment comment);
+
+    /**
+     * 修改评论的启用状态，同时调整文章的已启用评论数
+     *
+     * @param commentId
+     * @param enable
+     * @return
+     */
+    boolean updateCommentStatus(long commentId, boolean enable);
+
+    /**
+     * 删除评论，同时减少文章的评论计数
+     *
+     * @param commentId
+     * @return
+     */
+    boolean deleteComment(long commentId);
+
+    /**
+     * 按评论表重新计算所有文章的评论计数，修正计数与实际不一致的情况
+     */
+    void repairCommentCounts();
 }
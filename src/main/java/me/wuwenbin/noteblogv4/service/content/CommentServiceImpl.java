@@ -1,36 +1,50 @@
 package me.wuwenbin.noteblogv4.service.content;
 
 import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.ArticleRepository;
 import me.wuwenbin.noteblogv4.dao.repository.CommentRepository;
 import me.wuwenbin.noteblogv4.model.entity.NBComment;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
 import me.wuwenbin.noteblogv4.model.pojo.bo.CommentQueryBO;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
+import me.wuwenbin.noteblogv4.model.pojo.framework.FeedCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
+import javax.transaction.Transactional;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * created by Wuwenbin on 2018/9/7 at 9:43
  *
  * @author wuwenbin
  */
+@Slf4j
 @Service
 public class CommentServiceImpl implements CommentService {
 
     private final CommentRepository commentRepository;
+    private final ArticleRepository articleRepository;
+    private final ArticlePageCacheService articlePageCacheService;
 
     @Autowired
-    public CommentServiceImpl(CommentRepository commentRepository) {
+    public CommentServiceImpl(CommentRepository commentRepository, ArticleRepository articleRepository,
+                              ArticlePageCacheService articlePageCacheService) {
         this.commentRepository = commentRepository;
+        this.articleRepository = articleRepository;
+        this.articlePageCacheService = articlePageCacheService;
     }
 
     @Override
@@ -55,4 +69,60 @@ public class CommentServiceImpl implements CommentService {
             return query.where(predicates.toArray(pres)).orderBy(criteriaBuilder.desc(root.get("post").as(LocalDateTime.class))).getRestriction();
         }, pageable);
     }
+
+    @Override
+    public CursorPage<NBComment> findArticleComments(long articleId, String cursor, int limit) {
+        FeedCursor c = FeedCursor.decode(cursor);
+        List<NBComment> rows = commentRepository.findArticleCommentsAfter(articleId, c.getPost(), c.getId(), PageRequest.of(0, limit + 1));
+        return CursorPage.of(rows, limit, cm -> new FeedCursor(cm.getPost(), cm.getId()));
+    }
+
+    @Override
+    @Transactional(rollbackOn = Exception.class)
+    public NBComment postComment(NBComment comment) {
+        NBComment saved = commentRepository.save(comment);
+        boolean enable = !Boolean.FALSE.equals(saved.getEnable());
+        articleRepository.updateCommentCnt(saved.getArticleId(), 1, enable ? 1 : 0);
+        articlePageCacheService.evict(saved.getArticleId());
+        return saved;
+    }
+
+    @Override
+    @Transactional(rollbackOn = Exception.class)
+    public boolean updateCommentStatus(long commentId, boolean enable) {
+        Optional<NBComment> comment = commentRepository.findById(commentId);
+        if (!comment.isPresent()) {
+            return false;
+        }
+        long articleId = comment.get().getArticleId();
+        //条件更新：并发切换时只有真正改变了状态的那一次调整计数
+        if (commentRepository.updateCommentStatus(commentId, enable) == 1) {
+            articleRepository.updateCommentCnt(articleId, 0, enable ? 1 : -1);
+        }
+        articlePageCacheService.evict(articleId);
+        return true;
+    }
+
+    @Override
+    @Transactional(rollbackOn = Exception.class)
+    public boolean deleteComment(long commentId) {
+        Optional<NBComment> comment = commentRepository.findById(commentId);
+        if (!comment.isPresent()) {
+            return false;
+        }
+        long articleId = comment.get().getArticleId();
+        boolean enable = !Boolean.FALSE.equals(comment.get().getEnable());
+        commentRepository.deleteById(commentId);
+        articleRepository.updateCommentCnt(articleId, -1, enable ? -1 : 0);
+        articlePageCacheService.evict(articleId);
+        return true;
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${noteblog.comment.count-repair-delay:60000}",
+            fixedDelayString = "${noteblog.comment.count-repair-interval:86400000}")
+    public void repairCommentCounts() {
+        int rows = articleRepository.repairCommentCnt();
+        log.info("重新计算文章评论数完毕，共计文章数：[{}]", rows);
+    }
 }
@@ -0,0 +1,41 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import me.wuwenbin.noteblogv4.model.entity.NBTag;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列表页的关联数据批量加载（作者昵称、文章标签、评论/留言用户）
+ * 一页的 id 收集起来之后每类数据只查一次，结果在当前请求内缓存，同一请求重复取不再查询
+ * created by Wuwenbin on 2019/3/7 at 10:12
+ *
+ * @author wuwenbin
+ */
+public interface ContentBatchLoader {
+
+    /**
+     * 用户昵称，用户不存在的为 null
+     *
+     * @param userIds
+     * @return
+     */
+    Map<Long, String> nicknames(Collection<Long> userIds);
+
+    /**
+     * 文章显示的标签，没有标签的文章为空集合
+     *
+     * @param articleIds
+     * @return
+     */
+    Map<Long, List<NBTag>> articleTags(Collection<Long> articleIds);
+
+    /**
+     * 一次性把评论/留言关联的用户加载进当前的持久化上下文，
+     * 之后序列化 user 属性时直接从上下文中取，不再逐条查询
+     *
+     * @param userIds
+     */
+    void preloadUsers(Collection<Long> userIds);
+}
@@ -0,0 +1,89 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import me.wuwenbin.noteblogv4.dao.repository.TagRepository;
+import me.wuwenbin.noteblogv4.dao.repository.UserRepository;
+import me.wuwenbin.noteblogv4.model.entity.NBTag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 每个请求一个实例，单线程使用，缓存用普通的 HashMap 即可
+ * created by Wuwenbin on 2019/3/7 at 10:25
+ *
+ * @author wuwenbin
+ */
+@Service
+@RequestScope
+public class ContentBatchLoaderImpl implements ContentBatchLoader {
+
+    private final UserRepository userRepository;
+    private final TagRepository tagRepository;
+
+    private final Map<Long, String> nicknames = new HashMap<>(16);
+    private final Map<Long, List<NBTag>> articleTags = new HashMap<>(16);
+    private final Set<Long> loadedUsers = new HashSet<>(16);
+
+    @Autowired
+    public ContentBatchLoaderImpl(UserRepository userRepository, TagRepository tagRepository) {
+        this.userRepository = userRepository;
+        this.tagRepository = tagRepository;
+    }
+
+    @Override
+    public Map<Long, String> nicknames(Collection<Long> userIds) {
+        return load(userIds, nicknames, missing -> {
+            Map<Long, String> names = new HashMap<>(missing.size());
+            userRepository.findNicknamesByIdIn(missing).forEach(row -> names.put((Long) row[0], (String) row[1]));
+            return names;
+        }, null);
+    }
+
+    @Override
+    public Map<Long, List<NBTag>> articleTags(Collection<Long> articleIds) {
+        return load(articleIds, articleTags, missing -> {
+            Map<Long, List<NBTag>> tags = new HashMap<>(missing.size());
+            tagRepository.findArticleTagsByReferIdIn(missing, true)
+                    .forEach(row -> tags.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((NBTag) row[1]));
+            return tags;
+        }, Collections.emptyList());
+    }
+
+    @Override
+    public void preloadUsers(Collection<Long> userIds) {
+        Set<Long> missing = new HashSet<>(userIds);
+        missing.remove(null);
+        missing.removeAll(loadedUsers);
+        if (!missing.isEmpty()) {
+            userRepository.findAllById(missing);
+            loadedUsers.addAll(missing);
+        }
+    }
+
+    /**
+     * 只查询缓存中没有的 id，查不到结果的 id 以缺省值缓存，避免重复查询
+     *
+     * @param ids
+     * @param cache
+     * @param batch        批量查询缺失的 id
+     * @param defaultValue 查询结果中没有的 id 对应的值
+     * @param <V>
+     * @return
+     */
+    private static <V> Map<Long, V> load(Collection<Long> ids, Map<Long, V> cache,
+                                         Function<Set<Long>, Map<Long, V>> batch, V defaultValue) {
+        Set<Long> missing = new HashSet<>(ids);
+        missing.remove(null);
+        missing.removeAll(cache.keySet());
+        if (!missing.isEmpty()) {
+            Map<Long, V> loaded = batch.apply(missing);
+            missing.forEach(id -> cache.put(id, loaded.getOrDefault(id, defaultValue)));
+        }
+        Map<Long, V> result = new HashMap<>(ids.size());
+        ids.stream().filter(Objects::nonNull).forEach(id -> result.put(id, cache.get(id)));
+        return result;
+    }
+}
@@ -0,0 +1,222 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Aho–Corasick 多模式匹配，创建后不可修改，多线程共享
+ * 关键字和文本都先做逐字符的归一化（全角转半角、转小写），字符一一对应，匹配到的位置就是原文的位置；
+ * 状态按层编号，除根之外每个状态正好是一条转移的目标，第 s 个状态的字符存放在 labels[s - 1]，
+ * 同一状态的转移连续且按字符有序，用二分查找，根状态另有一张直接索引表；
+ * 每个状态记录以它结尾的最长关键字长度（沿失败链取最大），一遍扫描即可把所有命中的区间替换掉
+ * created by Wuwenbin on 2019/3/11 at 16:40
+ *
+ * @author wuwenbin
+ */
+final class KeywordAutomaton {
+
+    static final KeywordAutomaton EMPTY = new KeywordAutomaton(new ArrayList<>());
+
+    private final int[] rootTable;
+    private final int[] base;
+    private final char[] labels;
+    private final int[] fail;
+    private final int[] maxLen;
+    private final int keywordCount;
+
+    KeywordAutomaton(Collection<String> keywords) {
+        List<String> words = new ArrayList<>(keywords.size());
+        int totalChars = 0;
+        for (String keyword : keywords) {
+            String word = normalize(keyword);
+            if (word != null && !word.isEmpty()) {
+                words.add(word);
+                totalChars += word.length();
+            }
+        }
+        words.sort(null);
+        int states = totalChars + 1;
+        int[] parentOf = new int[states];
+        char[] labelOf = new char[states];
+        int[] ownLen = new int[states];
+        int[] wordState = new int[words.size()];
+        int[] childCount = new int[states];
+        int[] active = new int[words.size()];
+        for (int k = 0; k < active.length; k++) {
+            active[k] = k;
+        }
+        int activeCount = active.length;
+        int count = 1;
+        //按层建 trie：有序的关键字中，同一父状态的子状态一定相邻，按出现顺序编号后各状态的转移自然连续且有序
+        for (int depth = 0; activeCount > 0; depth++) {
+            int prevParent = -1;
+            char prevChar = 0;
+            int prevState = -1;
+            int remain = 0;
+            for (int a = 0; a < activeCount; a++) {
+                int k = active[a];
+                String word = words.get(k);
+                int parent = wordState[k];
+                char c = word.charAt(depth);
+                int state;
+                if (parent == prevParent && c == prevChar) {
+                    state = prevState;
+                } else {
+                    state = count++;
+                    parentOf[state] = parent;
+                    labelOf[state] = c;
+                    childCount[parent]++;
+                }
+                if (word.length() == depth + 1) {
+                    ownLen[state] = depth + 1;
+                } else {
+                    active[remain++] = k;
+                }
+                wordState[k] = state;
+                prevParent = parent;
+                prevChar = c;
+                prevState = state;
+            }
+            activeCount = remain;
+        }
+        this.base = new int[count + 1];
+        for (int s = 0; s < count; s++) {
+            base[s + 1] = base[s] + childCount[s];
+        }
+        this.labels = Arrays.copyOfRange(labelOf, 1, count);
+        this.rootTable = new int[Character.MAX_VALUE + 1];
+        Arrays.fill(rootTable, -1);
+        for (int e = base[0]; e < base[1]; e++) {
+            rootTable[labels[e]] = e + 1;
+        }
+        this.fail = new int[count];
+        this.maxLen = new int[count];
+        //状态编号就是广度优先的顺序，失败链指向的状态更浅，一定已经算好
+        for (int s = 1; s < count; s++) {
+            int parent = parentOf[s];
+            int f = 0;
+            if (parent != 0) {
+                int p = fail[parent];
+                while (true) {
+                    int next = next(p, labelOf[s]);
+                    if (next >= 0) {
+                        f = next;
+                        break;
+                    }
+                    if (p == 0) {
+                        break;
+                    }
+                    p = fail[p];
+                }
+            }
+            fail[s] = f;
+            maxLen[s] = Math.max(ownLen[s], maxLen[f]);
+        }
+        this.keywordCount = words.size();
+    }
+
+    /**
+     * 把命中关键字的字符替换为 mask，没有命中时返回原字符串
+     *
+     * @param text
+     * @param mask
+     * @return
+     */
+    String replace(String text, char mask) {
+        if (text == null || text.isEmpty() || keywordCount == 0) {
+            return text;
+        }
+        char[] result = null;
+        //最近一段连续已替换的区间 [runStart, runEnd]，新命中的区间只补上没替换过的部分
+        int runStart = 0;
+        int runEnd = -1;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            while (true) {
+                int next = next(state, c);
+                if (next >= 0) {
+                    state = next;
+                    break;
+                }
+                if (state == 0) {
+                    break;
+                }
+                state = fail[state];
+            }
+            int len = maxLen[state];
+            if (len > 0) {
+                if (result == null) {
+                    result = text.toCharArray();
+                }
+                int start = i - len + 1;
+                if (start > runEnd + 1) {
+                    runStart = start;
+                } else if (start < runStart) {
+                    Arrays.fill(result, start, runStart, mask);
+                    runStart = start;
+                }
+                Arrays.fill(result, Math.max(start, runEnd + 1), i + 1, mask);
+                runEnd = i;
+            }
+        }
+        return result == null ? text : new String(result);
+    }
+
+    int keywordCount() {
+        return keywordCount;
+    }
+
+    int stateCount() {
+        return fail.length;
+    }
+
+    private int next(int state, char c) {
+        if (state == 0) {
+            return rootTable[c];
+        }
+        //第 e 条转移的目标状态是 e + 1
+        int lo = base[state];
+        int hi = base[state + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char label = labels[mid];
+            if (label < c) {
+                lo = mid + 1;
+            } else if (label > c) {
+                hi = mid - 1;
+            } else {
+                return mid + 1;
+            }
+        }
+        return -1;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = normalize(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 全角字符转半角，全角空格转半角空格，再转小写
+     *
+     * @param c
+     * @return
+     */
+    static char normalize(char c) {
+        if (c == '　') {
+            c = ' ';
+        } else if (c >= '！' && c <= '～') {
+            c = (char) (c - 0xFEE0);
+        }
+        return Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,23 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+/**
+ * 评论、留言的敏感词过滤
+ * created by Wuwenbin on 2019/3/11 at 16:40
+ *
+ * @author wuwenbin
+ */
+public interface KeywordFilterService {
+
+    /**
+     * 把文本中命中关键字的字符替换为 *，忽略大小写和全角半角的差别
+     *
+     * @param text
+     * @return
+     */
+    String filter(String text);
+
+    /**
+     * 关键字变动之后重新编译，编译期间继续使用旧的
+     */
+    void reload();
+}
@@ -0,0 +1,54 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.KeywordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 启用的关键字编译成一个 {@link KeywordAutomaton}，第一次过滤时加载，之后整体替换
+ * created by Wuwenbin on 2019/3/11 at 16:40
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class KeywordFilterServiceImpl implements KeywordFilterService {
+
+    private static final char MASK = '*';
+
+    private final KeywordRepository keywordRepository;
+
+    private volatile KeywordAutomaton automaton;
+
+    @Autowired
+    public KeywordFilterServiceImpl(KeywordRepository keywordRepository) {
+        this.keywordRepository = keywordRepository;
+    }
+
+    @Override
+    public String filter(String text) {
+        KeywordAutomaton current = automaton;
+        if (current == null) {
+            synchronized (this) {
+                if (automaton == null) {
+                    reload();
+                }
+                current = automaton;
+            }
+        }
+        return current.replace(text, MASK);
+    }
+
+    @Override
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        List<String> words = keywordRepository.findEnabledWords();
+        KeywordAutomaton compiled = words.isEmpty() ? KeywordAutomaton.EMPTY : new KeywordAutomaton(words);
+        automaton = compiled;
+        log.info("敏感词编译完毕，关键字数：[{}]，状态数：[{}]，耗时：[{}ms]", compiled.keywordCount(),
+                compiled.stateCount(), System.currentTimeMillis() - start);
+    }
+}
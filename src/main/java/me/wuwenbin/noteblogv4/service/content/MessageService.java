@@ -2,6 +2,7 @@ package me.wuwenbin.noteblogv4.service.content;
 
 import me.wuwenbin.noteblogv4.model.entity.NBMessage;
 import me.wuwenbin.noteblogv4.model.pojo.bo.MessageQueryBO;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -20,4 +21,13 @@ public interface MessageService {
      * @return
      */
     Page<NBMessage> findPageInfo(Pageable pageable, MessageQueryBO messageQueryBO);
+
+    /**
+     * 留言板的游标分页
+     *
+     * @param cursor 上一页返回的 nextCursor，第一页为空
+     * @param limit
+     * @return
+     */
+    CursorPage<NBMessage> findMessageFeed(String cursor, int limit);
 }
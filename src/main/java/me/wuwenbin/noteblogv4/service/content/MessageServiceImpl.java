@@ -5,8 +5,11 @@ import me.wuwenbin.noteblogv4.dao.repository.MessageRepository;
 import me.wuwenbin.noteblogv4.model.entity.NBMessage;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
 import me.wuwenbin.noteblogv4.model.pojo.bo.MessageQueryBO;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
+import me.wuwenbin.noteblogv4.model.pojo.framework.FeedCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
@@ -52,4 +55,11 @@ public class MessageServiceImpl implements MessageService {
             return query.where(predicates.toArray(pres)).getRestriction();
         }, pageable);
     }
+
+    @Override
+    public CursorPage<NBMessage> findMessageFeed(String cursor, int limit) {
+        FeedCursor c = FeedCursor.decode(cursor);
+        List<NBMessage> rows = messageRepository.findFeedAfter(c.getPost(), c.getId(), PageRequest.of(0, limit + 1));
+        return CursorPage.of(rows, limit, m -> new FeedCursor(m.getPost(), m.getId()));
+    }
 }
@@ -1,6 +1,7 @@
 package me.wuwenbin.noteblogv4.service.content;
 
 import me.wuwenbin.noteblogv4.model.entity.NBNote;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -36,4 +37,29 @@ public interface NoteService {
      * @return
      */
     Page<NBNote> findNotePage(Pageable pageable, String title, String clearContent);
+
+    /**
+     * 修改笔记的显隐状态
+     *
+     * @param noteId
+     * @param show
+     * @return
+     */
+    boolean updateNoteShow(long noteId, boolean show);
+
+    /**
+     * 删除笔记
+     *
+     * @param noteId
+     */
+    void deleteNote(long noteId);
+
+    /**
+     * 前台笔记流的游标分页
+     *
+     * @param cursor 上一页返回的 nextCursor，第一页为空
+     * @param limit
+     * @return
+     */
+    CursorPage<NBNote> findNoteFeed(String cursor, int limit);
 }
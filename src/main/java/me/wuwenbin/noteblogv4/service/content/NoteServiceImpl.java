@@ -3,10 +3,14 @@ package me.wuwenbin.noteblogv4.service.content;
 import me.wuwenbin.noteblogv4.dao.repository.NoteRepository;
 import me.wuwenbin.noteblogv4.dao.repository.TagReferRepository;
 import me.wuwenbin.noteblogv4.dao.repository.TagRepository;
+import me.wuwenbin.noteblogv4.model.constant.SearchType;
 import me.wuwenbin.noteblogv4.model.constant.TagType;
 import me.wuwenbin.noteblogv4.model.entity.NBNote;
 import me.wuwenbin.noteblogv4.model.entity.NBTag;
 import me.wuwenbin.noteblogv4.model.entity.NBTagRefer;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
+import me.wuwenbin.noteblogv4.model.pojo.framework.FeedCursor;
+import me.wuwenbin.noteblogv4.service.search.SearchService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
@@ -14,8 +18,10 @@ import org.springframework.util.StringUtils;
 
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+
+import static java.util.Collections.emptyList;
 
 /**
  * created by Wuwenbin on 2018/8/18 at 10:34
@@ -29,12 +35,17 @@ public class NoteServiceImpl implements NoteService {
     private final NoteRepository noteRepository;
     private final TagRepository tagRepository;
     private final TagReferRepository tagReferRepository;
+    private final SearchService searchService;
+    private final TagIndexService tagIndexService;
 
     @Autowired
-    public NoteServiceImpl(NoteRepository noteRepository, TagRepository tagRepository, TagReferRepository tagReferRepository) {
+    public NoteServiceImpl(NoteRepository noteRepository, TagRepository tagRepository, TagReferRepository tagReferRepository,
+                           SearchService searchService, TagIndexService tagIndexService) {
         this.noteRepository = noteRepository;
         this.tagRepository = tagRepository;
         this.tagReferRepository = tagReferRepository;
+        this.searchService = searchService;
+        this.tagIndexService = tagIndexService;
     }
 
 
@@ -46,7 +57,9 @@ public class NoteServiceImpl implements NoteService {
         decorateNote(nbNote);
         NBNote n = noteRepository.save(nbNote);
         String[] tagNameArray = tagNames.split(",");
-        saveTagNames(n.getId(), tagNameArray, tagReferRepository, tagRepository);
+        List<NBTag> tags = saveTagNames(n.getId(), tagNameArray, tagReferRepository, tagRepository);
+        tagIndexService.saveRefers(n.getId(), TagType.note, tags);
+        searchService.index(n);
     }
 
     @Override
@@ -61,9 +74,11 @@ public class NoteServiceImpl implements NoteService {
         decorateNote(nbNote);
         NBNote n = noteRepository.save(nbNote);
         if (n != null) {
-            tagReferRepository.deleteByReferId(n.getId());
+            tagReferRepository.deleteByReferIdAndType(n.getId(), TagType.note.name());
             String[] tagNameArray = tagNames.split(",");
-            saveTagNames(n.getId(), tagNameArray, tagReferRepository, tagRepository);
+            List<NBTag> tags = saveTagNames(n.getId(), tagNameArray, tagReferRepository, tagRepository);
+            tagIndexService.saveRefers(n.getId(), TagType.note, tags);
+            searchService.index(n);
         }
     }
 
@@ -75,18 +90,35 @@ public class NoteServiceImpl implements NoteService {
             Example<NBNote> example = Example.of(nbNote);
             return noteRepository.findAll(example, pageable);
         } else {
-            NBNote nbNote = new NBNote();
-            nbNote.setClearContent(clearContent == null ? "" : clearContent);
-            nbNote.setTitle(title == null ? "" : title);
-            Example<NBNote> noteExample = Example.of(nbNote,
-                    ExampleMatcher.matchingAny()
-                            .withMatcher("clearContent", ExampleMatcher.GenericPropertyMatcher::contains)
-                            .withMatcher("title", ExampleMatcher.GenericPropertyMatcher::contains)
-                            .withIgnoreCase());
-            Page<NBNote> p = noteRepository.findAll(noteExample, pageable);
-            List<NBNote> nbNotes = p.getContent().stream().filter(NBNote::getShow).collect(Collectors.toList());
-            return new PageImpl<>(nbNotes, pageable, nbNotes.size());
+            //前台搜索框会把同一个词同时传给 title 和 clearContent
+            String query = StringUtils.isEmpty(title) || title.equals(clearContent) ? clearContent
+                    : StringUtils.isEmpty(clearContent) ? title : title + " " + clearContent;
+            return searchService.search(SearchType.note, query, null, true, pageable, noteRepository::findAllById, NBNote::getId);
+        }
+    }
+
+    @Override
+    public boolean updateNoteShow(long noteId, boolean show) {
+        boolean updated = noteRepository.updateNoteShowStatus(noteId, show) == 1;
+        if (updated) {
+            noteRepository.findById(noteId).ifPresent(searchService::index);
         }
+        return updated;
+    }
+
+    @Override
+    public void deleteNote(long noteId) {
+        noteRepository.deleteById(noteId);
+        tagReferRepository.deleteByReferIdAndType(noteId, TagType.note.name());
+        tagIndexService.saveRefers(noteId, TagType.note, emptyList());
+        searchService.remove(SearchType.note, noteId);
+    }
+
+    @Override
+    public CursorPage<NBNote> findNoteFeed(String cursor, int limit) {
+        FeedCursor c = FeedCursor.decode(cursor);
+        List<NBNote> rows = noteRepository.findFeedAfter(c.isTopFlag(), c.getPost(), c.getId(), PageRequest.of(0, limit + 1));
+        return CursorPage.of(rows, limit, n -> new FeedCursor(Boolean.TRUE.equals(n.getTop()) ? 1 : 0, n.getPost(), n.getId()));
     }
 
     /**
@@ -113,24 +145,28 @@ public class NoteServiceImpl implements NoteService {
      * @param tagNameArray
      * @param tagReferRepository
      * @param tagRepository
+     * @return 笔记的标签
      */
-    private static void saveTagNames(Long noteId, String[] tagNameArray, TagReferRepository tagReferRepository, TagRepository tagRepository) {
+    private static List<NBTag> saveTagNames(Long noteId, String[] tagNameArray, TagReferRepository tagReferRepository, TagRepository tagRepository) {
         int cnt = 0;
+        List<NBTag> tags = new ArrayList<>(tagNameArray.length);
         for (String name : tagNameArray) {
             Example<NBTag> condition = Example.of(NBTag.builder().name(name).build());
             boolean isExist = tagRepository.count(condition) > 0;
-            long tagId = isExist ?
-                    tagRepository.findByName(name).getId() :
-                    tagRepository.save(NBTag.builder().name(name).build()).getId();
+            NBTag tag = isExist ?
+                    tagRepository.findByName(name) :
+                    tagRepository.save(NBTag.builder().name(name).build());
+            tags.add(tag);
 
             tagReferRepository.save(
                     NBTagRefer.builder()
                             .referId(noteId)
-                            .tagId(tagId)
+                            .tagId(tag.getId())
                             .show(cnt <= 4)
                             .type(TagType.note.name()).build()
             );
             cnt++;
         }
+        return tags;
     }
 }
@@ -0,0 +1,101 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import me.wuwenbin.noteblogv4.model.constant.TagType;
+import me.wuwenbin.noteblogv4.model.entity.NBArticle;
+import me.wuwenbin.noteblogv4.model.entity.NBTag;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 标签索引
+ * 内存中保存标签名到id的映射、每个标签下已发布文章的有序id数组以及每个标签的使用次数，
+ * 标签页分页和首页标签面板都不再查询 nb_tag_refer
+ * 除 reload 之外的维护方法在事务中调用时等事务提交之后生效
+ * created by Wuwenbin on 2019/3/9 at 10:12
+ *
+ * @author wuwenbin
+ */
+public interface TagIndexService {
+
+    /**
+     * 查询某个标签下已发布的文章，按 top desc, post desc, id desc 排序分页
+     *
+     * @param tagName
+     * @param pageable 只使用其中的页码和每页条数
+     * @param loader   根据一页的id查询对象，返回的顺序无所谓
+     * @param idGetter
+     * @param <T>
+     * @return
+     */
+    <T> Page<T> findArticles(String tagName, Pageable pageable, Function<List<Long>, List<T>> loader, Function<T, Long> idGetter);
+
+    /**
+     * 使用次数最多的若干个标签，用于首页/留言页的标签面板
+     *
+     * @return [id, name, cnt]
+     */
+    List<Map<String, Object>> findTagCloud();
+
+    /**
+     * 文章/笔记保存标签之后，用新的标签替换其在索引中原有的标签
+     *
+     * @param referId
+     * @param type
+     * @param tags    空集合表示移除所有标签
+     */
+    void saveRefers(long referId, TagType type, Collection<NBTag> tags);
+
+    /**
+     * 文章新增或修改之后刷新其发布状态和排序位置（草稿会被移出）
+     *
+     * @param article
+     */
+    void refreshArticle(NBArticle article);
+
+    /**
+     * 文章删除之后将其和它的标签一起移出索引
+     *
+     * @param articleId
+     */
+    void removeArticle(long articleId);
+
+    /**
+     * 文章置顶之后更新它的排序位置
+     *
+     * @param articleId
+     * @param top       新的 top 值
+     */
+    void topArticle(long articleId, int top);
+
+    /**
+     * 文章取消置顶之后更新排序位置，top 大于 currentTop 的文章同数据库一样减一
+     *
+     * @param articleId
+     * @param currentTop 取消之前的 top 值
+     */
+    void untopArticle(long articleId, int currentTop);
+
+    /**
+     * 标签新增或改名
+     *
+     * @param tag
+     */
+    void saveTag(NBTag tag);
+
+    /**
+     * 标签删除
+     *
+     * @param tagId
+     */
+    void removeTag(long tagId);
+
+    /**
+     * 从数据库重新加载整个索引
+     */
+    void reload();
+}
@@ -0,0 +1,380 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.ArticleRepository;
+import me.wuwenbin.noteblogv4.dao.repository.TagReferRepository;
+import me.wuwenbin.noteblogv4.dao.repository.TagRepository;
+import me.wuwenbin.noteblogv4.model.constant.TagType;
+import me.wuwenbin.noteblogv4.model.entity.NBArticle;
+import me.wuwenbin.noteblogv4.model.entity.NBTag;
+import me.wuwenbin.noteblogv4.util.NBUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * 索引在第一次使用时从数据库加载，之后由文章、笔记、标签的新增、修改、删除操作增量维护
+ * 和抽样池一样，读取的是不可变的快照（volatile 发布），写操作串行，只重建受影响标签的 id 数组
+ * 在事务中调用的维护方法等事务提交之后才修改索引，参数在调用时就取好，回滚时索引不变
+ * created by Wuwenbin on 2019/3/9 at 10:40
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class TagIndexServiceImpl implements TagIndexService {
+
+    private static final long[] EMPTY = new long[0];
+    private static final int TAG_CLOUD_SIZE = 30;
+
+    /**
+     * 与前台文章流相同的顺序：top desc, post desc, id desc
+     */
+    private static final Comparator<ArticleKey> FEED_ORDER = Comparator.<ArticleKey>comparingInt(k -> k.top)
+            .thenComparing(k -> k.post, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparingLong(k -> k.id)
+            .reversed();
+
+    private final TagRepository tagRepository;
+    private final TagReferRepository tagReferRepository;
+    private final ArticleRepository articleRepository;
+
+    /**
+     * 以下状态只在持有 this 锁时修改
+     */
+    private final Map<String, Long> tagIds = new HashMap<>(256);
+    private final Map<Long, String> tagNames = new HashMap<>(256);
+    private final Map<TagType, Map<Long, long[]>> referTags = new EnumMap<>(TagType.class);
+    private final Map<Long, Set<Long>> tagArticles = new HashMap<>(256);
+    private final Map<Long, Integer> usages = new HashMap<>(256);
+    private final Map<Long, ArticleKey> publishedArticles = new HashMap<>(256);
+    private final Map<Long, long[]> postings = new HashMap<>(256);
+
+    private volatile Index index;
+
+    @Autowired
+    public TagIndexServiceImpl(TagRepository tagRepository, TagReferRepository tagReferRepository, ArticleRepository articleRepository) {
+        this.tagRepository = tagRepository;
+        this.tagReferRepository = tagReferRepository;
+        this.articleRepository = articleRepository;
+        for (TagType type : TagType.values()) {
+            referTags.put(type, new HashMap<>(256));
+        }
+    }
+
+    @Override
+    public <T> Page<T> findArticles(String tagName, Pageable pageable, Function<List<Long>, List<T>> loader, Function<T, Long> idGetter) {
+        Index idx = index();
+        Long tagId = idx.tagIds.get(tagName);
+        long[] ids = tagId == null ? EMPTY : idx.postings.getOrDefault(tagId, EMPTY);
+        int from = (int) Math.min(pageable.getOffset(), ids.length);
+        int to = Math.min(from + pageable.getPageSize(), ids.length);
+        if (from == to) {
+            return new PageImpl<>(emptyList(), pageable, ids.length);
+        }
+        List<Long> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(ids[i]);
+        }
+        Map<Long, T> found = loader.apply(pageIds).stream().collect(toMap(idGetter, identity()));
+        List<T> content = pageIds.stream().map(found::get).filter(Objects::nonNull).collect(toList());
+        return new PageImpl<>(content, pageable, ids.length);
+    }
+
+    @Override
+    public List<Map<String, Object>> findTagCloud() {
+        return index().cloud;
+    }
+
+    @Override
+    public void saveRefers(long referId, TagType type, Collection<NBTag> tags) {
+        List<NBTag> copy = new ArrayList<>(tags);
+        NBUtils.afterCommit(() -> applyRefers(referId, type, copy));
+    }
+
+    @Override
+    public void refreshArticle(NBArticle article) {
+        if (article == null || article.getId() == null) {
+            return;
+        }
+        long articleId = article.getId();
+        ArticleKey key = Boolean.FALSE.equals(article.getDraft()) ? new ArticleKey(articleId, article.getTop(), article.getPost()) : null;
+        NBUtils.afterCommit(() -> applyArticle(articleId, key));
+    }
+
+    @Override
+    public void removeArticle(long articleId) {
+        NBUtils.afterCommit(() -> {
+            synchronized (this) {
+                if (index == null) {
+                    return;
+                }
+                publishedArticles.remove(articleId);
+                applyRefers(articleId, TagType.article, emptyList());
+            }
+        });
+    }
+
+    @Override
+    public void topArticle(long articleId, int top) {
+        NBUtils.afterCommit(() -> applyTop(articleId, top, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public void untopArticle(long articleId, int currentTop) {
+        NBUtils.afterCommit(() -> applyTop(articleId, 0, currentTop));
+    }
+
+    @Override
+    public void saveTag(NBTag tag) {
+        if (tag == null || tag.getId() == null) {
+            return;
+        }
+        NBTag copy = NBTag.builder().id(tag.getId()).name(tag.getName()).build();
+        NBUtils.afterCommit(() -> {
+            synchronized (this) {
+                if (index == null) {
+                    return;
+                }
+                putTag(copy);
+                publish(emptySet());
+            }
+        });
+    }
+
+    @Override
+    public void removeTag(long tagId) {
+        NBUtils.afterCommit(() -> {
+            synchronized (this) {
+                if (index == null) {
+                    return;
+                }
+                String name = tagNames.remove(tagId);
+                if (name != null) {
+                    tagIds.remove(name, tagId);
+                    publish(emptySet());
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized void reload() {
+        tagIds.clear();
+        tagNames.clear();
+        referTags.values().forEach(Map::clear);
+        tagArticles.clear();
+        usages.clear();
+        postings.clear();
+        tagRepository.findAll().forEach(this::putTag);
+        Map<TagType, Map<Long, List<Long>>> refers = new EnumMap<>(TagType.class);
+        for (Object[] row : tagReferRepository.findAllRefers()) {
+            long referId = ((Number) row[0]).longValue();
+            long tagId = ((Number) row[1]).longValue();
+            TagType type = TagType.valueOf((String) row[2]);
+            refers.computeIfAbsent(type, t -> new HashMap<>(256)).computeIfAbsent(referId, k -> new ArrayList<>(4)).add(tagId);
+            refer(tagId, referId, type);
+        }
+        refers.forEach((type, byRefer) -> byRefer.forEach((referId, ids) ->
+                referTags.get(type).put(referId, ids.stream().mapToLong(Long::longValue).toArray())));
+        loadPublishedArticles();
+        publish(tagArticles.keySet());
+        log.info("加载标签索引完毕，共计标签数：[{}]，已发布文章数：[{}]", tagNames.size(), publishedArticles.size());
+    }
+
+    private synchronized void applyRefers(long referId, TagType type, Collection<NBTag> tags) {
+        if (index == null) {
+            return;
+        }
+        tags.forEach(this::putTag);
+        long[] newTags = tags.stream().map(NBTag::getId).filter(Objects::nonNull).mapToLong(Long::longValue).distinct().toArray();
+        long[] oldTags = newTags.length == 0 ? referTags.get(type).remove(referId) : referTags.get(type).put(referId, newTags);
+        Set<Long> dirty = new HashSet<>();
+        for (long tagId : oldTags == null ? EMPTY : oldTags) {
+            unrefer(tagId, referId, type);
+            dirty.add(tagId);
+        }
+        for (long tagId : newTags) {
+            refer(tagId, referId, type);
+            dirty.add(tagId);
+        }
+        publish(dirty);
+    }
+
+    /**
+     * @param articleId
+     * @param key       草稿为 null
+     */
+    private synchronized void applyArticle(long articleId, ArticleKey key) {
+        if (index == null) {
+            return;
+        }
+        if (key != null) {
+            publishedArticles.put(articleId, key);
+        } else {
+            publishedArticles.remove(articleId);
+        }
+        publish(tagsOf(articleId));
+    }
+
+    /**
+     * 和 ArticleRepository.updateTopsByTop 保持一致：取消置顶时排在它之后的置顶文章 top 都减一
+     * 只重建顺序发生变化的文章所在的标签
+     *
+     * @param articleId
+     * @param top       文章新的 top
+     * @param aboveTop  top 大于该值的其他文章减一，置顶时传 Integer.MAX_VALUE
+     */
+    private synchronized void applyTop(long articleId, int top, int aboveTop) {
+        if (index == null) {
+            return;
+        }
+        Set<Long> dirty = new HashSet<>();
+        for (ArticleKey key : new ArrayList<>(publishedArticles.values())) {
+            if (key.id != articleId && key.top > aboveTop) {
+                publishedArticles.put(key.id, new ArticleKey(key.id, key.top - 1, key.post));
+                dirty.addAll(tagsOf(key.id));
+            }
+        }
+        ArticleKey key = publishedArticles.get(articleId);
+        if (key != null) {
+            publishedArticles.put(articleId, new ArticleKey(articleId, top, key.post));
+            dirty.addAll(tagsOf(articleId));
+        }
+        publish(dirty);
+    }
+
+    private Index index() {
+        Index idx = index;
+        if (idx == null) {
+            synchronized (this) {
+                if (index == null) {
+                    reload();
+                }
+                idx = index;
+            }
+        }
+        return idx;
+    }
+
+    private void loadPublishedArticles() {
+        publishedArticles.clear();
+        for (Object[] row : articleRepository.findPublishedSortKeys()) {
+            long id = ((Number) row[0]).longValue();
+            publishedArticles.put(id, new ArticleKey(id, (Integer) row[1], (LocalDateTime) row[2]));
+        }
+    }
+
+    private void putTag(NBTag tag) {
+        if (tag.getId() == null || tag.getName() == null) {
+            return;
+        }
+        String oldName = tagNames.put(tag.getId(), tag.getName());
+        if (oldName != null && !oldName.equals(tag.getName())) {
+            tagIds.remove(oldName, tag.getId());
+        }
+        tagIds.put(tag.getName(), tag.getId());
+    }
+
+    private void refer(long tagId, long referId, TagType type) {
+        usages.merge(tagId, 1, Integer::sum);
+        if (type == TagType.article) {
+            tagArticles.computeIfAbsent(tagId, k -> new HashSet<>(16)).add(referId);
+        }
+    }
+
+    private void unrefer(long tagId, long referId, TagType type) {
+        usages.computeIfPresent(tagId, (k, cnt) -> cnt > 1 ? cnt - 1 : null);
+        if (type == TagType.article) {
+            Set<Long> articles = tagArticles.get(tagId);
+            if (articles != null && articles.remove(referId) && articles.isEmpty()) {
+                tagArticles.remove(tagId);
+            }
+        }
+    }
+
+    private Set<Long> tagsOf(long articleId) {
+        long[] tags = referTags.get(TagType.article).getOrDefault(articleId, EMPTY);
+        Set<Long> result = new HashSet<>(tags.length * 2);
+        for (long tagId : tags) {
+            result.add(tagId);
+        }
+        return result;
+    }
+
+    /**
+     * 重建 dirty 标签的 id 数组，然后生成新的快照并替换旧快照
+     *
+     * @param dirty
+     */
+    private void publish(Collection<Long> dirty) {
+        for (Long tagId : dirty) {
+            long[] ids = tagArticles.getOrDefault(tagId, emptySet()).stream()
+                    .map(publishedArticles::get)
+                    .filter(Objects::nonNull)
+                    .sorted(FEED_ORDER)
+                    .mapToLong(k -> k.id)
+                    .toArray();
+            if (ids.length == 0) {
+                postings.remove(tagId);
+            } else {
+                postings.put(tagId, ids);
+            }
+        }
+        List<Map<String, Object>> cloud = usages.entrySet().stream()
+                .filter(e -> tagNames.containsKey(e.getKey()))
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(TAG_CLOUD_SIZE)
+                .map(e -> {
+                    Map<String, Object> m = new HashMap<>(3);
+                    m.put("id", e.getKey());
+                    m.put("name", tagNames.get(e.getKey()));
+                    m.put("cnt", e.getValue());
+                    return Collections.unmodifiableMap(m);
+                })
+                .collect(toList());
+        index = new Index(new HashMap<>(tagIds), new HashMap<>(postings), Collections.unmodifiableList(cloud));
+    }
+
+    /**
+     * 文章在标签页中的排序依据
+     */
+    private static final class ArticleKey {
+        private final long id;
+        private final int top;
+        private final LocalDateTime post;
+
+        private ArticleKey(long id, Integer top, LocalDateTime post) {
+            this.id = id;
+            this.top = top == null ? 0 : top;
+            this.post = post;
+        }
+    }
+
+    /**
+     * 索引快照，创建后不再修改
+     */
+    private static final class Index {
+        private final Map<String, Long> tagIds;
+        private final Map<Long, long[]> postings;
+        private final List<Map<String, Object>> cloud;
+
+        private Index(Map<String, Long> tagIds, Map<Long, long[]> postings, List<Map<String, Object>> cloud) {
+            this.tagIds = tagIds;
+            this.postings = postings;
+            this.cloud = cloud;
+        }
+    }
+}
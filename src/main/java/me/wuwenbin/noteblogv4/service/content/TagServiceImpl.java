@@ -1,6 +1,5 @@
 package me.wuwenbin.noteblogv4.service.content;
 
-import me.wuwenbin.noteblogv4.dao.repository.TagReferRepository;
 import me.wuwenbin.noteblogv4.dao.repository.TagRepository;
 import me.wuwenbin.noteblogv4.model.constant.TagType;
 import me.wuwenbin.noteblogv4.model.pojo.vo.NBTagVO;
@@ -9,7 +8,6 @@ import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,12 +21,12 @@ import java.util.Map;
 public class TagServiceImpl implements TagService {
 
     private final TagRepository tagRepository;
-    private final TagReferRepository tagReferRepository;
+    private final TagIndexService tagIndexService;
 
     @Autowired
-    public TagServiceImpl(TagRepository tagRepository, TagReferRepository tagReferRepository) {
+    public TagServiceImpl(TagRepository tagRepository, TagIndexService tagIndexService) {
         this.tagRepository = tagRepository;
-        this.tagReferRepository = tagReferRepository;
+        this.tagIndexService = tagIndexService;
     }
 
     @Override
@@ -47,15 +45,6 @@ public class TagServiceImpl implements TagService {
 
     @Override
     public List<Map<String, Object>> findTagsTab() {
-        List<Object[]> tags = tagReferRepository.findTagsTab();
-        List<Map<String, Object>> tagPanelList = new ArrayList<>(tags.size());
-        for (Object[] objArr : tags) {
-            Map<String, Object> m = new HashMap<>(3);
-            m.put("id", objArr[0]);
-            m.put("name", objArr[1]);
-            m.put("cnt", objArr[2]);
-            tagPanelList.add(m);
-        }
-        return tagPanelList;
+        return tagIndexService.findTagCloud();
     }
 }
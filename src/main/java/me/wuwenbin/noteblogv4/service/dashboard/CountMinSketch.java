@@ -0,0 +1,63 @@
+package me.wuwenbin.noteblogv4.service.dashboard;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min Sketch，depth 行 width 列的计数器，估算值只会偏大不会偏小
+ * 每行的下标由一个 64 位哈希拆成两半按 h1 + i * h2 生成，不是线程安全的，由调用方加锁
+ * created by Wuwenbin on 2019/3/10 at 16:20
+ *
+ * @author wuwenbin
+ */
+final class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int[] counts;
+
+    CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        this.counts = new int[depth * width];
+    }
+
+    /**
+     * 计数加一
+     *
+     * @param hash
+     * @return 加一之后的估算值
+     */
+    int add(long hash) {
+        int h1 = (int) hash, h2 = (int) (hash >>> 32);
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int index = i * width + ((h1 + i * h2) & Integer.MAX_VALUE) % width;
+            min = Math.min(min, ++counts[index]);
+        }
+        return min;
+    }
+
+    int estimate(long hash) {
+        int h1 = (int) hash, h2 = (int) (hash >>> 32);
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counts[i * width + ((h1 + i * h2) & Integer.MAX_VALUE) % width]);
+        }
+        return min;
+    }
+
+    /**
+     * 把另一个同样大小的 sketch 的计数累加进来
+     *
+     * @param other
+     */
+    void addAll(CountMinSketch other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+    }
+}
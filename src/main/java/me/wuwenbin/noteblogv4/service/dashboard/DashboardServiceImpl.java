@@ -30,21 +30,41 @@ public class DashboardServiceImpl implements DashboardService {
     private final CommentRepository commentRepository;
     private final UserRepository userRepository;
     private final LoggerRepository loggerRepository;
+    private final TrafficHourlyRepository trafficHourlyRepository;
+    private final TrafficDailyRepository trafficDailyRepository;
+    private final TrafficIpRepository trafficIpRepository;
+    private final TrafficRollupService trafficRollupService;
+    private final VisitorSketchService visitorSketchService;
 
     @Autowired
     public DashboardServiceImpl(ArticleRepository articleRepository,
                                 MessageRepository messageRepository, CommentRepository commentRepository,
-                                UserRepository userRepository, NoteRepository noteRepository, LoggerRepository loggerRepository) {
+                                UserRepository userRepository, NoteRepository noteRepository, LoggerRepository loggerRepository,
+                                TrafficHourlyRepository trafficHourlyRepository, TrafficDailyRepository trafficDailyRepository,
+                                TrafficIpRepository trafficIpRepository, TrafficRollupService trafficRollupService,
+                                VisitorSketchService visitorSketchService) {
         this.articleRepository = articleRepository;
         this.messageRepository = messageRepository;
         this.commentRepository = commentRepository;
         this.userRepository = userRepository;
         this.noteRepository = noteRepository;
         this.loggerRepository = loggerRepository;
+        this.trafficHourlyRepository = trafficHourlyRepository;
+        this.trafficDailyRepository = trafficDailyRepository;
+        this.trafficIpRepository = trafficIpRepository;
+        this.trafficRollupService = trafficRollupService;
+        this.visitorSketchService = visitorSketchService;
     }
 
-    private String addLike(String item) {
-        return "%" + item + "%";
+    /**
+     * 汇总表还没有覆盖到的时间起点：已汇总到的时间和今天零点中较晚的一个
+     *
+     * @param today
+     * @return
+     */
+    private LocalDateTime liveFrom(LocalDateTime today) {
+        LocalDateTime watermark = trafficRollupService.watermark();
+        return watermark != null && watermark.isAfter(today) ? watermark : today;
     }
 
     @Override
@@ -53,11 +73,13 @@ public class DashboardServiceImpl implements DashboardService {
         long notes = noteRepository.count();
         long users = userRepository.count();
         long messages = messageRepository.count();
-        long comments = commentRepository.count();
-        int ips = loggerRepository.countByIpAddr();
-        int todayIps = loggerRepository.countByIpAddrAndTimeLike(addLike(LocalDate.now().toString()));
-        int todayComments = commentRepository.countByPostLike(addLike(LocalDate.now().toString()));
-        int todayUsers = userRepository.countByCreateLike(addLike(LocalDate.now().toString()));
+        long comments = articleRepository.sumCommentCnt();
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        LocalDateTime watermark = trafficRollupService.watermark();
+        long ips = trafficIpRepository.count() + loggerRepository.countNewIpFrom(watermark != null ? watermark : today);
+        long todayIps = visitorSketchService.countDays(1);
+        long todayComments = commentRepository.countByPostFrom(today);
+        long todayUsers = userRepository.countByCreateFrom(today);
         BaseDataStatistics d1 = BaseDataStatistics.builder().text("文章数量").sum(articles).url("#/article").build();
         BaseDataStatistics d2 = BaseDataStatistics.builder().text("笔记数量").sum(notes).url("#/note").build();
         BaseDataStatistics d3 = BaseDataStatistics.builder().text("用户数量").sum(users).url("#/users").build();
@@ -67,7 +89,9 @@ public class DashboardServiceImpl implements DashboardService {
         BaseDataStatistics d7 = BaseDataStatistics.builder().text("今日评论").sum(todayComments).build();
         BaseDataStatistics d8 = BaseDataStatistics.builder().text("今日新增用户").sum(todayUsers).build();
         BaseDataStatistics d9 = BaseDataStatistics.builder().text("评论数量").sum(comments).url("#/comment").build();
-        List<BaseDataStatistics> list = new ArrayList<>(9);
+        BaseDataStatistics d10 = BaseDataStatistics.builder().text("近7天访客").sum(visitorSketchService.countDays(7)).build();
+        BaseDataStatistics d11 = BaseDataStatistics.builder().text("近30天访客").sum(visitorSketchService.countDays(30)).build();
+        List<BaseDataStatistics> list = new ArrayList<>(11);
         list.add(d1);
         list.add(d2);
         list.add(d3);
@@ -77,6 +101,8 @@ public class DashboardServiceImpl implements DashboardService {
         list.add(d6);
         list.add(d7);
         list.add(d8);
+        list.add(d10);
+        list.add(d11);
         return list;
     }
 
@@ -106,9 +132,28 @@ public class DashboardServiceImpl implements DashboardService {
 
     }
 
+    /**
+     * 今天的访问次数是已汇总的小时之和加上之后的实时数，之前的直接取每日汇总
+     *
+     * @return
+     */
     @Override
     public List<Object[]> findTableStatistics() {
-        return loggerRepository.findTableData(10);
+        final int days = 10;
+        LocalDate day = LocalDate.now();
+        LocalDateTime today = day.atStartOfDay();
+        LocalDateTime liveFrom = liveFrom(today);
+        long todayPv = ((Number) trafficHourlyRepository.sumBetween(today, liveFrom).get(0)[0]).longValue()
+                + loggerRepository.countFrom(liveFrom);
+        List<Object[]> tableData = new ArrayList<>(days);
+        if (todayPv > 0) {
+            tableData.add(new Object[]{day.toString(), todayPv});
+        }
+        trafficDailyRepository.findByDayGreaterThanEqualAndPvGreaterThanOrderByDayDesc(day.minusDays(days), 0).stream()
+                .filter(d -> d.getDay().isBefore(day))
+                .limit(days - tableData.size())
+                .forEach(d -> tableData.add(new Object[]{d.getDay().toString(), d.getPv()}));
+        return tableData;
     }
 
 }
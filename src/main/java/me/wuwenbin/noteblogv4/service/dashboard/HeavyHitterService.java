@@ -0,0 +1,59 @@
+package me.wuwenbin.noteblogv4.service.dashboard;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热门访问统计
+ * 按访问路径、外部来源、浏览器/爬虫三个维度，分别统计最近一小时和最近一天访问次数最多的若干项，
+ * 每个时间窗口由若干个时间片组成，每个时间片一个 Count-Min Sketch 加一个候选集合，内存占用固定，与访问量无关
+ * created by Wuwenbin on 2019/3/10 at 16:30
+ *
+ * @author wuwenbin
+ */
+public interface HeavyHitterService {
+
+    /**
+     * 统计维度
+     */
+    enum Dimension {
+        /**
+         * 访问路径（不含参数）
+         */
+        url,
+        /**
+         * 外部来源（Referer，不含参数，本站内跳转不统计）
+         */
+        referer,
+        /**
+         * 浏览器或爬虫类型
+         */
+        agent
+    }
+
+    /**
+     * 时间窗口
+     */
+    enum Window {
+        hour, day
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param host      本站域名，用于排除站内跳转
+     * @param uri
+     * @param referer
+     * @param userAgent
+     */
+    void record(String host, String uri, String referer, String userAgent);
+
+    /**
+     * 某个时间窗口内某个维度访问次数最多的若干项，按次数倒序
+     *
+     * @param window
+     * @param dimension
+     * @return [key, count]，count 为估算值（可能偏大）
+     */
+    List<Map<String, Object>> top(Window window, Dimension dimension);
+}
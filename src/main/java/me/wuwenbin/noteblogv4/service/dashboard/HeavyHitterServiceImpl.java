@@ -0,0 +1,221 @@
+package me.wuwenbin.noteblogv4.service.dashboard;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最近一小时由 12 个 5 分钟的时间片组成，最近一天由 24 个 1 小时的时间片组成，时间片循环使用，过期时清空；
+ * 每个时间片的候选集合最多保留 top-k 的 4 倍，满了之后新项只有估算值超过集合中最小值时才替换最小项；
+ * 查询时把窗口内各时间片的 sketch 累加，用累加结果重新估算所有候选项，再用小顶堆取出前 top-k 项
+ * created by Wuwenbin on 2019/3/10 at 16:45
+ *
+ * @author wuwenbin
+ */
+@Service
+public class HeavyHitterServiceImpl implements HeavyHitterService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * 浏览器/爬虫类型，按顺序匹配 User-Agent，爬虫和带特殊标识的浏览器要放在通用浏览器之前
+     */
+    private static final String[][] AGENT_FAMILIES = {
+            {"Googlebot", "Googlebot"}, {"Baiduspider", "Baiduspider"}, {"bingbot", "Bingbot"},
+            {"Sogou", "Sogou Spider"}, {"360Spider", "360Spider"}, {"YisouSpider", "YisouSpider"},
+            {"Bytespider", "Bytespider"}, {"YandexBot", "YandexBot"}, {"DuckDuckBot", "DuckDuckBot"},
+            {"Applebot", "Applebot"}, {"AhrefsBot", "AhrefsBot"}, {"SemrushBot", "SemrushBot"},
+            {"MJ12bot", "MJ12bot"}, {"curl/", "curl"}, {"Wget", "Wget"}, {"python-requests", "Python"},
+            {"Python-urllib", "Python"}, {"Go-http-client", "Go"}, {"okhttp", "OkHttp"}, {"Java/", "Java"},
+            {"PostmanRuntime", "Postman"}, {"MicroMessenger", "微信"}, {"QQBrowser", "QQ浏览器"},
+            {"UCBrowser", "UC浏览器"}, {"Edg", "Edge"}, {"OPR/", "Opera"}, {"Firefox", "Firefox"},
+            {"Chrome", "Chrome"}, {"Safari", "Safari"}, {"Trident", "IE"}, {"MSIE", "IE"}
+    };
+
+    private final int topK;
+    private final int candidateSize;
+    private final int depth;
+    private final int width;
+    private final Map<Window, Map<Dimension, Slots>> windows = new EnumMap<>(Window.class);
+
+    @Autowired
+    public HeavyHitterServiceImpl(Environment env) {
+        this.topK = Math.max(1, env.getProperty("noteblog.heavy-hitter.top-k", Integer.class, 20));
+        this.candidateSize = topK * 4;
+        this.depth = Math.max(1, env.getProperty("noteblog.heavy-hitter.depth", Integer.class, 4));
+        this.width = Math.max(16, env.getProperty("noteblog.heavy-hitter.width", Integer.class, 1024));
+        for (Window window : Window.values()) {
+            Map<Dimension, Slots> dimensions = new EnumMap<>(Dimension.class);
+            for (Dimension dimension : Dimension.values()) {
+                dimensions.put(dimension, window == Window.hour
+                        ? new Slots(12, TimeUnit.MINUTES.toMillis(5))
+                        : new Slots(24, TimeUnit.HOURS.toMillis(1)));
+            }
+            windows.put(window, dimensions);
+        }
+    }
+
+    @Override
+    public void record(String host, String uri, String referer, String userAgent) {
+        long now = System.currentTimeMillis();
+        offer(Dimension.url, key(uri), now);
+        offer(Dimension.referer, externalReferer(host, referer), now);
+        offer(Dimension.agent, agentFamily(userAgent), now);
+    }
+
+    @Override
+    public List<Map<String, Object>> top(Window window, Dimension dimension) {
+        Slots slots = windows.get(window).get(dimension);
+        long current = slots.slotOf(System.currentTimeMillis());
+        CountMinSketch merged = new CountMinSketch(depth, width);
+        Set<String> candidates = new HashSet<>(candidateSize * 2);
+        for (Slot slot : slots.slots) {
+            synchronized (slot) {
+                if (slot.id > current - slots.slots.length && slot.id <= current) {
+                    merged.addAll(slot.sketch);
+                    candidates.addAll(slot.candidates.keySet());
+                }
+            }
+        }
+        PriorityQueue<Map.Entry<String, Integer>> heap = new PriorityQueue<>(topK + 1, Map.Entry.comparingByValue());
+        for (String candidate : candidates) {
+            heap.offer(new AbstractMap.SimpleImmutableEntry<>(candidate, merged.estimate(HyperLogLog.hash(candidate))));
+            if (heap.size() > topK) {
+                heap.poll();
+            }
+        }
+        List<Map<String, Object>> top = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            Map.Entry<String, Integer> e = heap.poll();
+            Map<String, Object> item = new LinkedHashMap<>(2);
+            item.put("key", e.getKey());
+            item.put("count", e.getValue());
+            top.add(item);
+        }
+        Collections.reverse(top);
+        return top;
+    }
+
+    private void offer(Dimension dimension, String key, long now) {
+        if (key == null) {
+            return;
+        }
+        long hash = HyperLogLog.hash(key);
+        for (Map<Dimension, Slots> dimensions : windows.values()) {
+            Slots slots = dimensions.get(dimension);
+            long id = slots.slotOf(now);
+            Slot slot = slots.slots[(int) (id % slots.slots.length)];
+            synchronized (slot) {
+                if (slot.id != id) {
+                    slot.reset(id);
+                }
+                slot.offer(key, slot.sketch.add(hash));
+            }
+        }
+    }
+
+    private static String key(String value) {
+        if (StringUtils.isEmpty(value)) {
+            return null;
+        }
+        int query = value.indexOf('?');
+        String key = query >= 0 ? value.substring(0, query) : value;
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    /**
+     * 外部来源，站内跳转返回 null
+     *
+     * @param host
+     * @param referer
+     * @return
+     */
+    private static String externalReferer(String host, String referer) {
+        String key = key(referer);
+        if (key == null) {
+            return null;
+        }
+        int start = key.indexOf("://");
+        start = start >= 0 ? start + 3 : 0;
+        int end = key.indexOf('/', start);
+        String refererHost = key.substring(start, end >= 0 ? end : key.length());
+        int port = refererHost.indexOf(':');
+        refererHost = port >= 0 ? refererHost.substring(0, port) : refererHost;
+        return refererHost.equalsIgnoreCase(host) ? null : key;
+    }
+
+    private static String agentFamily(String userAgent) {
+        if (StringUtils.isEmpty(userAgent)) {
+            return "未知";
+        }
+        for (String[] family : AGENT_FAMILIES) {
+            if (userAgent.contains(family[0])) {
+                return family[1];
+            }
+        }
+        String lower = userAgent.toLowerCase();
+        return lower.contains("bot") || lower.contains("spider") || lower.contains("crawler") ? "其他爬虫" : "其他";
+    }
+
+    /**
+     * 一个时间窗口的所有时间片
+     */
+    private final class Slots {
+        private final Slot[] slots;
+        private final long slotMillis;
+
+        private Slots(int count, long slotMillis) {
+            this.slots = new Slot[count];
+            this.slotMillis = slotMillis;
+            for (int i = 0; i < count; i++) {
+                slots[i] = new Slot();
+            }
+        }
+
+        private long slotOf(long millis) {
+            return millis / slotMillis;
+        }
+    }
+
+    /**
+     * 一个时间片，所有字段只在持有此对象的锁时访问
+     */
+    private final class Slot {
+        private long id = -1;
+        private final CountMinSketch sketch = new CountMinSketch(depth, width);
+        private final Map<String, Integer> candidates = new HashMap<>(candidateSize * 2);
+        /**
+         * 候选集合中最小估算值的下界，计数只增不减，所以实际最小值只会更大
+         */
+        private int floor;
+
+        private void reset(long id) {
+            this.id = id;
+            sketch.clear();
+            candidates.clear();
+            floor = 0;
+        }
+
+        private void offer(String key, int estimate) {
+            if (candidates.containsKey(key) || candidates.size() < candidateSize) {
+                candidates.put(key, estimate);
+                return;
+            }
+            if (estimate <= floor) {
+                return;
+            }
+            Map.Entry<String, Integer> min = Collections.min(candidates.entrySet(), Map.Entry.comparingByValue());
+            if (estimate > min.getValue()) {
+                candidates.remove(min.getKey());
+                candidates.put(key, estimate);
+                floor = Collections.min(candidates.values());
+            } else {
+                floor = min.getValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package me.wuwenbin.noteblogv4.service.dashboard;
+
+/**
+ * HyperLogLog 基数估算，2^p 个寄存器每个占一个字节，标准误差约为 1.04 / sqrt(2^p)
+ * 绝大多数访问不会改变寄存器的值，只读判断后直接返回；需要更新时才加锁，多个线程同时写入也不会丢失更新
+ * created by Wuwenbin on 2019/3/10 at 13:20
+ *
+ * @author wuwenbin
+ */
+final class HyperLogLog {
+
+    static final int MIN_PRECISION = 4;
+    static final int MAX_PRECISION = 15;
+
+    private final int precision;
+    private final byte[] registers;
+    private volatile boolean dirty;
+
+    HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision 必须在 " + MIN_PRECISION + " 到 " + MAX_PRECISION + " 之间");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * 从 {@link #toBytes()} 的结果还原，格式不正确返回 null
+     *
+     * @param bytes
+     * @return
+     */
+    static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < 1) {
+            return null;
+        }
+        int p = bytes[0];
+        if (p < MIN_PRECISION || p > MAX_PRECISION || bytes.length != (1 << p) + 1) {
+            return null;
+        }
+        HyperLogLog hll = new HyperLogLog(p);
+        System.arraycopy(bytes, 1, hll.registers, 0, hll.registers.length);
+        return hll;
+    }
+
+    /**
+     * 加入一个元素
+     *
+     * @param value
+     * @return 寄存器是否发生了变化
+     */
+    boolean offer(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (registers[index] >= rank) {
+            return false;
+        }
+        synchronized (this) {
+            if (registers[index] >= rank) {
+                return false;
+            }
+            registers[index] = rank;
+            dirty = true;
+            return true;
+        }
+    }
+
+    /**
+     * 把另一个精度相同的 sketch 合并进来
+     *
+     * @param other
+     */
+    synchronized void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("精度不同的 HyperLogLog 不能合并");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * 估算不同元素的个数，较小时用线性计数修正
+     *
+     * @return
+     */
+    long cardinality() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        synchronized (this) {
+            System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+        }
+        return copy;
+    }
+
+    /**
+     * 序列化为 [precision, 寄存器...]，同时清除修改标记
+     *
+     * @return
+     */
+    synchronized byte[] toBytes() {
+        dirty = false;
+        byte[] bytes = new byte[registers.length + 1];
+        bytes[0] = (byte) precision;
+        System.arraycopy(registers, 0, bytes, 1, registers.length);
+        return bytes;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * 写回失败时重新标记为已修改，等待下次写回
+     */
+    void markDirty() {
+        dirty = true;
+    }
+
+    int precision() {
+        return precision;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * 64 位的 FNV-1a，再用 murmur3 的 fmix64 打散高位，{@link CountMinSketch} 也使用此哈希
+     *
+     * @param value
+     * @return
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,28 @@
+package me.wuwenbin.noteblogv4.service.dashboard;
+
+import java.time.LocalDateTime;
+
+/**
+ * 访问量汇总
+ * 定时把已经结束的小时从 sys_logger、nb_comment、sys_user 汇总到 nb_traffic_hourly，
+ * 一天的24小时都汇总完之后再生成 nb_traffic_daily，仪表盘只读汇总表和今天的增量
+ * created by Wuwenbin on 2019/3/10 at 11:30
+ *
+ * @author wuwenbin
+ */
+public interface TrafficRollupService {
+
+    /**
+     * 汇总还没有汇总的已结束的小时，以及因此凑满24小时的天
+     *
+     * @return 本次汇总的小时数
+     */
+    int rollup();
+
+    /**
+     * 已汇总到的时间（不含），还没有汇总过返回 null
+     *
+     * @return
+     */
+    LocalDateTime watermark();
+}
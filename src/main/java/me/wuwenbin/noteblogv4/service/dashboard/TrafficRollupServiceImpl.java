@@ -0,0 +1,160 @@
+package me.wuwenbin.noteblogv4.service.dashboard;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.*;
+import me.wuwenbin.noteblogv4.model.entity.NBTrafficDaily;
+import me.wuwenbin.noteblogv4.model.entity.NBTrafficHourly;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static java.time.temporal.ChronoUnit.HOURS;
+
+/**
+ * 第一次运行时从最早的一条访问日志开始补齐历史数据，每次最多汇总 max-hours-per-run 个小时，
+ * 还没追上时每 catch-up-interval 毫秒汇总一段，追上之后每 rollup-interval 毫秒汇总一次，
+ * 每次运行都很短，不会长时间占住定时任务线程；
+ * 每个小时的数据用一条 group by 查询按时间范围取出（走 sys_logger.time 索引），不再扫描整张表
+ * created by Wuwenbin on 2019/3/10 at 11:40
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+@Transactional(rollbackOn = Exception.class)
+public class TrafficRollupServiceImpl implements TrafficRollupService {
+
+    private static final DateTimeFormatter HOUR_KEY = DateTimeFormatter.ofPattern("yyyy-MM-dd HH");
+
+    /**
+     * 访问日志是异步批量写入的，小时结束之后再等一会儿才汇总，避免漏掉还在缓冲区中的日志
+     */
+    private static final long SETTLE_MINUTES = 2;
+
+    private final LoggerRepository loggerRepository;
+    private final CommentRepository commentRepository;
+    private final UserRepository userRepository;
+    private final TrafficHourlyRepository trafficHourlyRepository;
+    private final TrafficDailyRepository trafficDailyRepository;
+    private final TrafficIpRepository trafficIpRepository;
+    private final int maxHoursPerRun;
+    private final long rollupInterval;
+
+    private volatile boolean behind = true;
+    private volatile long lastRun;
+
+    @Autowired
+    public TrafficRollupServiceImpl(LoggerRepository loggerRepository, CommentRepository commentRepository,
+                                    UserRepository userRepository, TrafficHourlyRepository trafficHourlyRepository,
+                                    TrafficDailyRepository trafficDailyRepository, TrafficIpRepository trafficIpRepository,
+                                    Environment env) {
+        this.loggerRepository = loggerRepository;
+        this.commentRepository = commentRepository;
+        this.userRepository = userRepository;
+        this.trafficHourlyRepository = trafficHourlyRepository;
+        this.trafficDailyRepository = trafficDailyRepository;
+        this.trafficIpRepository = trafficIpRepository;
+        this.maxHoursPerRun = Math.max(1, env.getProperty("noteblog.traffic.max-hours-per-run", Integer.class, 6));
+        this.rollupInterval = env.getProperty("noteblog.traffic.rollup-interval", Long.class, 300000L);
+    }
+
+    /**
+     * 上一次汇总满了 max-hours-per-run 个小时说明还有没追上的数据，下一轮马上继续
+     */
+    @Scheduled(initialDelayString = "${noteblog.traffic.rollup-delay:60000}",
+            fixedDelayString = "${noteblog.traffic.catch-up-interval:10000}")
+    public void scheduledRollup() {
+        long now = System.currentTimeMillis();
+        if (!behind && now - lastRun < rollupInterval) {
+            return;
+        }
+        lastRun = now;
+        behind = rollup() >= maxHoursPerRun;
+    }
+
+    @Override
+    public synchronized int rollup() {
+        LocalDateTime from = watermark();
+        if (from == null) {
+            LocalDateTime first = loggerRepository.findMinTime();
+            if (first == null) {
+                return 0;
+            }
+            from = first.truncatedTo(HOURS);
+        }
+        LocalDateTime settled = LocalDateTime.now().minusMinutes(SETTLE_MINUTES).truncatedTo(HOURS);
+        LocalDateTime to = from.plusHours(maxHoursPerRun);
+        if (to.isAfter(settled)) {
+            to = settled;
+        }
+        if (!from.isBefore(to)) {
+            return 0;
+        }
+
+        Map<LocalDateTime, NBTrafficHourly> hours = new LinkedHashMap<>(maxHoursPerRun * 2);
+        for (LocalDateTime hour = from; hour.isBefore(to); hour = hour.plusHours(1)) {
+            hours.put(hour, NBTrafficHourly.builder().hour(hour).build());
+        }
+        fill(hours, loggerRepository.countHourly(from, to), (h, row) -> {
+            h.setPv(num(row[1]));
+            h.setUv(num(row[2]));
+        });
+        fill(hours, commentRepository.countHourly(from, to), (h, row) -> h.setComments(num(row[1])));
+        fill(hours, userRepository.countHourly(from, to), (h, row) -> h.setUsers(num(row[1])));
+        trafficHourlyRepository.saveAll(hours.values());
+        trafficIpRepository.insertNewIps(from, to);
+
+        for (LocalDate day = from.toLocalDate(); !day.plusDays(1).atStartOfDay().isAfter(to); day = day.plusDays(1)) {
+            rollupDay(day);
+        }
+        log.info("汇总访问数据完毕，时间范围：[{} ~ {})，共计小时数：[{}]", from, to, hours.size());
+        return hours.size();
+    }
+
+    @Override
+    public LocalDateTime watermark() {
+        LocalDateTime maxHour = trafficHourlyRepository.findMaxHour();
+        return maxHour == null ? null : maxHour.plusHours(1);
+    }
+
+    /**
+     * 访问次数、评论数、新增用户数是各小时的和，不同ip数需要按当天的时间范围重新计算
+     *
+     * @param day
+     */
+    private void rollupDay(LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+        Object[] sum = trafficHourlyRepository.sumBetween(from, to).get(0);
+        trafficDailyRepository.save(NBTrafficDaily.builder()
+                .day(day)
+                .pv(num(sum[0]))
+                .uv(loggerRepository.countIpBetween(from, to))
+                .comments(num(sum[1]))
+                .users(num(sum[2]))
+                .build());
+    }
+
+    private static void fill(Map<LocalDateTime, NBTrafficHourly> hours, List<Object[]> rows, BiConsumer<NBTrafficHourly, Object[]> setter) {
+        for (Object[] row : rows) {
+            NBTrafficHourly hourly = hours.get(LocalDateTime.parse((String) row[0], HOUR_KEY));
+            if (hourly != null) {
+                setter.accept(hourly, row);
+            }
+        }
+    }
+
+    private static long num(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+}
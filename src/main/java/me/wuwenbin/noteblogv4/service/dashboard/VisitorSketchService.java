@@ -0,0 +1,51 @@
+package me.wuwenbin.noteblogv4.service.dashboard;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 独立访客估算
+ * 全站每天一个、每篇文章一个 HyperLogLog，内存占用固定，查询时间与访客数量无关，
+ * 最近 7 天、30 天的访客数由每天的 sketch 合并得到；sketch 定时以二进制写回 nb_visitor_sketch
+ * created by Wuwenbin on 2019/3/10 at 13:50
+ *
+ * @author wuwenbin
+ */
+public interface VisitorSketchService {
+
+    /**
+     * 记录一次全站访问（计入当天）
+     *
+     * @param visitor 访客标识（ip）
+     */
+    void offer(String visitor);
+
+    /**
+     * 记录一次文章阅读
+     *
+     * @param articleId
+     * @param visitor   访客标识（ip）
+     */
+    void offerArticle(long articleId, String visitor);
+
+    /**
+     * 最近若干天（含今天）的独立访客数
+     *
+     * @param days 1 表示只统计今天
+     * @return
+     */
+    long countDays(int days);
+
+    /**
+     * 批量查询文章的独立读者数，没有记录的文章为 0
+     *
+     * @param articleIds
+     * @return
+     */
+    Map<Long, Long> countArticles(Collection<Long> articleIds);
+
+    /**
+     * 把有变化的 sketch 写回数据库
+     */
+    void flush();
+}
@@ -0,0 +1,171 @@
+package me.wuwenbin.noteblogv4.service.dashboard;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.VisitorSketchRepository;
+import me.wuwenbin.noteblogv4.model.entity.NBVisitorSketch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * sketch 在第一次用到时从数据库加载，之后常驻内存，超过 31 天的每日 sketch 写回之后从内存中移除；
+ * 精度配置修改之后，数据库中精度不同的旧 sketch 会被忽略
+ * created by Wuwenbin on 2019/3/10 at 14:05
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class VisitorSketchServiceImpl implements VisitorSketchService {
+
+    private static final String DAY = "day:";
+    private static final String ARTICLE = "article:";
+    private static final int RETAIN_DAYS = 31;
+
+    private final VisitorSketchRepository visitorSketchRepository;
+    private final int dayPrecision;
+    private final int articlePrecision;
+
+    private final ConcurrentMap<String, HyperLogLog> sketches = new ConcurrentHashMap<>(256);
+
+    @Autowired
+    public VisitorSketchServiceImpl(VisitorSketchRepository visitorSketchRepository, Environment env) {
+        this.visitorSketchRepository = visitorSketchRepository;
+        this.dayPrecision = precision(env.getProperty("noteblog.visitor.precision", Integer.class, 14));
+        this.articlePrecision = precision(env.getProperty("noteblog.visitor.article-precision", Integer.class, 10));
+    }
+
+    @Override
+    public void offer(String visitor) {
+        if (!StringUtils.isEmpty(visitor)) {
+            sketch(dayKey(LocalDate.now()), dayPrecision).offer(visitor);
+        }
+    }
+
+    @Override
+    public void offerArticle(long articleId, String visitor) {
+        if (!StringUtils.isEmpty(visitor)) {
+            sketch(ARTICLE + articleId, articlePrecision).offer(visitor);
+        }
+    }
+
+    @Override
+    public long countDays(int days) {
+        LocalDate today = LocalDate.now();
+        List<String> keys = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            keys.add(dayKey(today.minusDays(i)));
+        }
+        HyperLogLog union = null;
+        for (HyperLogLog day : find(keys, dayPrecision).values()) {
+            if (union == null) {
+                union = day.copy();
+            } else {
+                union.merge(day);
+            }
+        }
+        return union == null ? 0 : union.cardinality();
+    }
+
+    @Override
+    public Map<Long, Long> countArticles(Collection<Long> articleIds) {
+        Map<String, Long> keys = new HashMap<>(articleIds.size() * 2);
+        articleIds.forEach(id -> keys.put(ARTICLE + id, id));
+        Map<Long, Long> result = new HashMap<>(articleIds.size() * 2);
+        find(keys.keySet(), articlePrecision).forEach((key, sketch) -> result.put(keys.get(key), sketch.cardinality()));
+        articleIds.forEach(id -> result.putIfAbsent(id, 0L));
+        return result;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${noteblog.visitor.flush-interval:60000}")
+    public void flush() {
+        List<HyperLogLog> flushing = new ArrayList<>();
+        List<NBVisitorSketch> rows = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        sketches.forEach((key, sketch) -> {
+            if (sketch.isDirty()) {
+                flushing.add(sketch);
+                rows.add(NBVisitorSketch.builder().id(key).registers(sketch.toBytes()).updated(now).build());
+            }
+        });
+        if (!rows.isEmpty()) {
+            try {
+                visitorSketchRepository.saveAll(rows);
+            } catch (Exception e) {
+                flushing.forEach(HyperLogLog::markDirty);
+                log.error("写回独立访客统计出错，等待下次写回：{}", e.getMessage());
+                return;
+            }
+        }
+        String oldest = dayKey(LocalDate.now().minusDays(RETAIN_DAYS));
+        sketches.entrySet().removeIf(e -> e.getKey().startsWith(DAY) && e.getKey().compareTo(oldest) < 0 && !e.getValue().isDirty());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 取出用于写入的 sketch，内存和数据库中都没有时新建
+     *
+     * @param key
+     * @param precision
+     * @return
+     */
+    private HyperLogLog sketch(String key, int precision) {
+        HyperLogLog sketch = sketches.get(key);
+        if (sketch != null) {
+            return sketch;
+        }
+        HyperLogLog loaded = find(Collections.singletonList(key), precision).get(key);
+        return loaded != null ? loaded : sketches.computeIfAbsent(key, k -> new HyperLogLog(precision));
+    }
+
+    /**
+     * 批量取出只读的 sketch，内存中没有的一次性从数据库加载，都没有的不在结果中
+     *
+     * @param keys
+     * @param precision
+     * @return
+     */
+    private Map<String, HyperLogLog> find(Collection<String> keys, int precision) {
+        Map<String, HyperLogLog> found = new LinkedHashMap<>(keys.size() * 2);
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            HyperLogLog sketch = sketches.get(key);
+            if (sketch != null) {
+                found.put(key, sketch);
+            } else {
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (NBVisitorSketch row : visitorSketchRepository.findAllById(missing)) {
+                HyperLogLog sketch = HyperLogLog.fromBytes(row.getRegisters());
+                if (sketch != null && sketch.precision() == precision) {
+                    found.put(row.getId(), sketches.computeIfAbsent(row.getId(), k -> sketch));
+                }
+            }
+        }
+        return found;
+    }
+
+    private static String dayKey(LocalDate day) {
+        return DAY + day;
+    }
+
+    private static int precision(int p) {
+        return Math.max(HyperLogLog.MIN_PRECISION, Math.min(HyperLogLog.MAX_PRECISION, p));
+    }
+}
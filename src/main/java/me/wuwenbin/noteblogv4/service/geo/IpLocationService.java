@@ -0,0 +1,35 @@
+package me.wuwenbin.noteblogv4.service.geo;
+
+import me.wuwenbin.noteblogv4.model.pojo.business.IpInfo;
+
+import java.util.Map;
+
+/**
+ * 本地ip地理位置查询
+ * ip段数据文件加载到内存中有序的int数组里，二分查找，不再请求任何网络接口
+ * created by Wuwenbin on 2019/3/10 at 10:20
+ *
+ * @author wuwenbin
+ */
+public interface IpLocationService {
+
+    /**
+     * 查询ip所在的地理位置，非法ip、ipv6或者数据文件中没有的ip返回 code=1 且 data=null
+     *
+     * @param ip
+     * @return
+     */
+    IpInfo lookup(String ip);
+
+    /**
+     * 重新加载ip数据文件，加载失败时继续使用原来的数据
+     */
+    void reload();
+
+    /**
+     * 当前数据的统计：文件路径、ip段数、地区数、加载时间
+     *
+     * @return
+     */
+    Map<String, Object> stats();
+}
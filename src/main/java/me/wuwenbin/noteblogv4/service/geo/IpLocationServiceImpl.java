@@ -0,0 +1,278 @@
+package me.wuwenbin.noteblogv4.service.geo;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.model.pojo.business.IpInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 数据文件使用 ip2region 的 ip.merge.txt 文本格式，每行一个ip段：
+ * 起始ip|结束ip|国家|区域|省份|城市|运营商，未知的字段为 0
+ * 加载时把起止ip转成 int 存进两个有序数组，地区信息去重后只保存一份，每个ip段只记录地区的下标，
+ * 查询时二分查找不大于目标ip的最后一个起始ip，再判断是否在该段的结束ip之内；
+ * 数据整体放在一个不可变的 Table 里 volatile 发布，定时检查文件修改时间，文件更新后重新加载并整体替换
+ * created by Wuwenbin on 2019/3/10 at 10:35
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class IpLocationServiceImpl implements IpLocationService {
+
+    private static final String UNKNOWN = "0";
+    private static final int FIELDS = 7;
+
+    private final Path dataPath;
+
+    private volatile Table table;
+
+    @Autowired
+    public IpLocationServiceImpl(Environment env) {
+        String defaultPath = System.getProperty("user.home") + "/.noteblogv4/ip/ip.merge.txt";
+        this.dataPath = Paths.get(env.getProperty("noteblog.ip.data-path", defaultPath).replace("file:", ""));
+    }
+
+    @Override
+    public IpInfo lookup(String ip) {
+        long address = parseIpv4(ip);
+        if (address < 0) {
+            return IpInfo.builder().code(1).data(null).build();
+        }
+        String[] region = table().find((int) address);
+        if (region == null) {
+            return IpInfo.builder().code(1).data(null).build();
+        }
+        IpInfo.Info info = IpInfo.Info.builder()
+                .ip(ip.trim())
+                .country(field(region[0]))
+                .area(field(region[1]))
+                .region(field(region[2]))
+                .city(field(region[3]))
+                .county("")
+                .isp(field(region[4]))
+                .build();
+        return IpInfo.builder().code(0).data(info).build();
+    }
+
+    @Override
+    public synchronized void reload() {
+        if (!Files.isRegularFile(dataPath)) {
+            if (table == null) {
+                table = Table.EMPTY;
+            }
+            log.warn("ip地址库文件 [{}] 不存在，ip地理位置将显示为未知位置", dataPath.toAbsolutePath());
+            return;
+        }
+        try {
+            long lastModified = Files.getLastModifiedTime(dataPath).toMillis();
+            table = load(dataPath, lastModified);
+            log.info("加载ip地址库完毕，共计ip段数：[{}]，地区数：[{}]", table.size(), table.regions.length);
+        } catch (IOException | RuntimeException e) {
+            if (table == null) {
+                table = Table.EMPTY;
+            }
+            log.error("加载ip地址库 [{}] 出错，继续使用原来的数据", dataPath.toAbsolutePath(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Table t = table();
+        Map<String, Object> stats = new LinkedHashMap<>(4);
+        stats.put("path", dataPath.toAbsolutePath().toString());
+        stats.put("ranges", t.size());
+        stats.put("regions", t.regions.length);
+        stats.put("loadedAt", t.loadedAt);
+        return stats;
+    }
+
+    /**
+     * 数据文件修改时间变化之后重新加载
+     */
+    @Scheduled(initialDelayString = "${noteblog.ip.reload-interval:60000}", fixedDelayString = "${noteblog.ip.reload-interval:60000}")
+    public void checkReload() {
+        Table t = table;
+        if (t == null || !Files.isRegularFile(dataPath)) {
+            return;
+        }
+        try {
+            if (Files.getLastModifiedTime(dataPath).toMillis() != t.lastModified) {
+                log.info("ip地址库文件 [{}] 已更新，重新加载", dataPath.toAbsolutePath());
+                reload();
+            }
+        } catch (IOException e) {
+            log.warn("读取ip地址库文件修改时间出错：{}", e.getMessage());
+        }
+    }
+
+    private Table table() {
+        Table t = table;
+        if (t == null) {
+            synchronized (this) {
+                if (table == null) {
+                    reload();
+                }
+                t = table;
+            }
+        }
+        return t;
+    }
+
+    private static Table load(Path path, long lastModified) throws IOException {
+        int[] starts = new int[1 << 16];
+        int[] ends = new int[1 << 16];
+        int[] regionIndexes = new int[1 << 16];
+        Map<String, Integer> regionIds = new HashMap<>(4096);
+        List<String[]> regions = new ArrayList<>(4096);
+        int size = 0;
+        boolean sorted = true;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                String[] parts = line.split("\\|", -1);
+                long start = parts.length == FIELDS ? parseIpv4(parts[0]) : -1;
+                long end = parts.length == FIELDS ? parseIpv4(parts[1]) : -1;
+                if (start < 0 || end < start) {
+                    log.warn("ip地址库第 [{}] 行格式有误，已跳过：{}", lineNo, line);
+                    continue;
+                }
+                if (size == starts.length) {
+                    starts = Arrays.copyOf(starts, size << 1);
+                    ends = Arrays.copyOf(ends, size << 1);
+                    regionIndexes = Arrays.copyOf(regionIndexes, size << 1);
+                }
+                String key = line.substring(parts[0].length() + parts[1].length() + 2);
+                Integer regionId = regionIds.get(key);
+                if (regionId == null) {
+                    regionId = regions.size();
+                    regionIds.put(key, regionId);
+                    regions.add(Arrays.copyOfRange(parts, 2, FIELDS));
+                }
+                if (size > 0 && Integer.compareUnsigned(starts[size - 1], (int) start) > 0) {
+                    sorted = false;
+                }
+                starts[size] = (int) start;
+                ends[size] = (int) end;
+                regionIndexes[size] = regionId;
+                size++;
+            }
+        }
+        Table t = new Table(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), Arrays.copyOf(regionIndexes, size),
+                regions.toArray(new String[0][]), lastModified);
+        return sorted ? t : t.sorted();
+    }
+
+    /**
+     * 解析 ipv4 地址为无符号的 32 位整数，格式不正确（包括 ipv6）返回 -1
+     *
+     * @param ip
+     * @return
+     */
+    static long parseIpv4(String ip) {
+        if (ip == null) {
+            return -1;
+        }
+        String s = ip.trim();
+        long result = 0;
+        int part = -1, dots = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                part = (part < 0 ? 0 : part * 10) + (c - '0');
+                if (part > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && part >= 0 && dots < 3) {
+                result = (result << 8) | part;
+                part = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        return part < 0 || dots != 3 ? -1 : (result << 8) | part;
+    }
+
+    private static String field(String value) {
+        return value == null || UNKNOWN.equals(value) ? "" : value;
+    }
+
+    /**
+     * ip段数据，创建后不再修改；起止ip按无符号比较
+     */
+    private static final class Table {
+        private static final Table EMPTY = new Table(new int[0], new int[0], new int[0], new String[0][], -1);
+
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] regionIndexes;
+        private final String[][] regions;
+        private final long lastModified;
+        private final LocalDateTime loadedAt = LocalDateTime.now();
+
+        private Table(int[] starts, int[] ends, int[] regionIndexes, String[][] regions, long lastModified) {
+            this.starts = starts;
+            this.ends = ends;
+            this.regionIndexes = regionIndexes;
+            this.regions = regions;
+            this.lastModified = lastModified;
+        }
+
+        private int size() {
+            return starts.length;
+        }
+
+        private String[] find(int ip) {
+            int low = 0, high = starts.length - 1, found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (Integer.compareUnsigned(starts[mid], ip) <= 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (found < 0 || Integer.compareUnsigned(ip, ends[found]) > 0) {
+                return null;
+            }
+            return regions[regionIndexes[found]];
+        }
+
+        /**
+         * 数据文件没有按起始ip排序时，排序后生成新的 Table
+         *
+         * @return
+         */
+        private Table sorted() {
+            Integer[] order = new Integer[starts.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compareUnsigned(starts[a], starts[b]));
+            int[] s = new int[order.length], e = new int[order.length], r = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                s[i] = starts[order[i]];
+                e[i] = ends[order[i]];
+                r[i] = regionIndexes[order[i]];
+            }
+            return new Table(s, e, r, regions, lastModified);
+        }
+    }
+}
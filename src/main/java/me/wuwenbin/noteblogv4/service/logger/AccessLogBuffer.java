@@ -0,0 +1,94 @@
+package me.wuwenbin.noteblogv4.service.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形缓冲区，多个请求线程写入，单个写库线程读取
+ * 每个槽位带一个序号（Vyukov 的有界队列），写入只有一次 CAS，缓冲区满时立即返回 false，不会阻塞请求线程
+ * created by Wuwenbin on 2019/3/10 at 9:30
+ *
+ * @author wuwenbin
+ */
+final class AccessLogBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity 会向上取整为 2 的幂
+     */
+    AccessLogBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入一个元素，缓冲区已满时返回 false
+     *
+     * @param e
+     * @return
+     */
+    boolean offer(E e) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items.lazySet(index, e);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 取出一个元素，没有元素时返回 null，只能由一个线程调用
+     *
+     * @return
+     */
+    E poll() {
+        long pos = head.get();
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E e = items.get(index);
+        items.lazySet(index, null);
+        sequences.set(index, pos + capacity);
+        head.lazySet(pos + 1);
+        return e;
+    }
+
+    /**
+     * 当前元素个数（近似值）
+     *
+     * @return
+     */
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,30 @@
+package me.wuwenbin.noteblogv4.service.logger;
+
+import me.wuwenbin.noteblogv4.model.entity.NBLogger;
+
+import java.util.Map;
+
+/**
+ * 访问日志（sys_logger）写入
+ * 请求线程只把日志放进内存缓冲区，由单独的线程批量写入数据库
+ * created by Wuwenbin on 2019/3/10 at 9:20
+ *
+ * @author wuwenbin
+ */
+public interface AccessLogService {
+
+    /**
+     * 记录一条访问日志，不会阻塞，缓冲区满或者按采样策略被丢弃时返回 false
+     *
+     * @param logger
+     * @return
+     */
+    boolean record(NBLogger logger);
+
+    /**
+     * 缓冲区和写入情况的统计：队列长度、容量、接收数、丢弃数、采样丢弃数、写入数、写入失败数
+     *
+     * @return
+     */
+    Map<String, Object> metrics();
+}
@@ -0,0 +1,177 @@
+package me.wuwenbin.noteblogv4.service.logger;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.model.entity.NBLogger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 访问日志先放入有界的无锁环形缓冲区，写库线程取出后拼成多行 INSERT 批量写入，请求耗时不再受数据库写入影响
+ * 缓冲区积压超过一半时按配置的策略处理：drop 表示照常写入直到写满再丢弃，sample 表示只保留 1/sample-rate 的日志
+ * created by Wuwenbin on 2019/3/10 at 9:45
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class AccessLogServiceImpl implements AccessLogService {
+
+    private static final String INSERT_SQL = "INSERT INTO sys_logger " +
+            "(id, url, time, session_id, ip_addr, ip_info, user_agent, username, request_method, content_type) VALUES ";
+    private static final String ROW_VALUES = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMN_LENGTH = 255;
+    private static final String POLICY_SAMPLE = "sample";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AccessLogBuffer<NBLogger> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final boolean sampleOnOverload;
+    private final int sampleRate;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    @Autowired
+    public AccessLogServiceImpl(JdbcTemplate jdbcTemplate, Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.buffer = new AccessLogBuffer<>(env.getProperty("noteblog.access-log.capacity", Integer.class, 8192));
+        this.batchSize = Math.max(1, env.getProperty("noteblog.access-log.batch-size", Integer.class, 200));
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(env.getProperty("noteblog.access-log.flush-interval", Long.class, 1000L));
+        this.sampleOnOverload = POLICY_SAMPLE.equalsIgnoreCase(env.getProperty("noteblog.access-log.overload-policy", "drop"));
+        this.sampleRate = Math.max(1, env.getProperty("noteblog.access-log.sample-rate", Integer.class, 10));
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::drainLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public boolean record(NBLogger logger) {
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        if (sampleOnOverload && buffer.size() > buffer.capacity() / 2
+                && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            sampledOut.increment();
+            return false;
+        }
+        if (buffer.offer(logger)) {
+            accepted.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>(8);
+        metrics.put("queueDepth", buffer.size());
+        metrics.put("capacity", buffer.capacity());
+        metrics.put("accepted", accepted.sum());
+        metrics.put("dropped", dropped.sum());
+        metrics.put("sampledOut", sampledOut.sum());
+        metrics.put("written", written.sum());
+        metrics.put("failed", failed.sum());
+        return metrics;
+    }
+
+    /**
+     * 应用关闭时停止接收新日志，等待写库线程把缓冲区中剩余的日志写完
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        log.info("「笔记博客」App 关闭中，写入缓冲区中剩余的访问日志，共计：[{}]", buffer.size());
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        log.info("访问日志统计：{}", metrics());
+    }
+
+    /**
+     * 写库线程：攒够一批或者距第一条日志超过 flush-interval 就写一次，缓冲区为空时短暂休眠
+     */
+    private void drainLoop() {
+        List<NBLogger> batch = new ArrayList<>(batchSize);
+        long firstAt = 0;
+        while (true) {
+            NBLogger logger = buffer.poll();
+            if (logger != null) {
+                if (batch.isEmpty()) {
+                    firstAt = System.nanoTime();
+                }
+                batch.add(logger);
+                if (batch.size() >= batchSize) {
+                    write(batch);
+                }
+                continue;
+            }
+            boolean stopping = !running;
+            if (!batch.isEmpty() && (stopping || System.nanoTime() - firstAt >= flushIntervalNanos)) {
+                write(batch);
+            }
+            if (stopping && buffer.size() == 0) {
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+
+    private void write(List<NBLogger> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_SQL.length() + batch.size() * (ROW_VALUES.length() + 1)).append(INSERT_SQL);
+        Object[] args = new Object[batch.size() * 10];
+        int i = 0;
+        for (NBLogger l : batch) {
+            sql.append(i == 0 ? "" : ",").append(ROW_VALUES);
+            args[i++] = IdUtil.simpleUUID();
+            args[i++] = column(l.getUrl());
+            args[i++] = l.getTime() != null ? Timestamp.valueOf(l.getTime()) : null;
+            args[i++] = column(l.getSessionId());
+            args[i++] = column(l.getIpAddr());
+            args[i++] = column(l.getIpInfo());
+            args[i++] = column(l.getUserAgent());
+            args[i++] = column(l.getUsername());
+            args[i++] = column(l.getRequestMethod());
+            args[i++] = column(l.getContentType());
+        }
+        try {
+            jdbcTemplate.update(sql.toString(), args);
+            written.add(batch.size());
+        } catch (Exception e) {
+            failed.add(batch.size());
+            log.error("批量写入访问日志出错，丢弃本批日志：[{}] 条，错误信息：{}", batch.size(), e.getMessage());
+        }
+        batch.clear();
+    }
+
+    private static String column(String value) {
+        return value != null && value.length() > COLUMN_LENGTH ? StrUtil.sub(value, 0, COLUMN_LENGTH) : value;
+    }
+}
@@ -0,0 +1,41 @@
+package me.wuwenbin.noteblogv4.service.logger;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 访问日志（sys_logger）归档
+ * 超过保留天数的日志按天导出为压缩文件保存在本地磁盘，然后分小批从表中删除，需要时可以按天重新导入
+ * created by Wuwenbin on 2019/3/10 at 15:10
+ *
+ * @author wuwenbin
+ */
+public interface LoggerArchiveService {
+
+    /**
+     * 归档所有超过保留天数、并且已经完成访问量汇总的日志
+     *
+     * @return 本次归档的天数
+     */
+    int archive();
+
+    /**
+     * 把某一天的归档重新导入 sys_logger，已存在的记录（id 相同）会被跳过
+     * 导入时在归档文件旁边写一个 .restored 标记文件，restore-keep-days 天之内的归档任务跳过这一天，
+     * 过期之后导入的日志会被再次删除（不会重复写入归档文件），删除标记文件可以让下一次归档立即删除
+     *
+     * @param day
+     * @return 归档文件中的日志条数
+     * @throws IOException
+     */
+    int restore(LocalDate day) throws IOException;
+
+    /**
+     * 已有的归档文件，按日期倒序
+     *
+     * @return [day, file, size]
+     */
+    List<Map<String, Object>> listArchives();
+}
@@ -0,0 +1,328 @@
+package me.wuwenbin.noteblogv4.service.logger;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.LoggerRepository;
+import me.wuwenbin.noteblogv4.service.dashboard.TrafficRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 归档文件按天保存：{archive-path}/yyyy/MM/sys_logger-yyyy-MM-dd.tsv.gz，
+ * 内容是 gzip 压缩的制表符分隔文本，第一行为列名，null 写作 \N，值中的 \ 制表符 换行 会被转义；
+ * 导出时按 (time, id) 分段读取，每次最多 batch-size 条，内存占用与当天日志量无关；
+ * 先写临时文件，写完之后改名，然后每次删除 batch-size 条并短暂停顿，避免长时间锁表；
+ * 某天的归档文件已经存在时（上次删除中断或者导入过），只删除不再导出；
+ * 导入过的日期有 sys_logger-yyyy-MM-dd.restored 标记文件，restore-keep-days 天之内跳过，过期之后删除标记文件并照常归档
+ * 定时任务线程池见 SchedulingConfig，归档耗时再长也只占用其中一个线程
+ * created by Wuwenbin on 2019/3/10 at 15:30
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class LoggerArchiveServiceImpl implements LoggerArchiveService {
+
+    private static final String COLUMNS = "id, url, time, session_id, ip_addr, ip_info, user_agent, username, request_method, content_type";
+    private static final int COLUMN_COUNT = 10;
+    private static final int TIME_COLUMN = 2;
+    private static final String SELECT_SQL = "SELECT " + COLUMNS + " FROM sys_logger WHERE time >= ? AND time < ? " +
+            "AND (time > ? OR (time = ? AND id > ?)) ORDER BY time, id LIMIT ?";
+    private static final String DELETE_SQL = "DELETE FROM sys_logger WHERE time >= ? AND time < ? LIMIT ?";
+    private static final String INSERT_SQL = "INSERT IGNORE INTO sys_logger (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String FILE_PREFIX = "sys_logger-";
+    private static final String FILE_SUFFIX = ".tsv.gz";
+    private static final String RESTORED_SUFFIX = ".restored";
+    private static final String NULL = "\\N";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LoggerRepository loggerRepository;
+    private final TrafficRollupService trafficRollupService;
+    private final Path root;
+    private final int retentionDays;
+    private final int batchSize;
+    private final long batchPause;
+    private final int restoreKeepDays;
+
+    @Autowired
+    public LoggerArchiveServiceImpl(JdbcTemplate jdbcTemplate, LoggerRepository loggerRepository,
+                                    TrafficRollupService trafficRollupService, Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.loggerRepository = loggerRepository;
+        this.trafficRollupService = trafficRollupService;
+        String defaultPath = System.getProperty("user.home") + "/.noteblogv4/logger/";
+        this.root = Paths.get(env.getProperty("noteblog.logger.archive-path", defaultPath).replace("file:", ""));
+        this.retentionDays = env.getProperty("noteblog.logger.retention-days", Integer.class, 90);
+        this.batchSize = Math.max(1, env.getProperty("noteblog.logger.archive-batch-size", Integer.class, 1000));
+        this.batchPause = env.getProperty("noteblog.logger.archive-batch-pause", Long.class, 100L);
+        this.restoreKeepDays = env.getProperty("noteblog.logger.restore-keep-days", Integer.class, 7);
+    }
+
+    @Override
+    @Scheduled(cron = "${noteblog.logger.archive-cron:0 30 3 * * ?}")
+    public synchronized int archive() {
+        if (retentionDays <= 0) {
+            return 0;
+        }
+        LocalDateTime watermark = trafficRollupService.watermark();
+        if (watermark == null) {
+            log.info("访问量还没有汇总过，暂不归档访问日志");
+            return 0;
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        LocalDate limit = watermark.toLocalDate().isBefore(cutoff) ? watermark.toLocalDate() : cutoff;
+        int days = 0;
+        LocalDateTime first = loggerRepository.findMinTime();
+        while (first != null && first.toLocalDate().isBefore(limit)) {
+            LocalDate day = first.toLocalDate();
+            try {
+                if (restored(day)) {
+                    log.info("[{}] 的访问日志是从归档导入的，[{}] 天之内不再归档", day, restoreKeepDays);
+                } else if (archiveDay(day) == 0) {
+                    break;
+                } else {
+                    days++;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("归档 [{}] 的访问日志出错，停止本次归档", day, e);
+                break;
+            }
+            first = loggerRepository.findMinTimeFrom(day.plusDays(1).atStartOfDay());
+        }
+        return days;
+    }
+
+    @Override
+    public int restore(LocalDate day) throws IOException {
+        Path file = file(day);
+        if (!Files.isRegularFile(file)) {
+            throw new FileNotFoundException("没有 " + day + " 的访问日志归档");
+        }
+        //先写标记，导入期间开始的归档任务也会跳过这一天
+        Files.write(marker(day), LocalDateTime.now().toString().getBytes(StandardCharsets.UTF_8));
+        int rows = 0;
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                batch.add(parse(line));
+                rows++;
+                if (batch.size() >= batchSize) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        }
+        log.info("导入 [{}] 的访问日志归档完毕，共计：[{}] 条", day, rows);
+        return rows;
+    }
+
+    @Override
+    public List<Map<String, Object>> listArchives() {
+        if (!Files.isDirectory(root)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.walk(root, 3)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(FILE_PREFIX) && f.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted(Comparator.comparing((Path f) -> f.getFileName().toString()).reversed())
+                    .map(f -> {
+                        String name = f.getFileName().toString();
+                        Map<String, Object> archive = new LinkedHashMap<>(3);
+                        archive.put("day", name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                        archive.put("file", root.relativize(f).toString());
+                        archive.put("size", f.toFile().length());
+                        return archive;
+                    })
+                    .collect(toList());
+        } catch (IOException e) {
+            log.error("读取访问日志归档目录出错", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 归档一天的日志
+     *
+     * @param day
+     * @return 删除的条数
+     * @throws IOException
+     */
+    private long archiveDay(LocalDate day) throws IOException {
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        Path file = file(day);
+        long exported = 0;
+        if (!Files.exists(file)) {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            exported = export(from, to, tmp);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        long deleted = delete(from, to);
+        log.info("归档 [{}] 的访问日志完毕，导出：[{}] 条，删除：[{}] 条，归档文件：[{}]", day, exported, deleted, file.toAbsolutePath());
+        return deleted;
+    }
+
+    private long export(Timestamp from, Timestamp to, Path tmp) throws IOException {
+        long total = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+            writer.write(COLUMNS.replace(", ", "\t"));
+            writer.write('\n');
+            Object[] cursor = {from, ""};
+            int[] chunk = new int[1];
+            do {
+                chunk[0] = 0;
+                jdbcTemplate.query(SELECT_SQL, (RowCallbackHandler) rs -> {
+                    StringBuilder line = new StringBuilder(256);
+                    for (int i = 1; i <= COLUMN_COUNT; i++) {
+                        Object value = i == TIME_COLUMN + 1 ? rs.getTimestamp(i) : rs.getString(i);
+                        line.append(i == 1 ? "" : "\t").append(value == null ? NULL : escape(value.toString()));
+                    }
+                    try {
+                        writer.write(line.append('\n').toString());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    cursor[0] = rs.getTimestamp(TIME_COLUMN + 1);
+                    cursor[1] = rs.getString(1);
+                    chunk[0]++;
+                }, from, to, cursor[0], cursor[0], cursor[1], batchSize);
+                total += chunk[0];
+            } while (chunk[0] == batchSize);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return total;
+    }
+
+    private long delete(Timestamp from, Timestamp to) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(DELETE_SQL, from, to, batchSize);
+            total += deleted;
+            if (deleted > 0 && batchPause > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(batchPause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } while (deleted == batchSize);
+        return total;
+    }
+
+    private Path file(LocalDate day) {
+        return root.resolve(String.format("%04d/%02d", day.getYear(), day.getMonthValue()))
+                .resolve(FILE_PREFIX + day + FILE_SUFFIX);
+    }
+
+    private Path marker(LocalDate day) {
+        return file(day).resolveSibling(FILE_PREFIX + day + RESTORED_SUFFIX);
+    }
+
+    /**
+     * 这一天是否在 restore-keep-days 天之内导入过，标记过期时顺便删除
+     *
+     * @param day
+     * @return
+     * @throws IOException
+     */
+    private boolean restored(LocalDate day) throws IOException {
+        Path marker = marker(day);
+        if (!Files.exists(marker)) {
+            return false;
+        }
+        long age = System.currentTimeMillis() - Files.getLastModifiedTime(marker).toMillis();
+        if (age < TimeUnit.DAYS.toMillis(restoreKeepDays)) {
+            return true;
+        }
+        Files.delete(marker);
+        return false;
+    }
+
+    private static Object[] parse(String line) {
+        String[] values = line.split("\t", -1);
+        if (values.length != COLUMN_COUNT) {
+            throw new IllegalArgumentException("访问日志归档格式有误：" + line);
+        }
+        Object[] args = new Object[COLUMN_COUNT];
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            String value = NULL.equals(values[i]) ? null : unescape(values[i]);
+            try {
+                args[i] = i == TIME_COLUMN && value != null ? Timestamp.valueOf(value) : value;
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("访问日志归档时间格式有误：" + value, e);
+            }
+        }
+        return args;
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
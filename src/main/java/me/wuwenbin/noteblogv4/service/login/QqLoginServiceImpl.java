@@ -5,12 +5,12 @@ import cn.hutool.http.HttpUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import lombok.extern.slf4j.Slf4j;
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
 import me.wuwenbin.noteblogv4.dao.repository.UserRepository;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
 import me.wuwenbin.noteblogv4.model.pojo.business.QqLoginModel;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -27,12 +27,12 @@ import static me.wuwenbin.noteblogv4.model.pojo.framework.NBR.ok;
 @Service
 public class QqLoginServiceImpl implements LoginService<QqLoginModel> {
 
-    private final ParamRepository paramRepository;
+    private final ParamStore paramStore;
     private final UserRepository userRepository;
 
     @Autowired
-    public QqLoginServiceImpl(ParamRepository paramRepository, UserRepository userRepository) {
-        this.paramRepository = paramRepository;
+    public QqLoginServiceImpl(ParamStore paramStore, UserRepository userRepository) {
+        this.paramStore = paramStore;
         this.userRepository = userRepository;
     }
 
@@ -40,8 +40,8 @@ public class QqLoginServiceImpl implements LoginService<QqLoginModel> {
     @Override
     public NBR doLogin(QqLoginModel model) {
         try {
-            String appId = paramRepository.findByName(NoteBlogV4.Param.APP_ID).getValue();
-            String appKey = paramRepository.findByName(NoteBlogV4.Param.APP_KEY).getValue();
+            String appId = paramStore.get(NoteBlogV4.Param.APP_ID);
+            String appKey = paramStore.get(NoteBlogV4.Param.APP_KEY);
 
             Map<String, Object> p1 = MapUtil.of("grant_type", "authorization_code");
             p1.put("client_id", appId);
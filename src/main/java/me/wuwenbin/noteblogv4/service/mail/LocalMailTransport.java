@@ -0,0 +1,58 @@
+package me.wuwenbin.noteblogv4.service.mail;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地替身，不连接邮件服务器，每封邮件写成目录下的一个 .eml 文件，用于开发和测试
+ * created by Wuwenbin on 2019/3/11 at 17:55
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+public class LocalMailTransport implements MailTransport {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    private final Path dir;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public LocalMailTransport(Environment env) {
+        String defaultPath = System.getProperty("user.home") + "/.noteblogv4/mail";
+        this.dir = Paths.get(env.getProperty("noteblog.mail.local-path", defaultPath).replace("file:", ""));
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public void send(String to, String subject, String content) {
+        LocalDateTime now = LocalDateTime.now();
+        Path file = dir.resolve(FILE_TIME.format(now) + "-" + sequence.incrementAndGet() + ".eml");
+        String mail = "Date: " + now + "\r\n" +
+                "To: " + to + "\r\n" +
+                "Subject: " + subject + "\r\n" +
+                "Content-Type: text/html; charset=UTF-8\r\n" +
+                "\r\n" + content + "\r\n";
+        try {
+            Files.createDirectories(dir);
+            Files.write(file, mail.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("邮件已写入 [{}]，收件人：[{}]，主题：[{}]", file.toAbsolutePath(), to, subject);
+    }
+}
@@ -0,0 +1,245 @@
+package me.wuwenbin.noteblogv4.service.mail;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HtmlUtil;
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.MailOutboxRepository;
+import me.wuwenbin.noteblogv4.model.entity.NBMailOutbox;
+import me.wuwenbin.noteblogv4.model.entity.NBMailOutbox.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static java.lang.Boolean.TRUE;
+
+/**
+ * 后台发送 nb_mail_outbox 中的邮件
+ * 调度线程每 poll-interval 毫秒取一批到期的邮件，逐封把 PENDING 改成 SENDING 领取，再交给发送线程池；
+ * 同一收件人的汇总邮件合并成一封，发送失败的按 retry-base * 2^(次数-1) 退避重试（不超过 retry-max），
+ * 失败 max-attempts 次后标记为 FAILED；领取时记下实例名（node-id）和时间，启动时只把本实例上次没有发完的 SENDING 改回 PENDING，
+ * 其他实例领取超过 claim-timeout 的邮件视为该实例已经宕掉，启动时和每小时清理时同样放回，所以一封邮件至少发送一次，极少数情况下会重复
+ * created by Wuwenbin on 2019/3/11 at 18:00
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Component
+public class MailOutboxSender {
+
+    private static final int ERROR_LENGTH = 500;
+    private static final int NODE_ID_LENGTH = 64;
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final MailTransport mailTransport;
+    private final ThreadPoolExecutor executor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBase;
+    private final long retryMax;
+    private final int keepDays;
+    private final long shutdownTimeout;
+    private final String nodeId;
+    private final long claimTimeout;
+
+    private volatile boolean running;
+    private volatile long lastPurge;
+
+    @Autowired
+    public MailOutboxSender(MailOutboxRepository mailOutboxRepository, MailTransport mailTransport, Environment env) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailTransport = mailTransport;
+        this.batchSize = Math.max(1, env.getProperty("noteblog.mail.batch-size", Integer.class, 50));
+        this.maxAttempts = Math.max(1, env.getProperty("noteblog.mail.max-attempts", Integer.class, 8));
+        this.retryBase = Math.max(1000, env.getProperty("noteblog.mail.retry-base", Long.class, 60000L));
+        this.retryMax = Math.max(retryBase, env.getProperty("noteblog.mail.retry-max", Long.class, TimeUnit.HOURS.toMillis(6)));
+        this.keepDays = env.getProperty("noteblog.mail.keep-days", Integer.class, 30);
+        this.shutdownTimeout = env.getProperty("noteblog.mail.shutdown-timeout", Long.class, 10000L);
+        this.nodeId = StrUtil.sub(env.getProperty("noteblog.mail.node-id", defaultNodeId(env)), 0, NODE_ID_LENGTH);
+        this.claimTimeout = env.getProperty("noteblog.mail.claim-timeout", Long.class, TimeUnit.MINUTES.toMillis(30));
+        int threads = Math.max(1, env.getProperty("noteblog.mail.sender-threads", Integer.class, 2));
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "mail-sender-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 本实例上次关闭时已经领取但没有发完的邮件，以及其他实例领取后超时的邮件重新放回队列，之后才开始发送
+     * 其他实例正在发送的邮件不动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int reset = releaseClaims(nodeId, LocalDateTime.now());
+        if (reset > 0) {
+            log.info("上次没有发送完的邮件重新放回队列，共计：[{}]，本实例：[{}]", reset, nodeId);
+        }
+        running = true;
+    }
+
+    @Scheduled(fixedDelayString = "${noteblog.mail.poll-interval:5000}")
+    public void poll() {
+        //线程池里还积压着上一批时先不取，领取的邮件尽量不在内存里久等
+        if (!running || executor.getQueue().size() >= batchSize) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            List<NBMailOutbox> due = mailOutboxRepository.findByStatusAndNextAttemptLessThanEqualOrderByNextAttempt(
+                    Status.PENDING, now, PageRequest.of(0, batchSize));
+            Map<String, List<NBMailOutbox>> digests = new LinkedHashMap<>();
+            for (NBMailOutbox mail : due) {
+                if (mailOutboxRepository.claim(mail.getId(), Status.PENDING, Status.SENDING, nodeId, now) == 0) {
+                    continue;
+                }
+                mail.setStatus(Status.SENDING);
+                mail.setClaimedBy(nodeId);
+                mail.setClaimedAt(now);
+                if (TRUE.equals(mail.getDigest())) {
+                    digests.computeIfAbsent(mail.getRecipient(), r -> new ArrayList<>()).add(mail);
+                } else {
+                    executor.execute(() -> send(Collections.singletonList(mail)));
+                }
+            }
+            digests.values().forEach(group -> executor.execute(() -> send(group)));
+            purge(now);
+        } catch (Exception e) {
+            log.error("读取待发送邮件出错，错误信息：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 应用关闭时不再领取新邮件，等待发送线程发完手上的，超时没有发完的留到下次启动
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS)) {
+            List<Runnable> dropped = executor.shutdownNow();
+            log.warn("「笔记博客」App 关闭中，邮件没有发送完，剩余 [{}] 批留到下次启动发送", dropped.size());
+        }
+    }
+
+    /**
+     * 发送一封邮件或者同一收件人的一组汇总邮件，并记录结果
+     *
+     * @param group
+     */
+    private void send(List<NBMailOutbox> group) {
+        NBMailOutbox first = group.get(0);
+        String subject;
+        String content;
+        if (group.size() == 1) {
+            subject = first.getSubject();
+            content = first.getContent();
+        } else {
+            subject = StrUtil.format("你有 {} 条新的评论通知", group.size());
+            content = group.stream()
+                    .map(mail -> "<h4>" + HtmlUtil.escape(mail.getSubject()) + "</h4>" + mail.getContent())
+                    .collect(Collectors.joining("<hr/>"));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            mailTransport.send(first.getRecipient(), subject, content);
+            group.forEach(mail -> {
+                mail.setAttempts(mail.getAttempts() + 1);
+                mail.setStatus(Status.SENT);
+                mail.setSent(now);
+                mail.setLastError(null);
+            });
+        } catch (Exception e) {
+            String error = StrUtil.sub(StrUtil.nullToDefault(e.getMessage(), e.getClass().getName()), 0, ERROR_LENGTH);
+            group.forEach(mail -> {
+                int attempts = mail.getAttempts() + 1;
+                mail.setAttempts(attempts);
+                mail.setLastError(error);
+                if (attempts >= maxAttempts) {
+                    mail.setStatus(Status.FAILED);
+                } else {
+                    mail.setStatus(Status.PENDING);
+                    mail.setNextAttempt(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(backoff(attempts))));
+                }
+            });
+            log.warn("发送邮件给 [{}] 失败，第 [{}] 次，错误信息：{}", first.getRecipient(), first.getAttempts(), error);
+        }
+        try {
+            mailOutboxRepository.saveAll(group);
+        } catch (Exception e) {
+            log.error("保存邮件发送结果出错，这些邮件下次启动或者领取超时后重新发送，错误信息：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 主机名:端口，取不到主机名时用 localhost
+     *
+     * @param env
+     * @return
+     */
+    private static String defaultNodeId(Environment env) {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return host + ":" + env.getProperty("server.port", "80");
+    }
+
+    private long backoff(int attempts) {
+        return Math.min(retryMax, retryBase << Math.min(attempts - 1, 20));
+    }
+
+    /**
+     * node 领取的和领取时间超过 claim-timeout 的 SENDING 邮件改回 PENDING
+     *
+     * @param node 为 null 时只放回超时的
+     * @param now
+     * @return
+     */
+    private int releaseClaims(String node, LocalDateTime now) {
+        LocalDateTime before = now.minusNanos(TimeUnit.MILLISECONDS.toNanos(claimTimeout));
+        return mailOutboxRepository.releaseClaims(Status.SENDING, Status.PENDING, node, before);
+    }
+
+    /**
+     * 每小时放回一次其他实例超时未完成的邮件，并删除 keep-days 天之前创建的已结束邮件，keep-days 不大于 0 时全部保留
+     *
+     * @param now
+     */
+    private void purge(LocalDateTime now) {
+        long millis = System.currentTimeMillis();
+        if (millis - lastPurge < PURGE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastPurge = millis;
+        int released = releaseClaims(null, now);
+        if (released > 0) {
+            log.warn("其他实例领取后超时没有发送完的邮件重新放回队列，共计：[{}]", released);
+        }
+        if (keepDays <= 0) {
+            return;
+        }
+        int purged = mailOutboxRepository.deleteFinished(EnumSet.of(Status.SENT, Status.FAILED), now.minusDays(keepDays));
+        if (purged > 0) {
+            log.info("删除 [{}] 天之前的已结束邮件，共计：[{}]", keepDays, purged);
+        }
+    }
+}
@@ -9,7 +9,8 @@ import me.wuwenbin.noteblogv4.model.entity.NBArticle;
 public interface MailService {
 
     /**
-     * 发送评论通知邮件
+     * 给文章作者发送评论通知邮件，只放入待发送队列，由 {@link MailOutboxSender} 在后台发送；
+     * 作者设置了汇总间隔时，同一段时间内的通知合并成一封
      * @param site
      * @param article
      * @param comment
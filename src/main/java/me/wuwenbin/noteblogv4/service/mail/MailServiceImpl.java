@@ -1,64 +1,81 @@
 package me.wuwenbin.noteblogv4.service.mail;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.extra.mail.MailAccount;
-import cn.hutool.extra.mail.MailUtil;
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.MailOutboxRepository;
+import me.wuwenbin.noteblogv4.dao.repository.UserRepository;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
 import me.wuwenbin.noteblogv4.model.entity.NBArticle;
+import me.wuwenbin.noteblogv4.model.entity.NBMailOutbox;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
-import me.wuwenbin.noteblogv4.util.NBUtils;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Optional;
+
 /**
  * created by Wuwenbin on 2019-01-08 at 22:27
  *
  * @author wuwenbin
  */
+@Slf4j
 @Service
 public class MailServiceImpl implements MailService {
-    private final ParamRepository paramRepository;
+    private final ParamStore paramStore;
+    private final UserRepository userRepository;
+    private final MailOutboxRepository mailOutboxRepository;
+    private final MailTransport mailTransport;
+    private final int defaultDigestMinutes;
 
 
     @Autowired
-    public MailServiceImpl(ParamRepository paramRepository) {
-        this.paramRepository = paramRepository;
-
+    public MailServiceImpl(ParamStore paramStore, UserRepository userRepository, MailOutboxRepository mailOutboxRepository,
+                           MailTransport mailTransport, Environment env) {
+        this.paramStore = paramStore;
+        this.userRepository = userRepository;
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailTransport = mailTransport;
+        this.defaultDigestMinutes = env.getProperty("noteblog.mail.digest-minutes", Integer.class, 0);
     }
 
     @Override
     public void sendNoticeMail(String site, NBArticle article, String comment) {
-        String host = paramRepository.findByName(NoteBlogV4.Param.MAIL_SMPT_SERVER_ADDR).getValue();
-        String port = paramRepository.findByName(NoteBlogV4.Param.MAIL_SMPT_SERVER_PORT).getValue();
-        String from = paramRepository.findByName(NoteBlogV4.Param.MAIL_SERVER_ACCOUNT).getValue();
-        String user = paramRepository.findByName(NoteBlogV4.Param.MAIL_SENDER_NAME).getValue();
-        String pass = paramRepository.findByName(NoteBlogV4.Param.MAIL_SERVER_PASSWORD).getValue();
-        if (StrUtil.isNotEmpty(host)
-                && StrUtil.isNotEmpty(port)
-                && StrUtil.isNotEmpty(from)
-                && StrUtil.isNotEmpty(pass)) {
-            MailAccount account = new MailAccount();
-            account.setHost(host);
-            account.setPort(Integer.valueOf(port));
-            account.setAuth(true);
-            account.setSslEnable(true);
-            account.setFrom(from);
-            account.setUser(user);
-            account.setPass(pass);
-            NBSysUser u = NBUtils.getSessionUser();
-            String targetMail = u != null ? u.getEmail() : host;
+        if (!mailTransport.isAvailable()) {
+            return;
+        }
+        Optional<NBSysUser> author = Optional.ofNullable(article.getAuthorId()).flatMap(userRepository::findById);
+        String targetMail = author.map(NBSysUser::getEmail).filter(StrUtil::isNotEmpty)
+                .orElse(paramStore.get(NoteBlogV4.Param.MAIL_SERVER_ACCOUNT));
+        if (StrUtil.isEmpty(targetMail)) {
+            return;
+        }
+        int digestMinutes = author.map(NBSysUser::getMailDigestMinutes).orElse(defaultDigestMinutes);
 
-            String subject = "你的文章 - 【{}】 有人发表评论了";
-            String content = "<p>您发布的文章{}有人发表了新评论：</p>" +
-                    "<p style='font-style:italic;'>{}</p>" +
-                    "<p>，请<a href='{}article/{}' target='_blank'>查看</a></p>";
-            MailUtil.send(account,
-                    CollUtil.newArrayList(targetMail),
-                    StrUtil.format(subject, article.getTitle()),
-                    StrUtil.format(content, article.getTitle(), comment, site, article.getId()),
-                    true);
+        String subject = "你的文章 - 【{}】 有人发表评论了";
+        String content = "<p>您发布的文章{}有人发表了新评论：</p>" +
+                "<p style='font-style:italic;'>{}</p>" +
+                "<p>，请<a href='{}article/{}' target='_blank'>查看</a></p>";
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            LocalDateTime nextAttempt = now;
+            if (digestMinutes > 0) {
+                //已经有等待中的汇总邮件就跟它一起发，否则从现在开始等 digestMinutes 分钟
+                LocalDateTime window = mailOutboxRepository.findDigestWindow(targetMail, NBMailOutbox.Status.PENDING);
+                nextAttempt = window != null && window.isAfter(now) ? window : now.plusMinutes(digestMinutes);
+            }
+            mailOutboxRepository.save(NBMailOutbox.builder()
+                    .recipient(targetMail)
+                    .subject(StrUtil.format(subject, article.getTitle()))
+                    .content(StrUtil.format(content, article.getTitle(), comment, site, article.getId()))
+                    .digest(digestMinutes > 0)
+                    .nextAttempt(nextAttempt)
+                    .created(now)
+                    .build());
+        } catch (Exception e) {
+            log.error("评论通知邮件放入待发送队列出错，错误信息：{}", e.getMessage());
         }
     }
 }
@@ -0,0 +1,26 @@
+package me.wuwenbin.noteblogv4.service.mail;
+
+/**
+ * 邮件的实际发送方式，由后台发送线程调用
+ * created by Wuwenbin on 2019/3/11 at 17:50
+ *
+ * @author wuwenbin
+ */
+public interface MailTransport {
+
+    /**
+     * 是否已经可以发送，不可以时不再把邮件放入待发送队列
+     *
+     * @return
+     */
+    boolean isAvailable();
+
+    /**
+     * 发送一封 html 邮件，失败时抛出异常
+     *
+     * @param to
+     * @param subject
+     * @param content
+     */
+    void send(String to, String subject, String content);
+}
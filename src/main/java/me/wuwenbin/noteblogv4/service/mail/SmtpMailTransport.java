@@ -0,0 +1,47 @@
+package me.wuwenbin.noteblogv4.service.mail;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.extra.mail.MailAccount;
+import cn.hutool.extra.mail.MailUtil;
+import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
+
+/**
+ * 通过后台设置的 SMTP 服务器（SSL）发送，每次发送时读取最新的设置
+ * created by Wuwenbin on 2019/3/11 at 17:50
+ *
+ * @author wuwenbin
+ */
+public class SmtpMailTransport implements MailTransport {
+
+    private final ParamStore paramStore;
+
+    public SmtpMailTransport(ParamStore paramStore) {
+        this.paramStore = paramStore;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return StrUtil.isNotEmpty(paramStore.get(NoteBlogV4.Param.MAIL_SMPT_SERVER_ADDR))
+                && StrUtil.isNotEmpty(paramStore.get(NoteBlogV4.Param.MAIL_SMPT_SERVER_PORT))
+                && StrUtil.isNotEmpty(paramStore.get(NoteBlogV4.Param.MAIL_SERVER_ACCOUNT))
+                && StrUtil.isNotEmpty(paramStore.get(NoteBlogV4.Param.MAIL_SERVER_PASSWORD));
+    }
+
+    @Override
+    public void send(String to, String subject, String content) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("邮件服务器没有设置");
+        }
+        MailAccount account = new MailAccount();
+        account.setHost(paramStore.get(NoteBlogV4.Param.MAIL_SMPT_SERVER_ADDR));
+        account.setPort(Integer.valueOf(paramStore.get(NoteBlogV4.Param.MAIL_SMPT_SERVER_PORT)));
+        account.setAuth(true);
+        account.setSslEnable(true);
+        account.setFrom(paramStore.get(NoteBlogV4.Param.MAIL_SERVER_ACCOUNT));
+        account.setUser(paramStore.get(NoteBlogV4.Param.MAIL_SENDER_NAME));
+        account.setPass(paramStore.get(NoteBlogV4.Param.MAIL_SERVER_PASSWORD));
+        MailUtil.send(account, CollUtil.newArrayList(to), subject, content, true);
+    }
+}
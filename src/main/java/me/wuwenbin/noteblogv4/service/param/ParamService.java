@@ -1,5 +1,8 @@
 package me.wuwenbin.noteblogv4.service.param;
 
+import me.wuwenbin.noteblogv4.model.entity.NBParam;
+
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,6 +22,21 @@ public interface ParamService {
      */
     <T> T getValueByName(String name);
 
+    /**
+     * 修改参数值，事务提交之后同步到 {@link ParamStore}
+     *
+     * @param name
+     * @param value
+     */
+    void updateValueByName(String name, String value);
+
+    /**
+     * 新增参数，事务提交之后同步到 {@link ParamStore}
+     *
+     * @param params
+     */
+    void saveParams(List<NBParam> params);
+
     /**
      * 初始化设置的保存
      *
@@ -4,11 +4,11 @@ import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
 import me.wuwenbin.noteblogv4.model.entity.NBParam;
 import me.wuwenbin.noteblogv4.util.NBUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import javax.transaction.Transactional;
+import java.util.List;
 import java.util.Map;
 
 import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.Param.STATISTIC_ANALYSIS;
@@ -23,16 +23,29 @@ import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.Param.STATISTIC_A
 public class ParamServiceImpl implements ParamService {
 
     private final ParamRepository paramRepository;
+    private final ParamStore paramStore;
 
     @Autowired
-    public ParamServiceImpl(ParamRepository paramRepository) {
+    public ParamServiceImpl(ParamRepository paramRepository, ParamStore paramStore) {
         this.paramRepository = paramRepository;
+        this.paramStore = paramStore;
     }
 
     @Override
     public <T> T getValueByName(String name) {
-        NBParam param = paramRepository.findByName(name);
-        return param != null ? param.getValue() : null;
+        //noinspection unchecked
+        return (T) paramStore.get(name);
+    }
+
+    @Override
+    public void updateValueByName(String name, String value) {
+        paramRepository.updateValueByName(name, value);
+        paramStore.put(name, value);
+    }
+
+    @Override
+    public void saveParams(List<NBParam> params) {
+        paramRepository.saveAll(params).forEach(paramStore::add);
     }
 
     @Override
@@ -43,9 +56,9 @@ public class ParamServiceImpl implements ParamService {
             if (!"username".equals(key) && !"password".equals(key)) {
                 if (!StringUtils.isEmpty(next.getValue())) {
                     String value = (String) next.getValue();
-                    paramRepository.updateInitParam(value, key);
+                    updateValueByName(key, value);
                     if ("upload_type".equals(key) && !"LOCAL".equals(next.getValue())) {
-                        paramRepository.updateInitParam("1", "is_open_oss_upload");
+                        updateValueByName("is_open_oss_upload", "1");
                     }
                 }
             }
@@ -53,13 +66,7 @@ public class ParamServiceImpl implements ParamService {
     }
 
     @Override
-    @Cacheable(value = "paramCache", key = "'statistic_analysis'")
     public boolean isOpenStatisticAnalysis() {
-        NBParam p = paramRepository.findByName(STATISTIC_ANALYSIS);
-        final String open = "1";
-        if (p != null) {
-            return open.equals(p.getValue());
-        }
-        return false;
+        return paramStore.getBoolean(STATISTIC_ANALYSIS);
     }
 }
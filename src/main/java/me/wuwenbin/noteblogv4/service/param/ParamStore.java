@@ -0,0 +1,251 @@
+package me.wuwenbin.noteblogv4.service.param;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
+import me.wuwenbin.noteblogv4.model.entity.NBParam;
+import me.wuwenbin.noteblogv4.util.NBUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * nb_param 的内存快照
+ * 启动完成后加载所有参数，读取参数只是一次 volatile 读加一次 map 查找，不再查询数据库；
+ * 参数通过 {@link ParamService} 修改，事务提交之后生成新的快照整体替换旧快照，版本号加一
+ * created by Wuwenbin on 2019/3/9 at 15:20
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Component
+public class ParamStore {
+
+    private final ParamRepository paramRepository;
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public ParamStore(ParamRepository paramRepository) {
+        this.paramRepository = paramRepository;
+    }
+
+    /**
+     * 当前快照的版本号，每次参数修改之后加一
+     *
+     * @return
+     */
+    public long version() {
+        return snapshot().version;
+    }
+
+    /**
+     * 是否存在此参数
+     *
+     * @param name
+     * @return
+     */
+    public boolean contains(String name) {
+        return snapshot().params.containsKey(name);
+    }
+
+    /**
+     * 参数值，不存在返回 null
+     *
+     * @param name
+     * @return
+     */
+    public String get(String name) {
+        NBParam param = snapshot().params.get(name);
+        return param != null ? param.getValue() : null;
+    }
+
+    /**
+     * 参数值，不存在或为空返回默认值
+     *
+     * @param name
+     * @param defaultValue
+     * @return
+     */
+    public String get(String name, String defaultValue) {
+        String value = get(name);
+        return StringUtils.isEmpty(value) ? defaultValue : value;
+    }
+
+    /**
+     * 整数类型的参数值，不存在或者不是数字返回默认值
+     *
+     * @param name
+     * @param defaultValue
+     * @return
+     */
+    public int getInt(String name, int defaultValue) {
+        String value = get(name);
+        if (StringUtils.isEmpty(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("参数 [{}] 的值 [{}] 不是数字，使用默认值 [{}]", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 开关类型的参数值，"1" 或 "true" 为开启
+     *
+     * @param name
+     * @return
+     */
+    public boolean getBoolean(String name) {
+        String value = get(name);
+        return "1".equals(value) || "true".equalsIgnoreCase(value);
+    }
+
+    /**
+     * 枚举类型的参数值，忽略大小写，匹配不到返回默认值
+     *
+     * @param name
+     * @param enumType
+     * @param defaultValue
+     * @param <E>
+     * @return
+     */
+    public <E extends Enum<E>> E getEnum(String name, Class<E> enumType, E defaultValue) {
+        String value = get(name);
+        if (value != null) {
+            for (E e : enumType.getEnumConstants()) {
+                if (e.name().equalsIgnoreCase(value.trim())) {
+                    return e;
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 参数对象的副本，不存在返回 null
+     *
+     * @param name
+     * @return
+     */
+    public NBParam getParam(String name) {
+        NBParam param = snapshot().params.get(name);
+        return param != null ? copy(param) : null;
+    }
+
+    /**
+     * level 大于等于 minLevel 的参数，name -> value，结果在同一个快照内只计算一次
+     *
+     * @param minLevel
+     * @return
+     */
+    public Map<String, String> getValuesByMinLevel(int minLevel) {
+        Snapshot s = snapshot();
+        return s.levelViews.computeIfAbsent(minLevel, level -> {
+            Map<String, String> values = new HashMap<>(64);
+            s.params.values().stream()
+                    .filter(p -> p.getLevel() != null && p.getLevel() >= level)
+                    .forEach(p -> values.put(p.getName(), p.getValue()));
+            return unmodifiableMap(values);
+        });
+    }
+
+    /**
+     * 修改参数值，在事务中调用时等事务提交之后再替换快照
+     *
+     * @param name
+     * @param value
+     */
+    public void put(String name, String value) {
+        NBUtils.afterCommit(() -> apply(name, value));
+    }
+
+    /**
+     * 新增的参数放入快照，在事务中调用时等事务提交之后再替换快照
+     *
+     * @param param
+     */
+    public void add(NBParam param) {
+        NBParam added = copy(param);
+        NBUtils.afterCommit(() -> apply(added));
+    }
+
+    /**
+     * 从数据库重新加载所有参数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        Map<String, NBParam> params = new HashMap<>(128);
+        paramRepository.findAll().forEach(p -> params.put(p.getName(), copy(p)));
+        Snapshot old = snapshot;
+        snapshot = new Snapshot(old == null ? 1 : old.version + 1, params);
+        log.info("加载系统参数完毕，共计参数数：[{}]", params.size());
+    }
+
+    private Snapshot snapshot() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                s = snapshot;
+            }
+        }
+        return s;
+    }
+
+    private synchronized void apply(String name, String value) {
+        Snapshot old = snapshot;
+        if (old == null) {
+            return;
+        }
+        NBParam param = old.params.get(name);
+        if (param == null) {
+            return;
+        }
+        Map<String, NBParam> params = new HashMap<>(old.params);
+        NBParam updated = copy(param);
+        updated.setValue(value);
+        params.put(name, updated);
+        snapshot = new Snapshot(old.version + 1, params);
+    }
+
+    private synchronized void apply(NBParam param) {
+        Snapshot old = snapshot;
+        if (old == null) {
+            return;
+        }
+        Map<String, NBParam> params = new HashMap<>(old.params);
+        params.put(param.getName(), param);
+        snapshot = new Snapshot(old.version + 1, params);
+    }
+
+    private static NBParam copy(NBParam p) {
+        return NBParam.builder().id(p.getId()).name(p.getName()).value(p.getValue())
+                .remark(p.getRemark()).level(p.getLevel()).orderIndex(p.getOrderIndex()).build();
+    }
+
+    /**
+     * 参数快照，创建后不再修改（levelViews 只是派生结果的缓存）
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final Map<String, NBParam> params;
+        private final Map<Integer, Map<String, String>> levelViews = new ConcurrentHashMap<>(4);
+
+        private Snapshot(long version, Map<String, NBParam> params) {
+            this.version = version;
+            this.params = params;
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package me.wuwenbin.noteblogv4.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.model.pojo.vo.SearchHit;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 单个类型的倒排索引，全部在内存中，BM25 打分
+ * <p>
+ * 磁盘上由两部分组成：
+ * segment 文件为某一时刻完整的索引（文档 + 倒排表，gzip 压缩），
+ * log 文件追加记录此后的每一次新增/修改/删除，启动时先读 segment 再重放 log，
+ * log 累积到一定条数后重新写出 segment 并清空 log
+ * created by Wuwenbin on 2019/3/5 at 10:02
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+final class SearchIndex {
+
+    private static final int MAGIC = 0x4E425358;
+    private static final int VERSION = 1;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_BOOST = 3;
+
+    private final String name;
+    private final Path segmentFile;
+    private final Path logFile;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 文档id -> 文档
+     */
+    private final Map<Long, Doc> docs = new HashMap<>(256);
+
+    /**
+     * 词 -> (文档id -> 词频)
+     */
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>(4096);
+
+    private long totalLength;
+    private DataOutputStream logOut;
+    private int logOps;
+    private volatile boolean loaded;
+
+    SearchIndex(String name, Path dir) {
+        this.name = name;
+        this.segmentFile = dir.resolve(name + ".seg");
+        this.logFile = dir.resolve(name + ".log");
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    void markLoaded() {
+        this.loaded = true;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int pendingLogOps() {
+        return logOps;
+    }
+
+    /**
+     * 新增或替换一篇文档
+     *
+     * @param id
+     * @param group   分组（分类id），没有分组的类型为 0
+     * @param visible 前台是否可见（草稿、隐藏的笔记为 false）
+     * @param title
+     * @param text    纯文本内容
+     */
+    void put(long id, long group, boolean visible, String title, String text) {
+        lock.writeLock().lock();
+        try {
+            putInternal(id, group, visible, title == null ? "" : title, text == null ? "" : text);
+            appendLog(OP_PUT, id, group, visible, title, text);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (removeInternal(id)) {
+                appendLog(OP_REMOVE, id, 0, false, null, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按 BM25 得分从高到低返回包含全部查询词的文档
+     *
+     * @param query
+     * @param group       不为空时只返回该分组的文档
+     * @param onlyVisible 是否只返回前台可见的文档
+     * @return
+     */
+    List<SearchHit> search(String query, Long group, boolean onlyVisible) {
+        List<String> tokens = distinctTokens(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            int n = docs.size();
+            if (n == 0) {
+                return Collections.emptyList();
+            }
+            double avgLength = (double) totalLength / n;
+            Map<Long, Double> scores = null;
+            for (String token : tokens) {
+                Map<Long, Double> tokenScores = new HashMap<>(64);
+                for (String term : expand(token)) {
+                    Map<Long, Integer> postingList = postings.get(term);
+                    if (postingList == null) {
+                        continue;
+                    }
+                    double idf = Math.log(1 + (n - postingList.size() + 0.5) / (postingList.size() + 0.5));
+                    for (Map.Entry<Long, Integer> p : postingList.entrySet()) {
+                        if (scores != null && !scores.containsKey(p.getKey())) {
+                            continue;
+                        }
+                        Doc doc = docs.get(p.getKey());
+                        int tf = p.getValue();
+                        double s = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * doc.length / avgLength));
+                        tokenScores.merge(p.getKey(), s, Double::sum);
+                    }
+                }
+                if (scores != null) {
+                    Map<Long, Double> previous = scores;
+                    tokenScores.replaceAll((id, s) -> s + previous.get(id));
+                }
+                scores = tokenScores;
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            List<SearchHit> hits = new ArrayList<>(scores.size());
+            for (Map.Entry<Long, Double> e : scores.entrySet()) {
+                Doc doc = docs.get(e.getKey());
+                if ((!onlyVisible || doc.visible) && (group == null || doc.group == group)) {
+                    hits.add(new SearchHit(e.getKey(), e.getValue()));
+                }
+            }
+            hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed()
+                    .thenComparing(Comparator.comparingLong(SearchHit::getId).reversed()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 截取文档中第一个命中位置附近的一段文本，命中的词用 em 标签包起来，其余内容做 html 转义
+     *
+     * @param id
+     * @param query
+     * @param width 截取的字符数
+     * @return 文档不存在时返回 null
+     */
+    String snippet(long id, String query, int width) {
+        String text;
+        lock.readLock().lock();
+        try {
+            Doc doc = docs.get(id);
+            if (doc == null) {
+                return null;
+            }
+            text = doc.text.isEmpty() ? doc.title : doc.text;
+        } finally {
+            lock.readLock().unlock();
+        }
+        String norm = SearchTokenizer.normalize(text);
+        boolean[] marks = new boolean[norm.length()];
+        int first = -1;
+        for (String token : distinctTokens(query)) {
+            for (int i = norm.indexOf(token); i >= 0; i = norm.indexOf(token, i + 1)) {
+                Arrays.fill(marks, i, i + token.length(), true);
+                first = first < 0 ? i : Math.min(first, i);
+            }
+        }
+        int start = first < 0 ? 0 : Math.max(0, first - width / 4);
+        int end = Math.min(text.length(), start + width);
+        StringBuilder sb = new StringBuilder(width + 32);
+        if (start > 0) {
+            sb.append("...");
+        }
+        boolean inMark = false;
+        for (int i = start; i < end; i++) {
+            if (marks[i] != inMark) {
+                sb.append(marks[i] ? "<em>" : "</em>");
+                inMark = marks[i];
+            }
+            escape(sb, text.charAt(i));
+        }
+        if (inMark) {
+            sb.append("</em>");
+        }
+        if (end < text.length()) {
+            sb.append("...");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 清空内存中的索引（重建之前调用）
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 批量重建时使用，不写 log，重建完成后调用 {@link #save()}
+     */
+    void putWithoutLog(long id, long group, boolean visible, String title, String text) {
+        lock.writeLock().lock();
+        try {
+            putInternal(id, group, visible, title == null ? "" : title, text == null ? "" : text);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 写出完整的 segment（先写临时文件再改名），成功之后清空 log
+     */
+    void save() throws IOException {
+        lock.readLock().lock();
+        try {
+            Files.createDirectories(segmentFile.getParent());
+            Path tmp = segmentFile.resolveSibling(segmentFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(tmp)), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(docs.size());
+                for (Map.Entry<Long, Doc> e : docs.entrySet()) {
+                    Doc doc = e.getValue();
+                    out.writeLong(e.getKey());
+                    out.writeLong(doc.group);
+                    out.writeBoolean(doc.visible);
+                    out.writeInt(doc.length);
+                    writeString(out, doc.title);
+                    writeString(out, doc.text);
+                }
+                out.writeInt(postings.size());
+                for (Map.Entry<String, Map<Long, Integer>> e : postings.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeInt(e.getValue().size());
+                    for (Map.Entry<Long, Integer> p : e.getValue().entrySet()) {
+                        out.writeLong(p.getKey());
+                        out.writeInt(p.getValue());
+                    }
+                }
+            }
+            synchronized (this) {
+                Files.move(tmp, segmentFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                closeLog();
+                Files.deleteIfExists(logFile);
+                logOps = 0;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 读取 segment 并重放 log
+     *
+     * @return segment 不存在或损坏时返回 false，需要从数据库重建
+     */
+    boolean load() {
+        if (!Files.exists(segmentFile)) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            totalLength = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(Files.newInputStream(segmentFile)), 64 * 1024))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    log.warn("索引 [{}] 的 segment 文件格式不匹配，将重建索引", name);
+                    return false;
+                }
+                int docCount = in.readInt();
+                for (int i = 0; i < docCount; i++) {
+                    long id = in.readLong();
+                    Doc doc = new Doc(in.readLong(), in.readBoolean(), in.readInt(), readString(in), readString(in));
+                    docs.put(id, doc);
+                    totalLength += doc.length;
+                }
+                Map<Long, List<String>> docTerms = new HashMap<>(docCount * 2);
+                int termCount = in.readInt();
+                for (int i = 0; i < termCount; i++) {
+                    String term = in.readUTF();
+                    int size = in.readInt();
+                    Map<Long, Integer> postingList = new HashMap<>(size * 2);
+                    for (int j = 0; j < size; j++) {
+                        long id = in.readLong();
+                        postingList.put(id, in.readInt());
+                        docTerms.computeIfAbsent(id, k -> new ArrayList<>()).add(term);
+                    }
+                    postings.put(term, postingList);
+                }
+                docTerms.forEach((id, terms) -> docs.get(id).terms = terms.toArray(new String[0]));
+            }
+            int replayed = replayLog();
+            log.info("加载索引 [{}] 完毕，文档数：[{}]，重放 log 条数：[{}]", name, docs.size(), replayed);
+            return true;
+        } catch (Exception e) {
+            log.warn("读取索引 [{}] 出错，将重建索引，错误信息：{}", name, e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    synchronized void close() {
+        closeLog();
+    }
+
+    private int replayLog() throws IOException {
+        if (!Files.exists(logFile)) {
+            return 0;
+        }
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                    long id = in.readLong();
+                    if (op == OP_PUT) {
+                        long group = in.readLong();
+                        boolean visible = in.readBoolean();
+                        String title = readString(in);
+                        String text = readString(in);
+                        putInternal(id, group, visible, title, text);
+                    } else {
+                        removeInternal(id);
+                    }
+                    count++;
+                } catch (EOFException e) {
+                    //最后一条记录可能没写完整（写入时进程退出），丢弃即可
+                    break;
+                }
+            }
+        }
+        logOps = count;
+        return count;
+    }
+
+    private void putInternal(long id, long group, boolean visible, String title, String text) {
+        removeInternal(id);
+        Map<String, Integer> tf = new HashMap<>(64);
+        List<String> titleTokens = SearchTokenizer.tokenize(title);
+        List<String> textTokens = SearchTokenizer.tokenize(text);
+        titleTokens.forEach(t -> tf.merge(t, TITLE_BOOST, Integer::sum));
+        textTokens.forEach(t -> tf.merge(t, 1, Integer::sum));
+        int length = titleTokens.size() * TITLE_BOOST + textTokens.size();
+        Doc doc = new Doc(group, visible, length, title, text);
+        doc.terms = tf.keySet().toArray(new String[0]);
+        tf.forEach((term, freq) -> postings.computeIfAbsent(term, k -> new HashMap<>(8)).put(id, freq));
+        docs.put(id, doc);
+        totalLength += length;
+    }
+
+    private boolean removeInternal(long id) {
+        Doc old = docs.remove(id);
+        if (old == null) {
+            return false;
+        }
+        totalLength -= old.length;
+        for (String term : old.terms) {
+            Map<Long, Integer> postingList = postings.get(term);
+            if (postingList != null) {
+                postingList.remove(id);
+                if (postingList.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 单字查询在词典中展开为所有包含该字的词，其余查询词原样返回
+     */
+    private Collection<String> expand(String token) {
+        if (!SearchTokenizer.isSingleCjk(token)) {
+            return Collections.singletonList(token);
+        }
+        List<String> terms = new ArrayList<>();
+        for (String term : postings.keySet()) {
+            if (term.indexOf(token.charAt(0)) >= 0) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static List<String> distinctTokens(String query) {
+        return new ArrayList<>(new LinkedHashSet<>(SearchTokenizer.tokenize(query)));
+    }
+
+    private synchronized void appendLog(byte op, long id, long group, boolean visible, String title, String text) {
+        try {
+            if (logOut == null) {
+                Files.createDirectories(logFile.getParent());
+                logOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile.toFile(), true)));
+            }
+            logOut.writeByte(op);
+            logOut.writeLong(id);
+            if (op == OP_PUT) {
+                logOut.writeLong(group);
+                logOut.writeBoolean(visible);
+                writeString(logOut, title == null ? "" : title);
+                writeString(logOut, text == null ? "" : text);
+            }
+            logOut.flush();
+            logOps++;
+        } catch (IOException e) {
+            log.error("写入索引 [{}] 的 log 出错，重启后该变更可能丢失，错误信息：{}", name, e.getMessage());
+        }
+    }
+
+    private void closeLog() {
+        if (logOut != null) {
+            try {
+                logOut.close();
+            } catch (IOException ignored) {
+            }
+            logOut = null;
+        }
+    }
+
+    private static void escape(StringBuilder sb, char c) {
+        switch (c) {
+            case '<':
+                sb.append("&lt;");
+                break;
+            case '>':
+                sb.append("&gt;");
+                break;
+            case '&':
+                sb.append("&amp;");
+                break;
+            case '"':
+                sb.append("&quot;");
+                break;
+            case '\'':
+                sb.append("&#39;");
+                break;
+            default:
+                sb.append(c);
+        }
+    }
+
+    /**
+     * writeUTF 有 64K 的长度限制，文章正文需要用 int 记录长度
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Doc {
+        private final long group;
+        private final boolean visible;
+        private final int length;
+        private final String title;
+        private final String text;
+        private String[] terms = new String[0];
+
+        private Doc(long group, boolean visible, int length, String title, String text) {
+            this.group = group;
+            this.visible = visible;
+            this.length = length;
+            this.title = title;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package me.wuwenbin.noteblogv4.service.search;
+
+import me.wuwenbin.noteblogv4.model.constant.SearchType;
+import me.wuwenbin.noteblogv4.model.entity.NBArticle;
+import me.wuwenbin.noteblogv4.model.entity.NBCloudFile;
+import me.wuwenbin.noteblogv4.model.entity.NBNote;
+import me.wuwenbin.noteblogv4.model.entity.NBProject;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 站内全文检索（文章、笔记、项目、云文件）
+ * 倒排索引在内存中，随内容的增删改增量更新，并持久化到本地磁盘
+ * created by Wuwenbin on 2019/3/5 at 14:20
+ *
+ * @author wuwenbin
+ */
+public interface SearchService {
+
+    /**
+     * 新增或更新文章的索引
+     *
+     * @param article
+     */
+    void index(NBArticle article);
+
+    /**
+     * 新增或更新笔记的索引
+     *
+     * @param note
+     */
+    void index(NBNote note);
+
+    /**
+     * 新增或更新项目的索引
+     *
+     * @param project
+     */
+    void index(NBProject project);
+
+    /**
+     * 新增或更新云文件的索引
+     *
+     * @param cloudFile
+     */
+    void index(NBCloudFile cloudFile);
+
+    /**
+     * 删除索引
+     *
+     * @param type
+     * @param id
+     */
+    void remove(SearchType type, long id);
+
+    /**
+     * 检索并按相关度分页，当前页的对象按 id 由 loader 批量查出
+     *
+     * @param type
+     * @param query       检索词
+     * @param group       分类id，为空则不限分类
+     * @param onlyVisible 是否只查前台可见的内容
+     * @param pageable    只使用页码和每页条数，排序固定为相关度
+     * @param loader      按 id 批量查询，返回结果不要求有序
+     * @param idGetter
+     * @param <T>
+     * @return
+     */
+    <T> Page<T> search(SearchType type, String query, Long group, boolean onlyVisible, Pageable pageable,
+                       Function<List<Long>, List<T>> loader, Function<T, Long> idGetter);
+
+    /**
+     * 生成检索结果的高亮摘要
+     *
+     * @param type
+     * @param ids
+     * @param query
+     * @return id -> 摘要（html，命中的词用 em 标签包裹）
+     */
+    Map<Long, String> snippets(SearchType type, Collection<Long> ids, String query);
+
+    /**
+     * 从数据库重建某一类型的索引
+     *
+     * @param type
+     */
+    void rebuild(SearchType type);
+
+    /**
+     * 把 log 合并进 segment
+     */
+    void compact();
+}
@@ -0,0 +1,255 @@
+package me.wuwenbin.noteblogv4.service.search;
+
+import cn.hutool.http.HtmlUtil;
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.dao.repository.ArticleRepository;
+import me.wuwenbin.noteblogv4.dao.repository.CloudFileRepository;
+import me.wuwenbin.noteblogv4.dao.repository.NoteRepository;
+import me.wuwenbin.noteblogv4.dao.repository.ProjectRepository;
+import me.wuwenbin.noteblogv4.model.constant.SearchType;
+import me.wuwenbin.noteblogv4.model.entity.NBArticle;
+import me.wuwenbin.noteblogv4.model.entity.NBCloudFile;
+import me.wuwenbin.noteblogv4.model.entity.NBNote;
+import me.wuwenbin.noteblogv4.model.entity.NBProject;
+import me.wuwenbin.noteblogv4.model.pojo.vo.SearchHit;
+import me.wuwenbin.noteblogv4.util.NBUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * 每种类型的索引在第一次使用时加载：优先读取本地的 segment + log，
+ * 文件不存在、损坏或文档数与数据库对不上时从数据库重建
+ * created by Wuwenbin on 2019/3/5 at 14:45
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+@Service
+public class SearchServiceImpl implements SearchService {
+
+    private static final int SNIPPET_WIDTH = 120;
+    private static final int REBUILD_PAGE_SIZE = 200;
+
+    private final ArticleRepository articleRepository;
+    private final NoteRepository noteRepository;
+    private final ProjectRepository projectRepository;
+    private final CloudFileRepository cloudFileRepository;
+    private final int compactOps;
+
+    private final Map<SearchType, SearchIndex> indexes = new EnumMap<>(SearchType.class);
+
+    @Autowired
+    public SearchServiceImpl(ArticleRepository articleRepository, NoteRepository noteRepository,
+                             ProjectRepository projectRepository, CloudFileRepository cloudFileRepository, Environment env) {
+        this.articleRepository = articleRepository;
+        this.noteRepository = noteRepository;
+        this.projectRepository = projectRepository;
+        this.cloudFileRepository = cloudFileRepository;
+        this.compactOps = env.getProperty("noteblog.search.compact-ops", Integer.class, 500);
+        String defaultPath = System.getProperty("user.home") + "/.noteblogv4/index/";
+        Path dir = Paths.get(env.getProperty("noteblog.search.path", defaultPath).replace("file:", ""));
+        for (SearchType type : SearchType.values()) {
+            indexes.put(type, new SearchIndex(type.name(), dir));
+        }
+        log.info("「笔记博客」App 全文索引目录：[{}]", dir.toAbsolutePath());
+    }
+
+    @Override
+    public void index(NBArticle article) {
+        if (article != null && article.getId() != null) {
+            long id = article.getId(), cateId = orZero(article.getCateId());
+            boolean visible = Boolean.FALSE.equals(article.getDraft());
+            String title = article.getTitle(), body = clean(article.getContent());
+            NBUtils.afterCommit(() -> index(SearchType.article).put(id, cateId, visible, title, body));
+        }
+    }
+
+    @Override
+    public void index(NBNote note) {
+        if (note != null && note.getId() != null) {
+            long id = note.getId();
+            boolean visible = !Boolean.FALSE.equals(note.getShow());
+            String title = note.getTitle(), body = note.getClearContent();
+            NBUtils.afterCommit(() -> index(SearchType.note).put(id, 0, visible, title, body));
+        }
+    }
+
+    @Override
+    public void index(NBProject project) {
+        if (project != null && project.getId() != null) {
+            long id = project.getId(), cateId = orZero(project.getCateId());
+            String title = project.getName(), body = clean(project.getDescription());
+            NBUtils.afterCommit(() -> index(SearchType.project).put(id, cateId, true, title, body));
+        }
+    }
+
+    @Override
+    public void index(NBCloudFile cloudFile) {
+        if (cloudFile != null && cloudFile.getId() != null) {
+            long id = cloudFile.getId(), cateId = orZero(cloudFile.getCateId());
+            String title = cloudFile.getName(), body = clean(cloudFile.getDescription());
+            NBUtils.afterCommit(() -> index(SearchType.cloudFile).put(id, cateId, true, title, body));
+        }
+    }
+
+    @Override
+    public void remove(SearchType type, long id) {
+        NBUtils.afterCommit(() -> index(type).remove(id));
+    }
+
+    @Override
+    public <T> Page<T> search(SearchType type, String query, Long group, boolean onlyVisible, Pageable pageable,
+                              Function<List<Long>, List<T>> loader, Function<T, Long> idGetter) {
+        List<SearchHit> hits = index(type).search(query, group, onlyVisible);
+        int from = (int) Math.min(pageable.getOffset(), hits.size());
+        int to = Math.min(from + pageable.getPageSize(), hits.size());
+        List<Long> ids = hits.subList(from, to).stream().map(SearchHit::getId).collect(toList());
+        if (ids.isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, hits.size());
+        }
+        Map<Long, T> found = loader.apply(ids).stream().collect(toMap(idGetter, identity()));
+        List<T> content = ids.stream().map(found::get).filter(Objects::nonNull).collect(toList());
+        return new PageImpl<>(content, pageable, hits.size());
+    }
+
+    @Override
+    public Map<Long, String> snippets(SearchType type, Collection<Long> ids, String query) {
+        SearchIndex index = index(type);
+        Map<Long, String> snippets = new HashMap<>(ids.size() * 2);
+        for (Long id : ids) {
+            String snippet = index.snippet(id, query, SNIPPET_WIDTH);
+            if (snippet != null) {
+                snippets.put(id, snippet);
+            }
+        }
+        return snippets;
+    }
+
+    @Override
+    public void rebuild(SearchType type) {
+        SearchIndex index = indexes.get(type);
+        synchronized (index) {
+            index.clear();
+            switch (type) {
+                case article:
+                    forEachPage(articleRepository, a -> index.putWithoutLog(a.getId(), orZero(a.getCateId()),
+                            Boolean.FALSE.equals(a.getDraft()), a.getTitle(), clean(a.getContent())));
+                    break;
+                case note:
+                    forEachPage(noteRepository, n -> index.putWithoutLog(n.getId(), 0,
+                            !Boolean.FALSE.equals(n.getShow()), n.getTitle(), n.getClearContent()));
+                    break;
+                case project:
+                    forEachPage(projectRepository, p -> index.putWithoutLog(p.getId(), orZero(p.getCateId()),
+                            true, p.getName(), clean(p.getDescription())));
+                    break;
+                case cloudFile:
+                    forEachPage(cloudFileRepository, f -> index.putWithoutLog(f.getId(), orZero(f.getCateId()),
+                            true, f.getName(), clean(f.getDescription())));
+                    break;
+                default:
+                    break;
+            }
+            save(type, index);
+            index.markLoaded();
+            log.info("重建索引 [{}] 完毕，文档数：[{}]", type, index.size());
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${noteblog.search.compact-interval:60000}")
+    public void compact() {
+        indexes.forEach((type, index) -> {
+            if (index.isLoaded() && index.pendingLogOps() >= compactOps) {
+                save(type, index);
+            }
+        });
+    }
+
+    /**
+     * 应用关闭前把所有已加载的索引写成 segment，下次启动不需要重放 log
+     */
+    @PreDestroy
+    public void saveOnShutdown() {
+        log.info("「笔记博客」App 关闭中，保存全文索引...");
+        indexes.forEach((type, index) -> {
+            if (index.isLoaded() && index.pendingLogOps() > 0) {
+                save(type, index);
+            }
+            index.close();
+        });
+    }
+
+    private SearchIndex index(SearchType type) {
+        SearchIndex index = indexes.get(type);
+        if (!index.isLoaded()) {
+            synchronized (index) {
+                if (!index.isLoaded()) {
+                    if (index.load() && index.size() == repository(type).count()) {
+                        index.markLoaded();
+                    } else {
+                        rebuild(type);
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    private JpaRepository<?, Long> repository(SearchType type) {
+        switch (type) {
+            case article:
+                return articleRepository;
+            case note:
+                return noteRepository;
+            case project:
+                return projectRepository;
+            default:
+                return cloudFileRepository;
+        }
+    }
+
+    private static void save(SearchType type, SearchIndex index) {
+        try {
+            index.save();
+        } catch (IOException e) {
+            log.error("保存索引 [{}] 出错，错误信息：{}", type, e.getMessage());
+        }
+    }
+
+    private static <T> void forEachPage(JpaRepository<T, Long> repository, Consumer<T> consumer) {
+        Page<T> page;
+        int pageNo = 0;
+        do {
+            page = repository.findAll(PageRequest.of(pageNo++, REBUILD_PAGE_SIZE));
+            page.getContent().forEach(consumer);
+        } while (page.hasNext());
+    }
+
+    private static String clean(String html) {
+        return html == null ? null : HtmlUtil.cleanHtmlTag(html);
+    }
+
+    private static long orZero(Long value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,97 @@
+package me.wuwenbin.noteblogv4.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分词：内容以中文为主，连续的中日韩字符切成二元组（bigram），只有一个字时保留单字；
+ * 连续的英文字母、数字作为一个词。分词前统一转小写、全角转半角
+ * created by Wuwenbin on 2019/3/5 at 9:30
+ *
+ * @author wuwenbin
+ */
+final class SearchTokenizer {
+
+    /**
+     * 过长的英文/数字串（如 base64、url）不作为词
+     */
+    private static final int MAX_WORD_LENGTH = 40;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 规范化文本，逐字符转换，长度不变，所以规范化之后的下标可以直接对应原文
+     *
+     * @param text
+     * @return
+     */
+    static String normalize(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c >= '！' && c <= '～') {
+                c = (char) (c - 0xFEE0);
+            } else if (c == '　') {
+                c = ' ';
+            }
+            chars[i] = Character.toLowerCase(c);
+        }
+        return new String(chars);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String s = normalize(text);
+        int len = s.length();
+        int i = 0;
+        while (i < len) {
+            char c = s.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < len && isCjk(s.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(s.substring(start, i));
+                } else {
+                    for (int j = start; j < i - 1; j++) {
+                        tokens.add(s.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < len && Character.isLetterOrDigit(s.charAt(i)) && !isCjk(s.charAt(i))) {
+                    i++;
+                }
+                if (i - start <= MAX_WORD_LENGTH) {
+                    tokens.add(s.substring(start, i));
+                }
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    /**
+     * 单个中文字符的查询词，索引中没有对应的 bigram，需要在词典中展开
+     *
+     * @param token
+     * @return
+     */
+    static boolean isSingleCjk(String token) {
+        return token.length() == 1 && isCjk(token.charAt(0));
+    }
+}
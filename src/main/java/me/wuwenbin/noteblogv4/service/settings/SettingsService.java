@@ -1,11 +1,10 @@
 package me.wuwenbin.noteblogv4.service.settings;
 
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
-import me.wuwenbin.noteblogv4.model.entity.NBParam;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
-import me.wuwenbin.noteblogv4.util.CacheUtils;
+import me.wuwenbin.noteblogv4.service.content.ArticlePageCacheService;
+import me.wuwenbin.noteblogv4.service.param.ParamService;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
 import me.wuwenbin.noteblogv4.util.NBUtils;
-import org.springframework.data.domain.Example;
 import org.springframework.util.StringUtils;
 
 import java.util.Map;
@@ -27,17 +26,15 @@ public interface SettingsService {
      * @return
      */
     default NBR update(String name, String value, Supplier<NBR> supplier) {
-        CacheUtils.getParamCache().clear();
         if (StringUtils.isEmpty(name)) {
             return NBR.error("参数 key 不能为空！");
         } else {
-            ParamRepository paramRepository = NBUtils.getBean(ParamRepository.class);
-            long cnt = paramRepository.count(Example.of(NBParam.builder().name(name).build()));
-            if (cnt == 0) {
+            if (!NBUtils.getBean(ParamStore.class).contains(name)) {
                 return NBR.error("不存在参数：" + name);
             } else {
                 final String val = value == null ? "" : value;
-                paramRepository.updateValueByName(name, val);
+                NBUtils.getBean(ParamService.class).updateValueByName(name, val);
+                NBUtils.getBean(ArticlePageCacheService.class).clear();
                 return supplier.get();
             }
         }
@@ -1,5 +1,6 @@
 package me.wuwenbin.noteblogv4.service.upload;
 
+import cn.hutool.core.util.HexUtil;
 import lombok.extern.slf4j.Slf4j;
 import me.wuwenbin.noteblogv4.dao.repository.UploadRepository;
 import me.wuwenbin.noteblogv4.model.constant.LayUploader;
@@ -8,16 +9,29 @@ import me.wuwenbin.noteblogv4.model.constant.Upload;
 import me.wuwenbin.noteblogv4.model.entity.NBUpload;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.transaction.Transactional;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Optional;
 import java.util.function.Consumer;
 
 /**
  * created by Wuwenbin on 2018/7/17 at 10:33
  * 本地上传的实现类
+ * 上传内容一边写入临时文件一边计算 SHA-256，不整个读进内存；文件按内容保存为 {类型}/{哈希前两位}/{哈希}.{扩展名}，
+ * 相同内容再次上传时直接返回已有的上传记录
  *
  * @author wuwenbin
  */
@@ -26,11 +40,17 @@ import java.util.function.Consumer;
 @Transactional(rollbackOn = Exception.class)
 public class LocalUploadServiceImpl implements UploadService<Object> {
 
+    private static final int MAX_EXT_LENGTH = 10;
+    private static final String TMP_DIR = ".tmp";
+
     private final UploadRepository uploadRepository;
+    private final String uploadPath;
 
     @Autowired
-    public LocalUploadServiceImpl(UploadRepository uploadRepository) {
+    public LocalUploadServiceImpl(UploadRepository uploadRepository, Environment env) {
         this.uploadRepository = uploadRepository;
+        //剔除字符串前缀：[file:]
+        this.uploadPath = env.getProperty("noteblog.upload.path", "").replace("file:", "");
     }
 
     @Override
@@ -42,7 +62,6 @@ public class LocalUploadServiceImpl implements UploadService<Object> {
     public <S> Object upload(MultipartFile fileObj, String reqType, Consumer<S> extra, S s) {
         try {
             NBUpload upload = uploadIt(fileObj, extra, s);
-            uploadRepository.saveAndFlush(upload);
             if (LAYUI_UPLOADER.equalsIgnoreCase(reqType)) {
                 return new LayUploader().ok("上传成功！", upload.getVirtualPath());
             } else if (NKEDITOR_UPLOADER.equalsIgnoreCase(reqType)) {
@@ -51,8 +70,7 @@ public class LocalUploadServiceImpl implements UploadService<Object> {
                 return NBR.ok("上传成功！", upload.getVirtualPath());
             }
         } catch (IOException e) {
-            e.printStackTrace();
-            log.error("上传图片/文件失败，错误信息：{}", e.getMessage());
+            log.error("上传图片/文件失败", e);
             if (LAYUI_UPLOADER.equalsIgnoreCase(reqType)) {
                 return new LayUploader().err("上传图片/文件失败，错误信息：" + e.getLocalizedMessage());
             } else if (NKEDITOR_UPLOADER.equalsIgnoreCase(reqType)) {
@@ -62,4 +80,70 @@ public class LocalUploadServiceImpl implements UploadService<Object> {
             }
         }
     }
+
+    @Override
+    public <S> NBUpload uploadIt(MultipartFile fileObj, Consumer<S> extra, S t) throws IOException {
+        String contentType = fileObj.getContentType();
+        String uploadPathPre = contentType != null && contentType.contains("image/") ? Upload.FileType.IMAGE : Upload.FileType.FILE;
+        //临时文件放在上传目录下不对外映射的 .tmp 目录，和目标文件在同一个文件系统，最后可以原子改名
+        Path tmpDir = Paths.get(uploadPath, TMP_DIR);
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(fileObj.getInputStream(), digest)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexUtil.encodeHexStr(digest.digest());
+            Optional<NBUpload> exist = uploadRepository.findFirstByHashOrderById(hash)
+                    .filter(u -> Files.isRegularFile(Paths.get(u.getDiskPath())));
+            if (exist.isPresent()) {
+                log.info("上传的文件已存在，直接使用：[{}]", exist.get().getVirtualPath());
+                extra.accept(t);
+                return exist.get();
+            }
+            String relativePath = uploadPathPre + "/" + hash.substring(0, 2) + "/" + hash + extension(fileObj.getOriginalFilename());
+            Path target = Paths.get(uploadPath + relativePath);
+            Files.createDirectories(target.getParent());
+            //同一文件系统内的重命名，内容相同的并发上传互相覆盖也没有影响
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            extra.accept(t);
+            return uploadRepository.saveAndFlush(NBUpload.builder()
+                    .diskPath(target.toAbsolutePath().toString())
+                    .virtualPath(Upload.FileType.VISIT_PATH.concat(relativePath))
+                    .upload(LocalDateTime.now())
+                    .type(contentType != null ? contentType : "application/octet-stream")
+                    .hash(hash)
+                    .build());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 取原文件名的扩展名（包括点符号），只保留开头的字母和数字，没有时返回空串
+     *
+     * @param fileName
+     * @return
+     */
+    private static String extension(String fileName) {
+        int dot = fileName == null ? -1 : fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return "";
+        }
+        int end = dot + 1;
+        while (end < fileName.length() && end - dot <= MAX_EXT_LENGTH && Character.isLetterOrDigit(fileName.charAt(end))
+                && fileName.charAt(end) < 128) {
+            end++;
+        }
+        return end > dot + 1 ? fileName.substring(dot, end).toLowerCase() : "";
+    }
 }
@@ -11,13 +11,13 @@ import com.qiniu.storage.Configuration;
 import com.qiniu.storage.UploadManager;
 import com.qiniu.util.Auth;
 import lombok.extern.slf4j.Slf4j;
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
 import me.wuwenbin.noteblogv4.model.constant.LayUploader;
 import me.wuwenbin.noteblogv4.model.constant.NkUploader;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
 import me.wuwenbin.noteblogv4.model.constant.Upload;
 import me.wuwenbin.noteblogv4.model.entity.NBUpload;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -37,11 +37,11 @@ import java.util.function.Consumer;
 @Transactional(rollbackOn = Exception.class)
 public class QiniuUploadServiceImpl implements UploadService<Object> {
 
-    private final ParamRepository paramRepository;
+    private final ParamStore paramStore;
 
     @Autowired
-    public QiniuUploadServiceImpl(ParamRepository paramRepository) {
-        this.paramRepository = paramRepository;
+    public QiniuUploadServiceImpl(ParamStore paramStore) {
+        this.paramStore = paramStore;
     }
 
     @Override
@@ -58,7 +58,7 @@ public class QiniuUploadServiceImpl implements UploadService<Object> {
             if (res != null && res.isOK()) {
                 JSONObject respObj = JSONUtil.parseObj(res.bodyString());
                 String generateFileName = respObj.getStr("key");
-                String qiniuDomain = paramRepository.findByName(NoteBlogV4.Param.QINIU_DOMAIN).getValue();
+                String qiniuDomain = paramStore.get(NoteBlogV4.Param.QINIU_DOMAIN);
                 log.info("上传至七牛云服务器成功！，文件：[{}]", generateFileName);
                 extra.accept(s);
                 String src = qiniuDomain + "/" + generateFileName;
@@ -94,7 +94,7 @@ public class QiniuUploadServiceImpl implements UploadService<Object> {
             if (res != null && res.isOK()) {
                 JSONObject respObj = JSONUtil.parseObj(res.bodyString());
                 String generateFileName = respObj.getStr("key");
-                String qiniuDomain = paramRepository.findByName(NoteBlogV4.Param.QINIU_DOMAIN).getValue();
+                String qiniuDomain = paramStore.get(NoteBlogV4.Param.QINIU_DOMAIN);
                 extra.accept(t);
                 String src = qiniuDomain + "/" + generateFileName;
                 log.info("上传至七牛云服务器成功！，文件：[{}]", generateFileName);
@@ -119,9 +119,9 @@ public class QiniuUploadServiceImpl implements UploadService<Object> {
      * @return
      */
     private String getUpToken() {
-        String accessKey = paramRepository.findByName("qiniu_accessKey").getValue();
-        String secretKey = paramRepository.findByName("qiniu_secretKey").getValue();
-        String bucketName = paramRepository.findByName("qiniu_bucket").getValue();
+        String accessKey = paramStore.get("qiniu_accessKey");
+        String secretKey = paramStore.get("qiniu_secretKey");
+        String bucketName = paramStore.get("qiniu_bucket");
         //密钥配置
         Auth auth = Auth.create(accessKey, secretKey);
         //简单上传，使用默认策略，只需要设置上传的空间名就可以了
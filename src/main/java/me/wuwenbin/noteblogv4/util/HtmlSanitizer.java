@@ -0,0 +1,575 @@
+package me.wuwenbin.noteblogv4.util;
+
+import java.util.*;
+
+/**
+ * 白名单方式的 html 过滤，用于评论、留言、项目和云文件描述这类用户提交的片段
+ * 一遍扫描输入，同时得到过滤后的 html 和去掉标签的纯文本：
+ * 白名单内的标签和属性原样（重新转义后）输出，链接只保留 http/https/mailto 和相对地址，
+ * script、style 等元素连同内容一起丢弃，其余标签只丢弃标签本身、保留其中的文字，
+ * 未闭合的标签在末尾补齐，不会破坏页面结构
+ * created by Wuwenbin on 2019/3/11 at 17:20
+ *
+ * @author wuwenbin
+ */
+public final class HtmlSanitizer {
+
+    private static final Set<String> VOID_TAGS = set("br", "hr", "img");
+    private static final Set<String> ALLOWED_TAGS = set("a", "b", "blockquote", "br", "code", "del", "div", "em",
+            "h1", "h2", "h3", "h4", "h5", "h6", "hr", "i", "img", "li", "ol", "p", "pre", "s", "span", "strike",
+            "strong", "sub", "sup", "u", "ul");
+    private static final Set<String> DROP_CONTENT_TAGS = set("script", "style", "iframe", "frame", "frameset",
+            "object", "embed", "applet", "noscript", "noembed", "template", "textarea", "title", "xmp", "svg", "math");
+    private static final Map<String, Set<String>> TAG_ATTRIBUTES = new HashMap<>(4);
+    private static final Set<String> GLOBAL_ATTRIBUTES = set("class", "style", "title");
+    private static final Set<String> ALIGNS = set("left", "center", "right", "justify");
+    private static final Map<String, Character> ENTITIES = new HashMap<>(64);
+    private static final int MAX_DEPTH = 100;
+    private static final int MAX_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder[]> BUFFERS = ThreadLocal.withInitial(
+            () -> new StringBuilder[]{new StringBuilder(1024), new StringBuilder(1024)});
+
+    static {
+        TAG_ATTRIBUTES.put("a", set("href", "target"));
+        TAG_ATTRIBUTES.put("img", set("src", "alt", "width", "height"));
+        ENTITIES.put("lt", '<');
+        ENTITIES.put("gt", '>');
+        ENTITIES.put("amp", '&');
+        ENTITIES.put("quot", '"');
+        ENTITIES.put("apos", '\'');
+        ENTITIES.put("nbsp", ' ');
+        ENTITIES.put("colon", ':');
+        ENTITIES.put("tab", '\t');
+        ENTITIES.put("newline", '\n');
+        ENTITIES.put("copy", '\u00a9');
+        ENTITIES.put("reg", '\u00ae');
+        ENTITIES.put("trade", '\u2122');
+        ENTITIES.put("deg", '\u00b0');
+        ENTITIES.put("plusmn", '\u00b1');
+        ENTITIES.put("times", '\u00d7');
+        ENTITIES.put("divide", '\u00f7');
+        ENTITIES.put("middot", '\u00b7');
+        ENTITIES.put("yen", '\u00a5');
+        ENTITIES.put("euro", '\u20ac');
+        ENTITIES.put("pound", '\u00a3');
+        ENTITIES.put("sect", '\u00a7');
+        ENTITIES.put("laquo", '\u00ab');
+        ENTITIES.put("raquo", '\u00bb');
+        ENTITIES.put("lsquo", '\u2018');
+        ENTITIES.put("rsquo", '\u2019');
+        ENTITIES.put("ldquo", '\u201c');
+        ENTITIES.put("rdquo", '\u201d');
+        ENTITIES.put("ndash", '\u2013');
+        ENTITIES.put("mdash", '\u2014');
+        ENTITIES.put("hellip", '\u2026');
+        ENTITIES.put("larr", '\u2190');
+        ENTITIES.put("rarr", '\u2192');
+        ENTITIES.put("uarr", '\u2191');
+        ENTITIES.put("darr", '\u2193');
+        ENTITIES.put("ensp", '\u2002');
+        ENTITIES.put("emsp", '\u2003');
+        ENTITIES.put("thinsp", '\u2009');
+    }
+
+    private HtmlSanitizer() {
+    }
+
+    /**
+     * 过滤 html，同时生成纯文本
+     *
+     * @param html
+     * @return html 为 null 时返回的两项都为 null
+     */
+    public static Result sanitize(String html) {
+        if (html == null) {
+            return new Result(null, null);
+        }
+        StringBuilder[] buffers = BUFFERS.get();
+        StringBuilder out = buffers[0];
+        StringBuilder text = buffers[1];
+        out.setLength(0);
+        text.setLength(0);
+        try {
+            new Tokenizer(html, out, text).run();
+            return new Result(out.toString(), text.toString());
+        } finally {
+            if (out.capacity() > MAX_BUFFER) {
+                buffers[0] = new StringBuilder(1024);
+            }
+            if (text.capacity() > MAX_BUFFER) {
+                buffers[1] = new StringBuilder(1024);
+            }
+        }
+    }
+
+    /**
+     * 只需要纯文本（例如搜索词）时使用
+     *
+     * @param html
+     * @return
+     */
+    public static String text(String html) {
+        return sanitize(html).getText();
+    }
+
+    public static final class Result {
+        private final String html;
+        private final String text;
+
+        private Result(String html, String text) {
+            this.html = html;
+            this.text = text;
+        }
+
+        public String getHtml() {
+            return html;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    private static final class Tokenizer {
+        private final String in;
+        private final int len;
+        private final StringBuilder out;
+        private final StringBuilder text;
+        private final Deque<String> open = new ArrayDeque<>();
+        private final Map<String, String> attributes = new LinkedHashMap<>(8);
+        private int pos;
+
+        private Tokenizer(String in, StringBuilder out, StringBuilder text) {
+            this.in = in;
+            this.len = in.length();
+            this.out = out;
+            this.text = text;
+        }
+
+        private void run() {
+            while (pos < len) {
+                char c = in.charAt(pos);
+                if (c == '<') {
+                    markup();
+                } else if (c == '&') {
+                    entity();
+                } else {
+                    if (c == '>') {
+                        out.append("&gt;");
+                    } else {
+                        out.append(c);
+                    }
+                    text.append(c);
+                    pos++;
+                }
+            }
+            while (!open.isEmpty()) {
+                out.append("</").append(open.pop()).append('>');
+            }
+        }
+
+        /**
+         * 文本中的实体：认识的原样输出、纯文本中解码；
+         * 不认识的命名实体（例如 &amp;hearts;）浏览器解码后也只是普通字符，原样输出，纯文本中也保留原样；
+         * 其余不合法的 & 转义
+         */
+        private void entity() {
+            int end = entityEnd(pos);
+            int ch = end < 0 ? -1 : decodeEntity(pos + 1, end);
+            if (ch >= 0) {
+                out.append(in, pos, end + 1);
+                text.appendCodePoint(ch);
+                pos = end + 1;
+            } else if (end >= 0 && isLetter(in.charAt(pos + 1)) && isName(pos + 1, end)) {
+                out.append(in, pos, end + 1);
+                text.append(in, pos, end + 1);
+                pos = end + 1;
+            } else {
+                out.append("&amp;");
+                text.append('&');
+                pos++;
+            }
+        }
+
+        private boolean isName(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (!isLetter(in.charAt(i)) && !Character.isDigit(in.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void markup() {
+            int next = pos + 1;
+            if (in.startsWith("!--", next)) {
+                int end = in.indexOf("-->", next + 3);
+                pos = end < 0 ? len : end + 3;
+            } else if (next < len && (in.charAt(next) == '!' || in.charAt(next) == '?')) {
+                int end = in.indexOf('>', next);
+                pos = end < 0 ? len : end + 1;
+            } else if (next < len && in.charAt(next) == '/' && next + 1 < len && isLetter(in.charAt(next + 1))) {
+                endTag();
+            } else if (next < len && isLetter(in.charAt(next))) {
+                startTag();
+            } else {
+                out.append("&lt;");
+                text.append('<');
+                pos++;
+            }
+        }
+
+        private void endTag() {
+            pos += 2;
+            String name = tagName();
+            int end = in.indexOf('>', pos);
+            pos = end < 0 ? len : end + 1;
+            if (ALLOWED_TAGS.contains(name) && !VOID_TAGS.contains(name) && open.contains(name)) {
+                String tag;
+                do {
+                    tag = open.pop();
+                    out.append("</").append(tag).append('>');
+                } while (!tag.equals(name));
+            }
+        }
+
+        private void startTag() {
+            pos++;
+            String name = tagName();
+            attributes.clear();
+            boolean selfClosing = attributes();
+            if (DROP_CONTENT_TAGS.contains(name)) {
+                if (!selfClosing) {
+                    skipContent(name);
+                }
+                return;
+            }
+            boolean push = !VOID_TAGS.contains(name) && !selfClosing;
+            //嵌套过深的标签直接丢弃，结束标签的查找也就不会退化
+            if (!ALLOWED_TAGS.contains(name) || push && open.size() >= MAX_DEPTH) {
+                return;
+            }
+            out.append('<').append(name);
+            Set<String> tagAttributes = TAG_ATTRIBUTES.getOrDefault(name, Collections.emptySet());
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                String key = attribute.getKey();
+                if (tagAttributes.contains(key) || GLOBAL_ATTRIBUTES.contains(key)) {
+                    String value = attributeValue(name, key, attribute.getValue());
+                    if (value != null) {
+                        out.append(' ').append(key).append("=\"");
+                        escape(value);
+                        out.append('"');
+                    }
+                }
+            }
+            out.append('>');
+            if (push) {
+                open.push(name);
+            }
+        }
+
+        private String tagName() {
+            int start = pos;
+            while (pos < len && (isLetter(in.charAt(pos)) || Character.isDigit(in.charAt(pos)))) {
+                pos++;
+            }
+            return in.substring(start, pos).toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * 读取属性直到 >，属性值中的实体已解码
+         *
+         * @return 是否以 /> 结尾
+         */
+        private boolean attributes() {
+            boolean selfClosing = false;
+            while (pos < len) {
+                char c = in.charAt(pos);
+                if (c == '>') {
+                    pos++;
+                    return selfClosing;
+                }
+                if (Character.isWhitespace(c) || c == '/') {
+                    selfClosing = c == '/';
+                    pos++;
+                    continue;
+                }
+                selfClosing = false;
+                int start = pos;
+                while (pos < len && "\t\n\f\r />=".indexOf(in.charAt(pos)) < 0) {
+                    pos++;
+                }
+                String key = in.substring(start, pos).toLowerCase(Locale.ROOT);
+                skipWhitespace();
+                String value = "";
+                if (pos < len && in.charAt(pos) == '=') {
+                    pos++;
+                    skipWhitespace();
+                    value = attributeRaw();
+                }
+                attributes.putIfAbsent(key, decode(value));
+            }
+            return selfClosing;
+        }
+
+        private String attributeRaw() {
+            if (pos >= len) {
+                return "";
+            }
+            char quote = in.charAt(pos);
+            int start;
+            int end;
+            if (quote == '"' || quote == '\'') {
+                start = pos + 1;
+                end = in.indexOf(quote, start);
+                end = end < 0 ? len : end;
+                pos = Math.min(len, end + 1);
+            } else {
+                start = pos;
+                while (pos < len && !Character.isWhitespace(in.charAt(pos)) && in.charAt(pos) != '>') {
+                    pos++;
+                }
+                end = pos;
+            }
+            return in.substring(start, end);
+        }
+
+        private void skipWhitespace() {
+            while (pos < len && Character.isWhitespace(in.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        /**
+         * 跳过 script 这类元素的全部内容，直到对应的结束标签
+         *
+         * @param name
+         */
+        private void skipContent(String name) {
+            String close = "</" + name;
+            int from = pos;
+            while (true) {
+                int end = indexOfIgnoreCase(close, from);
+                if (end < 0) {
+                    pos = len;
+                    return;
+                }
+                int after = end + close.length();
+                if (after >= len || !isLetter(in.charAt(after)) && !Character.isDigit(in.charAt(after))) {
+                    int gt = in.indexOf('>', after);
+                    pos = gt < 0 ? len : gt + 1;
+                    return;
+                }
+                from = after;
+            }
+        }
+
+        private int indexOfIgnoreCase(String target, int from) {
+            for (int i = from; i <= len - target.length(); i++) {
+                if (in.regionMatches(true, i, target, 0, target.length())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void escape(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '&':
+                        out.append("&amp;");
+                        break;
+                    case '"':
+                        out.append("&quot;");
+                        break;
+                    case '<':
+                        out.append("&lt;");
+                        break;
+                    case '>':
+                        out.append("&gt;");
+                        break;
+                    default:
+                        out.append(c);
+                }
+            }
+        }
+
+        /**
+         * 找到从 start（&）开始的实体的结尾分号，最长 32 个字符
+         */
+        private int entityEnd(int start) {
+            for (int i = start + 1; i < len && i - start <= 32; i++) {
+                char c = in.charAt(i);
+                if (c == ';') {
+                    return i > start + 1 ? i : -1;
+                }
+                if (!isLetter(c) && !Character.isDigit(c) && c != '#') {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        private int decodeEntity(int start, int end) {
+            return HtmlSanitizer.decodeEntity(in, start, end);
+        }
+    }
+
+    /**
+     * 属性值是否可以保留，可以的话返回要输出的值
+     *
+     * @param tag
+     * @param key
+     * @param value 已解码
+     * @return null 表示去掉该属性
+     */
+    private static String attributeValue(String tag, String key, String value) {
+        switch (key) {
+            case "href":
+                return safeUrl(value, true);
+            case "src":
+                return safeUrl(value, false);
+            case "target":
+                return "_blank".equalsIgnoreCase(value.trim()) ? "_blank" : null;
+            case "width":
+            case "height":
+                return value.matches("\\d{1,4}%?") ? value : null;
+            case "class":
+                return value.matches("[\\w\\- ]{0,100}") ? value : null;
+            case "style":
+                return safeStyle(value);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * 只保留 http、https、mailto（仅链接）和相对地址，判断之前去掉空白和控制字符
+     */
+    private static String safeUrl(String value, boolean link) {
+        StringBuilder url = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c > ' ' && c != 0x7f) {
+                url.append(c);
+            }
+        }
+        String u = url.toString();
+        for (int i = 0; i < u.length(); i++) {
+            char c = u.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            if (c == ':') {
+                String scheme = u.substring(0, i).toLowerCase(Locale.ROOT);
+                boolean allowed = "http".equals(scheme) || "https".equals(scheme) || link && "mailto".equals(scheme);
+                return allowed ? u : null;
+            }
+        }
+        return u.isEmpty() ? null : u;
+    }
+
+    /**
+     * 编辑器的对齐按钮会生成 text-align，除此之外的样式都去掉
+     */
+    private static String safeStyle(String value) {
+        StringBuilder style = new StringBuilder();
+        for (String declaration : value.split(";")) {
+            int colon = declaration.indexOf(':');
+            if (colon > 0) {
+                String property = declaration.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String v = declaration.substring(colon + 1).trim().toLowerCase(Locale.ROOT);
+                if ("text-align".equals(property) && ALIGNS.contains(v)) {
+                    style.append("text-align: ").append(v).append(';');
+                }
+            }
+        }
+        return style.length() == 0 ? null : style.toString();
+    }
+
+    /**
+     * 解码属性值里的实体，防止用 &amp;#106;avascript: 之类的写法绕过协议检查
+     */
+    private static String decode(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == '&') {
+                int end = entityNameEnd(value, i + 1);
+                //和浏览器一样，分号可以省略
+                int ch = decodeEntity(value, i + 1, end);
+                if (ch >= 0) {
+                    sb.appendCodePoint(ch);
+                    i = end < value.length() && value.charAt(end) == ';' ? end + 1 : end;
+                    continue;
+                }
+            }
+            sb.append(c);
+            i++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 实体名称的结尾：数字实体只取数字部分（&#106avascript 按 j + avascript 处理），命名实体取字母和数字
+     */
+    private static int entityNameEnd(String value, int start) {
+        int end = start;
+        if (end < value.length() && value.charAt(end) == '#') {
+            end++;
+            boolean hex = end < value.length() && (value.charAt(end) == 'x' || value.charAt(end) == 'X');
+            if (hex) {
+                end++;
+            }
+            while (end < value.length() && end - start <= 32
+                    && (Character.isDigit(value.charAt(end)) || hex && "abcdefABCDEF".indexOf(value.charAt(end)) >= 0)) {
+                end++;
+            }
+            return end;
+        }
+        while (end < value.length() && end - start <= 32
+                && (isLetter(value.charAt(end)) || Character.isDigit(value.charAt(end)))) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * 解码 [start, end) 之间的实体名称（不含 & 和 ;）
+     *
+     * @return 不认识的实体返回 -1
+     */
+    private static int decodeEntity(String s, int start, int end) {
+        if (end <= start) {
+            return -1;
+        }
+        if (s.charAt(start) == '#') {
+            boolean hex = end > start + 1 && (s.charAt(start + 1) == 'x' || s.charAt(start + 1) == 'X');
+            int from = hex ? start + 2 : start + 1;
+            if (from >= end || end - from > 8) {
+                return -1;
+            }
+            try {
+                int cp = Integer.parseInt(s.substring(from, end), hex ? 16 : 10);
+                return Character.isValidCodePoint(cp) && cp != 0 ? cp : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        Character ch = ENTITIES.get(s.substring(start, end).toLowerCase(Locale.ROOT));
+        return ch == null ? -1 : ch;
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
@@ -2,9 +2,6 @@ package me.wuwenbin.noteblogv4.util;
 
 import cn.hutool.core.map.MapUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HttpUtil;
-import cn.hutool.json.JSONObject;
-import cn.hutool.json.JSONUtil;
 import lombok.extern.slf4j.Slf4j;
 import me.wuwenbin.noteblogv4.config.application.NBContext;
 import me.wuwenbin.noteblogv4.exception.MethodNotMatchException;
@@ -13,12 +10,15 @@ import me.wuwenbin.noteblogv4.model.constant.Upload;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
 import me.wuwenbin.noteblogv4.model.pojo.business.Base64MultipartFile;
 import me.wuwenbin.noteblogv4.model.pojo.business.IpInfo;
-import me.wuwenbin.noteblogv4.service.param.ParamService;
+import me.wuwenbin.noteblogv4.service.geo.IpLocationService;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
 import me.wuwenbin.noteblogv4.service.upload.UploadService;
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -30,9 +30,7 @@ import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.util.*;
-import java.util.regex.Pattern;
 
-import static java.util.regex.Pattern.*;
 import static org.springframework.util.StringUtils.isEmpty;
 
 /**
@@ -198,23 +196,13 @@ public class NBUtils implements ApplicationContextAware {
     }
 
     /**
-     * http请求获取ip对象
+     * 查询本地ip地址库获取ip对象
      *
      * @param ip
      * @return
      */
     public static IpInfo getIpInfo(String ip) {
-        String url = "http://ip.taobao.com/service/getIpInfo.php?ip=" + ip;
-        String resp = HttpUtil.get(url);
-        log.info("请求 ip.taobao.com，请求参数：{}", ip);
-        try {
-            JSONObject jsonObject = JSONUtil.parseObj(resp);
-            return jsonObject.toBean(IpInfo.class);
-        } catch (Exception e) {
-            log.error("返回结果：" + resp);
-            log.error("解析json出错，返回结果有误", e);
-            return IpInfo.builder().data(null).code(1).build();
-        }
+        return getBean(IpLocationService.class).lookup(ip);
     }
 
     /**
@@ -230,7 +218,10 @@ public class NBUtils implements ApplicationContextAware {
         }
         boolean isLocal = ipInfo.getData().getIp().contains("127.0.0.1") || ipInfo.getData().getIp().contains("localhost");
         String temp = ipInfo.getData().getCountry() + ipInfo.getData().getRegion() + ipInfo.getData().getCity();
-        if (!ipInfo.getData().getCounty().toLowerCase().contains(undefined) && !isLocal) {
+        if (temp.isEmpty()) {
+            return "未知位置";
+        }
+        if (!StringUtils.isEmpty(ipInfo.getData().getCounty()) && !ipInfo.getData().getCounty().toLowerCase().contains(undefined) && !isLocal) {
             return temp + ipInfo.getData().getCounty();
         } else {
             return temp;
@@ -277,9 +268,8 @@ public class NBUtils implements ApplicationContextAware {
     public static <T> UploadService<T> getUploadServiceByConfig() {
         final String name = NoteBlogV4.Param.UPLOAD_TYPE;
         final String local = "local", qiniu = "qiniu";
-        String config = applicationContext.getBean(ParamService.class).getValueByName(name);
-        if (config != null) {
-            Upload.Method method = Upload.Method.getMethodByName(config);
+        Upload.Method method = applicationContext.getBean(ParamStore.class).getEnum(name, Upload.Method.class, null);
+        if (method != null) {
             if (local.equalsIgnoreCase(method.name())) {
                 return applicationContext.getBean("localUpload", UploadService.class);
             } else if (qiniu.equalsIgnoreCase(method.name())) {
@@ -313,66 +303,6 @@ public class NBUtils implements ApplicationContextAware {
     }
 
 
-    /**
-     * @param value 待处理内容
-     * @return
-     * @Description 过滤XSS脚本内容
-     */
-    public static String stripXSS(String value) {
-        String rlt = null;
-
-        if (null != value) {
-            rlt = value.replaceAll("", "");
-            Pattern scriptPattern = compile("<script>(.*?)</script>", CASE_INSENSITIVE);
-            rlt = scriptPattern.matcher(rlt).replaceAll("");
-
-            scriptPattern = compile("</script>", CASE_INSENSITIVE);
-            rlt = scriptPattern.matcher(rlt).replaceAll("");
-
-            scriptPattern = compile("<script(.*?)>", CASE_INSENSITIVE
-                    | MULTILINE | DOTALL);
-            rlt = scriptPattern.matcher(rlt).replaceAll("");
-
-            scriptPattern = compile("eval\\((.*?)\\)", CASE_INSENSITIVE
-                    | MULTILINE | DOTALL);
-            rlt = scriptPattern.matcher(rlt).replaceAll("");
-
-            scriptPattern = compile("expression\\((.*?)\\)", CASE_INSENSITIVE
-                    | MULTILINE | DOTALL);
-            rlt = scriptPattern.matcher(rlt).replaceAll("");
-
-            scriptPattern = compile("javascript:", CASE_INSENSITIVE);
-            rlt = scriptPattern.matcher(rlt).replaceAll("");
-
-            scriptPattern = compile("vbscript:", CASE_INSENSITIVE);
-            rlt = scriptPattern.matcher(rlt).replaceAll("");
-
-            scriptPattern = compile("onload(.*?)=", CASE_INSENSITIVE
-                    | MULTILINE | DOTALL);
-            rlt = scriptPattern.matcher(rlt).replaceAll("");
-        }
-
-        return rlt;
-    }
-
-    /**
-     * @param value 待处理内容
-     * @return
-     * @Description 过滤SQL注入内容
-     */
-    public static String stripSqlInjection(String value) {
-        return (null == value) ? null : value.replaceAll("('.+--)|(--)|(%7C)", "");
-    }
-
-    /**
-     * @param value 待处理内容
-     * @return
-     * @Description 过滤SQL/XSS注入内容
-     */
-    public static String stripSqlXSS(String value) {
-        return stripXSS(stripSqlInjection(value));
-    }
-
     /**
      * base64转multipart file
      *
@@ -418,6 +348,25 @@ public class NBUtils implements ApplicationContextAware {
         return newListMap;
     }
 
+    /**
+     * 在事务中调用时等事务提交之后再执行，回滚时不执行；不在事务中时立即执行
+     * 内存里的缓存、索引这类数据库之外的状态都通过这里修改，回滚的改动不会留在内存里
+     *
+     * @param action
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
 
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
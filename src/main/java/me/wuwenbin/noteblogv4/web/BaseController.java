@@ -2,12 +2,11 @@ package me.wuwenbin.noteblogv4.web;
 
 import com.github.pagehelper.Page;
 import lombok.extern.slf4j.Slf4j;
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
 import me.wuwenbin.noteblogv4.model.pojo.framework.LayuiTable;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
-import me.wuwenbin.noteblogv4.util.CacheUtils;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
 import me.wuwenbin.noteblogv4.util.NBUtils;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -48,12 +47,8 @@ public abstract class BaseController {
         //        return "http://wuwenbin.me/";
     }
 
-    protected static String handleStyle(String simple, Supplier<String> normalOrOther, ParamRepository paramRepository) {
-        String style = CacheUtils.getParamCache().get(NoteBlogV4.Param.BLOG_STYLE, String.class);
-        if (StringUtils.isEmpty(style)) {
-            style = paramRepository.findByName(NoteBlogV4.Param.BLOG_STYLE).getValue();
-            CacheUtils.getParamCache().put(NoteBlogV4.Param.BLOG_STYLE, style);
-        }
+    protected static String handleStyle(String simple, Supplier<String> normalOrOther, ParamStore paramStore) {
+        String style = paramStore.get(NoteBlogV4.Param.BLOG_STYLE);
         if (StringUtils.isEmpty(style)) {
             throw new RuntimeException("页面风格未设定！");
         } else {
@@ -67,8 +62,8 @@ public abstract class BaseController {
         }
     }
 
-    protected static String handleStyle(String simple, String normal, ParamRepository paramRepository) {
-        return handleStyle(simple, () -> normal, paramRepository);
+    protected static String handleStyle(String simple, String normal, ParamStore paramStore) {
+        return handleStyle(simple, () -> normal, paramStore);
     }
 
     /**
@@ -5,16 +5,15 @@ import cn.hutool.crypto.SecureUtil;
 import com.google.code.kaptcha.Constants;
 import me.wuwenbin.noteblogv4.config.application.NBContext;
 import me.wuwenbin.noteblogv4.config.permission.NBAuth;
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
 import me.wuwenbin.noteblogv4.dao.repository.UserRepository;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
-import me.wuwenbin.noteblogv4.model.entity.NBParam;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
 import me.wuwenbin.noteblogv4.model.pojo.business.QqLoginModel;
 import me.wuwenbin.noteblogv4.model.pojo.business.SimpleLoginData;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.service.authority.AuthorityService;
 import me.wuwenbin.noteblogv4.service.login.LoginService;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
 import me.wuwenbin.noteblogv4.util.CookieUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -42,19 +41,19 @@ public class EntranceController extends BaseController {
     private final NBContext blogContext;
     private final LoginService<SimpleLoginData> simpleLoginService;
     private final LoginService<QqLoginModel> qqLoginService;
-    private final ParamRepository paramRepository;
+    private final ParamStore paramStore;
     private final AuthorityService authorityService;
 
     @Autowired
     public EntranceController(UserRepository userRepository,
                               NBContext blogContext,
                               @Qualifier("simpleLogin") LoginService<SimpleLoginData> simpleLoginService,
-                              ParamRepository paramRepository, AuthorityService authorityService, LoginService<QqLoginModel> qqLoginService) {
+                              ParamStore paramStore, AuthorityService authorityService, LoginService<QqLoginModel> qqLoginService) {
 
         this.userRepository = userRepository;
         this.blogContext = blogContext;
         this.simpleLoginService = simpleLoginService;
-        this.paramRepository = paramRepository;
+        this.paramStore = paramStore;
         this.authorityService = authorityService;
         this.qqLoginService = qqLoginService;
     }
@@ -112,7 +111,7 @@ public class EntranceController extends BaseController {
      */
     @RequestMapping(value = "/login", method = RequestMethod.GET)
     public String login(HttpServletRequest request, @CookieValue(value = SESSION_ID_COOKIE, required = false) String uuid) {
-        request.setAttribute("qqLogin", paramRepository.findByName(NoteBlogV4.Param.QQ_LOGIN));
+        request.setAttribute("qqLogin", paramStore.getParam(NoteBlogV4.Param.QQ_LOGIN));
         if (StringUtils.isEmpty(uuid)) {
             return "login";
         }
@@ -131,11 +130,11 @@ public class EntranceController extends BaseController {
     @RequestMapping("/api/qq")
     public String qqLogin(HttpServletRequest request) {
         String callbackDomain = basePath(request).concat("api/qqCallback");
-        NBParam appId = paramRepository.findByName(NoteBlogV4.Param.APP_ID);
-        if (appId == null || StringUtils.isEmpty(appId.getValue())) {
+        String appId = paramStore.get(NoteBlogV4.Param.APP_ID);
+        if (StringUtils.isEmpty(appId)) {
             return "redirect:/error?errorCode=404";
         } else {
-            return "redirect:https://graph.qq.com/oauth2.0/authorize?response_type=code&client_id=" + appId.getValue() + "&redirect_uri=" + callbackDomain + "&state=" + System.currentTimeMillis();
+            return "redirect:https://graph.qq.com/oauth2.0/authorize?response_type=code&client_id=" + appId + "&redirect_uri=" + callbackDomain + "&state=" + System.currentTimeMillis();
         }
     }
 
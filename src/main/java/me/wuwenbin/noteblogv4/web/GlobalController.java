@@ -1,16 +1,14 @@
 package me.wuwenbin.noteblogv4.web;
 
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
-import me.wuwenbin.noteblogv4.model.entity.NBParam;
-import me.wuwenbin.noteblogv4.util.CacheUtils;
+import me.wuwenbin.noteblogv4.exception.InvalidCursorException;
+import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ModelAttribute;
-
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 /**
  * created by Wuwenbin on 2018/9/7 at 9:35
@@ -20,25 +18,27 @@ import java.util.stream.Collectors;
 @ControllerAdvice(basePackages = "me.wuwenbin.noteblogv4.web.frontend")
 public class GlobalController {
 
-    private final String GTE10PARAMS = "gte_10_params";
-    private final ParamRepository paramRepository;
+    private final ParamStore paramStore;
 
     @Autowired
-    public GlobalController(ParamRepository paramRepository) {
-        this.paramRepository = paramRepository;
+    public GlobalController(ParamStore paramStore) {
+        this.paramStore = paramStore;
     }
 
     @ModelAttribute
     public void addSettings(Model model) {
-        //noinspection unchecked
-        Map<String, Object> settingsMap = CacheUtils.getParamCache().get(GTE10PARAMS, Map.class);
-        if (settingsMap != null && settingsMap.size() > 0) {
-            model.addAttribute("settings", settingsMap);
-        } else {
-            List<NBParam> params = paramRepository.findAllByLevelGreaterThanEqual(10);
-            settingsMap = params.stream().collect(Collectors.toMap(NBParam::getName, NBParam::getValue));
-            CacheUtils.getParamCache().put(GTE10PARAMS, settingsMap);
-            model.addAttribute("settings", settingsMap);
-        }
+        model.addAttribute("settings", paramStore.getValuesByMinLevel(10));
+    }
+
+    /**
+     * 游标分页的接口都返回 json，游标不合法时返回错误信息
+     *
+     * @param e
+     * @return
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseBody
+    public NBR invalidCursor(InvalidCursorException e) {
+        return NBR.error(e.getMessage());
     }
 }
@@ -1,7 +1,6 @@
 package me.wuwenbin.noteblogv4.web;
 
 import me.wuwenbin.noteblogv4.config.permission.NBAuth;
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysResource.ResType;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
@@ -28,14 +27,12 @@ import static me.wuwenbin.noteblogv4.config.permission.NBAuth.Group;
 public class InitController {
 
     private final ParamService paramService;
-    private final ParamRepository paramRepository;
     private final AuthorityService authorityService;
 
     @Autowired
-    public InitController(ParamService paramService, AuthorityService authorityService, ParamRepository paramRepository) {
+    public InitController(ParamService paramService, AuthorityService authorityService) {
         this.paramService = paramService;
         this.authorityService = authorityService;
-        this.paramRepository = paramRepository;
     }
 
     @RequestMapping("/init")
@@ -51,8 +48,8 @@ public class InitController {
     public NBR initSubmit(HttpServletRequest request, String username, String password, String email) {
         paramService.saveInitParam(request.getParameterMap());
         authorityService.initMasterAccount(username, password, email);
-        paramRepository.updateValueByName(NoteBlogV4.Param.MAIL_SERVER_ACCOUNT, email);
-        paramRepository.updateInitParam("1", "init_status");
+        paramService.updateValueByName(NoteBlogV4.Param.MAIL_SERVER_ACCOUNT, email);
+        paramService.updateValueByName("init_status", "1");
         return NBR.ok("初始化设置成功！");
     }
 
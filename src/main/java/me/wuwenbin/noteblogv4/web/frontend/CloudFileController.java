@@ -2,13 +2,14 @@ package me.wuwenbin.noteblogv4.web.frontend;
 
 import me.wuwenbin.noteblogv4.dao.repository.CloudFileCateRepository;
 import me.wuwenbin.noteblogv4.dao.repository.CloudFileRepository;
+import me.wuwenbin.noteblogv4.model.constant.SearchType;
 import me.wuwenbin.noteblogv4.model.entity.NBCloudFile;
 import me.wuwenbin.noteblogv4.model.pojo.framework.LayuiTable;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
+import me.wuwenbin.noteblogv4.service.search.SearchService;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Controller;
@@ -28,11 +29,14 @@ public class CloudFileController extends BaseController {
 
     private final CloudFileRepository cloudFileRepository;
     private final CloudFileCateRepository cloudFileCateRepository;
+    private final SearchService searchService;
 
     @Autowired
-    public CloudFileController(CloudFileRepository cloudFileRepository, CloudFileCateRepository cloudFileCateRepository) {
+    public CloudFileController(CloudFileRepository cloudFileRepository, CloudFileCateRepository cloudFileCateRepository,
+                               SearchService searchService) {
         this.cloudFileRepository = cloudFileRepository;
         this.cloudFileCateRepository = cloudFileCateRepository;
+        this.searchService = searchService;
     }
 
     @RequestMapping
@@ -46,28 +50,18 @@ public class CloudFileController extends BaseController {
     @ResponseBody
     public LayuiTable<NBCloudFile> cateList(Pagination<NBCloudFile> cloudFilePagination, Long cateId, String fileName) {
         Pageable pageable = getPageable(cloudFilePagination);
-        if (StringUtils.isEmpty(cateId) && StringUtils.isEmpty(fileName)) {
-            Page<NBCloudFile> page = cloudFileRepository.findAll(pageable);
+        if (!StringUtils.isEmpty(fileName)) {
+            Page<NBCloudFile> page = searchService.search(SearchType.cloudFile, fileName, cateId, true,
+                    pageable, cloudFileRepository::findAllById, NBCloudFile::getId);
             return layuiTable(page, pageable);
         } else if (StringUtils.isEmpty(cateId)) {
-            NBCloudFile file = NBCloudFile.builder().name(fileName).build();
-            Example<NBCloudFile> example = Example.of(file,
-                    ExampleMatcher.matching().withMatcher("name",
-                            ExampleMatcher.GenericPropertyMatcher::contains).withIgnoreCase());
-            Page<NBCloudFile> page = cloudFileRepository.findAll(example, pageable);
+            Page<NBCloudFile> page = cloudFileRepository.findAll(pageable);
             return layuiTable(page, pageable);
-        } else if (StringUtils.isEmpty(fileName)) {
+        } else {
             NBCloudFile file = NBCloudFile.builder().cateId(cateId).build();
             Example<NBCloudFile> example = Example.of(file);
             Page<NBCloudFile> page = cloudFileRepository.findAll(example, pageable);
             return layuiTable(page, pageable);
-        } else {
-            NBCloudFile file = NBCloudFile.builder().name(fileName).cateId(cateId).build();
-            Example<NBCloudFile> example = Example.of(file,
-                    ExampleMatcher.matching().withMatcher("name",
-                            ExampleMatcher.GenericPropertyMatchers.contains()).withIgnoreCase());
-            Page<NBCloudFile> page = cloudFileRepository.findAll(example, pageable);
-            return layuiTable(page, pageable);
         }
     }
 }
@@ -2,20 +2,26 @@ package me.wuwenbin.noteblogv4.web.frontend;
 
 import me.wuwenbin.noteblogv4.dao.repository.*;
 import me.wuwenbin.noteblogv4.model.constant.NoteBlogV4;
+import me.wuwenbin.noteblogv4.model.constant.SearchType;
 import me.wuwenbin.noteblogv4.model.entity.NBArticle;
-import me.wuwenbin.noteblogv4.model.entity.NBComment;
-import me.wuwenbin.noteblogv4.model.entity.NBParam;
 import me.wuwenbin.noteblogv4.model.entity.NBTag;
 import me.wuwenbin.noteblogv4.model.pojo.bo.ArticleQueryBO;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
+import me.wuwenbin.noteblogv4.model.pojo.vo.ArticleCard;
+import me.wuwenbin.noteblogv4.service.content.ArticlePoolService;
 import me.wuwenbin.noteblogv4.service.content.ArticleService;
+import me.wuwenbin.noteblogv4.service.content.ContentBatchLoader;
 import me.wuwenbin.noteblogv4.service.content.TagService;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
+import me.wuwenbin.noteblogv4.service.search.SearchService;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 
@@ -23,7 +29,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toList;
 import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.ParamValue.PAGE_MODERN_BUTTON;
 import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.ParamValue.PAGE_MODERN_DEFAULT;
 
@@ -35,39 +41,40 @@ import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.ParamValue.PAGE_M
 @Controller
 public class IndexController extends BaseController {
 
-    private final ParamRepository paramRepository;
+    private final ParamStore paramStore;
     private final ArticleRepository articleRepository;
     private final CateRepository cateRepository;
     private final ArticleService articleService;
-    private final CommentRepository commentRepository;
-    private final UserRepository userRepository;
     private final TagService tagService;
-    private final TagRepository tagRepository;
+    private final ArticlePoolService articlePoolService;
+    private final SearchService searchService;
+    private final ContentBatchLoader contentBatchLoader;
 
     @Autowired
-    public IndexController(ParamRepository paramRepository,
+    public IndexController(ParamStore paramStore,
                            ArticleRepository articleRepository, CateRepository cateRepository,
-                           ArticleService articleService, CommentRepository commentRepository,
-                           UserRepository userRepository, TagService tagService, TagRepository tagRepository) {
-        this.paramRepository = paramRepository;
+                           ArticleService articleService, TagService tagService,
+                           ArticlePoolService articlePoolService, SearchService searchService,
+                           ContentBatchLoader contentBatchLoader) {
+        this.paramStore = paramStore;
         this.articleRepository = articleRepository;
         this.cateRepository = cateRepository;
         this.articleService = articleService;
-        this.commentRepository = commentRepository;
-        this.userRepository = userRepository;
         this.tagService = tagService;
-        this.tagRepository = tagRepository;
+        this.articlePoolService = articlePoolService;
+        this.searchService = searchService;
+        this.contentBatchLoader = contentBatchLoader;
     }
 
     @RequestMapping(value = {"", "/index"})
     public String index(Model model) {
-        String pageModern = paramRepository.findByName(NoteBlogV4.Param.PAGE_MODERN).getValue();
+        String pageModern = paramStore.get(NoteBlogV4.Param.PAGE_MODERN);
         model.addAttribute("articleCount", articleRepository.countByDraft(false));
         model.addAttribute("cateList", cateRepository.findAll());
         return handleStyle(
                 "frontend/index/index_simple",
                 () -> {
-                    model.addAttribute("randomArticles", articleRepository.findRandomArticles(10));
+                    model.addAttribute("randomArticles", articlePoolService.findRandomArticles(10));
                     model.addAttribute("tagList", tagService.findTagsTab());
                     if (PAGE_MODERN_DEFAULT.equalsIgnoreCase(pageModern)) {
                         return "frontend/index/index_flow";
@@ -76,44 +83,48 @@ public class IndexController extends BaseController {
                     } else {
                         return "redirect:/error?errorCode=404";
                     }
-                }, paramRepository
+                }, paramStore
         );
     }
 
     @RequestMapping(value = {"/next", "/index/next"})
     @ResponseBody
-    public NBR nextPageArticle(Pagination<NBArticle> pagination, ArticleQueryBO articleQueryBO) {
-        Map<String, String> orders = new HashMap<>(2);
-        orders.put("top", "desc");
-        orders.put("post", "desc");
-        Sort sort = getJpaSortWithOther(pagination, orders);
-        NBParam pageParam = paramRepository.findByName(NoteBlogV4.Param.BLOG_INDEX_PAGE_SIZE);
-        NBParam modernParam = paramRepository.findByName(NoteBlogV4.Param.PAGE_MODERN);
-        int modern = Integer.valueOf(modernParam.getValue());
-        int pageSize = Integer.valueOf(pageParam.getValue());
+    public NBR nextPageArticle(Pagination<NBArticle> pagination, ArticleQueryBO articleQueryBO, String cursor) {
+        int modern = paramStore.getInt(NoteBlogV4.Param.PAGE_MODERN, 0);
+        int pageSize = paramStore.getInt(NoteBlogV4.Param.BLOG_INDEX_PAGE_SIZE, 10);
         pageSize = modern == 0 ? pageSize > 10 ? pageSize : pagination.getLimit() : pagination.getLimit();
-        Pageable pageable = PageRequest.of(pagination.getPage() - 1, pageSize, sort);
-        Page<NBArticle> page = articleService.findBlogArticles(pageable, articleQueryBO);
-        Map<Long, Long> commentCounts = page.getContent().stream()
-                .collect(toMap(
-                        NBArticle::getId,
-                        article -> commentRepository.count(Example.of(NBComment.builder().articleId(article.getId()).build()))
-                ));
-        Map<Long, String> articleAuthorNames = page.getContent().stream()
-                .collect(toMap(
-                        NBArticle::getId,
-                        article -> userRepository.getOne(article.getAuthorId()).getNickname()
-                ));
-        Map<Long, List<NBTag>> articleTagsMap = page.getContent().stream()
-                .collect(toMap(
-                        NBArticle::getId,
-                        article -> tagRepository.findArticleTags(article.getId(), true)
-                ));
-        Map<String, Object> resultMap = new HashMap<>(4);
+        Object page;
+        List<ArticleCard> articles;
+        //传了 cursor 参数（第一页为空串）并且不是搜索时使用游标分页，搜索结果按相关度排序，仍然按页码分页
+        if (cursor != null && StringUtils.isEmpty(articleQueryBO.getSearchStr()) && StringUtils.isEmpty(articleQueryBO.getTagSearch())) {
+            CursorPage<ArticleCard> cursorPage = articleService.findBlogArticleFeed(cursor, pageSize, articleQueryBO.getCateId());
+            page = cursorPage;
+            articles = cursorPage.getContent();
+        } else {
+            Map<String, String> orders = new HashMap<>(2);
+            orders.put("top", "desc");
+            orders.put("post", "desc");
+            Sort sort = getJpaSortWithOther(pagination, orders);
+            Pageable pageable = PageRequest.of(pagination.getPage() - 1, pageSize, sort);
+            Page<ArticleCard> offsetPage = articleService.findBlogArticles(pageable, articleQueryBO);
+            page = offsetPage;
+            articles = offsetPage.getContent();
+        }
+        List<Long> articleIds = articles.stream().map(ArticleCard::getId).collect(toList());
+        Map<Long, Integer> commentCounts = new HashMap<>(articles.size());
+        articles.forEach(article -> commentCounts.put(article.getId(), article.getEnableCommentCnt()));
+        Map<Long, String> nicknames = contentBatchLoader.nicknames(articles.stream().map(ArticleCard::getAuthorId).collect(toList()));
+        Map<Long, String> articleAuthorNames = new HashMap<>(articles.size());
+        articles.forEach(article -> articleAuthorNames.put(article.getId(), nicknames.get(article.getAuthorId())));
+        Map<Long, List<NBTag>> articleTagsMap = contentBatchLoader.articleTags(articleIds);
+        Map<String, Object> resultMap = new HashMap<>(5);
         resultMap.put("pageArticle", page);
         resultMap.put("articleComments", commentCounts);
         resultMap.put("articleAuthors", articleAuthorNames);
         resultMap.put("articleTagsMap", articleTagsMap);
+        if (StringUtils.hasText(articleQueryBO.getSearchStr())) {
+            resultMap.put("articleSnippets", searchService.snippets(SearchType.article, articleIds, articleQueryBO.getSearchStr()));
+        }
         return NBR.ok("获取成功", resultMap);
     }
 
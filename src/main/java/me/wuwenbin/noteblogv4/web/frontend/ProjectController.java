@@ -2,21 +2,29 @@ package me.wuwenbin.noteblogv4.web.frontend;
 
 import me.wuwenbin.noteblogv4.dao.repository.ProjectCateRepository;
 import me.wuwenbin.noteblogv4.dao.repository.ProjectRepository;
+import me.wuwenbin.noteblogv4.model.constant.SearchType;
 import me.wuwenbin.noteblogv4.model.entity.NBNote;
 import me.wuwenbin.noteblogv4.model.entity.NBProject;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
+import me.wuwenbin.noteblogv4.model.pojo.framework.FeedCursor;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
+import me.wuwenbin.noteblogv4.service.search.SearchService;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.util.List;
+
 /**
  * created by Wuwenbin on 2018/12/15 at 11:30 AM
  *
@@ -28,11 +36,14 @@ public class ProjectController extends BaseController {
 
     private final ProjectRepository projectRepository;
     private final ProjectCateRepository projectCateRepository;
+    private final SearchService searchService;
 
     @Autowired
-    public ProjectController(ProjectRepository projectRepository, ProjectCateRepository projectCateRepository) {
+    public ProjectController(ProjectRepository projectRepository, ProjectCateRepository projectCateRepository,
+                             SearchService searchService) {
         this.projectRepository = projectRepository;
         this.projectCateRepository = projectCateRepository;
+        this.searchService = searchService;
     }
 
     @RequestMapping
@@ -54,11 +65,19 @@ public class ProjectController extends BaseController {
 
     @RequestMapping(value = "/next", method = RequestMethod.POST)
     @ResponseBody
-    public NBR next(Pagination<NBNote> pagination, Long cateId) {
+    public NBR next(Pagination<NBNote> pagination, Long cateId, String searchStr, String cursor) {
         pagination.setLimit(20);
         Pageable pageable = getPageableWithCustomSort(pagination, "post", "desc");
         Page<NBProject> projectPage;
-        if (cateId != null) {
+        if (cursor != null && !StringUtils.hasText(searchStr)) {
+            FeedCursor c = FeedCursor.decode(cursor);
+            List<NBProject> rows = projectRepository.findFeedAfter(cateId, c.getPost(), c.getId(), PageRequest.of(0, 21));
+            return NBR.ok("获取成功！", CursorPage.of(rows, 20, p -> new FeedCursor(p.getPost(), p.getId())));
+        } else if (StringUtils.hasText(searchStr)) {
+            projectPage = searchService.search(SearchType.project, searchStr, cateId, true,
+                    pageable, projectRepository::findAllById, NBProject::getId);
+            return NBR.ok("获取成功！", projectPage);
+        } else if (cateId != null) {
             Example<NBProject> example = Example.of(NBProject.builder().cateId(cateId).build());
             projectPage = projectRepository.findAll(example, pageable);
             return NBR.ok("获取成功！", projectPage);
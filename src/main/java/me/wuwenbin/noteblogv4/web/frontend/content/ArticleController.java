@@ -2,24 +2,41 @@ package me.wuwenbin.noteblogv4.web.frontend.content;
 
 import me.wuwenbin.noteblogv4.dao.repository.ArticleRepository;
 import me.wuwenbin.noteblogv4.dao.repository.CateRepository;
-import me.wuwenbin.noteblogv4.dao.repository.TagRepository;
-import me.wuwenbin.noteblogv4.dao.repository.UserRepository;
 import me.wuwenbin.noteblogv4.exception.ArticleFetchFailedException;
 import me.wuwenbin.noteblogv4.model.entity.NBArticle;
 import me.wuwenbin.noteblogv4.model.entity.NBComment;
+import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
 import me.wuwenbin.noteblogv4.model.pojo.bo.CommentQueryBO;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
+import me.wuwenbin.noteblogv4.service.content.ArticleApproveService;
+import me.wuwenbin.noteblogv4.service.content.ArticlePageCacheService;
+import me.wuwenbin.noteblogv4.service.content.ArticlePoolService;
+import me.wuwenbin.noteblogv4.service.content.ArticleViewService;
 import me.wuwenbin.noteblogv4.service.content.CommentService;
+import me.wuwenbin.noteblogv4.service.content.ContentBatchLoader;
+import me.wuwenbin.noteblogv4.service.dashboard.VisitorSketchService;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
+import me.wuwenbin.noteblogv4.util.NBUtils;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Optional;
 
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.ParamValue.STYLE_NORMAL;
+import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.ParamValue.STYLE_SIMPLE;
+
 /**
  * created by Wuwenbin on 2018/9/5 at 下午12:34
  *
@@ -30,64 +47,135 @@ import java.util.Optional;
 public class ArticleController extends BaseController {
 
     private final ArticleRepository articleRepository;
-    private final TagRepository tagRepository;
-    private final UserRepository userRepository;
     private final CommentService commentService;
     private final CateRepository cateRepository;
+    private final ArticleViewService articleViewService;
+    private final ArticleApproveService articleApproveService;
+    private final ArticlePoolService articlePoolService;
+    private final ContentBatchLoader contentBatchLoader;
+    private final ArticlePageCacheService articlePageCacheService;
+    private final ParamStore paramStore;
+    private final VisitorSketchService visitorSketchService;
 
     @Autowired
-    public ArticleController(ArticleRepository articleRepository,
-                             TagRepository tagRepository,
-                             UserRepository userRepository, CommentService commentService, CateRepository cateRepository) {
+    public ArticleController(ArticleRepository articleRepository, CommentService commentService, CateRepository cateRepository,
+                             ArticleViewService articleViewService, ArticleApproveService articleApproveService,
+                             ArticlePoolService articlePoolService, ContentBatchLoader contentBatchLoader,
+                             ArticlePageCacheService articlePageCacheService, ParamStore paramStore,
+                             VisitorSketchService visitorSketchService) {
         this.articleRepository = articleRepository;
-        this.tagRepository = tagRepository;
-        this.userRepository = userRepository;
         this.commentService = commentService;
         this.cateRepository = cateRepository;
+        this.articleViewService = articleViewService;
+        this.articleApproveService = articleApproveService;
+        this.articlePoolService = articlePoolService;
+        this.contentBatchLoader = contentBatchLoader;
+        this.articlePageCacheService = articlePageCacheService;
+        this.paramStore = paramStore;
+        this.visitorSketchService = visitorSketchService;
     }
 
     @RequestMapping("/{aId}")
-    public String article(@PathVariable("aId") Long aId, Model model, Pagination<NBComment> pagination, CommentQueryBO commentQueryBO) {
-        articleRepository.updateViewsById(aId);
+    public String article(@PathVariable("aId") Long aId, Model model, Pagination<NBComment> pagination, CommentQueryBO commentQueryBO,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String style = handleStyle(STYLE_SIMPLE, STYLE_NORMAL, paramStore);
+        if (articlePageCacheService.serve(aId, style, request, response)) {
+            countView(aId, request);
+            return null;
+        }
         pagination.setLimit(10);
         Optional<NBArticle> fetchArticle = articleRepository.findById(aId);
         model.addAttribute("article", fetchArticle.orElseThrow(() -> new ArticleFetchFailedException("未找到相关文章！")));
-        model.addAttribute("tags", tagRepository.findArticleTags(aId, true));
-        model.addAttribute("author", userRepository.getOne(fetchArticle.get().getAuthorId()).getNickname());
+        countView(aId, request);
+        model.addAttribute("approveCnt", fetchArticle.get().getApproveCnt() + articleApproveService.pendingApproves(aId));
+        model.addAttribute("tags", contentBatchLoader.articleTags(singletonList(aId)).get(aId));
+        Long authorId = fetchArticle.get().getAuthorId();
+        model.addAttribute("author", contentBatchLoader.nicknames(singletonList(authorId)).get(authorId));
         commentQueryBO.setArticleId(aId);
         pagination.setLimit(10);
-        model.addAttribute("comments", commentService.findPageInfo(getPageable(pagination), commentQueryBO));
-        model.addAttribute("similarArticles", articleRepository.findSimilarArticles(fetchArticle.get().getCateId(), 6));
+        model.addAttribute("comments", withUsers(commentService.findPageInfo(getPageable(pagination), commentQueryBO)));
+        model.addAttribute("similarArticles", articlePoolService.findSimilarArticles(fetchArticle.get().getCateId(), aId, 6));
         //normal型页面
         model.addAttribute("cateList", cateRepository.findAll());
+        articlePageCacheService.markCacheable(aId, fetchArticle.get().getCateId(), style, request);
         return "frontend/content/article";
     }
 
     @RequestMapping("/u/{urlSeq}")
-    public String articleByUrl(@PathVariable("urlSeq") String urlSeq, Model model, Pagination<NBComment> pagination, CommentQueryBO commentQueryBO) {
-        articleRepository.updateViewsBySeq(urlSeq);
+    public String articleByUrl(@PathVariable("urlSeq") String urlSeq, Model model, Pagination<NBComment> pagination, CommentQueryBO commentQueryBO,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String style = handleStyle(STYLE_SIMPLE, STYLE_NORMAL, paramStore);
+        Long articleId = articleRepository.findIdByUrlSequence(urlSeq);
+        if (articleId != null && articlePageCacheService.serve(articleId, style, request, response)) {
+            countView(articleId, request);
+            return null;
+        }
         pagination.setLimit(10);
         Optional<NBArticle> fetchArticle = articleRepository.findNBArticleByUrlSequence(urlSeq);
         NBArticle article = fetchArticle.orElseThrow(() -> new ArticleFetchFailedException("未找到相关文章！"));
         model.addAttribute("article", article);
-        model.addAttribute("tags", tagRepository.findArticleTags(article.getId(), true));
-        model.addAttribute("author", userRepository.getOne(article.getAuthorId()).getNickname());
+        countView(article.getId(), request);
+        model.addAttribute("approveCnt", article.getApproveCnt() + articleApproveService.pendingApproves(article.getId()));
+        model.addAttribute("tags", contentBatchLoader.articleTags(singletonList(article.getId())).get(article.getId()));
+        model.addAttribute("author", contentBatchLoader.nicknames(singletonList(article.getAuthorId())).get(article.getAuthorId()));
         commentQueryBO.setArticleId(article.getId());
         pagination.setLimit(10);
-        model.addAttribute("comments", commentService.findPageInfo(getPageable(pagination), commentQueryBO));
-        model.addAttribute("similarArticles", articleRepository.findSimilarArticles(article.getCateId(), 6));
+        model.addAttribute("comments", withUsers(commentService.findPageInfo(getPageable(pagination), commentQueryBO)));
+        model.addAttribute("similarArticles", articlePoolService.findSimilarArticles(article.getCateId(), article.getId(), 6));
+        articlePageCacheService.markCacheable(article.getId(), article.getCateId(), style, request);
         return "frontend/content/article";
     }
 
     @RequestMapping(value = "/comments", method = RequestMethod.POST)
     @ResponseBody
-    public Page<NBComment> comments(Pagination<NBComment> pagination, CommentQueryBO commentQueryBO) {
-        return commentService.findPageInfo(getPageable(pagination), commentQueryBO);
+    public Object comments(Pagination<NBComment> pagination, CommentQueryBO commentQueryBO, String cursor) {
+        boolean onlyArticle = commentQueryBO.getArticleId() != null && StringUtils.isEmpty(commentQueryBO.getClearComment())
+                && StringUtils.isEmpty(commentQueryBO.getIpCnAddr()) && commentQueryBO.getUserId() == null;
+        if (cursor != null && onlyArticle) {
+            CursorPage<NBComment> commentPage = commentService.findArticleComments(commentQueryBO.getArticleId(), cursor, pagination.getLimit());
+            contentBatchLoader.preloadUsers(commentPage.getContent().stream().map(NBComment::getUserId).collect(toList()));
+            return commentPage;
+        }
+        return withUsers(commentService.findPageInfo(getPageable(pagination), commentQueryBO));
     }
 
     @RequestMapping(value = "/approve", method = RequestMethod.POST)
     @ResponseBody
-    public NBR approve(@RequestParam Long articleId) {
-        return ajaxDone(() -> articleRepository.updateApproveCntById(articleId) == 1, () -> "点赞");
+    public NBR approve(@RequestParam Long articleId, HttpServletRequest request) {
+        return ajaxDone(() -> articleApproveService.approve(articleId, visitor(request)), () -> "点赞");
+    }
+
+    /**
+     * 一次加载这一页评论的用户，避免序列化时逐条查询
+     *
+     * @param commentPage
+     * @return
+     */
+    private Page<NBComment> withUsers(Page<NBComment> commentPage) {
+        contentBatchLoader.preloadUsers(commentPage.getContent().stream().map(NBComment::getUserId).collect(toList()));
+        return commentPage;
+    }
+
+    /**
+     * 浏览量按访客去重计数，独立读者数按 ip 估算
+     *
+     * @param articleId
+     * @param request
+     */
+    private void countView(long articleId, HttpServletRequest request) {
+        articleViewService.increaseView(articleId, visitor(request));
+        visitorSketchService.offerArticle(articleId, NBUtils.getRemoteAddress(request));
+    }
+
+    /**
+     * 浏览和点赞的访客标识，已登录的用用户id，否则用 ip；
+     * 不直接用 cookie 中的 sessionId，客户端换一个 cookie 就能重复计数
+     *
+     * @param request
+     * @return
+     */
+    private static String visitor(HttpServletRequest request) {
+        NBSysUser user = NBUtils.getSessionUser();
+        return user != null ? "u" + user.getId() : NBUtils.getRemoteAddress(request);
     }
 }
@@ -1,16 +1,14 @@
 package me.wuwenbin.noteblogv4.web.frontend.content;
 
 
-import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HtmlUtil;
 import me.wuwenbin.noteblogv4.dao.repository.ArticleRepository;
-import me.wuwenbin.noteblogv4.dao.repository.CommentRepository;
-import me.wuwenbin.noteblogv4.dao.repository.KeywordRepository;
-import me.wuwenbin.noteblogv4.dao.repository.ParamRepository;
 import me.wuwenbin.noteblogv4.model.entity.NBComment;
-import me.wuwenbin.noteblogv4.model.entity.NBKeyword;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
+import me.wuwenbin.noteblogv4.service.content.CommentService;
+import me.wuwenbin.noteblogv4.service.content.KeywordFilterService;
 import me.wuwenbin.noteblogv4.service.mail.MailService;
+import me.wuwenbin.noteblogv4.service.param.ParamStore;
+import me.wuwenbin.noteblogv4.util.HtmlSanitizer;
 import me.wuwenbin.noteblogv4.util.NBUtils;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,7 +22,6 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.time.LocalDateTime;
-import java.util.List;
 
 import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.Param.ALL_COMMENT_OPEN;
 
@@ -37,27 +34,27 @@ import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.Param.ALL_COMMENT
 @RequestMapping("/token/comment")
 public class CommentController extends BaseController {
 
-    private final CommentRepository commentRepository;
-    private final KeywordRepository keywordRepository;
-    private final ParamRepository paramRepository;
+    private final KeywordFilterService keywordFilterService;
+    private final ParamStore paramStore;
     private final ArticleRepository articleRepository;
     private final MailService mailService;
+    private final CommentService commentService;
 
     @Autowired
-    public CommentController(CommentRepository commentRepository, KeywordRepository keywordRepository, ParamRepository paramRepository, ArticleRepository articleRepository, MailService mailService) {
-        this.commentRepository = commentRepository;
-        this.keywordRepository = keywordRepository;
-        this.paramRepository = paramRepository;
+    public CommentController(KeywordFilterService keywordFilterService, ParamStore paramStore, ArticleRepository articleRepository, MailService mailService,
+                             CommentService commentService) {
+        this.keywordFilterService = keywordFilterService;
+        this.paramStore = paramStore;
         this.articleRepository = articleRepository;
         this.mailService = mailService;
+        this.commentService = commentService;
     }
 
     @RequestMapping(value = "/sub",method = RequestMethod.POST)
     @ResponseBody
     public NBR sub(@Valid NBComment comment, BindingResult bindingResult, HttpServletRequest request) {
-        final String initSure = "1";
         return ajaxDone(
-                () -> initSure.equals(paramRepository.findByName(ALL_COMMENT_OPEN).getValue()) && articleRepository.getOne(comment.getArticleId()).getCommented(),
+                () -> paramStore.getBoolean(ALL_COMMENT_OPEN) && articleRepository.getOne(comment.getArticleId()).getCommented(),
                 () -> {
                     if (!bindingResult.hasErrors()) {
                         comment.setIpAddr(NBUtils.getRemoteAddress(request));
@@ -68,12 +65,11 @@ public class CommentController extends BaseController {
                             comment.setIpCnAddr("本地/未知");
                         }
                         comment.setUserAgent(request.getHeader("user-agent"));
-                        comment.setComment(NBUtils.stripSqlXSS(comment.getComment()));
+                        HtmlSanitizer.Result sanitized = HtmlSanitizer.sanitize(comment.getComment());
                         comment.setPost(LocalDateTime.now());
-                        comment.setClearComment(HtmlUtil.cleanHtmlTag(comment.getComment()));
-                        List<NBKeyword> keywords = keywordRepository.findAll();
-                        keywords.forEach(kw -> comment.setComment(comment.getComment().replace(kw.getWords(), StrUtil.repeat("*", kw.getWords().length()))));
-                        if (commentRepository.save(comment) != null) {
+                        comment.setClearComment(sanitized.getText());
+                        comment.setComment(keywordFilterService.filter(sanitized.getHtml()));
+                        if (commentService.postComment(comment) != null) {
                             mailService.sendNoticeMail(basePath(request), articleRepository.getOne(comment.getArticleId()), comment.getComment());
                             return NBR.ok("发表评论成功");
                         } else {
@@ -1,18 +1,18 @@
 package me.wuwenbin.noteblogv4.web.frontend.content;
 
-import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HtmlUtil;
 import me.wuwenbin.noteblogv4.dao.repository.CateRepository;
-import me.wuwenbin.noteblogv4.dao.repository.KeywordRepository;
 import me.wuwenbin.noteblogv4.dao.repository.MessageRepository;
 import me.wuwenbin.noteblogv4.dao.repository.UserRepository;
-import me.wuwenbin.noteblogv4.model.entity.NBKeyword;
 import me.wuwenbin.noteblogv4.model.entity.NBMessage;
 import me.wuwenbin.noteblogv4.model.pojo.bo.MessageQueryBO;
+import me.wuwenbin.noteblogv4.model.pojo.framework.CursorPage;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
+import me.wuwenbin.noteblogv4.service.content.ContentBatchLoader;
+import me.wuwenbin.noteblogv4.service.content.KeywordFilterService;
 import me.wuwenbin.noteblogv4.service.content.MessageService;
 import me.wuwenbin.noteblogv4.service.content.TagService;
+import me.wuwenbin.noteblogv4.util.HtmlSanitizer;
 import me.wuwenbin.noteblogv4.util.NBUtils;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +23,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -32,9 +33,9 @@ import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
+import static java.util.stream.Collectors.toList;
 import static me.wuwenbin.noteblogv4.model.pojo.framework.NBR.error;
 
 /**
@@ -47,22 +48,24 @@ import static me.wuwenbin.noteblogv4.model.pojo.framework.NBR.error;
 public class MessageController extends BaseController {
 
     private final MessageRepository messageRepository;
-    private final KeywordRepository keywordRepository;
+    private final KeywordFilterService keywordFilterService;
     private final CateRepository cateRepository;
     private final TagService tagService;
     private final MessageService messageService;
     private final UserRepository userRepository;
+    private final ContentBatchLoader contentBatchLoader;
 
     @Autowired
-    public MessageController(MessageRepository messageRepository, KeywordRepository keywordRepository,
+    public MessageController(MessageRepository messageRepository, KeywordFilterService keywordFilterService,
                              CateRepository cateRepository, TagService tagService, MessageService messageService,
-                             UserRepository userRepository) {
+                             UserRepository userRepository, ContentBatchLoader contentBatchLoader) {
         this.messageRepository = messageRepository;
-        this.keywordRepository = keywordRepository;
+        this.keywordFilterService = keywordFilterService;
         this.cateRepository = cateRepository;
         this.tagService = tagService;
         this.messageService = messageService;
         this.userRepository = userRepository;
+        this.contentBatchLoader = contentBatchLoader;
     }
 
     @RequestMapping("/msg")
@@ -70,7 +73,7 @@ public class MessageController extends BaseController {
         model.addAttribute("cates", cateRepository.findAll());
         model.addAttribute("tags", tagService.findTagsTab());
         Pageable pageable = messagePageable(messagePagination);
-        model.addAttribute("messages", messageService.findPageInfo(pageable, messageQueryBO));
+        model.addAttribute("messages", withUsers(messageService.findPageInfo(pageable, messageQueryBO)));
         return "frontend/content/message";
     }
 
@@ -88,13 +91,13 @@ public class MessageController extends BaseController {
             } else {
                 message.setIpCnAddr("本地/未知");
             }
-            message.setComment(NBUtils.stripSqlXSS(message.getComment()));
-            message.setClearComment(HtmlUtil.cleanHtmlTag(message.getComment()));
+            HtmlSanitizer.Result sanitized = HtmlSanitizer.sanitize(message.getComment());
+            message.setComment(sanitized.getHtml());
+            message.setClearComment(sanitized.getText());
             message.setUser(userRepository.getOne(message.getUserId()));
             message.setEnable(true);
             message.setPost(LocalDateTime.now());
-            List<NBKeyword> keywords = keywordRepository.findAll();
-            keywords.forEach(kw -> message.setComment(message.getComment().replace(kw.getWords(), StrUtil.repeat("*", kw.getWords().length()))));
+            message.setComment(keywordFilterService.filter(message.getComment()));
             return ajaxDone(() -> messageRepository.save(message) != null, () -> "发表留言");
         } else {
             return error("提交的留言内容不合法");
@@ -104,9 +107,27 @@ public class MessageController extends BaseController {
 
     @RequestMapping(value = "/msg/lists", method = RequestMethod.POST)
     @ResponseBody
-    public Page<NBMessage> comments(Pagination<NBMessage> messagePagination, MessageQueryBO messageQueryBO) {
+    public Object comments(Pagination<NBMessage> messagePagination, MessageQueryBO messageQueryBO, String cursor) {
+        boolean noFilter = StringUtils.isEmpty(messageQueryBO.getClearComment())
+                && StringUtils.isEmpty(messageQueryBO.getIpCnAddr()) && messageQueryBO.getUserId() == null;
+        if (cursor != null && noFilter) {
+            CursorPage<NBMessage> messagePage = messageService.findMessageFeed(cursor, messagePagination.getLimit());
+            contentBatchLoader.preloadUsers(messagePage.getContent().stream().map(NBMessage::getUserId).collect(toList()));
+            return messagePage;
+        }
         Pageable pageable = messagePageable(messagePagination);
-        return messageService.findPageInfo(pageable, messageQueryBO);
+        return withUsers(messageService.findPageInfo(pageable, messageQueryBO));
+    }
+
+    /**
+     * 一次加载这一页留言的用户，避免序列化时逐条查询
+     *
+     * @param messagePage
+     * @return
+     */
+    private Page<NBMessage> withUsers(Page<NBMessage> messagePage) {
+        contentBatchLoader.preloadUsers(messagePage.getContent().stream().map(NBMessage::getUserId).collect(toList()));
+        return messagePage;
     }
 
 
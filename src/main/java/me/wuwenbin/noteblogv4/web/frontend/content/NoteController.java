@@ -14,6 +14,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -49,7 +50,10 @@ public class NoteController extends BaseController {
 
     @RequestMapping(value = "/next", method = RequestMethod.POST)
     @ResponseBody
-    public NBR next(Pagination<NBNote> pagination, String t, String cc) {
+    public NBR next(Pagination<NBNote> pagination, String t, String cc, String cursor) {
+        if (cursor != null && StringUtils.isEmpty(t) && StringUtils.isEmpty(cc)) {
+            return NBR.ok("获取成功", noteService.findNoteFeed(cursor, pagination.getLimit()));
+        }
         Map<String, String> orders = new HashMap<>(2);
         orders.put("top", "desc");
         orders.put("post", "desc");
@@ -1,22 +1,33 @@
 package me.wuwenbin.noteblogv4.web.management;
 
 import me.wuwenbin.noteblogv4.config.permission.NBAuth;
-import me.wuwenbin.noteblogv4.dao.repository.MenuRepository;
-import me.wuwenbin.noteblogv4.model.entity.permission.NBSysMenu;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysResource.ResType;
 import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
 import me.wuwenbin.noteblogv4.model.pojo.business.MenuTree;
+import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
+import me.wuwenbin.noteblogv4.service.authority.AuthorityTreeService;
 import me.wuwenbin.noteblogv4.service.dashboard.DashboardService;
+import me.wuwenbin.noteblogv4.service.dashboard.HeavyHitterService;
+import me.wuwenbin.noteblogv4.service.logger.AccessLogService;
+import me.wuwenbin.noteblogv4.service.logger.LoggerArchiveService;
 import me.wuwenbin.noteblogv4.util.NBUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static me.wuwenbin.noteblogv4.config.permission.NBAuth.Group;
+import static me.wuwenbin.noteblogv4.service.dashboard.HeavyHitterService.Dimension;
+import static me.wuwenbin.noteblogv4.service.dashboard.HeavyHitterService.Window;
 
 /**
  * created by Wuwenbin on 2018/7/21 at 23:31
@@ -27,13 +38,20 @@ import static me.wuwenbin.noteblogv4.config.permission.NBAuth.Group;
 @RequestMapping("/management")
 public class AdminIndexController {
 
-    private final MenuRepository menuRepository;
+    private final AuthorityTreeService authorityTreeService;
     private final DashboardService dashboardService;
+    private final AccessLogService accessLogService;
+    private final LoggerArchiveService loggerArchiveService;
+    private final HeavyHitterService heavyHitterService;
 
     @Autowired
-    public AdminIndexController(MenuRepository menuRepository, DashboardService dashboardService) {
-        this.menuRepository = menuRepository;
+    public AdminIndexController(AuthorityTreeService authorityTreeService, DashboardService dashboardService, AccessLogService accessLogService,
+                                LoggerArchiveService loggerArchiveService, HeavyHitterService heavyHitterService) {
+        this.authorityTreeService = authorityTreeService;
         this.dashboardService = dashboardService;
+        this.accessLogService = accessLogService;
+        this.loggerArchiveService = loggerArchiveService;
+        this.heavyHitterService = heavyHitterService;
     }
 
     @RequestMapping("/index")
@@ -42,8 +60,7 @@ public class AdminIndexController {
         NBSysUser user = NBUtils.getSessionUser();
 
         Long userRoleId = Objects.requireNonNull(user).getDefaultRoleId();
-        List<NBSysMenu> menus = menuRepository.findAllByRoleIdOrderBy(userRoleId, true);
-        List<MenuTree> menuTrees = MenuTree.buildByRecursive(menus);
+        List<MenuTree> menuTrees = authorityTreeService.findMenuTreeByRoleId(userRoleId);
         model.addAttribute("menus", menuTrees);
 
         String avatar = user.getAvatar();
@@ -59,5 +76,51 @@ public class AdminIndexController {
         model.addAttribute("tableData", dashboardService.findTableStatistics());
         return "management/dashboard";
     }
-}
 
+    @RequestMapping("/dashboard/access-log")
+    @ResponseBody
+    @NBAuth(value = "management:index:access_log", remark = "访问日志写入队列统计", group = Group.AJAX)
+    public NBR accessLogMetrics() {
+        return NBR.ok("获取成功", accessLogService.metrics());
+    }
+
+    @RequestMapping("/dashboard/heavy-hitters")
+    @ResponseBody
+    @NBAuth(value = "management:index:heavy_hitters", remark = "最近一小时/一天的热门访问路径、来源和浏览器", group = Group.AJAX)
+    public NBR heavyHitters() {
+        Map<String, Object> result = new LinkedHashMap<>(2);
+        for (Window window : Window.values()) {
+            Map<String, Object> dimensions = new LinkedHashMap<>(3);
+            for (Dimension dimension : Dimension.values()) {
+                dimensions.put(dimension.name(), heavyHitterService.top(window, dimension));
+            }
+            result.put(window.name(), dimensions);
+        }
+        return NBR.ok("获取成功", result);
+    }
+
+    @RequestMapping("/dashboard/logger-archive")
+    @ResponseBody
+    @NBAuth(value = "management:index:logger_archive", remark = "访问日志归档文件列表", group = Group.AJAX)
+    public NBR loggerArchives() {
+        return NBR.ok("获取成功", loggerArchiveService.listArchives());
+    }
+
+    @RequestMapping("/dashboard/logger-archive/restore")
+    @ResponseBody
+    @NBAuth(value = "management:index:logger_archive_restore", remark = "把某一天的访问日志归档重新导入", group = Group.AJAX)
+    public NBR loggerArchiveRestore(String day) {
+        LocalDate archiveDay;
+        try {
+            archiveDay = LocalDate.parse(String.valueOf(day));
+        } catch (DateTimeParseException e) {
+            return NBR.error("日期格式有误，应为 yyyy-MM-dd");
+        }
+        try {
+            int rows = loggerArchiveService.restore(archiveDay);
+            return NBR.ok("导入成功，共计 " + rows + " 条", rows);
+        } catch (IOException | RuntimeException e) {
+            return NBR.error("导入失败：" + e.getMessage());
+        }
+    }
+}
@@ -4,11 +4,13 @@ import me.wuwenbin.noteblogv4.config.permission.NBAuth;
 import me.wuwenbin.noteblogv4.dao.repository.CloudFileCateRepository;
 import me.wuwenbin.noteblogv4.dao.repository.CloudFileRepository;
 import me.wuwenbin.noteblogv4.exception.NoteFetchFailedException;
+import me.wuwenbin.noteblogv4.model.constant.SearchType;
 import me.wuwenbin.noteblogv4.model.entity.NBCloudFile;
 import me.wuwenbin.noteblogv4.model.pojo.framework.LayuiTable;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
-import me.wuwenbin.noteblogv4.util.NBUtils;
+import me.wuwenbin.noteblogv4.service.search.SearchService;
+import me.wuwenbin.noteblogv4.util.HtmlSanitizer;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -41,11 +43,14 @@ public class CloudFileController extends BaseController {
 
     private final CloudFileRepository cloudFileRepository;
     private final CloudFileCateRepository cloudFileCateRepository;
+    private final SearchService searchService;
 
     @Autowired
-    public CloudFileController(CloudFileRepository cloudFileRepository, CloudFileCateRepository cloudFileCateRepository) {
+    public CloudFileController(CloudFileRepository cloudFileRepository, CloudFileCateRepository cloudFileCateRepository,
+                               SearchService searchService) {
         this.cloudFileRepository = cloudFileRepository;
         this.cloudFileCateRepository = cloudFileCateRepository;
+        this.searchService = searchService;
     }
 
     @RequestMapping(method = RequestMethod.GET)
@@ -86,9 +91,13 @@ public class CloudFileController extends BaseController {
         if (result.getErrorCount() == 0) {
             nbCloudFile.setPost(LocalDateTime.now());
             nbCloudFile.setModify(LocalDateTime.now());
-            nbCloudFile.setDescription(NBUtils.stripSqlXSS(nbCloudFile.getDescription()));
+            nbCloudFile.setDescription(HtmlSanitizer.sanitize(nbCloudFile.getDescription()).getHtml());
             return ajaxDone(
-                    () -> cloudFileRepository.save(nbCloudFile) != null
+                    () -> {
+                        NBCloudFile cloudFile = cloudFileRepository.save(nbCloudFile);
+                        searchService.index(cloudFile);
+                        return cloudFile != null;
+                    }
                     , () -> "分享云文件"
             );
         } else {
@@ -103,7 +112,11 @@ public class CloudFileController extends BaseController {
     public NBR projectUpdate(@Valid NBCloudFile nbCloudFile, BindingResult result) {
         if (result.getErrorCount() == 0) {
             nbCloudFile.setModify(LocalDateTime.now());
-            return ajaxDone(() -> cloudFileRepository.saveAndFlush(nbCloudFile) != null, () -> "更新云文件信息");
+            return ajaxDone(() -> {
+                NBCloudFile cloudFile = cloudFileRepository.saveAndFlush(nbCloudFile);
+                searchService.index(cloudFile);
+                return cloudFile != null;
+            }, () -> "更新云文件信息");
         } else {
             return ajaxJsr303(result.getFieldErrors());
         }
@@ -113,7 +126,10 @@ public class CloudFileController extends BaseController {
     @ResponseBody
     @NBAuth(value = "management:cloudFile:delete", remark = "删除云文件操作", group = AJAX)
     public NBR delete(@PathVariable("id") Long id) {
-        return ajaxDone(id, cloudFileRepository::deleteById, () -> "删除项目");
+        return ajaxDone(id, fileId -> {
+            cloudFileRepository.deleteById(fileId);
+            searchService.remove(SearchType.cloudFile, fileId);
+        }, () -> "删除项目");
     }
 
 }
@@ -4,11 +4,13 @@ import me.wuwenbin.noteblogv4.config.permission.NBAuth;
 import me.wuwenbin.noteblogv4.dao.repository.ProjectCateRepository;
 import me.wuwenbin.noteblogv4.dao.repository.ProjectRepository;
 import me.wuwenbin.noteblogv4.exception.NoteFetchFailedException;
+import me.wuwenbin.noteblogv4.model.constant.SearchType;
 import me.wuwenbin.noteblogv4.model.entity.NBProject;
 import me.wuwenbin.noteblogv4.model.pojo.framework.LayuiTable;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
-import me.wuwenbin.noteblogv4.util.NBUtils;
+import me.wuwenbin.noteblogv4.service.search.SearchService;
+import me.wuwenbin.noteblogv4.util.HtmlSanitizer;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -41,11 +43,14 @@ public class ProjectController extends BaseController {
 
     private final ProjectRepository projectRepository;
     private final ProjectCateRepository projectCateRepository;
+    private final SearchService searchService;
 
     @Autowired
-    public ProjectController(ProjectRepository projectRepository, ProjectCateRepository projectCateRepository) {
+    public ProjectController(ProjectRepository projectRepository, ProjectCateRepository projectCateRepository,
+                             SearchService searchService) {
         this.projectRepository = projectRepository;
         this.projectCateRepository = projectCateRepository;
+        this.searchService = searchService;
     }
 
     @RequestMapping(method = RequestMethod.GET)
@@ -85,9 +90,13 @@ public class ProjectController extends BaseController {
     public NBR projectCreate(@Valid NBProject nbProject, BindingResult result) {
         if (result.getErrorCount() == 0) {
             nbProject.setPost(LocalDateTime.now());
-            nbProject.setDescription(NBUtils.stripSqlXSS(nbProject.getDescription()));
+            nbProject.setDescription(HtmlSanitizer.sanitize(nbProject.getDescription()).getHtml());
             return ajaxDone(
-                    () -> projectRepository.save(nbProject) != null
+                    () -> {
+                        NBProject project = projectRepository.save(nbProject);
+                        searchService.index(project);
+                        return project != null;
+                    }
                     , () -> "分享项目"
             );
         } else {
@@ -102,7 +111,13 @@ public class ProjectController extends BaseController {
     public NBR projectUpdate(@Valid NBProject nbProject, BindingResult result) {
         if (result.getErrorCount() == 0) {
             nbProject.setModify(LocalDateTime.now());
-            return ajaxDone(() -> projectRepository.updateProjectById(nbProject) == 1, () -> "更新项目信息");
+            return ajaxDone(() -> {
+                boolean updated = projectRepository.updateProjectById(nbProject) == 1;
+                if (updated) {
+                    searchService.index(nbProject);
+                }
+                return updated;
+            }, () -> "更新项目信息");
         } else {
             return ajaxJsr303(result.getFieldErrors());
         }
@@ -113,7 +128,10 @@ public class ProjectController extends BaseController {
     @NBAuth(value = "management:project:delete", remark = "删除项目操作", group = AJAX)
     public NBR delete(@PathVariable("id") Long id) {
         return ajaxDone(id
-                , projectRepository::deleteById
+                , projectId -> {
+                    projectRepository.deleteById(projectId);
+                    searchService.remove(SearchType.project, projectId);
+                }
                 , () -> "删除项目"
         );
     }
@@ -15,6 +15,8 @@ import me.wuwenbin.noteblogv4.model.entity.permission.pk.RoleResourceKey;
 import me.wuwenbin.noteblogv4.model.pojo.framework.LayuiTable;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.service.authority.AuthorityService;
+import me.wuwenbin.noteblogv4.service.authority.AuthorityTreeService;
+import me.wuwenbin.noteblogv4.service.authority.PermissionService;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -42,16 +44,21 @@ public class AuthorityController extends BaseController {
     private final RoleResourceRepository roleResourceRepository;
     private final MenuRepository menuRepository;
     private final ResourceRepository resourceRepository;
+    private final PermissionService permissionService;
+    private final AuthorityTreeService authorityTreeService;
 
     @Autowired
     public AuthorityController(RoleRepository rr, AuthorityService ups,
                                RoleResourceRepository rrr,
-                               MenuRepository mr, ResourceRepository resR) {
+                               MenuRepository mr, ResourceRepository resR,
+                               PermissionService ps, AuthorityTreeService ats) {
         this.roleRepository = rr;
         this.authorityService = ups;
         this.roleResourceRepository = rrr;
         this.menuRepository = mr;
         this.resourceRepository = resR;
+        this.permissionService = ps;
+        this.authorityTreeService = ats;
     }
 
 
@@ -82,7 +89,7 @@ public class AuthorityController extends BaseController {
     @ResponseBody
     @NBAuth(value = "permission:role:resource_tree", remark = "后台角色管理页面的资源树", group = Group.AJAX)
     public NBR resourcesTree(Long roleId) {
-        return NBR.ok(authorityService.findResourceTreeByRoleId(roleId));
+        return NBR.ok(authorityTreeService.findResourceTreeByRoleId(roleId));
     }
 
 
@@ -100,6 +107,8 @@ public class AuthorityController extends BaseController {
                 }
             }
         }
+        permissionService.evictRole(roleId);
+        authorityTreeService.evictRole(roleId);
         return NBR.ok("更新角色资源权限成功！");
     }
 
@@ -122,6 +131,8 @@ public class AuthorityController extends BaseController {
     @NBAuth(value = "permission:role:delete", remark = "删除角色操作", group = Group.AJAX)
     public NBR deleteRole(Long roleId) {
         roleRepository.deleteById(roleId);
+        permissionService.evictRole(roleId);
+        authorityTreeService.evictRole(roleId);
         return NBR.ok("删除角色成功！");
     }
 
@@ -186,6 +197,7 @@ public class AuthorityController extends BaseController {
     public NBR createMenu(@Valid NBSysMenu menu, BindingResult result) {
         if (result.getErrorCount() == 0) {
             menuRepository.saveAndFlush(menu);
+            authorityTreeService.evictAll();
             return NBR.formatOk("添加菜单 [{}] 成功！", menu.getName());
         } else {
             return ajaxJsr303(result.getFieldErrors());
@@ -202,6 +214,7 @@ public class AuthorityController extends BaseController {
                 return NBR.error("id不能为空！");
             }
             menuRepository.saveAndFlush(menu);
+            authorityTreeService.evictAll();
             return NBR.formatOk("修改菜单 [{}] 成功！", menu.getName());
         } else {
             return ajaxJsr303(result.getFieldErrors());
@@ -214,6 +227,7 @@ public class AuthorityController extends BaseController {
     @RequestMapping("/menu/delete")
     public NBR deleteMenu(Long id) {
         authorityService.deleteMenu(id);
+        authorityTreeService.evictAll();
         return NBR.ok("删除菜单成功！");
     }
 
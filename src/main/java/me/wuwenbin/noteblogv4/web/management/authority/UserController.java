@@ -1,5 +1,6 @@
 package me.wuwenbin.noteblogv4.web.management.authority;
 
+import me.wuwenbin.noteblogv4.config.application.NBContext;
 import me.wuwenbin.noteblogv4.config.permission.NBAuth;
 import me.wuwenbin.noteblogv4.dao.repository.RoleRepository;
 import me.wuwenbin.noteblogv4.dao.repository.UserRepository;
@@ -38,12 +39,14 @@ public class UserController extends BaseController {
     private final UsersService usersService;
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
+    private final NBContext context;
 
     @Autowired
-    public UserController(UsersService us, UserRepository ur, RoleRepository rr) {
+    public UserController(UsersService us, UserRepository ur, RoleRepository rr, NBContext context) {
         this.usersService = us;
         this.userRepository = ur;
         this.roleRepository = rr;
+        this.context = context;
     }
 
     @RequestMapping
@@ -69,7 +72,13 @@ public class UserController extends BaseController {
     @NBAuth(value = "management:user:enable_update", remark = "修改用户状态信息", group = Group.AJAX)
     public NBR enableUpdate(Long id, Boolean enable) {
         return ajaxDone(
-                () -> userRepository.updateUserStatus(id, enable) > 0,
+                () -> {
+                    boolean updated = userRepository.updateUserStatus(id, enable) > 0;
+                    if (updated && !enable) {
+                        context.removeSessionsOfUser(id);
+                    }
+                    return updated;
+                },
                 () -> "修改用户状态"
         );
     }
@@ -11,8 +11,11 @@ import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
 import me.wuwenbin.noteblogv4.model.pojo.framework.LayuiTable;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
+import me.wuwenbin.noteblogv4.model.pojo.vo.ArticleCard;
+import me.wuwenbin.noteblogv4.service.content.ArticlePageCacheService;
 import me.wuwenbin.noteblogv4.service.content.ArticleService;
 import me.wuwenbin.noteblogv4.service.content.TagService;
+import me.wuwenbin.noteblogv4.service.dashboard.VisitorSketchService;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -24,8 +27,10 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.Map;
 import java.util.Optional;
 
+import static java.util.stream.Collectors.toList;
 import static me.wuwenbin.noteblogv4.config.permission.NBAuth.Group.AJAX;
 import static me.wuwenbin.noteblogv4.config.permission.NBAuth.Group.ROUTER;
 import static me.wuwenbin.noteblogv4.model.constant.NoteBlogV4.Session.SESSION_ID_COOKIE;
@@ -46,14 +51,19 @@ public class ArticleController extends BaseController {
     private final ArticleService articleService;
     private final ArticleRepository articleRepository;
     private final TagService tagService;
+    private final ArticlePageCacheService articlePageCacheService;
+    private final VisitorSketchService visitorSketchService;
 
     @Autowired
-    public ArticleController(CateRepository cateRepository, NBContext context, ArticleService articleService, ArticleRepository articleRepository, TagService tagService) {
+    public ArticleController(CateRepository cateRepository, NBContext context, ArticleService articleService, ArticleRepository articleRepository, TagService tagService,
+                             ArticlePageCacheService articlePageCacheService, VisitorSketchService visitorSketchService) {
         this.cateRepository = cateRepository;
         this.context = context;
         this.articleService = articleService;
         this.articleRepository = articleRepository;
         this.tagService = tagService;
+        this.articlePageCacheService = articlePageCacheService;
+        this.visitorSketchService = visitorSketchService;
     }
 
     @RequestMapping("/article/post")
@@ -92,10 +102,12 @@ public class ArticleController extends BaseController {
     @RequestMapping(value = "/article/list", method = RequestMethod.GET)
     @NBAuth(value = "management:article:list_data", remark = "博文管理页面中的数据接口", group = AJAX)
     @ResponseBody
-    public LayuiTable<NBArticle> articleList(Pagination<NBArticle> pagination, String title, @CookieValue(SESSION_ID_COOKIE) String uuid) {
+    public LayuiTable<ArticleCard> articleList(Pagination<NBArticle> pagination, String title, @CookieValue(SESSION_ID_COOKIE) String uuid) {
         NBSysUser user = context.getSessionUser(uuid);
         Pageable pageable = getPageable(pagination);
-        Page<NBArticle> page = articleService.findPageInfo(pageable, title, user.getId());
+        Page<ArticleCard> page = articleService.findPageInfo(pageable, title, user.getId());
+        Map<Long, Long> visitors = visitorSketchService.countArticles(page.getContent().stream().map(ArticleCard::getId).collect(toList()));
+        page.getContent().forEach(a -> a.setVisitors(visitors.get(a.getId())));
         return layuiTable(page, pageable);
     }
 
@@ -136,6 +148,7 @@ public class ArticleController extends BaseController {
     @ResponseBody
     @NBAuth(value = "management:article:update_appreciable", remark = "修改文章的可赞赏状态", group = AJAX)
     public NBR appreciable(@PathVariable("id") Long id, Boolean appreciable) {
+        articlePageCacheService.evict(id);
         return ajaxDone(
                 () -> articleRepository.updateAppreciableById(appreciable, id) == 1
                 , () -> "修改打赏状态"
@@ -146,6 +159,7 @@ public class ArticleController extends BaseController {
     @ResponseBody
     @NBAuth(value = "management:article:update_commented", remark = "修改文章的可评论状态", group = AJAX)
     public NBR commented(@PathVariable("id") Long id, Boolean commented) {
+        articlePageCacheService.evict(id);
         return ajaxDone(
                 () -> articleRepository.updateCommentedById(commented, id) == 1
                 , () -> "修改评论状态"
@@ -167,7 +181,7 @@ public class ArticleController extends BaseController {
     @NBAuth(value = "management:article:delete", remark = "删除文章操作", group = AJAX)
     public NBR delete(@PathVariable("id") Long id) {
         return ajaxDone(id
-                , articleRepository::deleteById
+                , articleService::deleteArticle
                 , () -> "删除文章"
         );
     }
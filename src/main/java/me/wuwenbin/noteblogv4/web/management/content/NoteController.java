@@ -134,7 +134,7 @@ public class NoteController extends BaseController {
     @NBAuth(value = "management:note:delete", remark = "删除笔记操作", group = AJAX)
     public NBR delete(@PathVariable("id") Long id) {
         return ajaxDone(id
-                , noteRepository::deleteById
+                , noteService::deleteNote
                 , () -> "删除笔记"
         );
     }
@@ -154,7 +154,7 @@ public class NoteController extends BaseController {
     @NBAuth(value = "management:note:update_show", remark = "修改笔记的显隐状态", group = AJAX)
     public NBR show(@PathVariable("id") Long id, Boolean show) {
         return ajaxDone(
-                () -> noteRepository.updateNoteShowStatus(id, show) == 1
+                () -> noteService.updateNoteShow(id, show)
                 , () -> "修改显示状态"
         );
     }
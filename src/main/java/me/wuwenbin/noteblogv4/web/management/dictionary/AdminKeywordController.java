@@ -7,6 +7,7 @@ import me.wuwenbin.noteblogv4.model.entity.NBKeyword;
 import me.wuwenbin.noteblogv4.model.pojo.framework.LayuiTable;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
+import me.wuwenbin.noteblogv4.service.content.KeywordFilterService;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Example;
@@ -33,10 +34,12 @@ import static me.wuwenbin.noteblogv4.model.entity.permission.NBSysResource.ResTy
 public class AdminKeywordController extends BaseController {
 
     private final KeywordRepository keywordRepository;
+    private final KeywordFilterService keywordFilterService;
 
     @Autowired
-    public AdminKeywordController(KeywordRepository keywordRepository) {
+    public AdminKeywordController(KeywordRepository keywordRepository, KeywordFilterService keywordFilterService) {
         this.keywordRepository = keywordRepository;
+        this.keywordFilterService = keywordFilterService;
     }
 
     @RequestMapping
@@ -59,11 +62,13 @@ public class AdminKeywordController extends BaseController {
     @ResponseBody
     public NBR keywordCreate(NBKeyword keyword) {
         if (keyword != null && StrUtil.isNotEmpty(keyword.getWords())) {
-            return ajaxDone(
+            NBR result = ajaxDone(
                     () -> keywordRepository.count(Example.of(NBKeyword.builder().words(keyword.getWords()).build())) == 0,
                     () -> ajaxDone(() -> keywordRepository.save(keyword) != null, () -> "添加关键字信息"),
                     () -> "已存在此关键字"
             );
+            keywordFilterService.reload();
+            return result;
         }
         return NBR.error("添加关键字描述有误！");
     }
@@ -72,7 +77,9 @@ public class AdminKeywordController extends BaseController {
     @NBAuth(value = "management:keyword:delete", remark = "删除关键字操作", group = AJAX)
     @ResponseBody
     public NBR delete(Long id) {
-        return ajaxDone(id, keywordRepository::deleteById, () -> "删除关键字");
+        NBR result = ajaxDone(id, keywordRepository::deleteById, () -> "删除关键字");
+        keywordFilterService.reload();
+        return result;
     }
 
     @RequestMapping("/update")
@@ -80,11 +87,13 @@ public class AdminKeywordController extends BaseController {
     @ResponseBody
     public NBR wordsUpdate(@Valid NBKeyword keyword, BindingResult result) {
         if (result.getErrorCount() == 0) {
-            return ajaxDone(
+            NBR nbr = ajaxDone(
                     () -> keywordRepository.count(Example.of(NBKeyword.builder().words(keyword.getWords()).build())) == 0,
                     () -> ajaxDone(() -> keywordRepository.save(keyword) != null, () -> "修改关键字信息"),
                     () -> "已存在此关键字信息（关键字重复）"
             );
+            keywordFilterService.reload();
+            return nbr;
         } else {
             return ajaxJsr303(result.getFieldErrors());
         }
@@ -94,10 +103,12 @@ public class AdminKeywordController extends BaseController {
     @NBAuth(value = "management:keyword:enable_update", remark = "更新关键字状态操作", group = AJAX)
     @ResponseBody
     public NBR enableUpdate(NBKeyword keyword) {
-        return ajaxDone(
+        NBR result = ajaxDone(
                 () -> keywordRepository.updateEnableById(keyword.getEnable(), keyword.getId()) == 1,
                 () -> "修改关键字可用状态"
         );
+        keywordFilterService.reload();
+        return result;
     }
 
 
@@ -7,6 +7,7 @@ import me.wuwenbin.noteblogv4.model.entity.NBTag;
 import me.wuwenbin.noteblogv4.model.pojo.framework.LayuiTable;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
+import me.wuwenbin.noteblogv4.service.content.TagIndexService;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
@@ -34,11 +35,13 @@ public class AdminTagController extends BaseController {
 
     private final TagRepository tagRepository;
     private final TagReferRepository tagReferRepository;
+    private final TagIndexService tagIndexService;
 
     @Autowired
-    public AdminTagController(TagRepository tagRepository, TagReferRepository tagReferRepository) {
+    public AdminTagController(TagRepository tagRepository, TagReferRepository tagReferRepository, TagIndexService tagIndexService) {
         this.tagRepository = tagRepository;
         this.tagReferRepository = tagReferRepository;
+        this.tagIndexService = tagIndexService;
     }
 
     @RequestMapping
@@ -71,7 +74,11 @@ public class AdminTagController extends BaseController {
     @NBAuth(value = "management:tag:update", remark = "修改标签数据操作接口", group = AJAX)
     public NBR update(@Valid NBTag tag, BindingResult result) {
         if (result.getErrorCount() == 0) {
-            return ajaxDone(() -> tagRepository.save(tag) != null, () -> "修改标签");
+            return ajaxDone(() -> {
+                NBTag saved = tagRepository.save(tag);
+                tagIndexService.saveTag(saved);
+                return saved != null;
+            }, () -> "修改标签");
         } else {
             return ajaxJsr303(result.getFieldErrors());
         }
@@ -83,7 +90,10 @@ public class AdminTagController extends BaseController {
     public NBR delete(@RequestParam("id") Long cateId) {
         return ajaxDone(
                 () -> tagReferRepository.countByTagId(cateId) == 0,
-                () -> ajaxDone(cateId, tagRepository::deleteById, () -> "删除标签"),
+                () -> ajaxDone(cateId, id -> {
+                    tagRepository.deleteById(id);
+                    tagIndexService.removeTag(id);
+                }, () -> "删除标签"),
                 () -> "请删除相关使用此标签的内容！"
         );
     }
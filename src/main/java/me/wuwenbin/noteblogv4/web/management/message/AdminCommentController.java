@@ -6,6 +6,7 @@ import me.wuwenbin.noteblogv4.model.entity.NBComment;
 import me.wuwenbin.noteblogv4.model.pojo.framework.LayuiTable;
 import me.wuwenbin.noteblogv4.model.pojo.framework.NBR;
 import me.wuwenbin.noteblogv4.model.pojo.framework.Pagination;
+import me.wuwenbin.noteblogv4.service.content.CommentService;
 import me.wuwenbin.noteblogv4.web.BaseController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
@@ -29,10 +30,12 @@ import static me.wuwenbin.noteblogv4.model.entity.permission.NBSysResource.ResTy
 public class AdminCommentController extends BaseController {
 
     private final CommentRepository commentRepository;
+    private final CommentService commentService;
 
     @Autowired
-    public AdminCommentController(CommentRepository commentRepository) {
+    public AdminCommentController(CommentRepository commentRepository, CommentService commentService) {
         this.commentRepository = commentRepository;
+        this.commentService = commentService;
     }
 
     @RequestMapping
@@ -68,8 +71,18 @@ public class AdminCommentController extends BaseController {
     @NBAuth(value = "management:comment:update", remark = "修改评论状态", group = AJAX)
     public NBR delete(@RequestParam("id") Long id, boolean enable) {
         return ajaxDone(
-                () -> commentRepository.updateCommentStatus(id, enable) == 1,
+                () -> commentService.updateCommentStatus(id, enable),
                 () -> "修改评论"
         );
     }
+
+    @RequestMapping("/delete")
+    @ResponseBody
+    @NBAuth(value = "management:comment:delete", remark = "删除评论", group = AJAX)
+    public NBR remove(@RequestParam("id") Long id) {
+        return ajaxDone(
+                () -> commentService.deleteComment(id),
+                () -> "删除评论"
+        );
+    }
 }
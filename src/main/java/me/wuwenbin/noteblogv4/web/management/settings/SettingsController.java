@@ -83,7 +83,8 @@ public class SettingsController extends BaseController {
     @RequestMapping("/settings/profile")
     @NBAuth(value = "management:settings:profile", remark = "管理员个人信息设置", group = ROUTER, type = NAV_LINK)
     public String settingsProfile(Model model, @CookieValue(SESSION_ID_COOKIE) String uuid) {
-        model.addAttribute("loginUser", context.getSessionUser(uuid));
+        NBSysUser sessionUser = context.getSessionUser(uuid);
+        model.addAttribute("loginUser", userRepository.findById(sessionUser.getId()).orElse(sessionUser));
         return "management/settings/profile";
     }
 
@@ -123,8 +124,12 @@ public class SettingsController extends BaseController {
     @RequestMapping(value = "/settings/profile/update", method = RequestMethod.POST)
     @NBAuth(value = "management:settings:profile_update", remark = "网站管理员修改操作", group = AJAX)
     @ResponseBody
-    public NBR updateProfile(String nickname, String email, String password1, String password2, @CookieValue(SESSION_ID_COOKIE) String uuid, String avatar) {
+    public NBR updateProfile(String nickname, String email, String password1, String password2, @CookieValue(SESSION_ID_COOKIE) String uuid, String avatar, Integer mailDigestMinutes, HttpServletRequest request) {
         NBSysUser loginUser = context.getSessionUser(uuid);
+        final int maxDigestMinutes = 24 * 60;
+        if (mailDigestMinutes != null && (mailDigestMinutes < 0 || mailDigestMinutes > maxDigestMinutes)) {
+            return NBR.error("邮件汇总间隔须在 0~" + maxDigestMinutes + " 分钟之间！");
+        }
         if (StrUtil.isNotEmpty(nickname)) {
             userRepository.updateUserNickname(loginUser.getId(), nickname);
         }
@@ -142,6 +147,10 @@ public class SettingsController extends BaseController {
         if (!StringUtils.isEmpty(email)) {
             userRepository.updateUserEmail(loginUser.getId(), email);
         }
+        //表单里留空表示使用系统默认，提交上来是空串；没有这个参数的请求不修改
+        if (request.getParameter("mailDigestMinutes") != null) {
+            userRepository.updateUserMailDigest(loginUser.getId(), mailDigestMinutes);
+        }
         return ajaxDone(() -> true, () -> "重新登录生效，更新信息");
     }
 
@@ -149,7 +158,6 @@ public class SettingsController extends BaseController {
     @NBAuth(value = "management:settings:pay_update", remark = "支付宝/微信二维码修改操作", group = AJAX)
     @ResponseBody
     public NBR updateQrcode(String value, String name, String msg) {
-        paramRepository.updateValueByName(name, value);
-        return NBR.ok("修改" + msg + "成功！");
+        return settingsService.update(name, value, () -> NBR.ok("修改" + msg + "成功！"));
     }
 }
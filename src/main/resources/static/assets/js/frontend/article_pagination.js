@@ -17,7 +17,7 @@ var ani =
     '       <div class="layui-colla-content layui-show layui-article">' +
     '           <fieldset class="layui-elem-field layui-field-title">' +
     '               <legend class="center-to-head">' +
-    '                   <span class="layui-badge" style="background: #F44336;"> {{ item.cate.cnName }}</span>' +
+    '                   <span class="layui-badge" style="background: #F44336;"> {{ item.cateName }}</span>' +
     '                   {{# if(item.top){ }}' +
     '                   <span class="layui-badge layui-bg-cyan"> 置顶</span>' +
     '                   {{# } }}' +
@@ -29,7 +29,7 @@ var ani =
     '         </legend>' +
     '               {{# if(item.cover === null || item.cover === ""){ }}' +
     '               <div class="layui-field-box">' +
-    '                   &nbsp;&nbsp;&nbsp;&nbsp;{{ item.summary }}...&nbsp;' +
+    '                   &nbsp;&nbsp;&nbsp;&nbsp;{{ d.articleSnippets && d.articleSnippets[item.id] || item.summary }}...&nbsp;' +
     '       {{# if(item.urlSequence != null && item.urlSequence !=""){ }}' +
     '<a class="loading" href="/article/u/{{ item.urlSequence }}">更多<i class="fa fa-angle-double-right"></i> </a>' +
     '       {{# }else{ }}' +
@@ -41,7 +41,7 @@ var ani =
     '               <div class="layui-field-box has-pic">' +
     '                   <div class="layui-row layui-col-space10">' +
     '                       <div class="layui-col-lg10 layui-col-md10 layui-col-sm10 layui-col-xs12">' +
-    '                           &nbsp;&nbsp;&nbsp;&nbsp;{{ item.summary }}...&nbsp;' +
+    '                           &nbsp;&nbsp;&nbsp;&nbsp;{{ d.articleSnippets && d.articleSnippets[item.id] || item.summary }}...&nbsp;' +
     '       {{# if(item.urlSequence != null && item.urlSequence !=""){ }}' +
     '<a class="loading" href="/article/u/{{ item.urlSequence }}">更多<i class="fa fa-angle-double-right"></i> </a>' +
     '       {{# }else{ }}' +
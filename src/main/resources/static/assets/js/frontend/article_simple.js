@@ -23,7 +23,7 @@ var ani_ =
     '       {{# if(item.top){ }}' +
     '       <span class="layui-badge  layui-bg-cyan">置顶</span>' +
     '       {{# } }}' +
-    '       <span class="layui-badge" style="background: #F44336;">{{ item.cate.cnName }}</span>' +
+    '       <span class="layui-badge" style="background: #F44336;">{{ item.cateName }}</span>' +
     '       {{# if(item.urlSequence != null && item.urlSequence !=""){ }}' +
     '       <a href="/article/u/{{ item.urlSequence }}">{{ item.title }}</a>' +
     '       {{# }else{ }}' +
@@ -34,7 +34,7 @@ var ani_ =
     '       {{# if(item.top){ }}' +
     '       <span class="layui-badge layui-bg-cyan">置顶</span>' +
     '       {{# } }}' +
-    '       <span class="layui-badge" style="background: #F44336;">{{ item.cate.cnName }}</span>' +
+    '       <span class="layui-badge" style="background: #F44336;">{{ item.cateName }}</span>' +
     '       {{# if(item.urlSequence != null && item.urlSequence !=""){ }}' +
     '       <a href="/article/u/{{ item.urlSequence }}">{{ item.title }}</a>' +
     '       {{# }else{ }}' +
@@ -42,9 +42,9 @@ var ani_ =
     '       {{# } }}' +
     '   </div>' +
     '       {{# if(item.urlSequence != null && item.urlSequence !=""){ }}' +
-    '   <div class="article-body normal" style="text-indent: 35px;">{{ item.summary }}<a href="/article/u/{{ item.urlSequence }}">...</a></div>' +
+    '   <div class="article-body normal" style="text-indent: 35px;">{{ d.articleSnippets && d.articleSnippets[item.id] || item.summary }}<a href="/article/u/{{ item.urlSequence }}">...</a></div>' +
     '       {{# }else{ }}' +
-    '   <div class="article-body normal" style="text-indent: 35px;">{{ item.summary }}<a href="/article/{{ item.id }}">...</a></div>' +
+    '   <div class="article-body normal" style="text-indent: 35px;">{{ d.articleSnippets && d.articleSnippets[item.id] || item.summary }}<a href="/article/{{ item.id }}">...</a></div>' +
     '       {{# } }}' +
     '       {{# if(item.urlSequence != null && item.urlSequence !=""){ }}' +
     '   <div class="article-body sm" style="text-indent: 35px;">{{  item.summary.substring(0,Math.ceil(lenStat(item.summary)/2))  }}<a href="/article/u/{{ item.urlSequence }}">...</a></div>' +
@@ -92,7 +92,13 @@ function lenStat(target) {
     return strlen;
 }
 
+//游标分页，记录上一页最后一篇文章的位置，第一页为空串
+var nextCursor = "";
+
 function nextPage(page, next, tpl) {
+    if (page === 1) {
+        nextCursor = "";
+    }
     var s = BMY.getParam("s");
     var c = BMY.getParam("c");
     var t = BMY.getParam("t");
@@ -101,10 +107,12 @@ function nextPage(page, next, tpl) {
         page: page,
         searchStr: s,
         cateId: c,
-        tagSearch: t
+        tagSearch: t,
+        cursor: nextCursor
     }, function (json) {
 
         if (json.code === BMY.status.ok) {
+            nextCursor = json.data.pageArticle.nextCursor;
             tpl(ani_).render(json.data, function (html) {
                 next(html, json.data.pageArticle.last)
             });
@@ -114,7 +122,9 @@ function nextPage(page, next, tpl) {
             if (s !== "" && s !== undefined && s !== null
                 || c !== "" && c !== undefined && c !== null) {
                 BMY.indexVM.quote.showSearch = true;
-                BMY.indexVM.quote.searchCount = json.data.pageArticle.totalPages;
+                if (json.data.pageArticle.totalElements !== null && json.data.pageArticle.totalElements !== undefined) {
+                    BMY.indexVM.quote.searchCount = json.data.pageArticle.totalElements;
+                }
             }
             $(window).resize();
         }
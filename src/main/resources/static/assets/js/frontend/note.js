@@ -31,14 +31,22 @@ var shareEnds =
     "   </div>" +
     "</li>";
 
+//游标分页，记录上一页最后一条笔记的位置，第一页为空串
+var nextCursor = "";
+
 function nextShare(cover, page, next, tpl) { //执行下一页的回调
+    if (page === 1) {
+        nextCursor = "";
+    }
     var s = BMY.getParam("t");
     $.post("/note/next", {
         pageNo: page,
         t: s,
         cc: s,
+        cursor: nextCursor
     }, function (json) {
         if (json.code === BMY.status.ok) {
+            nextCursor = json.data.nextCursor;
             tpl(shares).render(json.data, function (html) {
                 cover.slideUp();
                 next(html + shareEnds, !json.data.last)
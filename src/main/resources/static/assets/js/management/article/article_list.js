@@ -34,7 +34,7 @@ layui.use(['form', 'table', 'element'], function () {
             }
             , {
                 field: 'cate', title: '分类', templet: function (d) {
-                    return d.cate.cnName;
+                    return d.cateName;
                 }
             }
             , {
@@ -48,6 +48,7 @@ layui.use(['form', 'table', 'element'], function () {
                 }
             }
             , {field: 'view', title: '浏览数', width: 90}
+            , {field: 'visitors', title: '读者数', width: 90}
             , {title: '评论', width: 90, align: 'center', toolbar: '#commentedTpl'}
             , {title: '打赏', width: 90, align: 'center', toolbar: '#appreciableTpl'}
             , {field: 'top', title: '置顶', width: 110, templet: '#topTpl'}
@@ -4,11 +4,12 @@
  * if you use the code,  please do not delete the comment
  * 如果您使用了此代码，请勿删除此头部注释
  * */
-layui.use(['form', 'layer', 'table', 'element'], function () {
+layui.use(['form', 'layer', 'table', 'element', 'util'], function () {
     var table = layui.table
         , element = layui.element
         , layer = layui.layer
-        , form = layui.form;
+        , form = layui.form
+        , util = layui.util;
     element.render();
 
 
@@ -22,7 +23,7 @@ layui.use(['form', 'layer', 'table', 'element'], function () {
         , cols: [[
             {
                 field: 'user', title: '用户昵称', templet: function (d) {
-                    return d.user.nickname;
+                    return util.escape(d.user.nickname);
                 }
             }
             , {
@@ -31,7 +32,9 @@ layui.use(['form', 'layer', 'table', 'element'], function () {
                 }
             }
             , {
-                field: 'clearComment', title: '评论内容', event: 'detail'
+                field: 'clearComment', title: '评论内容', event: 'detail', templet: function (d) {
+                    return util.escape(d.clearComment);
+                }
             }
             , {
                 field: 'post', title: '发布时间', sort: true, templet: function (d) {
@@ -42,6 +45,7 @@ layui.use(['form', 'layer', 'table', 'element'], function () {
             , {field: 'ipCnAddr', title: 'IP具体地址'}
             , {field: 'userAgent', title: '用户代理'}
             , {title: '状态', width: 90, align: 'center', toolbar: '#enableTpl'}
+            , {title: '操作', width: 100, align: 'center', toolbar: '#commentBar'}
         ]]
     });
 
@@ -65,6 +69,14 @@ layui.use(['form', 'layer', 'table', 'element'], function () {
                 , btnAlign: 'c' //按钮居中
                 , shade: 0 //不显示遮罩
             });
+        } else if (obj.event === 'del') {
+            layer.confirm('确认删除吗？', function (index) {
+                obj.del();
+                BMY.ajax(BMY.url.prefix + "/comment/delete", {id: data.id}, function (json) {
+                    BMY.okMsgHandle(json);
+                });
+                layer.close(index);
+            });
         }
     });
 
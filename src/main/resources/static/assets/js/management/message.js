@@ -4,11 +4,12 @@
  * if you use the code,  please do not delete the comment
  * 如果您使用了此代码，请勿删除此头部注释
  * */
-layui.use(['form', 'layer', 'table', 'element'], function () {
+layui.use(['form', 'layer', 'table', 'element', 'util'], function () {
     var table = layui.table
         , element = layui.element
         , layer = layui.layer
-        , form = layui.form;
+        , form = layui.form
+        , util = layui.util;
     element.render();
 
 
@@ -22,11 +23,13 @@ layui.use(['form', 'layer', 'table', 'element'], function () {
         , cols: [[
             {
                 field: 'user', title: '用户昵称', templet: function (d) {
-                    return d.user.nickname;
+                    return util.escape(d.user.nickname);
                 }
             }
             , {
-                field: 'clearComment', title: '评论内容', event: 'detail'
+                field: 'clearComment', title: '评论内容', event: 'detail', templet: function (d) {
+                    return util.escape(d.clearComment);
+                }
             }
             , {
                 field: 'post', title: '发布时间', sort: true, templet: function (d) {
@@ -0,0 +1,130 @@
+package me.wuwenbin.noteblogv4.config.application;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+/**
+ * session 日志的重放、末尾不完整记录的处理和压缩
+ * created by Wuwenbin on 2019/3/11 at 19:20
+ *
+ * @author wuwenbin
+ */
+public class FileSessionStoreTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayRestoresSessions() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("session/sessions.log");
+        long now = System.currentTimeMillis();
+        FileSessionStore store = store(file);
+        NBSession a = session("a", 1, now);
+        store.save(a);
+        store.save(session("b", 1, now));
+        store.save(session("c", 2, now));
+        store.save(session("d", 3, now));
+        assertTrue(a.update("127.0.0.1", now + 5000));
+        store.touch(a);
+        store.remove(store.get("b"));
+        assertEquals(1, store.removeByUser(2));
+        store.close();
+
+        FileSessionStore restored = store(file);
+        assertEquals(2, restored.size());
+        assertNull(restored.get("b"));
+        assertNull(restored.get("c"));
+        NBSession session = restored.get("a");
+        assertNotNull(session);
+        assertEquals(now + 5000, session.getLastAccessTime());
+        assertEquals(now, session.getStartTime());
+        assertEquals("user1", session.getUsername());
+        assertNull(session.getAvatar());
+        assertNotNull(restored.get("d"));
+        restored.close();
+    }
+
+    @Test
+    public void ignoreIncompleteTail() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("sessions.log");
+        long now = System.currentTimeMillis();
+        FileSessionStore store = store(file);
+        store.save(session("a", 1, now));
+        store.close();
+        //模拟写到一半时进程退出
+        Files.write(file, new byte[]{'S', 0, 1}, StandardOpenOption.APPEND);
+
+        FileSessionStore restored = store(file);
+        assertEquals(1, restored.size());
+        assertNotNull(restored.get("a"));
+        restored.save(session("b", 1, now));
+        restored.close();
+
+        FileSessionStore again = store(file);
+        assertEquals(2, again.size());
+        again.close();
+    }
+
+    @Test
+    public void compactWhenLogGrows() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("sessions.log");
+        long now = System.currentTimeMillis();
+        FileSessionStore store = store(file);
+        NBSession a = session("a", 1, now);
+        store.save(a);
+        store.save(session("b", 2, now - NBSession.DEFAULT_TIMEOUT_MILLS - 1000));
+        for (int i = 1; i <= 300; i++) {
+            a.update("127.0.0.1", now + i * 1000);
+            store.touch(a);
+        }
+        long before = Files.size(file);
+        store.expire(now + 1000);
+        long after = Files.size(file);
+        assertTrue("before=" + before + ", after=" + after, after < before / 10);
+        store.close();
+
+        FileSessionStore restored = store(file);
+        assertEquals(1, restored.size());
+        assertEquals(now + 300 * 1000, restored.get("a").getLastAccessTime());
+        assertNull(restored.get("b"));
+        restored.close();
+    }
+
+    @Test
+    public void touchWithinIntervalIsNotWritten() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("sessions.log");
+        long now = System.currentTimeMillis();
+        FileSessionStore store = store(file);
+        NBSession a = session("a", 1, now);
+        store.save(a);
+        long size = Files.size(file);
+        a.update("127.0.0.1", now + 999);
+        store.touch(a);
+        assertEquals(size, Files.size(file));
+        a.update("127.0.0.1", now + 1000);
+        store.touch(a);
+        assertTrue(Files.size(file) > size);
+        store.close();
+    }
+
+    private static FileSessionStore store(Path file) {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("noteblog.session.file-path", file.toString());
+        env.setProperty("noteblog.session.touch-interval", "1000");
+        env.setProperty("noteblog.session.compact-threshold", "100");
+        return new FileSessionStore(env);
+    }
+
+    private static NBSession session(String id, long userId, long lastAccess) {
+        return new NBSession(id, "127.0.0.1", userId, 2, "user" + userId, "用户" + userId, null, lastAccess, lastAccess);
+    }
+}
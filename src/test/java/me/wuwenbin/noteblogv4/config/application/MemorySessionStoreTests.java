@@ -0,0 +1,60 @@
+package me.wuwenbin.noteblogv4.config.application;
+
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * 内存 session 存储的过期和超出上限时的淘汰，过期时间由参数传入，不需要等待
+ * created by Wuwenbin on 2019/3/11 at 18:40
+ *
+ * @author wuwenbin
+ */
+public class MemorySessionStoreTests {
+
+    @Test
+    public void expireAndEvict() {
+        MemorySessionStore store = store(1000);
+        NBContext context = new NBContext(store);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 500; i++) {
+            long last = now - NBSession.DEFAULT_TIMEOUT_MILLS - 1000;
+            context.put(new NBSession("old-" + i, "127.0.0.1", i + 1, 2, "user" + i, "用户" + i, null, last, last));
+        }
+        assertNull(context.getSessionUser("old-0"));
+        assertEquals(499, store.expire(now + 1100));
+        assertEquals(0, context.size());
+
+        for (int i = 0; i < 1500; i++) {
+            long last = now - 1500000 + i * 1000;
+            context.put(new NBSession("s-" + i, "127.0.0.1", i + 1, 2, "user" + i, "用户" + i, null, last, last));
+        }
+        assertEquals(1000, context.size());
+        assertNull(context.getSession("s-0"));
+        assertNull(context.getSession("s-499"));
+        assertNotNull(context.getSession("s-500"));
+        assertNotNull(context.getSession("s-1499"));
+
+        assertNull(context.touch("s-1499", "127.0.0.2"));
+        assertNull(context.getSession("s-1499"));
+        assertEquals(999, context.size());
+    }
+
+    @Test
+    public void expireWithinTimeout() {
+        MemorySessionStore store = store(100);
+        long now = System.currentTimeMillis();
+        store.save(new NBSession("a", "127.0.0.1", 1, 2, "user", "用户", null, now, now));
+        assertEquals(0, store.expire(now + NBSession.DEFAULT_TIMEOUT_MILLS - 1));
+        assertEquals(1, store.size());
+        assertEquals(1, store.expire(now + NBSession.DEFAULT_TIMEOUT_MILLS + 1000));
+        assertNull(store.get("a"));
+    }
+
+    private static MemorySessionStore store(int maxSessions) {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("noteblog.session.max-sessions", String.valueOf(maxSessions));
+        return new MemorySessionStore(env);
+    }
+}
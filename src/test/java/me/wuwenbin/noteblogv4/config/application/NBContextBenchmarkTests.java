@@ -0,0 +1,105 @@
+package me.wuwenbin.noteblogv4.config.application;
+
+import lombok.extern.slf4j.Slf4j;
+import me.wuwenbin.noteblogv4.model.entity.permission.NBSysUser;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 10 万个在线 session 时的内存占用和读写耗时，不需要启动 Spring 容器
+ * 耗时较长，不在平时的单元测试中运行，需要时去掉 @Ignore 手动运行
+ * created by Wuwenbin on 2019/3/11 at 10:30
+ *
+ * @author wuwenbin
+ */
+@Slf4j
+public class NBContextBenchmarkTests {
+
+    private static final int SESSIONS = 100000;
+    private static final int USERS = 20000;
+    private static final int LOOKUPS = 1000000;
+
+    @Test
+    @Ignore("性能测试，手动运行")
+    public void benchmark100kSessions() {
+        NBContext context = context(SESSIONS * 2);
+        NBSysUser[] users = users();
+        String[] ids = new String[SESSIONS];
+        long now = System.currentTimeMillis();
+
+        long before = usedMemory();
+        long start = System.nanoTime();
+        for (int i = 0; i < SESSIONS; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            context.put(new NBSession(ids[i], "10.0." + (i >> 8 & 255) + "." + (i & 255), users[i % USERS], now));
+        }
+        long putNanos = System.nanoTime() - start;
+        long after = usedMemory();
+        assertEquals(SESSIONS, context.size());
+
+        long[] samples = new long[LOOKUPS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < LOOKUPS; i++) {
+            int n = random.nextInt(SESSIONS);
+            long t = System.nanoTime();
+            NBSession session = context.touch(ids[n], "10.0." + (n >> 8 & 255) + "." + (n & 255));
+            samples[i] = System.nanoTime() - t;
+            assertNotNull(session);
+        }
+        Arrays.sort(samples);
+
+        start = System.nanoTime();
+        int expired = context.expire();
+        long expireNanos = System.nanoTime() - start;
+        assertEquals(0, expired);
+
+        start = System.nanoTime();
+        int removed = context.removeSessionsOfUser(users[0].getId());
+        long logoutNanos = System.nanoTime() - start;
+        assertEquals(SESSIONS / USERS, removed);
+
+        log.info("sessions: {}, heap: {} MB ({} bytes/session)",
+                SESSIONS, (after - before) / 1024 / 1024, (after - before) / SESSIONS);
+        log.info("put: {} ns/op", putNanos / SESSIONS);
+        log.info("touch: p50 {} ns, p99 {} ns, p999 {} ns",
+                samples[LOOKUPS / 2], samples[LOOKUPS * 99 / 100], samples[LOOKUPS * 999 / 1000]);
+        log.info("expire tick: {} us, force logout ({} sessions): {} us",
+                expireNanos / 1000, removed, logoutNanos / 1000);
+    }
+
+    private static NBContext context(int maxSessions) {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("noteblog.session.max-sessions", String.valueOf(maxSessions));
+        return new NBContext(new MemorySessionStore(env));
+    }
+
+    private static NBSysUser[] users() {
+        NBSysUser[] users = new NBSysUser[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = NBSysUser.builder()
+                    .id((long) i + 1)
+                    .username("user" + i)
+                    .nickname("用户" + i)
+                    .avatar("/static/assets/img/avatar/" + (i % 100) + ".png")
+                    .defaultRoleId(2L)
+                    .build();
+        }
+        return users;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
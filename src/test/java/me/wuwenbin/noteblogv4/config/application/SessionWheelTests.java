@@ -0,0 +1,85 @@
+package me.wuwenbin.noteblogv4.config.application;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 时间轮的过期和淘汰，时间全部由参数传入，不依赖系统时钟
+ * created by Wuwenbin on 2019/3/11 at 18:30
+ *
+ * @author wuwenbin
+ */
+public class SessionWheelTests {
+
+    private static final long TICK = 1000;
+    private static final long TIMEOUT = 10000;
+    private static final long START = 1000000;
+
+    @Test
+    public void expireOnTheTickAfterDeadline() {
+        SessionWheel wheel = new SessionWheel(TICK, TIMEOUT, START);
+        NBSession session = session("a", START + 500);
+        wheel.schedule(session);
+        List<NBSession> expired = new ArrayList<>();
+
+        //过期时间落在当前刻度内但还没到，必须在下一个刻度过期，不能再等一整圈
+        assertEquals(0, wheel.advance(START + 10400, expired::add));
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(START + 11000, expired::add));
+        assertSame(session, expired.get(0));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void touchedSessionIsRescheduled() {
+        SessionWheel wheel = new SessionWheel(TICK, TIMEOUT, START);
+        NBSession session = session("a", START);
+        wheel.schedule(session);
+        assertTrue(session.update("127.0.0.1", START + 8000));
+        wheel.schedule(session);
+
+        assertEquals(0, wheel.advance(START + 10000, s -> fail()));
+        assertEquals(0, wheel.advance(START + 17999, s -> fail()));
+        assertEquals(1, wheel.advance(START + 18000, s -> {
+        }));
+    }
+
+    @Test
+    public void advanceAfterLongPause() {
+        SessionWheel wheel = new SessionWheel(TICK, TIMEOUT, START);
+        for (int i = 0; i < 100; i++) {
+            wheel.schedule(session("s-" + i, START + i * 97));
+        }
+        assertEquals(100, wheel.advance(START + TIMEOUT * 10, s -> {
+        }));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cancelAndEvict() {
+        SessionWheel wheel = new SessionWheel(TICK, TIMEOUT, START);
+        NBSession a = session("a", START + 3000);
+        NBSession b = session("b", START + 1000);
+        NBSession c = session("c", START + 2000);
+        NBSession d = session("d", START + 4000);
+        wheel.schedule(a);
+        wheel.schedule(b);
+        wheel.schedule(c);
+        wheel.schedule(d);
+        wheel.cancel(d);
+
+        assertSame(b, wheel.evict());
+        assertSame(c, wheel.evict());
+        assertSame(a, wheel.evict());
+        assertNull(wheel.evict());
+        assertEquals(0, wheel.advance(START + TIMEOUT * 2, s -> fail()));
+    }
+
+    private static NBSession session(String id, long lastAccess) {
+        return new NBSession(id, "127.0.0.1", 1, 2, "user", "用户", null, lastAccess, lastAccess);
+    }
+}
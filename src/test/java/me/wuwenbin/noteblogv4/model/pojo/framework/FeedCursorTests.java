@@ -0,0 +1,75 @@
+package me.wuwenbin.noteblogv4.model.pojo.framework;
+
+import me.wuwenbin.noteblogv4.exception.InvalidCursorException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+/**
+ * 游标的编码、解码，空游标从第一页开始，不合法的游标抛出异常
+ * created by Wuwenbin on 2019/3/11 at 18:50
+ *
+ * @author wuwenbin
+ */
+public class FeedCursorTests {
+
+    @Test
+    public void encodeAndDecode() {
+        FeedCursor cursor = new FeedCursor(1, LocalDateTime.of(2019, 3, 6, 10, 12, 30, 123456789), 42L);
+        String encoded = cursor.encode();
+        assertFalse(encoded.contains("="));
+        assertFalse(encoded.contains("+"));
+        assertFalse(encoded.contains("/"));
+
+        FeedCursor decoded = FeedCursor.decode(encoded);
+        assertFalse(decoded.isFirst());
+        assertEquals(1, decoded.getTop());
+        assertEquals(cursor.getPost(), decoded.getPost());
+        assertEquals(42L, decoded.getId());
+        assertTrue(decoded.isTopFlag());
+    }
+
+    @Test
+    public void encodeAndDecodeBeforeEpoch() {
+        FeedCursor cursor = new FeedCursor(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 500), 7L);
+        FeedCursor decoded = FeedCursor.decode(cursor.encode());
+        assertEquals(cursor.getPost(), decoded.getPost());
+        assertEquals(7L, decoded.getId());
+        assertFalse(decoded.isTopFlag());
+    }
+
+    @Test
+    public void emptyCursorStartsFromFirstPage() {
+        assertTrue(FeedCursor.decode(null).isFirst());
+        assertTrue(FeedCursor.decode("").isFirst());
+    }
+
+    @Test
+    public void invalidCursorIsRejected() {
+        String[] invalid = {"!!not-base64!!", raw("1.2"), raw("a.b.c.d"), raw("0.1551838350.-1.5"), raw("0.1551838350.1000000000.5")};
+        for (String cursor : invalid) {
+            try {
+                FeedCursor.decode(cursor);
+                fail("应当拒绝游标：" + cursor);
+            } catch (InvalidCursorException expected) {
+                //ok
+            }
+        }
+    }
+
+    @Test
+    public void firstPageSortsBeforeEverything() {
+        FeedCursor first = FeedCursor.decode(null);
+        assertEquals(Integer.MAX_VALUE, first.getTop());
+        assertEquals(Long.MAX_VALUE, first.getId());
+        assertTrue(first.getPost().isAfter(LocalDateTime.now().plusYears(1000)));
+    }
+
+    private static String raw(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
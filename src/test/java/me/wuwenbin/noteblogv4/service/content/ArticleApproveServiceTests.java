@@ -0,0 +1,75 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 写回和点赞同时进行时点赞数不丢失，重复点赞和不存在的文章被拒绝
+ * created by Wuwenbin on 2019/3/11 at 20:00
+ *
+ * @author wuwenbin
+ */
+public class ArticleApproveServiceTests {
+
+    @Test
+    public void flushConcurrentWithApproves() throws InterruptedException {
+        AtomicLong written = new AtomicLong();
+        ArticleApproveServiceImpl service = new ArticleApproveServiceImpl(recording(written), new ArticlePageCacheServiceImpl(new MockEnvironment()), new MockEnvironment());
+        int threads = 4;
+        int perThread = 20000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    assertTrue(service.approve(1L, thread + "-" + i));
+                }
+                done.countDown();
+            }).start();
+        }
+        while (done.getCount() > 0) {
+            service.flush();
+        }
+        service.flush();
+        assertEquals(threads * perThread, written.get());
+        assertEquals(0, service.pendingApproves(1L));
+    }
+
+    @Test
+    public void rejectDuplicatesAndMissingArticles() {
+        AtomicLong written = new AtomicLong();
+        ArticleApproveServiceImpl service = new ArticleApproveServiceImpl(recording(written), new ArticlePageCacheServiceImpl(new MockEnvironment()), new MockEnvironment());
+        assertTrue(service.approve(1L, "127.0.0.1"));
+        assertFalse(service.approve(1L, "127.0.0.1"));
+        assertFalse(service.approve(1L, ""));
+        assertFalse(service.approve(404L, "127.0.0.1"));
+        assertEquals(1, service.pendingApproves(1L));
+        service.flush();
+        assertEquals(1, written.get());
+    }
+
+    /**
+     * id 为 404 的文章不存在，写回的增量累加到 written 中
+     */
+    private static JdbcTemplate recording(AtomicLong written) {
+        return new JdbcTemplate() {
+            @Override
+            public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+                return requiredType.cast(Long.valueOf(404L).equals(args[0]) ? 0 : 1);
+            }
+
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                batchArgs.forEach(arg -> written.addAndGet((Long) arg[0]));
+                return new int[batchArgs.size()];
+            }
+        };
+    }
+}
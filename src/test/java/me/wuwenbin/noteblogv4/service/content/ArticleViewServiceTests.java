@@ -0,0 +1,66 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 写回和计数同时进行时浏览量不丢失，以及访客去重
+ * created by Wuwenbin on 2019/3/11 at 19:50
+ *
+ * @author wuwenbin
+ */
+public class ArticleViewServiceTests {
+
+    @Test
+    public void flushConcurrentWithViews() throws InterruptedException {
+        AtomicLong written = new AtomicLong();
+        ArticleViewServiceImpl service = new ArticleViewServiceImpl(recording(written), new MockEnvironment());
+        int threads = 4;
+        int perThread = 50000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    service.increaseView(1L + i % 2, null);
+                }
+                done.countDown();
+            }).start();
+        }
+        while (done.getCount() > 0) {
+            service.flush();
+        }
+        service.flush();
+        assertEquals(threads * perThread, written.get());
+        assertEquals(0, service.pendingViews(1L));
+    }
+
+    @Test
+    public void dedupeSameVisitor() {
+        AtomicLong written = new AtomicLong();
+        ArticleViewServiceImpl service = new ArticleViewServiceImpl(recording(written), new MockEnvironment());
+        assertTrue(service.increaseView(1L, "127.0.0.1"));
+        assertFalse(service.increaseView(1L, "127.0.0.1"));
+        assertTrue(service.increaseView(2L, "127.0.0.1"));
+        assertTrue(service.increaseView(1L, "127.0.0.2"));
+        assertEquals(2, service.pendingViews(1L));
+        service.flush();
+        assertEquals(3, written.get());
+    }
+
+    private static JdbcTemplate recording(AtomicLong written) {
+        return new JdbcTemplate() {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                batchArgs.forEach(arg -> written.addAndGet((Long) arg[0]));
+                return new int[batchArgs.size()];
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package me.wuwenbin.noteblogv4.service.content;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 关键字自动机的替换，重点是互相重叠、包含的关键字
+ * created by Wuwenbin on 2019/3/11 at 19:30
+ *
+ * @author wuwenbin
+ */
+public class KeywordAutomatonTests {
+
+    @Test
+    public void overlappingKeywords() {
+        KeywordAutomaton automaton = new KeywordAutomaton(Arrays.asList("he", "she", "his", "hers"));
+        assertEquals(4, automaton.keywordCount());
+        assertEquals(10, automaton.stateCount());
+        assertEquals("u*****", automaton.replace("ushers", '*'));
+        assertEquals("*** ***", automaton.replace("his she", '*'));
+        assertEquals("a**a", automaton.replace("ahea", '*'));
+    }
+
+    @Test
+    public void nestedAndAdjacentKeywords() {
+        KeywordAutomaton automaton = new KeywordAutomaton(Arrays.asList("abcd", "bc", "x", "ef", "gh"));
+        assertEquals("****e", automaton.replace("abcde", '*'));
+        assertEquals("a**", automaton.replace("abc", '*'));
+        assertEquals("****", automaton.replace("efgh", '*'));
+        assertEquals("*y*", automaton.replace("xyx", '*'));
+    }
+
+    @Test
+    public void laterMatchStartsBeforeCurrentRun() {
+        //先命中 bcd，再命中起点更早的 abcde，要把前面漏掉的 a 补上
+        KeywordAutomaton automaton = new KeywordAutomaton(Arrays.asList("bcd", "abcde"));
+        assertEquals("*****f", automaton.replace("abcdef", '*'));
+        assertEquals("a***f", automaton.replace("abcdf", '*'));
+    }
+
+    @Test
+    public void normalizeFullWidthAndCase() {
+        KeywordAutomaton automaton = new KeywordAutomaton(Collections.singletonList("ＡＢＣ"));
+        assertEquals("x***x", automaton.replace("xABCx", '*'));
+        assertEquals("x***x", automaton.replace("xａｂｃx", '*'));
+        assertEquals("***", automaton.replace("Abc", '*'));
+    }
+
+    @Test
+    public void noMatchReturnsSameString() {
+        KeywordAutomaton automaton = new KeywordAutomaton(Arrays.asList("foo", "", null));
+        assertEquals(1, automaton.keywordCount());
+        String text = "nothing to mask";
+        assertSame(text, automaton.replace(text, '*'));
+        assertNull(automaton.replace(null, '*'));
+        assertSame(text, KeywordAutomaton.EMPTY.replace(text, '*'));
+    }
+
+    @Test
+    public void sameAsBruteForce() {
+        Random random = new Random(20190311L);
+        for (int round = 0; round < 200; round++) {
+            List<String> keywords = new ArrayList<>();
+            int n = 1 + random.nextInt(8);
+            for (int i = 0; i < n; i++) {
+                keywords.add(randomString(random, 1 + random.nextInt(4)));
+            }
+            KeywordAutomaton automaton = new KeywordAutomaton(keywords);
+            for (int i = 0; i < 20; i++) {
+                String text = randomString(random, random.nextInt(30));
+                assertEquals(keywords + " / " + text, bruteForce(keywords, text), automaton.replace(text, '*'));
+            }
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(chars);
+    }
+
+    private static String bruteForce(List<String> keywords, String text) {
+        char[] result = text.toCharArray();
+        for (String keyword : keywords) {
+            for (int i = text.indexOf(keyword); i >= 0; i = text.indexOf(keyword, i + 1)) {
+                Arrays.fill(result, i, i + keyword.length(), '*');
+            }
+        }
+        return new String(result);
+    }
+}
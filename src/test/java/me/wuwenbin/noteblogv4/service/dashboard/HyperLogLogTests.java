@@ -0,0 +1,99 @@
+package me.wuwenbin.noteblogv4.service.dashboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * HyperLogLog 的误差范围、合并和序列化
+ * created by Wuwenbin on 2019/3/11 at 19:10
+ *
+ * @author wuwenbin
+ */
+public class HyperLogLogTests {
+
+    @Test
+    public void errorWithinThreeStandardErrors() {
+        for (int p : new int[]{10, 12, 14}) {
+            double bound = 3 * 1.04 / Math.sqrt(1 << p);
+            for (int n : new int[]{1000, 10000, 200000}) {
+                HyperLogLog hll = new HyperLogLog(p);
+                for (int i = 0; i < n; i++) {
+                    hll.offer("192.168." + (i >>> 16) + "." + i);
+                }
+                double error = Math.abs(hll.cardinality() - n) / (double) n;
+                assertTrue("p=" + p + ", n=" + n + ", error=" + error, error <= bound);
+            }
+        }
+    }
+
+    @Test
+    public void smallCardinalityUsesLinearCounting() {
+        HyperLogLog hll = new HyperLogLog(14);
+        assertEquals(0, hll.cardinality());
+        for (int i = 0; i < 50; i++) {
+            hll.offer("visitor-" + i);
+        }
+        assertEquals(50, hll.cardinality(), 1);
+    }
+
+    @Test
+    public void duplicatesDoNotChangeRegisters() {
+        HyperLogLog hll = new HyperLogLog(10);
+        assertTrue(hll.offer("127.0.0.1"));
+        assertTrue(hll.isDirty());
+        hll.toBytes();
+        assertFalse(hll.isDirty());
+        for (int i = 0; i < 100; i++) {
+            assertFalse(hll.offer("127.0.0.1"));
+        }
+        assertFalse(hll.isDirty());
+        assertEquals(1, hll.cardinality());
+    }
+
+    @Test
+    public void mergeEqualsUnion() {
+        HyperLogLog a = new HyperLogLog(12);
+        HyperLogLog b = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (int i = 0; i < 20000; i++) {
+            String value = "v" + i;
+            (i % 2 == 0 ? a : b).offer(value);
+            if (i % 3 == 0) {
+                a.offer(value);
+            }
+            union.offer(value);
+        }
+        a.merge(b);
+        assertEquals(union.cardinality(), a.cardinality());
+        assertArrayEquals(union.toBytes(), a.toBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeRejectsDifferentPrecision() {
+        new HyperLogLog(10).merge(new HyperLogLog(11));
+    }
+
+    @Test
+    public void bytesRoundTrip() {
+        HyperLogLog hll = new HyperLogLog(HyperLogLog.MIN_PRECISION);
+        for (int i = 0; i < 1000; i++) {
+            hll.offer("v" + i);
+        }
+        byte[] bytes = hll.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+        assertNotNull(restored);
+        assertEquals(hll.precision(), restored.precision());
+        assertEquals(hll.cardinality(), restored.cardinality());
+
+        assertNull(HyperLogLog.fromBytes(null));
+        assertNull(HyperLogLog.fromBytes(new byte[0]));
+        assertNull(HyperLogLog.fromBytes(new byte[]{(byte) HyperLogLog.MIN_PRECISION, 0, 0}));
+        assertNull(HyperLogLog.fromBytes(new byte[]{(byte) (HyperLogLog.MAX_PRECISION + 1)}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void precisionOutOfRange() {
+        new HyperLogLog(HyperLogLog.MIN_PRECISION - 1);
+    }
+}
@@ -0,0 +1,103 @@
+package me.wuwenbin.noteblogv4.service.logger;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * 环形缓冲区写满、绕圈以及多线程写入
+ * created by Wuwenbin on 2019/3/11 at 19:00
+ *
+ * @author wuwenbin
+ */
+public class AccessLogBufferTests {
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(2, new AccessLogBuffer<Integer>(0).capacity());
+        assertEquals(2, new AccessLogBuffer<Integer>(2).capacity());
+        assertEquals(8, new AccessLogBuffer<Integer>(5).capacity());
+        assertEquals(8, new AccessLogBuffer<Integer>(8).capacity());
+        assertEquals(16, new AccessLogBuffer<Integer>(9).capacity());
+    }
+
+    @Test
+    public void offerFailsWhenFull() {
+        AccessLogBuffer<Integer> buffer = new AccessLogBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(Integer.valueOf(0), buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertFalse(buffer.offer(5));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(Integer.valueOf(i), buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void wrapAroundKeepsOrder() {
+        AccessLogBuffer<Integer> buffer = new AccessLogBuffer<>(4);
+        int next = 0;
+        int expected = 0;
+        //每轮写 3 个读 3 个，起点不断错开，覆盖所有槽位的多圈序号
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.offer(next++));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(Integer.valueOf(expected++), buffer.poll());
+            }
+            assertNull(buffer.poll());
+        }
+        assertEquals(300, next);
+    }
+
+    @Test
+    public void concurrentProducers() throws InterruptedException {
+        AccessLogBuffer<Integer> buffer = new AccessLogBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 10000;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        boolean[] seen = new boolean[producers * perProducer];
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        int received = 0;
+        while (received < seen.length) {
+            Integer e = buffer.poll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            assertFalse(seen[e]);
+            seen[e] = true;
+            //同一个生产者写入的元素保持先后顺序
+            int producer = e / perProducer;
+            assertTrue(e % perProducer > last[producer]);
+            last[producer] = e % perProducer;
+            received++;
+        }
+        done.await();
+        assertNull(buffer.poll());
+    }
+}
@@ -0,0 +1,111 @@
+package me.wuwenbin.noteblogv4.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * html 白名单过滤：标签和属性白名单、链接协议、实体以及纯文本
+ * created by Wuwenbin on 2019/3/11 at 19:40
+ *
+ * @author wuwenbin
+ */
+public class HtmlSanitizerTests {
+
+    @Test
+    public void keepAllowedTags() {
+        String html = "<p>hi <b>there</b><br><a href=\"https://wuwenbin.me\" target=\"_blank\">link</a></p>";
+        HtmlSanitizer.Result result = HtmlSanitizer.sanitize(html);
+        assertEquals(html, result.getHtml());
+        assertEquals("hi therelink", result.getText());
+    }
+
+    @Test
+    public void dropScriptsAndHandlers() {
+        assertEquals("ok", html("<script>alert(1)</script>ok"));
+        assertEquals("ok", html("<ScRiPt type=\"text/javascript\">alert('</b>')</sCrIpT >ok"));
+        assertEquals("ok", html("<svg><script>alert(1)</script></svg>ok"));
+        assertEquals("x", html("<!-- <script>alert(1)</script> -->x"));
+        assertEquals("<img src=\"x\">", html("<img src=x onerror=alert(1)>"));
+        assertEquals("<img alt=\"a&quot; onerror=&quot;alert(1)\">", html("<img alt='a\" onerror=\"alert(1)'>"));
+        assertEquals("text", html("<form action=\"/\"><input name=\"a\">text</form>"));
+    }
+
+    @Test
+    public void filterUrls() {
+        assertEquals("<a>x</a>", html("<a href=\"javascript:alert(1)\">x</a>"));
+        assertEquals("<a>x</a>", html("<a href=\"JaVaScRiPt:alert(1)\">x</a>"));
+        assertEquals("<a>x</a>", html("<a href=\"java\tscript:alert(1)\">x</a>"));
+        assertEquals("<a>x</a>", html("<a href=\"&#106;avascript:alert(1)\">x</a>"));
+        assertEquals("<a>x</a>", html("<a href=\"&#106avascript:alert(1)\">x</a>"));
+        assertEquals("<a>x</a>", html("<a href=\"javascript&colon;alert(1)\">x</a>"));
+        assertEquals("<img>", html("<img src=\"data:image/svg+xml;base64,PHN2Zz4=\">"));
+        assertEquals("<img>", html("<img src=\"mailto:a@b.c\">"));
+        assertEquals("<a href=\"mailto:a@b.c\">x</a>", html("<a href=\"mailto:a@b.c\">x</a>"));
+        assertEquals("<a href=\"/article/1?a=1&amp;b=2\">x</a>", html("<a href=\"/article/1?a=1&amp;b=2\">x</a>"));
+        assertEquals("<a href=\"x\">x</a>", html("<a href=\"x\" target=\"_self\">x</a>"));
+    }
+
+    @Test
+    public void filterAttributes() {
+        assertEquals("<div style=\"text-align: center;\">x</div>",
+                html("<div onclick=\"x\" style=\"color:red;text-align:CENTER\">x"));
+        assertEquals("<p>x</p>", html("<p style=\"background:url(javascript:alert(1))\">x</p>"));
+        assertEquals("<span class=\"hl-1 code\">x</span>", html("<span class=\"hl-1 code\" id=\"a\">x</span>"));
+        assertEquals("<span>x</span>", html("<span class=\"a&quot;b\">x</span>"));
+        assertEquals("<img width=\"100\">", html("<img width=\"100\" height=\"expression(1)\">"));
+    }
+
+    @Test
+    public void fixUnbalancedTags() {
+        assertEquals("<b><i>x</i></b>", html("<b><i>x"));
+        assertEquals("<b><i>x</i></b>y", html("<b><i>x</b>y</i>"));
+        assertEquals("x", html("x</p></div>"));
+        StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            deep.append("<div>");
+        }
+        String out = html(deep.toString());
+        assertEquals(100, out.split("<div>", -1).length - 1);
+        assertEquals(100, out.split("</div>", -1).length - 1);
+    }
+
+    @Test
+    public void encodedPayloadStaysText() {
+        HtmlSanitizer.Result result = HtmlSanitizer.sanitize("&lt;img src=x onerror=alert(1)&gt;");
+        assertEquals("&lt;img src=x onerror=alert(1)&gt;", result.getHtml());
+        assertEquals("<img src=x onerror=alert(1)>", result.getText());
+
+        result = HtmlSanitizer.sanitize("&#60;script&#x3E;alert(1)&#60;/script&#62;");
+        assertFalse(result.getHtml().contains("<"));
+        assertEquals("<script>alert(1)</script>", result.getText());
+
+        result = HtmlSanitizer.sanitize("&amp;lt;script&amp;gt;");
+        assertEquals("&amp;lt;script&amp;gt;", result.getHtml());
+        assertEquals("&lt;script&gt;", result.getText());
+    }
+
+    @Test
+    public void entities() {
+        HtmlSanitizer.Result result = HtmlSanitizer.sanitize("&copy; 2019 &hearts; &mdash; a &amp; b");
+        assertEquals("&copy; 2019 &hearts; &mdash; a &amp; b", result.getHtml());
+        assertEquals("© 2019 &hearts; — a & b", result.getText());
+
+        result = HtmlSanitizer.sanitize("a < b > c & d &#0; &#xZZ; &; &copy");
+        assertEquals("a &lt; b &gt; c &amp; d &amp;#0; &amp;#xZZ; &amp;; &amp;copy", result.getHtml());
+        assertEquals("a < b > c & d &#0; &#xZZ; &; &copy", result.getText());
+
+        assertEquals("😀", HtmlSanitizer.text("&#x1F600;"));
+    }
+
+    @Test
+    public void nullInput() {
+        HtmlSanitizer.Result result = HtmlSanitizer.sanitize(null);
+        assertNull(result.getHtml());
+        assertNull(result.getText());
+    }
+
+    private static String html(String html) {
+        return HtmlSanitizer.sanitize(html).getHtml();
+    }
+}